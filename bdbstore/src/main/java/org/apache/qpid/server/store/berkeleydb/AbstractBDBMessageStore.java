@@ -31,8 +31,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sleepycat.bind.tuple.LongBinding;
 import com.sleepycat.je.Cursor;
 import com.sleepycat.je.Database;
@@ -48,6 +50,7 @@ import org.slf4j.Logger;
 import org.apache.qpid.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.message.EnqueueableMessage;
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.StatisticsHistogram;
 import org.apache.qpid.server.store.Event;
 import org.apache.qpid.server.store.EventListener;
 import org.apache.qpid.server.store.EventManager;
@@ -59,9 +62,10 @@ import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.store.Xid;
+import org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey;
 import org.apache.qpid.server.store.berkeleydb.entry.PreparedTransaction;
 import org.apache.qpid.server.store.berkeleydb.entry.QueueEntryKey;
-import org.apache.qpid.server.store.berkeleydb.tuple.ByteBufferBinding;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.MessageMetaDataBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.PreparedTransactionBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.QueueEntryBinding;
@@ -76,6 +80,9 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     private static final int LOCK_RETRY_ATTEMPTS = 5;
 
+    /** Size of the records message content is split into when written to the content database */
+    static final int CONTENT_CHUNK_SIZE = 64 * 1024;
+
     private static final String MESSAGE_META_DATA_DB_NAME = "MESSAGE_METADATA";
     private static final String MESSAGE_META_DATA_SEQ_DB_NAME = "MESSAGE_METADATA.SEQ";
     private static final String MESSAGE_CONTENT_DB_NAME = "MESSAGE_CONTENT";
@@ -88,6 +95,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     private static final ByteBuffer EMPTY_BYTE_BUFFER = ByteBuffer.allocateDirect(0);
 
     private final EventManager _eventManager = new EventManager();
+    private final StatisticsHistogram _commitLatencyStatistics = new StatisticsHistogram("store-commit-latency");
 
     private final DatabaseEntry MESSAGE_METADATA_SEQ_KEY = new DatabaseEntry("MESSAGE_METADATA_SEQ_KEY".getBytes(
             Charset.forName("UTF-8")));
@@ -161,6 +169,17 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         return new BDBTransaction();
     }
 
+    @Override
+    public StatisticsHistogram getCommitLatencyStatistics()
+    {
+        return _commitLatencyStatistics;
+    }
+
+    private void registerCommitLatency(final long startTime)
+    {
+        _commitLatencyStatistics.registerValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+    }
+
     @Override
     public void addEventListener(final EventListener eventListener, final Event... events)
     {
@@ -212,7 +231,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         }
     }
 
-    void removeMessage(long messageId, boolean sync) throws StoreException
+    void removeMessage(long messageId, int contentSize, boolean sync) throws StoreException
     {
         boolean complete = false;
         Transaction tx = null;
@@ -242,9 +261,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                     getLogger().debug("Deleted metadata for message {}", messageId);
 
                     //now remove the content data from the store if there is any.
-                    DatabaseEntry contentKeyEntry = new DatabaseEntry();
-                    LongBinding.longToEntry(messageId, contentKeyEntry);
-                    getMessageContentDb().delete(tx, contentKeyEntry);
+                    deleteContent(tx, messageId, contentSize);
 
                     getLogger().debug("Deleted content for message {}", messageId);
 
@@ -325,82 +342,125 @@ public abstract class AbstractBDBMessageStore implements MessageStore
      */
     int getContent(long messageId, int offset, ByteBuffer dst) throws StoreException
     {
-        DatabaseEntry contentKeyEntry = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, contentKeyEntry);
-        DatabaseEntry value = new DatabaseEntry();
-        ByteBufferBinding contentTupleBinding = ByteBufferBinding.getInstance();
-
-
         getLogger().debug("Message Id: {} Getting content body from offset: {}", messageId, offset);
 
-
-        try
+        Collection<QpidByteBuffer> content = getContentRange(messageId, offset, dst.remaining());
+        int written = 0;
+        if (content != null)
         {
-
-            int written = 0;
-            OperationStatus status = getMessageContentDb().get(null, contentKeyEntry, value, LockMode.READ_UNCOMMITTED);
-            if (status == OperationStatus.SUCCESS)
+            for (QpidByteBuffer buf : content)
             {
-                QpidByteBuffer buffer = contentTupleBinding.entryToObject(value);
-                int size = buffer.remaining();
-                if (offset > size)
-                {
-                    throw new RuntimeException("Offset " + offset + " is greater than message size " + size
-                                               + " for message id " + messageId + "!");
-
-                }
-
-                written = size - offset;
-                if(written > dst.remaining())
-                {
-                    written = dst.remaining();
-                }
-                buffer = buffer.view(offset, written);
-                buffer.get(dst);
+                written += buf.remaining();
+                buf.get(dst);
+                buf.dispose();
             }
-            return written;
         }
-        catch (RuntimeException e)
+        return written;
+    }
+
+    Collection<QpidByteBuffer> getAllContent(long messageId) throws StoreException
+    {
+        getLogger().debug("Message Id: {} Getting content body", messageId);
+
+        Collection<QpidByteBuffer> content = getContentRange(messageId, 0, Integer.MAX_VALUE);
+        if (content == null)
         {
-            throw getEnvironmentFacade().handleDatabaseException("Error getting AMQMessage with id "
-                                                                 + messageId
-                                                                 + " to database: "
-                                                                 + e.getMessage(), e);
+            throw new StoreException("Unable to find message with id " + messageId);
         }
+        return content;
     }
 
-    Collection<QpidByteBuffer> getAllContent(long messageId) throws StoreException
+    /**
+     * Reads the given range of the content of a message into direct buffers, reading only the content records
+     * which overlap the range.
+     *
+     * @return the content, or null if there is no content stored for the message
+     */
+    private Collection<QpidByteBuffer> getContentRange(long messageId, int offset, int length) throws StoreException
     {
-        DatabaseEntry contentKeyEntry = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, contentKeyEntry);
+        final MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
+        final int firstChunk = offset / CONTENT_CHUNK_SIZE;
+        DatabaseEntry key = new DatabaseEntry();
+        keyBinding.objectToEntry(new MessageContentKey(messageId, firstChunk), key);
         DatabaseEntry value = new DatabaseEntry();
 
-        getLogger().debug("Message Id: {} Getting content body", messageId);
-
+        Cursor cursor = null;
         try
         {
-            OperationStatus status = getMessageContentDb().get(null, contentKeyEntry, value, LockMode.READ_UNCOMMITTED);
+            if (getMessageContentDb().get(null, key, value, LockMode.READ_UNCOMMITTED) == OperationStatus.SUCCESS)
+            {
+                final int position = firstChunk * CONTENT_CHUNK_SIZE;
+                final int chunkOffset = offset - position;
+                if (value.getSize() < CONTENT_CHUNK_SIZE || (long) offset + length <= position + value.getSize())
+                {
+                    if (chunkOffset > value.getSize())
+                    {
+                        throw new RuntimeException("Offset " + offset + " is greater than message size "
+                                                   + (position + value.getSize()) + " for message id "
+                                                   + messageId + "!");
+                    }
+                    // the range ends within this chunk, so no further records need be read
+                    final int chunkLength = Math.min(value.getSize() - chunkOffset, length);
+                    return chunkLength == 0
+                            ? new ArrayList<QpidByteBuffer>()
+                            : copyToDirectBuffers(value.getData(), value.getOffset() + chunkOffset, chunkLength);
+                }
+            }
+
+            cursor = getMessageContentDb().openCursor(null, null);
 
-            if (status == OperationStatus.SUCCESS)
+            OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.READ_UNCOMMITTED);
+            MessageContentKey contentKey = status == OperationStatus.SUCCESS ? keyBinding.entryToObject(key) : null;
+            if (contentKey == null
+                || contentKey.getMessageId() != messageId
+                || contentKey.getChunkNumber() != firstChunk)
             {
-                byte[] data = value.getData();
-                int offset = value.getOffset();
-                int length = value.getSize();
-                Collection<QpidByteBuffer> buffers = QpidByteBuffer.allocateDirectCollection(length);
-                for(QpidByteBuffer buf : buffers)
+                // the offset lies beyond the last chunk, or the content was stored as a single record
+                status = status == OperationStatus.SUCCESS
+                        ? cursor.getPrev(key, value, LockMode.READ_UNCOMMITTED)
+                        : cursor.getLast(key, value, LockMode.READ_UNCOMMITTED);
+                contentKey = status == OperationStatus.SUCCESS ? keyBinding.entryToObject(key) : null;
+                if (contentKey == null || contentKey.getMessageId() != messageId)
                 {
-                    int bufSize = buf.remaining();
-                    buf.put(data, offset, bufSize);
-                    buf.flip();
-                    offset+=bufSize;
+                    return null;
                 }
-                return buffers;
             }
-            else
+
+            List<QpidByteBuffer> content = new ArrayList<>();
+            int position = contentKey.getChunkNumber() == MessageContentKey.UNCHUNKED
+                    ? 0
+                    : contentKey.getChunkNumber() * CONTENT_CHUNK_SIZE;
+            if (offset > position + value.getSize())
             {
-                throw new StoreException("Unable to find message with id " + messageId);
+                throw new RuntimeException("Offset " + offset + " is greater than message size "
+                                           + (position + value.getSize()) + " for message id " + messageId + "!");
             }
 
+            int remaining = length;
+            while (remaining > 0)
+            {
+                int chunkOffset = Math.max(offset - position, 0);
+                int chunkLength = Math.min(value.getSize() - chunkOffset, remaining);
+                if (chunkLength > 0)
+                {
+                    content.addAll(copyToDirectBuffers(value.getData(), value.getOffset() + chunkOffset, chunkLength));
+                    remaining -= chunkLength;
+                }
+                position += value.getSize();
+
+                if (remaining == 0
+                    || contentKey.getChunkNumber() == MessageContentKey.UNCHUNKED
+                    || cursor.getNext(key, value, LockMode.READ_UNCOMMITTED) != OperationStatus.SUCCESS)
+                {
+                    break;
+                }
+                contentKey = keyBinding.entryToObject(key);
+                if (contentKey.getMessageId() != messageId)
+                {
+                    break;
+                }
+            }
+            return content;
         }
         catch (RuntimeException e)
         {
@@ -409,6 +469,23 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                                                                  + " to database: "
                                                                  + e.getMessage(), e);
         }
+        finally
+        {
+            closeCursorSafely(cursor, getEnvironmentFacade());
+        }
+    }
+
+    private Collection<QpidByteBuffer> copyToDirectBuffers(byte[] data, int offset, int length)
+    {
+        Collection<QpidByteBuffer> buffers = QpidByteBuffer.allocateDirectCollection(length);
+        for(QpidByteBuffer buf : buffers)
+        {
+            int bufSize = buf.remaining();
+            buf.put(data, offset, bufSize);
+            buf.flip();
+            offset+=bufSize;
+        }
+        return buffers;
     }
 
     private void visitMessagesInternal(MessageHandler handler, EnvironmentFacade environmentFacade)
@@ -515,40 +592,58 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     }
 
     /**
-     * Stores a chunk of message data.
+     * Stores the message data as a sequence of records of at most {@link #CONTENT_CHUNK_SIZE} bytes, copying
+     * through a single chunk sized array rather than assembling the whole message on the heap.
      *
      * @param tx         The transaction for the operation.
      * @param messageId       The message to store the data for.
-     * @param contentBody     The content of the data chunk.
+     * @param contentBody     The content of the message.
      *
      * @throws org.apache.qpid.server.store.StoreException If the operation fails for any reason, or if the specified message does not exist.
      */
     private void addContent(final Transaction tx, long messageId,
                             Collection<QpidByteBuffer> contentBody) throws StoreException
     {
-        DatabaseEntry key = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, key);
-        DatabaseEntry value = new DatabaseEntry();
-
         int size = 0;
 
         for(QpidByteBuffer buf : contentBody)
         {
             size += buf.remaining();
         }
-        byte[] data = new byte[size];
-        ByteBuffer dst = ByteBuffer.wrap(data);
-        for(QpidByteBuffer buf : contentBody)
-        {
-            buf.copyTo(dst);
-        }
-        value.setData(data);
+
+        final MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry value = new DatabaseEntry();
+        byte[] chunk = new byte[Math.min(size, CONTENT_CHUNK_SIZE)];
+        int filled = 0;
+        int chunkNumber = 0;
         try
         {
-            OperationStatus status = getMessageContentDb().put(tx, key, value);
-            if (status != OperationStatus.SUCCESS)
+            for(QpidByteBuffer buf : contentBody)
             {
-                throw new StoreException("Error adding content for message id " + messageId + ": " + status);
+                QpidByteBuffer src = buf.duplicate();
+                try
+                {
+                    while (src.hasRemaining())
+                    {
+                        int length = Math.min(src.remaining(), chunk.length - filled);
+                        src.get(chunk, filled, length);
+                        filled += length;
+                        if (filled == chunk.length)
+                        {
+                            putContentChunk(tx, messageId, chunkNumber++, chunk, filled, key, value);
+                            filled = 0;
+                        }
+                    }
+                }
+                finally
+                {
+                    src.dispose();
+                }
+            }
+            if (filled > 0 || chunkNumber == 0)
+            {
+                putContentChunk(tx, messageId, chunkNumber, chunk, filled, key, value);
             }
 
             getLogger().debug("Storing content for message {} in transaction {}", messageId, tx);
@@ -563,6 +658,44 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         }
     }
 
+    private void putContentChunk(final Transaction tx,
+                                 final long messageId,
+                                 final int chunkNumber,
+                                 final byte[] chunk,
+                                 final int length,
+                                 final DatabaseEntry key,
+                                 final DatabaseEntry value)
+    {
+        MessageContentKeyBinding.getInstance().objectToEntry(new MessageContentKey(messageId, chunkNumber), key);
+        value.setData(chunk, 0, length);
+        OperationStatus status = getMessageContentDb().put(tx, key, value);
+        if (status != OperationStatus.SUCCESS)
+        {
+            throw new StoreException("Error adding content for message id " + messageId + ": " + status);
+        }
+    }
+
+    /**
+     * Deletes the content records of a message by key, so that only the message's own records are locked.
+     */
+    private void deleteContent(final Transaction tx, final long messageId, final int contentSize)
+    {
+        final MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
+        final Database contentDb = getMessageContentDb();
+        DatabaseEntry key = new DatabaseEntry();
+
+        // content written before it was chunked
+        keyBinding.objectToEntry(new MessageContentKey(messageId, MessageContentKey.UNCHUNKED), key);
+        contentDb.delete(tx, key);
+
+        final int numberOfChunks = Math.max(1, (contentSize + CONTENT_CHUNK_SIZE - 1) / CONTENT_CHUNK_SIZE);
+        for (int chunkNumber = 0; chunkNumber < numberOfChunks; chunkNumber++)
+        {
+            keyBinding.objectToEntry(new MessageContentKey(messageId, chunkNumber), key);
+            contentDb.delete(tx, key);
+        }
+    }
+
     /**
      * Stores message meta-data.
      *
@@ -776,7 +909,9 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             throw new StoreException("Fatal internal error: transactional is null at commitTran");
         }
 
+        final long startTime = System.nanoTime();
         getEnvironmentFacade().commit(tx, syncCommit);
+        registerCommitLatency(startTime);
 
         getLogger().debug("commitTranImpl completed {} transaction {}",
                           syncCommit ? "synchronous" : "asynchronous", tx);
@@ -791,7 +926,16 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             throw new StoreException("Fatal internal error: transactional is null at commitTran");
         }
 
+        final long startTime = System.nanoTime();
         ListenableFuture<X> result = getEnvironmentFacade().commitAsync(tx, val);
+        result.addListener(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                registerCommitLatency(startTime);
+            }
+        }, MoreExecutors.directExecutor());
 
         getLogger().debug("commitTranAsynImpl completed transaction {}", tx);
 
@@ -1127,6 +1271,16 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         @Override
         public synchronized Collection<QpidByteBuffer> getContent(int offset, int length)
         {
+            if (_messageDataRef != null && _messageDataRef.getData() == null && stored()
+                && (offset != 0 || length < getMetaData().getContentSize()))
+            {
+                // only part of the content is wanted and it is not in memory, so read just that range
+                checkMessageStoreOpen();
+                Collection<QpidByteBuffer> content =
+                        AbstractBDBMessageStore.this.getContentRange(_messageId, offset, length);
+                return content == null ? Collections.<QpidByteBuffer>emptyList() : content;
+            }
+
             Collection<QpidByteBuffer> bufs = getContentAsByteBuffer();
             Collection<QpidByteBuffer> content = new ArrayList<>(bufs.size());
             int pos = 0;
@@ -1227,7 +1381,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             int delta = metaData.getContentSize();
             if(stored())
             {
-                removeMessage(_messageId, false);
+                removeMessage(_messageId, delta, false);
                 storedSizeChangeOccurred(-delta);
             }
             if(data != null)
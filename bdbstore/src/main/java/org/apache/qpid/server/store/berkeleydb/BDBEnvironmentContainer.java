@@ -44,6 +44,9 @@ public interface BDBEnvironmentContainer<X extends ConfiguredObject<X>> extends
     @ManagedOperation(description = "Get the BDB transaction statistics", nonModifying = true)
     Map<String, Object> transactionStatistics(@Param(name="reset", defaultValue = "false", description = "If true, reset the statistics")boolean reset);
 
+    @ManagedOperation(description = "Get the statistics of the batches in which transactions are committed to BDB", nonModifying = true)
+    Map<String, Object> commitStatistics(@Param(name="reset", defaultValue = "false", description = "If true, reset the statistics") boolean reset);
+
     @ManagedOperation(description = "Get the BDB database statistics", nonModifying = true)
     Map<String, Object> databaseStatistics(@Param(name="database", description = "database table for which to retrieve statistics")String database, @Param(name="reset", defaultValue = "false", description = "If true, reset the statistics") boolean reset);
 }
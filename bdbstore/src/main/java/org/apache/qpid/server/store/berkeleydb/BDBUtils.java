@@ -21,6 +21,7 @@ package org.apache.qpid.server.store.berkeleydb;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
 
@@ -35,6 +36,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.StatisticsHistogram;
+import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.virtualhost.berkeleydb.BDBVirtualHost;
 
@@ -79,6 +82,27 @@ public class BDBUtils
         }
     }
 
+    /**
+     * Returns the statistics of the environment's committer together with the latencies of the commits made by the
+     * message store, if any.
+     */
+    public static Map<String, Object> getCommitStatistics(final EnvironmentFacade environmentFacade,
+                                                          final MessageStore messageStore,
+                                                          final boolean reset)
+    {
+        final Map<String, Object> statistics = new LinkedHashMap<>(environmentFacade.getCommitStatistics(reset));
+        if (messageStore != null)
+        {
+            final StatisticsHistogram commitLatencies = messageStore.getCommitLatencyStatistics();
+            statistics.put("commitLatencies", commitLatencies.getSummary());
+            if (reset)
+            {
+                commitLatencies.reset();
+            }
+        }
+        return statistics;
+    }
+
     public synchronized static void runCleaner(final Environment environment)
     {
         if (environment == null || !environment.isValid())
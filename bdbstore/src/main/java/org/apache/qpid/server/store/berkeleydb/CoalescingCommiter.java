@@ -21,7 +21,9 @@
 package org.apache.qpid.server.store.berkeleydb;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
@@ -29,6 +31,8 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.util.concurrent.AbstractFuture;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -36,13 +40,24 @@ import com.sleepycat.je.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.qpid.server.stats.StatisticsHistogram;
+
 public class CoalescingCommiter implements Committer
 {
     private final CommitThread _commitThread;
 
     public CoalescingCommiter(String name, EnvironmentFacade environmentFacade)
     {
-        _commitThread = new CommitThread("Commit-Thread-" + name, environmentFacade);
+        this(name, EnvironmentFacade.DEFAULT_COMMIT_LATENCY_TARGET, environmentFacade);
+    }
+
+    /**
+     * @param commitLatencyTarget the time in milliseconds within which a commit should normally complete, used to
+     *                            size the batches of transactions which are flushed together
+     */
+    public CoalescingCommiter(String name, int commitLatencyTarget, EnvironmentFacade environmentFacade)
+    {
+        _commitThread = new CommitThread("Commit-Thread-" + name, commitLatencyTarget, environmentFacade);
     }
 
     @Override
@@ -90,6 +105,12 @@ public class CoalescingCommiter implements Committer
         return future;
     }
 
+    @Override
+    public Map<String, Object> getStatistics(final boolean reset)
+    {
+        return _commitThread.getStatistics(reset);
+    }
+
 
     private static final class BDBCommitFutureResult<X> implements CommitThreadJob
     {
@@ -126,31 +147,56 @@ public class CoalescingCommiter implements Committer
      * themselves are responsible for adding themselves to the queue and waiting for the commit to happen before
      * continuing, but it is the responsibility of this thread to tell the commit operations when they have been
      * completed by calling back on their {@link org.apache.qpid.server.store.berkeleydb.CoalescingCommiter.BDBCommitFutureResult#complete()} and {@link org.apache.qpid.server.store.berkeleydb.CoalescingCommiter.BDBCommitFutureResult#abort} methods.
+     * <p/>
+     * The size of each batch adapts to the store: the thread keeps moving averages of the time taken to flush the log
+     * and of the rate at which commits arrive. Once the first commit of a batch arrives, the thread lingers for
+     * whatever part of the commit latency target the flush itself does not use, but flushes as soon as the number of
+     * commits expected to arrive in that time are waiting, or a commit is waited upon, either synchronously or
+     * through a listener on its future.
      *
      * <p/><table id="crc"><caption>CRC Card</caption> <tr><th> Responsibilities <th> Collaborations </table>
      */
     private static class CommitThread extends Thread
     {
         private static final Logger LOGGER = LoggerFactory.getLogger(CommitThread.class);
-        private static final int JOB_QUEUE_NOTIFY_THRESHOLD = 8;
+        private static final int MAX_BATCH_SIZE_TARGET = 1024;
+        private static final int MOVING_AVERAGE_WEIGHT = 8;
+        private static final long NO_BATCH = Long.MIN_VALUE;
 
         private final AtomicBoolean _stopped = new AtomicBoolean(false);
         private final Queue<CommitThreadJob> _jobQueue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger _queuedJobs = new AtomicInteger();
         private final Object _lock = new Object();
         private final EnvironmentFacade _environmentFacade;
+        private final long _commitLatencyTarget;
 
         private final List<CommitThreadJob> _inProcessJobs = new ArrayList<>(256);
 
-        public CommitThread(String name, EnvironmentFacade environmentFacade)
+        private final StatisticsHistogram _batchSizes;
+
+        private volatile boolean _flushRequested;
+        /* arrival time of the first commit of the batch being formed, or NO_BATCH; see addJob and processJobs */
+        private final AtomicLong _firstJobArrivalTime = new AtomicLong(NO_BATCH);
+        private volatile long _lingerTime;
+        private volatile int _batchSizeTarget = 1;
+        private volatile long _averageFlushTime;
+        private double _arrivalRate;
+        private long _lastFlushStartTime;
+
+        public CommitThread(String name, int commitLatencyTarget, EnvironmentFacade environmentFacade)
         {
             super(name);
+            _batchSizes = new StatisticsHistogram("commit-batch-size-" + name);
             _environmentFacade = environmentFacade;
+            _commitLatencyTarget = TimeUnit.MILLISECONDS.toNanos(commitLatencyTarget);
+            _lingerTime = _commitLatencyTarget;
         }
 
         public void explicitNotify()
         {
             synchronized (_lock)
             {
+                _flushRequested = true;
                 _lock.notifyAll();
             }
         }
@@ -173,34 +219,65 @@ public class CoalescingCommiter implements Committer
                         {
                         }
                     }
+                    awaitBatch();
                 }
                 processJobs();
             }
         }
 
+        private void awaitBatch()
+        {
+            final long firstJobArrivalTime = _firstJobArrivalTime.get();
+            // the first commit may be queued but its arrival not yet recorded, in which case it has only just arrived
+            final long deadline = (firstJobArrivalTime == NO_BATCH ? System.nanoTime() : firstJobArrivalTime)
+                                  + _lingerTime;
+            long remaining;
+            while (!_stopped.get()
+                   && !_flushRequested
+                   && _queuedJobs.get() < _batchSizeTarget
+                   && (remaining = deadline - System.nanoTime()) > 0)
+            {
+                try
+                {
+                    TimeUnit.NANOSECONDS.timedWait(_lock, remaining);
+                }
+                catch (InterruptedException e)
+                {
+                }
+            }
+            _flushRequested = false;
+        }
+
         private void processJobs()
         {
+            // closes the batch before draining the queue: a commit queued from now on either is drained below or
+            // opens the next batch, so the arrival time of a batch is never that of a commit already flushed
+            _firstJobArrivalTime.set(NO_BATCH);
             CommitThreadJob job;
             while((job = _jobQueue.poll()) != null)
             {
                 _inProcessJobs.add(job);
             }
+            final int batchSize = _inProcessJobs.size();
+            _queuedJobs.addAndGet(-batchSize);
 
             int completedJobsIndex = 0;
             try
             {
-                long startTime = 0;
-                if(LOGGER.isDebugEnabled())
-                {
-                    startTime = System.currentTimeMillis();
-                }
+                long startTime = System.nanoTime();
 
                 _environmentFacade.flushLog();
 
+                long endTime = System.nanoTime();
                 if(LOGGER.isDebugEnabled())
                 {
-                    long duration = System.currentTimeMillis() - startTime;
-                    LOGGER.debug("flushLog completed in " + duration  + " ms");
+                    LOGGER.debug("flushLog completed in " + TimeUnit.NANOSECONDS.toMillis(endTime - startTime) + " ms");
+                }
+
+                if (batchSize > 0)
+                {
+                    adapt(batchSize, startTime, endTime);
+                    _batchSizes.registerValue(batchSize);
                 }
 
                 while(completedJobsIndex < _inProcessJobs.size())
@@ -208,7 +285,6 @@ public class CoalescingCommiter implements Committer
                     _inProcessJobs.get(completedJobsIndex).complete();
                     completedJobsIndex++;
                 }
-
             }
             catch (RuntimeException e)
             {
@@ -233,6 +309,28 @@ public class CoalescingCommiter implements Committer
             }
         }
 
+        /**
+         * Updates the moving averages of the flush time and the commit arrival rate, and from them the time the
+         * thread lingers for a batch to form and the number of commits it waits for.
+         */
+        private void adapt(final int batchSize, final long flushStartTime, final long flushEndTime)
+        {
+            long averageFlushTime = _averageFlushTime;
+            averageFlushTime += ((flushEndTime - flushStartTime) - averageFlushTime) / MOVING_AVERAGE_WEIGHT;
+            _averageFlushTime = averageFlushTime;
+
+            if (_lastFlushStartTime != 0L)
+            {
+                double arrivalRate = (double) batchSize / Math.max(1L, flushStartTime - _lastFlushStartTime);
+                _arrivalRate += (arrivalRate - _arrivalRate) / MOVING_AVERAGE_WEIGHT;
+            }
+            _lastFlushStartTime = flushStartTime;
+
+            final long lingerTime = Math.max(0L, _commitLatencyTarget - averageFlushTime);
+            _lingerTime = lingerTime;
+            _batchSizeTarget = (int) Math.max(1L, Math.min(MAX_BATCH_SIZE_TARGET, Math.round(_arrivalRate * lingerTime)));
+        }
+
         private boolean hasJobs()
         {
             return !_jobQueue.isEmpty();
@@ -245,7 +343,13 @@ public class CoalescingCommiter implements Committer
                 throw new IllegalStateException("Commit thread is stopped");
             }
             _jobQueue.add(commit);
-            if(sync || _jobQueue.size() >= JOB_QUEUE_NOTIFY_THRESHOLD)
+            final int queuedJobs = _queuedJobs.incrementAndGet();
+            final boolean firstOfBatch = _firstJobArrivalTime.compareAndSet(NO_BATCH, System.nanoTime());
+            if(sync)
+            {
+                explicitNotify();
+            }
+            else if (firstOfBatch || queuedJobs >= _batchSizeTarget)
             {
                 synchronized (_lock)
                 {
@@ -254,6 +358,21 @@ public class CoalescingCommiter implements Committer
             }
         }
 
+        public Map<String, Object> getStatistics(final boolean reset)
+        {
+            Map<String, Object> results = new LinkedHashMap<>();
+            results.put("commitLatencyTarget", TimeUnit.NANOSECONDS.toMicros(_commitLatencyTarget));
+            results.put("averageFlushTime", TimeUnit.NANOSECONDS.toMicros(_averageFlushTime));
+            results.put("lingerTime", TimeUnit.NANOSECONDS.toMicros(_lingerTime));
+            results.put("batchSizeTarget", _batchSizeTarget);
+            results.put("batchSizes", _batchSizes.getSummary());
+            if (reset)
+            {
+                _batchSizes.reset();
+            }
+            return results;
+        }
+
         public void close()
         {
             synchronized (_lock)
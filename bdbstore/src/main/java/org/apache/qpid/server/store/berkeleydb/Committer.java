@@ -20,6 +20,8 @@
  */
 package org.apache.qpid.server.store.berkeleydb;
 
+import java.util.Map;
+
 import com.google.common.util.concurrent.ListenableFuture;
 import com.sleepycat.je.Transaction;
 
@@ -30,5 +32,7 @@ public interface Committer
     void commit(Transaction tx, boolean syncCommit);
     <X> ListenableFuture<X> commitAsync(Transaction tx, X val);
 
+    Map<String, Object> getStatistics(boolean reset);
+
     void stop();
 }
@@ -157,7 +157,9 @@ public class StandardEnvironmentFacade implements EnvironmentFacade
             }
         }
 
-        _committer =  new CoalescingCommiter(name, this);
+        int commitLatencyTarget = configuration.getFacadeParameter(COMMIT_LATENCY_TARGET_PROPERTY_NAME,
+                                                                   DEFAULT_COMMIT_LATENCY_TARGET);
+        _committer =  new CoalescingCommiter(name, commitLatencyTarget, this);
         _committer.start();
     }
 
@@ -315,6 +317,12 @@ public class StandardEnvironmentFacade implements EnvironmentFacade
         return EnvironmentUtils.getTransactionStatistics(getEnvironment(), reset);
     }
 
+    @Override
+    public Map<String, Object> getCommitStatistics(final boolean reset)
+    {
+        return _committer.getStatistics(reset);
+    }
+
     private void closeSequences()
     {
         RuntimeException firstThrownException = null;
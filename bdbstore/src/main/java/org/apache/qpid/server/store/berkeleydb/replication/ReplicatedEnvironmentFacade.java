@@ -859,6 +859,17 @@ public class ReplicatedEnvironmentFacade implements EnvironmentFacade, StateChan
         return submitEnvironmentTask(timeout, task, "get transaction statistics");
     }
 
+    @Override
+    public Map<String, Object> getCommitStatistics(final boolean reset)
+    {
+        CoalescingCommiter coalescingCommiter = _coalescingCommiter;
+        if (coalescingCommiter != null)
+        {
+            return coalescingCommiter.getStatistics(reset);
+        }
+        return Collections.emptyMap();
+    }
+
     @Override
     public Map<String,Object> getDatabaseStatistics(final String database, final boolean reset)
     {
@@ -1756,7 +1767,9 @@ public class ReplicatedEnvironmentFacade implements EnvironmentFacade, StateChan
             if (localTransactionSynchronizationPolicy == LOCAL_TRANSACTION_SYNCHRONIZATION_POLICY)
             {
                 localTransactionSynchronizationPolicy = SyncPolicy.NO_SYNC;
-                _coalescingCommiter = new CoalescingCommiter(_configuration.getGroupName(), this);
+                int commitLatencyTarget = _configuration.getFacadeParameter(COMMIT_LATENCY_TARGET_PROPERTY_NAME,
+                                                                            DEFAULT_COMMIT_LATENCY_TARGET);
+                _coalescingCommiter = new CoalescingCommiter(_configuration.getGroupName(), commitLatencyTarget, this);
                 _coalescingCommiter.start();
             }
             _realMessageStoreDurability = new Durability(localTransactionSynchronizationPolicy, remoteTransactionSynchronizationPolicy, replicaAcknowledgmentPolicy);
@@ -0,0 +1,75 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb.tuple;
+
+import com.sleepycat.bind.EntryBinding;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.DatabaseEntry;
+
+import org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey;
+
+/**
+ * Binds the keys of the message content database. Content is stored as a sequence of records keyed by message id
+ * followed by chunk number. Records written before content was chunked are keyed by the message id alone; such a
+ * key sorts immediately before the chunk keys of the same message and is reported with a chunk number of
+ * {@link MessageContentKey#UNCHUNKED}.
+ */
+public class MessageContentKeyBinding implements EntryBinding<MessageContentKey>
+{
+    private static final int UNCHUNKED_KEY_SIZE = 8;
+    private static final int CHUNK_KEY_SIZE = 12;
+
+    private static final MessageContentKeyBinding INSTANCE = new MessageContentKeyBinding();
+
+    public static MessageContentKeyBinding getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /** private constructor forces getInstance instead */
+    private MessageContentKeyBinding() { }
+
+    @Override
+    public MessageContentKey entryToObject(DatabaseEntry entry)
+    {
+        TupleInput input = new TupleInput(entry.getData(), entry.getOffset(), entry.getSize());
+        long messageId = input.readLong();
+        int chunkNumber = entry.getSize() == UNCHUNKED_KEY_SIZE ? MessageContentKey.UNCHUNKED : input.readInt();
+        return new MessageContentKey(messageId, chunkNumber);
+    }
+
+    @Override
+    public void objectToEntry(MessageContentKey key, DatabaseEntry entry)
+    {
+        TupleOutput output = new TupleOutput(new byte[CHUNK_KEY_SIZE]);
+        output.writeLong(key.getMessageId());
+        if (key.getChunkNumber() == MessageContentKey.UNCHUNKED)
+        {
+            entry.setData(output.getBufferBytes(), 0, UNCHUNKED_KEY_SIZE);
+        }
+        else
+        {
+            output.writeInt(key.getChunkNumber());
+            entry.setData(output.getBufferBytes(), 0, CHUNK_KEY_SIZE);
+        }
+    }
+}
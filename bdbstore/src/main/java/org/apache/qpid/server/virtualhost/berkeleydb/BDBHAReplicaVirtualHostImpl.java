@@ -32,6 +32,7 @@ import java.util.concurrent.ScheduledFuture;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageSource;
 import org.apache.qpid.server.model.AbstractConfiguredObject;
@@ -49,10 +50,12 @@ import org.apache.qpid.server.model.port.AmqpPort;
 import org.apache.qpid.server.protocol.LinkRegistry;
 import org.apache.qpid.server.security.SecurityManager;
 import org.apache.qpid.server.stats.StatisticsCounter;
+import org.apache.qpid.server.stats.StatisticsHistogram;
 import org.apache.qpid.server.store.DurableConfigurationStore;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.transport.AMQPConnection;
 import org.apache.qpid.server.txn.DtxRegistry;
+import org.apache.qpid.server.util.TimingWheel;
 import org.apache.qpid.server.virtualhost.*;
 
 /**
@@ -63,6 +66,7 @@ import org.apache.qpid.server.virtualhost.*;
 public class BDBHAReplicaVirtualHostImpl extends AbstractConfiguredObject<BDBHAReplicaVirtualHostImpl> implements BDBHAReplicaVirtualHost<BDBHAReplicaVirtualHostImpl>
 {
     private final StatisticsCounter _messagesDelivered, _dataDelivered, _messagesReceived, _dataReceived;
+    private final StatisticsHistogram _messageDeliveryLatency;
     private final Broker<?> _broker;
     private final VirtualHostPrincipal _principal;
 
@@ -114,6 +118,7 @@ public class BDBHAReplicaVirtualHostImpl extends AbstractConfiguredObject<BDBHAR
         _dataDelivered = new StatisticsCounter("bytes-delivered-" + getName());
         _messagesReceived = new StatisticsCounter("messages-received-" + getName());
         _dataReceived = new StatisticsCounter("bytes-received-" + getName());
+        _messageDeliveryLatency = new StatisticsHistogram("message-delivery-latency-" + getName());
         _principal = new VirtualHostPrincipal(this);
         setState(State.UNAVAILABLE);
     }
@@ -280,6 +285,84 @@ public class BDBHAReplicaVirtualHostImpl extends AbstractConfiguredObject<BDBHAR
         return 0;
     }
 
+    @Override
+    public long getMessageConversionCacheHits()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageConversionCacheMisses()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageConversionCacheSize()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getRecoveredMessageCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getRecoveringQueueCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageRecoveryRate()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageDeliveryLatencyMedian()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageDeliveryLatency99thPercentile()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageDeliveryLatencyMaximum()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getStoreCommitLatencyMedian()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getStoreCommitLatency99thPercentile()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getStoreCommitLatencyMaximum()
+    {
+        return 0;
+    }
+
+    @Override
+    public StatisticsHistogram getMessageDeliveryLatencyStatistics()
+    {
+        return _messageDeliveryLatency;
+    }
+
     @Override
     public Collection<Connection<?>> getConnections()
     {
@@ -357,6 +440,18 @@ public class BDBHAReplicaVirtualHostImpl extends AbstractConfiguredObject<BDBHAR
         return null;
     }
 
+    @Override
+    public MessageConversionCache getMessageConversionCache()
+    {
+        return null;
+    }
+
+    @Override
+    public TimingWheel getTimingWheel()
+    {
+        return null;
+    }
+
     @Override
     public LinkRegistry getLinkRegistry(final String remoteContainerId)
     {
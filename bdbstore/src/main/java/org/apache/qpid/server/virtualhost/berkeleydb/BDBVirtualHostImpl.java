@@ -31,6 +31,7 @@ import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.berkeleydb.BDBMessageStore;
 import org.apache.qpid.server.store.berkeleydb.EnvironmentFacade;
 import org.apache.qpid.server.store.berkeleydb.BDBCacheSizeSetter;
+import org.apache.qpid.server.store.berkeleydb.BDBUtils;
 import org.apache.qpid.server.store.berkeleydb.replication.ReplicatedEnvironmentFacade;
 import org.apache.qpid.server.virtualhost.AbstractVirtualHost;
 
@@ -172,6 +173,21 @@ public class BDBVirtualHostImpl extends AbstractVirtualHost<BDBVirtualHostImpl>
         return Collections.emptyMap();
     }
 
+    @Override
+    public Map<String, Object> commitStatistics(final boolean reset)
+    {
+        BDBMessageStore bdbMessageStore = (BDBMessageStore) getMessageStore();
+        if (bdbMessageStore != null)
+        {
+            EnvironmentFacade environmentFacade = bdbMessageStore.getEnvironmentFacade();
+            if (environmentFacade != null)
+            {
+                return BDBUtils.getCommitStatistics(environmentFacade, bdbMessageStore, reset);
+            }
+        }
+        return Collections.emptyMap();
+    }
+
     @Override
     public Map<String, Object> databaseStatistics(String database, final boolean reset)
     {
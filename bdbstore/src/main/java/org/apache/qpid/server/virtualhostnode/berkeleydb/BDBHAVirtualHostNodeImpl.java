@@ -87,6 +87,7 @@ import org.apache.qpid.server.store.VirtualHostStoreUpgraderAndRecoverer;
 import org.apache.qpid.server.store.berkeleydb.BDBConfigurationStore;
 import org.apache.qpid.server.store.berkeleydb.EnvironmentFacade;
 import org.apache.qpid.server.store.berkeleydb.BDBCacheSizeSetter;
+import org.apache.qpid.server.store.berkeleydb.BDBUtils;
 import org.apache.qpid.server.store.berkeleydb.replication.ReplicatedEnvironmentFacade;
 import org.apache.qpid.server.store.berkeleydb.replication.ReplicatedEnvironmentFacadeFactory;
 import org.apache.qpid.server.store.berkeleydb.replication.ReplicationGroupListener;
@@ -1436,6 +1437,23 @@ public class BDBHAVirtualHostNodeImpl extends AbstractVirtualHostNode<BDBHAVirtu
             return Collections.emptyMap();
         }
     }
+
+    @Override
+    public Map<String, Object> commitStatistics(final boolean reset)
+    {
+        ReplicatedEnvironmentFacade environmentFacade = getReplicatedEnvironmentFacade();
+        if (environmentFacade != null)
+        {
+            BDBConfigurationStore configurationStore = getConfigurationStore();
+            return BDBUtils.getCommitStatistics(environmentFacade,
+                                                configurationStore == null ? null : configurationStore.getMessageStore(),
+                                                reset);
+        }
+        else
+        {
+            return Collections.emptyMap();
+        }
+    }
     @Override
     public Map<String, Object> databaseStatistics(String database, final boolean reset)
     {
@@ -35,6 +35,7 @@ import org.apache.qpid.server.store.berkeleydb.BDBConfigurationStore;
 import org.apache.qpid.server.store.berkeleydb.BDBMessageStore;
 import org.apache.qpid.server.store.berkeleydb.EnvironmentFacade;
 import org.apache.qpid.server.store.berkeleydb.BDBCacheSizeSetter;
+import org.apache.qpid.server.store.berkeleydb.BDBUtils;
 import org.apache.qpid.server.virtualhostnode.AbstractStandardVirtualHostNode;
 
 @ManagedObject(type = BDBVirtualHostNodeImpl.VIRTUAL_HOST_NODE_TYPE, category = false,
@@ -172,6 +173,23 @@ public class BDBVirtualHostNodeImpl extends AbstractStandardVirtualHostNode<BDBV
         return Collections.emptyMap();
     }
 
+    @Override
+    public Map<String, Object> commitStatistics(final boolean reset)
+    {
+        BDBConfigurationStore bdbConfigurationStore = (BDBConfigurationStore) getConfigurationStore();
+        if (bdbConfigurationStore != null)
+        {
+            EnvironmentFacade environmentFacade = bdbConfigurationStore.getEnvironmentFacade();
+            if (environmentFacade != null)
+            {
+                return BDBUtils.getCommitStatistics(environmentFacade,
+                                                    bdbConfigurationStore.getMessageStore(),
+                                                    reset);
+            }
+        }
+        return Collections.emptyMap();
+    }
+
     @Override
     public Map<String, Object> databaseStatistics(String database, final boolean reset)
     {
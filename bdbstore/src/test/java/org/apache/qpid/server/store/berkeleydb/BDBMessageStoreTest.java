@@ -322,7 +322,7 @@ public class BDBMessageStoreTest extends MessageStoreTestCase
         StoredMessage<MessageMetaData> storedMessage_0_8 = createAndStoreSingleChunkMessage_0_8(bdbStore);
         long messageid_0_8 = storedMessage_0_8.getMessageNumber();
 
-        bdbStore.removeMessage(messageid_0_8, true);
+        bdbStore.removeMessage(messageid_0_8, storedMessage_0_8.getMetaData().getContentSize(), true);
 
         //verify the removal using the BDB store implementation methods directly
         try
@@ -343,11 +343,66 @@ public class BDBMessageStoreTest extends MessageStoreTestCase
                         0, bdbStore.getContent(messageid_0_8, 0, dst));
     }
 
+    public void testGetContentSpanningContentChunks() throws Exception
+    {
+        BDBMessageStore bdbStore = (BDBMessageStore) getStore();
+        byte[] content = new byte[2 * AbstractBDBMessageStore.CONTENT_CHUNK_SIZE + 100];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) i;
+        }
+        StoredMessage<MessageMetaData> storedMessage = createAndStoreMessage_0_8(bdbStore,
+                                                                                 Arrays.copyOfRange(content, 0, 1000),
+                                                                                 Arrays.copyOfRange(content, 1000, content.length));
+        long messageId = storedMessage.getMessageNumber();
+
+        ByteBuffer dst = ByteBuffer.allocate(content.length);
+        assertEquals("Unexpected length", content.length, bdbStore.getContent(messageId, 0, dst));
+        assertTrue("Unexpected content", Arrays.equals(content, dst.array()));
+
+        int offset = AbstractBDBMessageStore.CONTENT_CHUNK_SIZE - 10;
+        dst = ByteBuffer.allocate(AbstractBDBMessageStore.CONTENT_CHUNK_SIZE + 20);
+        assertEquals("Unexpected length", dst.capacity(), bdbStore.getContent(messageId, offset, dst));
+        assertTrue("Unexpected content",
+                   Arrays.equals(Arrays.copyOfRange(content, offset, offset + dst.capacity()), dst.array()));
+
+        offset = 2 * AbstractBDBMessageStore.CONTENT_CHUNK_SIZE + 50;
+        dst = ByteBuffer.allocate(100);
+        assertEquals("Unexpected length", 50, bdbStore.getContent(messageId, offset, dst));
+
+        bdbStore.removeMessage(messageId, content.length, true);
+        dst = ByteBuffer.allocate(1);
+        assertEquals("Retrieved content when none was expected", 0, bdbStore.getContent(messageId, 0, dst));
+    }
+
+    public void testRemovalLeavesContentOfNextMessage() throws Exception
+    {
+        BDBMessageStore bdbStore = (BDBMessageStore) getStore();
+        byte[] content = new byte[AbstractBDBMessageStore.CONTENT_CHUNK_SIZE + 100];
+        StoredMessage<MessageMetaData> first = createAndStoreMessage_0_8(bdbStore, content);
+        StoredMessage<MessageMetaData> second = createAndStoreSingleChunkMessage_0_8(bdbStore);
+
+        bdbStore.removeMessage(first.getMessageNumber(), content.length, true);
+
+        ByteBuffer dst = ByteBuffer.allocate(1);
+        assertEquals("Retrieved content when none was expected", 0, bdbStore.getContent(first.getMessageNumber(), 0, dst));
+        dst = ByteBuffer.allocate(CONTENT_BYTES.length);
+        assertEquals("Unexpected length", CONTENT_BYTES.length, bdbStore.getContent(second.getMessageNumber(), 0, dst));
+        assertTrue("Unexpected content", Arrays.equals(CONTENT_BYTES, dst.array()));
+    }
+
     private StoredMessage<MessageMetaData> createAndStoreSingleChunkMessage_0_8(MessageStore store)
     {
-        QpidByteBuffer chunk1 = QpidByteBuffer.wrap(CONTENT_BYTES);
+        return createAndStoreMessage_0_8(store, CONTENT_BYTES);
+    }
 
-        int bodySize = CONTENT_BYTES.length;
+    private StoredMessage<MessageMetaData> createAndStoreMessage_0_8(MessageStore store, byte[]... chunks)
+    {
+        int bodySize = 0;
+        for (byte[] chunk : chunks)
+        {
+            bodySize += chunk.length;
+        }
 
         //create and store the message using the MessageStore interface
         MessagePublishInfo pubInfoBody_0_8 = createPublishInfoBody_0_8();
@@ -358,7 +413,10 @@ public class BDBMessageStoreTest extends MessageStoreTestCase
         MessageMetaData messageMetaData_0_8 = new MessageMetaData(pubInfoBody_0_8, chb_0_8);
         MessageHandle<MessageMetaData> storedMessage_0_8 = store.addMessage(messageMetaData_0_8);
 
-        storedMessage_0_8.addContent(chunk1);
+        for (byte[] chunk : chunks)
+        {
+            storedMessage_0_8.addContent(QpidByteBuffer.wrap(chunk));
+        }
         ((AbstractBDBMessageStore.StoredBDBMessage)storedMessage_0_8).flushToStore();
 
         return storedMessage_0_8.allContentAdded();
@@ -26,10 +26,13 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.apache.qpid.test.utils.QpidTestCase;
 
@@ -112,4 +115,58 @@ public class CoalescingCommitterTest extends QpidTestCase
         verify(_environmentFacade, times(2)).flushLog();
         verify(_environmentFacade, times(1)).flushLogFailed(testFailure);
     }
-}
\ No newline at end of file
+
+    public void testAsyncCommitCompletesWithinLatencyTargetWithoutBeingAwaited() throws Exception
+    {
+        _coalescingCommitter.stop();
+        _coalescingCommitter = new CoalescingCommiter("Test", 50, _environmentFacade);
+        _coalescingCommitter.start();
+
+        ListenableFuture<?> future =  _coalescingCommitter.commitAsync(null, null);
+        final long timeout = System.currentTimeMillis() + 1000L;
+        while (!future.isDone() && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(10L);
+        }
+
+        assertTrue("Async commit was not completed", future.isDone());
+        verify(_environmentFacade, times(1)).flushLog();
+    }
+
+    public void testAsyncCommitWithListenerFlushedImmediately() throws Exception
+    {
+        _coalescingCommitter.stop();
+        _coalescingCommitter = new CoalescingCommiter("Test", 60000, _environmentFacade);
+        _coalescingCommitter.start();
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        ListenableFuture<?> future =  _coalescingCommitter.commitAsync(null, null);
+        future.addListener(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                completed.countDown();
+            }
+        }, MoreExecutors.directExecutor());
+
+        assertTrue("Async commit with a listener was not flushed before the latency target",
+                   completed.await(1000, TimeUnit.MILLISECONDS));
+        verify(_environmentFacade, times(1)).flushLog();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testCommitStatistics() throws Exception
+    {
+        _coalescingCommitter.commit(null, true);
+
+        Map<String, Object> statistics = _coalescingCommitter.getStatistics(true);
+        Map<String, Object> batchSizes = (Map<String, Object>) statistics.get("batchSizes");
+        assertEquals("Unexpected number of batches", 1L, batchSizes.get("count"));
+        assertEquals("Unexpected batch size", 1L, batchSizes.get("maximum"));
+
+        statistics = _coalescingCommitter.getStatistics(false);
+        batchSizes = (Map<String, Object>) statistics.get("batchSizes");
+        assertEquals("Statistics were not reset", 0L, batchSizes.get("count"));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.bytebuffer;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the allocate/slice/dispose cycle of pooled direct {@link QpidByteBuffer}s.  The benchmarks run
+ * with several threads so that contention on the shared pool is visible.  Single buffers are only measured up to
+ * the pooled buffer size; larger sizes are measured as collections of pooled buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class QpidByteBufferBenchmark
+{
+    private static final int POOLED_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_POOL_SIZE = 1024;
+
+    @State(Scope.Benchmark)
+    public static class BufferSize
+    {
+        @Param({"64", "4096", "262144"})
+        private int _size;
+    }
+
+    @State(Scope.Benchmark)
+    public static class CollectionSize
+    {
+        @Param({"64", "4096", "262144", "1048576"})
+        private int _size;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        QpidByteBuffer.initialisePool(POOLED_BUFFER_SIZE, MAX_POOL_SIZE);
+    }
+
+    @Benchmark
+    public int allocateDirectAndDispose(final BufferSize size)
+    {
+        QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(size._size);
+        int capacity = buffer.capacity();
+        buffer.dispose();
+        return capacity;
+    }
+
+    @Benchmark
+    public int allocateSliceAndDispose(final BufferSize size)
+    {
+        QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(size._size);
+        buffer.putInt(0, size._size);
+        QpidByteBuffer slice = buffer.slice();
+        QpidByteBuffer view = buffer.view(0, 4);
+        int value = view.getInt(0);
+        view.dispose();
+        slice.dispose();
+        buffer.dispose();
+        return value;
+    }
+
+    @Benchmark
+    public int allocateDirectCollectionAndDispose(final CollectionSize size)
+    {
+        Collection<QpidByteBuffer> buffers = QpidByteBuffer.allocateDirectCollection(size._size);
+        int count = 0;
+        for (QpidByteBuffer buffer : buffers)
+        {
+            count += buffer.remaining();
+            buffer.dispose();
+        }
+        return count;
+    }
+}
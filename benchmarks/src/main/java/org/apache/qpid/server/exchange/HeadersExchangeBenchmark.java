@@ -0,0 +1,115 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.exchange.ExchangeDefaults;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.queue.BaseQueue;
+import org.apache.qpid.server.util.BenchmarkVirtualHostHelper;
+
+/**
+ * Measures the per-message routing cost of {@link HeadersExchange#doRoute} with a mix of
+ * {@code x-match=all} and {@code x-match=any} bindings, of which only a handful match each message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadersExchangeBenchmark
+{
+    @Param({"10", "1000"})
+    private int _bindingCount;
+
+    private VirtualHost<?> _virtualHost;
+    private HeadersExchange _exchange;
+    private ServerMessage _message;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        _virtualHost = BenchmarkVirtualHostHelper.createVirtualHost("headersBenchmark");
+        _exchange = (HeadersExchange) BenchmarkVirtualHostHelper.createExchange(_virtualHost,
+                                                                                "benchmark.headers",
+                                                                                ExchangeDefaults.HEADERS_EXCHANGE_CLASS);
+
+        for (int i = 0; i < _bindingCount; i++)
+        {
+            Queue<?> queue = BenchmarkVirtualHostHelper.createQueue(_virtualHost, "queue" + i, null);
+            Map<String, Object> arguments = new HashMap<>();
+            if (i % 2 == 0)
+            {
+                arguments.put("x-match", "all");
+                arguments.put("region", "region" + (i % 10));
+                arguments.put("type", "order");
+            }
+            else
+            {
+                arguments.put("x-match", "any");
+                arguments.put("customer", "customer" + i);
+                arguments.put("priority", "high" + i);
+            }
+            _exchange.addBinding("binding" + i, queue, arguments);
+        }
+
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("region", "region2");
+        headers.put("type", "order");
+        headers.put("customer", "customer7");
+        headers.put("amount", 100);
+        _message = BenchmarkVirtualHostHelper.createMessage(_virtualHost, headers, null, "payload");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        _virtualHost.close();
+    }
+
+    @Benchmark
+    public List<? extends BaseQueue> doRoute()
+    {
+        return _exchange.doRoute(_message, "", InstanceProperties.EMPTY);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.protocol.v1_0.codec;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.protocol.v1_0.messaging.SectionEncoder;
+import org.apache.qpid.server.protocol.v1_0.messaging.SectionEncoderImpl;
+import org.apache.qpid.server.protocol.v1_0.type.AmqpErrorException;
+import org.apache.qpid.server.protocol.v1_0.type.Binary;
+import org.apache.qpid.server.protocol.v1_0.type.Symbol;
+import org.apache.qpid.server.protocol.v1_0.type.UnsignedByte;
+import org.apache.qpid.server.protocol.v1_0.type.UnsignedInteger;
+import org.apache.qpid.server.protocol.v1_0.type.codec.AMQPDescribedTypeRegistry;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.ApplicationProperties;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Data;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Header;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Properties;
+
+/**
+ * Measures the cost of decoding the sections of a typical AMQP 1.0 message (header, properties,
+ * application properties and a data section) with {@link ValueHandler#parse}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueHandlerBenchmark
+{
+    @Param({"2", "32"})
+    private int _applicationPropertyCount;
+
+    private ValueHandler _valueHandler;
+    private QpidByteBuffer _encoded;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        AMQPDescribedTypeRegistry registry = AMQPDescribedTypeRegistry.newInstance()
+                                                                      .registerTransportLayer()
+                                                                      .registerMessagingLayer()
+                                                                      .registerTransactionLayer()
+                                                                      .registerSecurityLayer();
+        _valueHandler = new ValueHandler(registry);
+
+        Header header = new Header();
+        header.setDurable(Boolean.TRUE);
+        header.setPriority(UnsignedByte.valueOf((byte) 4));
+        header.setTtl(UnsignedInteger.valueOf(60000));
+
+        Properties properties = new Properties();
+        properties.setMessageId("ID:benchmark-message-1");
+        properties.setTo("queue://benchmark");
+        properties.setSubject("stock.nyse.price");
+        properties.setCorrelationId("abc-123");
+        properties.setContentType(Symbol.valueOf("text/plain"));
+        properties.setCreationTime(new Date());
+
+        Map<String, Object> applicationProperties = new LinkedHashMap<>();
+        for (int i = 0; i < _applicationPropertyCount; i++)
+        {
+            applicationProperties.put("property" + i, (i % 2 == 0) ? (Object) ("value" + i) : (Object) i);
+        }
+
+        SectionEncoder encoder = new SectionEncoderImpl(registry);
+        encoder.encodeObject(header);
+        encoder.encodeObject(properties);
+        encoder.encodeObject(new ApplicationProperties(applicationProperties));
+        encoder.encodeObject(new Data(new Binary(new byte[256])));
+        Binary encoding = encoder.getEncoding();
+
+        _encoded = QpidByteBuffer.wrap(encoding.getArray(), encoding.getArrayOffset(), encoding.getLength());
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws AmqpErrorException
+    {
+        QpidByteBuffer buffer = _encoded.duplicate();
+        while (buffer.hasRemaining())
+        {
+            blackhole.consume(_valueHandler.parse(buffer));
+        }
+        buffer.dispose();
+    }
+}
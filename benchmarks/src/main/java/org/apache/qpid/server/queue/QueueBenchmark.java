@@ -0,0 +1,205 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.security.AccessController;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.consumer.ConsumerImpl;
+import org.apache.qpid.server.consumer.MockConsumer;
+import org.apache.qpid.server.message.MessageInstance;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.util.Action;
+import org.apache.qpid.server.util.BenchmarkVirtualHostHelper;
+
+/**
+ * Measures the per-message cost of {@link AbstractQueue#enqueue} and of draining a backlog through
+ * {@link AbstractQueue#processQueue} to a number of consumers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark
+{
+    private static final int BACKLOG_SIZE = 10000;
+
+    private static final Action<MessageInstance> DEQUEUE_ON_ENQUEUE = new Action<MessageInstance>()
+    {
+        @Override
+        public void performAction(final MessageInstance entry)
+        {
+            if (entry.acquire())
+            {
+                entry.delete();
+            }
+        }
+    };
+
+    @State(Scope.Benchmark)
+    public static class EnqueueState
+    {
+        private VirtualHost<?> _virtualHost;
+        private AbstractQueue<?> _queue;
+        private ServerMessage<?> _message;
+        private MessageReference<?> _reference;
+
+        @Setup(Level.Trial)
+        public void setUp()
+        {
+            _virtualHost = BenchmarkVirtualHostHelper.createVirtualHost("enqueueBenchmark");
+            _queue = (AbstractQueue<?>) BenchmarkVirtualHostHelper.createQueue(_virtualHost, "queue", null);
+            _message = BenchmarkVirtualHostHelper.createMessage(_virtualHost, null, null, "payload");
+            // hold a reference for the whole trial so that the message outlives every enqueue/dequeue cycle
+            _reference = _message.newReference();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown()
+        {
+            _reference.release();
+            _virtualHost.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ProcessQueueState
+    {
+        @Param({"1", "16"})
+        private int _consumerCount;
+
+        private VirtualHost<?> _virtualHost;
+        private AbstractQueue<?> _queue;
+        private ServerMessage<?> _message;
+        private MessageReference<?> _reference;
+        private SuspendableConsumerTarget[] _targets;
+        private QueueRunner _runner;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception
+        {
+            _virtualHost = BenchmarkVirtualHostHelper.createVirtualHost("processQueueBenchmark");
+            _queue = (AbstractQueue<?>) BenchmarkVirtualHostHelper.createQueue(_virtualHost, "queue", null);
+            _message = BenchmarkVirtualHostHelper.createMessage(_virtualHost, null, null, "payload");
+            _reference = _message.newReference();
+            _runner = new QueueRunner(_queue, AccessController.getContext());
+
+            _targets = new SuspendableConsumerTarget[_consumerCount];
+            for (int i = 0; i < _consumerCount; i++)
+            {
+                _targets[i] = new SuspendableConsumerTarget();
+                _queue.addConsumer(_targets[i], null, _message.getClass(), "consumer" + i,
+                                   EnumSet.of(ConsumerImpl.Option.ACQUIRES, ConsumerImpl.Option.SEES_REQUEUES));
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void fillQueue()
+        {
+            setSuspended(true);
+            for (int i = 0; i < BACKLOG_SIZE; i++)
+            {
+                _queue.enqueue(_message, null, null);
+            }
+            setSuspended(false);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown()
+        {
+            _reference.release();
+            _virtualHost.close();
+        }
+
+        private void setSuspended(final boolean suspended)
+        {
+            for (SuspendableConsumerTarget target : _targets)
+            {
+                target.setSuspended(suspended);
+            }
+        }
+    }
+
+    @Benchmark
+    public void enqueue(EnqueueState state)
+    {
+        state._queue.enqueue(state._message, DEQUEUE_ON_ENQUEUE, null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BACKLOG_SIZE)
+    public long processQueue(ProcessQueueState state)
+    {
+        long result = 0L;
+        while (state._queue.getQueueDepthMessages() != 0)
+        {
+            result += state._queue.processQueue(state._runner);
+        }
+        return result;
+    }
+
+    /**
+     * Consumer target that consumes (dequeues) every message it is sent, and which can be suspended so
+     * that a backlog can be built up between invocations.
+     */
+    private static class SuspendableConsumerTarget extends MockConsumer
+    {
+        private volatile boolean _suspended;
+
+        @Override
+        public boolean isSuspended()
+        {
+            return _suspended;
+        }
+
+        public void setSuspended(final boolean suspended)
+        {
+            _suspended = suspended;
+        }
+
+        @Override
+        public long send(final ConsumerImpl consumer, final MessageInstance entry, final boolean batch)
+        {
+            long size = entry.getMessage().getSize();
+            entry.delete();
+            return size;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.util;
+
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.model.Broker;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.ConfiguredObjectFactory;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
+import org.apache.qpid.server.model.Exchange;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.model.SystemConfig;
+import org.apache.qpid.server.model.UUIDGenerator;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.model.VirtualHostNode;
+import org.apache.qpid.server.security.SecurityManager;
+import org.apache.qpid.server.store.DurableConfigurationStore;
+import org.apache.qpid.server.virtualhost.AbstractVirtualHost;
+import org.apache.qpid.server.virtualhost.TestMemoryVirtualHost;
+
+/**
+ * Builds a started in-memory virtual host outside of the unit test harness, in the same way as
+ * {@code BrokerTestHelper} does for unit tests.  Benchmarks create one of these per trial.
+ */
+public class BenchmarkVirtualHostHelper
+{
+    private static final TaskExecutor TASK_EXECUTOR = new CurrentThreadTaskExecutor();
+
+    static
+    {
+        TASK_EXECUTOR.start();
+    }
+
+    private BenchmarkVirtualHostHelper()
+    {
+    }
+
+    public static VirtualHost<?> createVirtualHost(String name)
+    {
+        ConfiguredObjectFactory objectFactory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+        EventLogger eventLogger = new EventLogger();
+
+        SystemConfig systemConfig = mock(SystemConfig.class);
+        when(systemConfig.getEventLogger()).thenReturn(eventLogger);
+        when(systemConfig.getObjectFactory()).thenReturn(objectFactory);
+        when(systemConfig.getModel()).thenReturn(objectFactory.getModel());
+        when(systemConfig.getCategoryClass()).thenReturn(SystemConfig.class);
+        when(systemConfig.getTaskExecutor()).thenReturn(TASK_EXECUTOR);
+        when(systemConfig.getChildExecutor()).thenReturn(TASK_EXECUTOR);
+
+        Broker broker = mock(Broker.class);
+        when(broker.getConnection_sessionCountLimit()).thenReturn(1);
+        when(broker.getConnection_closeWhenNoRoute()).thenReturn(false);
+        when(broker.getId()).thenReturn(UUID.randomUUID());
+        when(broker.getSecurityManager()).thenReturn(new SecurityManager(broker, false));
+        when(broker.getObjectFactory()).thenReturn(objectFactory);
+        when(broker.getModel()).thenReturn(objectFactory.getModel());
+        when(broker.getModelVersion()).thenReturn(BrokerModel.MODEL_VERSION);
+        when(broker.getEventLogger()).thenReturn(eventLogger);
+        when(broker.getCategoryClass()).thenReturn(Broker.class);
+        when(broker.getParent(SystemConfig.class)).thenReturn(systemConfig);
+        when(broker.getContextValue(eq(Long.class), eq(Broker.CHANNEL_FLOW_CONTROL_ENFORCEMENT_TIMEOUT))).thenReturn(0l);
+        when(broker.getTaskExecutor()).thenReturn(TASK_EXECUTOR);
+        when(broker.getChildExecutor()).thenReturn(TASK_EXECUTOR);
+
+        VirtualHostNode virtualHostNode = mock(VirtualHostNode.class);
+        when(virtualHostNode.getName()).thenReturn(name + "_node");
+        when(virtualHostNode.getTaskExecutor()).thenReturn(TASK_EXECUTOR);
+        when(virtualHostNode.getChildExecutor()).thenReturn(TASK_EXECUTOR);
+        when(virtualHostNode.getParent(eq(Broker.class))).thenReturn(broker);
+        when(virtualHostNode.getConfigurationStore()).thenReturn(mock(DurableConfigurationStore.class));
+        when(virtualHostNode.getParent(eq(VirtualHostNode.class))).thenReturn(virtualHostNode);
+        when(virtualHostNode.getModel()).thenReturn(objectFactory.getModel());
+        when(virtualHostNode.getObjectFactory()).thenReturn(objectFactory);
+        when(virtualHostNode.getCategoryClass()).thenReturn(VirtualHostNode.class);
+        when(broker.getVirtualHostNodes()).thenReturn(Collections.singleton(virtualHostNode));
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(VirtualHost.TYPE, TestMemoryVirtualHost.VIRTUAL_HOST_TYPE);
+        attributes.put(VirtualHost.NAME, name);
+
+        AbstractVirtualHost<?> host =
+                (AbstractVirtualHost<?>) objectFactory.create(VirtualHost.class, attributes, virtualHostNode);
+        host.start();
+        when(virtualHostNode.getVirtualHost()).thenReturn(host);
+        return host;
+    }
+
+    public static Queue<?> createQueue(VirtualHost<?> virtualHost, String queueName, Map<String, Object> arguments)
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        if (arguments != null)
+        {
+            attributes.putAll(arguments);
+        }
+        attributes.put(Queue.ID, UUIDGenerator.generateRandomUUID());
+        attributes.put(Queue.NAME, queueName);
+        return virtualHost.createChild(Queue.class, attributes);
+    }
+
+    public static Exchange<?> createExchange(VirtualHost<?> virtualHost, String exchangeName, String type)
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Exchange.NAME, exchangeName);
+        attributes.put(Exchange.DURABLE, false);
+        attributes.put(Exchange.TYPE, type);
+        return virtualHost.createChild(Exchange.class, attributes);
+    }
+
+    public static InternalMessage createMessage(VirtualHost<?> virtualHost,
+                                                Map<String, Object> headers,
+                                                String correlationId,
+                                                String body)
+    {
+        AMQMessageHeader header = new InternalMessageHeader(headers,
+                                                            correlationId,
+                                                            0L,
+                                                            null,
+                                                            null,
+                                                            UUID.randomUUID().toString(),
+                                                            "text/plain",
+                                                            null,
+                                                            (byte) 4,
+                                                            System.currentTimeMillis(),
+                                                            0L,
+                                                            null,
+                                                            null);
+        return InternalMessage.createStringMessage(virtualHost.getMessageStore(), header, body);
+    }
+}
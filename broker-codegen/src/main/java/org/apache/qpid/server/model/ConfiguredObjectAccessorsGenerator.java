@@ -0,0 +1,220 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.model;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import org.apache.qpid.server.License;
+
+/**
+ * Generates, for each top level interface declaring managed attributes or statistics, a class named after the
+ * interface with the suffix {@value #ACCESSORS_CLASS_NAME_SUFFIX} which calls the annotated getters directly,
+ * allowing the type registry to read them without reflection.
+ */
+public class ConfiguredObjectAccessorsGenerator extends AbstractProcessor
+{
+    public static final String ACCESSORS_CLASS_NAME_SUFFIX = "Accessors";
+
+    private static final String MANAGED_ATTRIBUTE_ACCESSORS_CLASS_NAME =
+            "org.apache.qpid.server.model.ManagedAttributeAccessors";
+
+    private static final List<String> ANNOTATION_CLASS_NAMES =
+            Arrays.asList("org.apache.qpid.server.model.ManagedAttribute",
+                          "org.apache.qpid.server.model.DerivedAttribute",
+                          "org.apache.qpid.server.model.ManagedStatistic");
+
+    private final Set<String> _generatedClassNames = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latest();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes()
+    {
+        return new HashSet<>(ANNOTATION_CLASS_NAMES);
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv)
+    {
+        if(roundEnv.processingOver())
+        {
+            return false;
+        }
+
+        Elements elementUtils = processingEnv.getElementUtils();
+
+        try
+        {
+            Map<TypeElement, List<ExecutableElement>> gettersByInterface = new LinkedHashMap<>();
+            for (String annotationClassName : ANNOTATION_CLASS_NAMES)
+            {
+                TypeElement annotationElement = elementUtils.getTypeElement(annotationClassName);
+                if (annotationElement == null)
+                {
+                    continue;
+                }
+
+                for (Element e : roundEnv.getElementsAnnotatedWith(annotationElement))
+                {
+                    if (e.getKind() == ElementKind.METHOD && isAccessibleGetter((ExecutableElement) e))
+                    {
+                        TypeElement interfaceElement = (TypeElement) e.getEnclosingElement();
+                        List<ExecutableElement> getters = gettersByInterface.get(interfaceElement);
+                        if (getters == null)
+                        {
+                            getters = new ArrayList<>();
+                            gettersByInterface.put(interfaceElement, getters);
+                        }
+                        getters.add((ExecutableElement) e);
+                    }
+                }
+            }
+
+            Filer filer = processingEnv.getFiler();
+            for (Map.Entry<TypeElement, List<ExecutableElement>> entry : gettersByInterface.entrySet())
+            {
+                generateAccessors(filer, entry.getKey(), entry.getValue());
+            }
+        }
+        catch (Exception e)
+        {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Error: " + e.getLocalizedMessage());
+        }
+
+        // the annotations are also of interest to the validators
+        return false;
+    }
+
+    private boolean isAccessibleGetter(final ExecutableElement methodElement)
+    {
+        // Accessors are only generated for top level interfaces; anything else is left to the reflective
+        // fallback in the type registry
+        Element enclosingElement = methodElement.getEnclosingElement();
+        return methodElement.getParameters().isEmpty()
+               && enclosingElement.getKind() == ElementKind.INTERFACE
+               && enclosingElement.getEnclosingElement().getKind() == ElementKind.PACKAGE;
+    }
+
+    private void generateAccessors(final Filer filer,
+                                   final TypeElement interfaceElement,
+                                   final List<ExecutableElement> getters)
+    {
+        String accessorsName = interfaceElement.getQualifiedName().toString() + ACCESSORS_CLASS_NAME_SUFFIX;
+        if (!_generatedClassNames.add(accessorsName))
+        {
+            return;
+        }
+
+        String accessorsSimpleName = interfaceElement.getSimpleName().toString() + ACCESSORS_CLASS_NAME_SUFFIX;
+        String interfaceSimpleName = interfaceElement.getSimpleName().toString();
+        PackageElement packageElement = (PackageElement) interfaceElement.getEnclosingElement();
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                                                 "Generating accessors file for "
+                                                 + interfaceElement.getQualifiedName().toString());
+
+        try
+        {
+            JavaFileObject accessorsFile = filer.createSourceFile(accessorsName, interfaceElement);
+            PrintWriter pw = new PrintWriter(new OutputStreamWriter(accessorsFile.openOutputStream(), "UTF-8"));
+            pw.println("/*");
+            for(String headerLine : License.LICENSE)
+            {
+                pw.println(" *" + headerLine);
+            }
+            pw.println(" */");
+            pw.println();
+            pw.print("package ");
+            pw.print(packageElement.getQualifiedName());
+            pw.println(";");
+            pw.println();
+            pw.println("@SuppressWarnings(\"rawtypes\")");
+            pw.println("public final class " + accessorsSimpleName + " implements " + MANAGED_ATTRIBUTE_ACCESSORS_CLASS_NAME);
+            pw.println("{");
+            pw.println("    @Override");
+            pw.println("    public int getIndex(final String getterName)");
+            pw.println("    {");
+            pw.println("        switch (getterName)");
+            pw.println("        {");
+            for (int i = 0; i < getters.size(); i++)
+            {
+                pw.println("            case \"" + getters.get(i).getSimpleName() + "\":");
+                pw.println("                return " + i + ";");
+            }
+            pw.println("            default:");
+            pw.println("                return -1;");
+            pw.println("        }");
+            pw.println("    }");
+            pw.println();
+            pw.println("    @Override");
+            pw.println("    public Object getValue(final int index, final Object configuredObject)");
+            pw.println("    {");
+            pw.println("        final " + interfaceSimpleName + " object = (" + interfaceSimpleName + ") configuredObject;");
+            pw.println("        switch (index)");
+            pw.println("        {");
+            for (int i = 0; i < getters.size(); i++)
+            {
+                pw.println("            case " + i + ":");
+                pw.println("                return object." + getters.get(i).getSimpleName() + "();");
+            }
+            pw.println("            default:");
+            pw.println("                throw new IllegalArgumentException(\"Unknown getter index: \" + index);");
+            pw.println("        }");
+            pw.println("    }");
+            pw.println("}");
+
+            pw.close();
+        }
+        catch (IOException e)
+        {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                                                     "Failed to write accessors file: "
+                                                     + accessorsName
+                                                     + " - "
+                                                     + e.getLocalizedMessage());
+        }
+    }
+}
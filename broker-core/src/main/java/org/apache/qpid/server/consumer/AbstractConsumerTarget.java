@@ -41,6 +41,12 @@ import org.apache.qpid.server.util.StateChangeListener;
 public abstract class AbstractConsumerTarget implements ConsumerTarget
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractConsumerTarget.class);
+
+    /**
+     * Maximum number of pending messages written by one call to {@link #processPending()}.  Writing several
+     * messages at a time amortises the cost of the session/connection scheduling over the messages of a batch.
+     */
+    private static final int MAX_MESSAGES_PER_PROCESS_PENDING = 16;
     private final AtomicReference<State> _state;
 
     private final Set<StateChangeListener<ConsumerTarget, State>> _stateChangeListeners = new
@@ -65,7 +71,12 @@ public abstract class AbstractConsumerTarget implements ConsumerTarget
         }
         if(hasMessagesToSend())
         {
-            sendNextMessage();
+            int sent = 0;
+            do
+            {
+                sendNextMessage();
+            }
+            while(++sent < MAX_MESSAGES_PER_PROCESS_PENDING && hasMessagesToSend());
             return true;
         }
         else
@@ -196,6 +207,24 @@ public abstract class AbstractConsumerTarget implements ConsumerTarget
         return entry.getMessage().getSize();
     }
 
+    @Override
+    public final long send(final ConsumerImpl consumer, List<? extends MessageInstance> entries, boolean batch)
+    {
+        AMQPConnection<?> amqpConnection = getSessionModel().getAMQPConnection();
+        long size = 0;
+        for(MessageInstance entry : entries)
+        {
+            size += entry.getMessage().getSize();
+        }
+        amqpConnection.reserveOutboundMessageSpace(size);
+        for(MessageInstance entry : entries)
+        {
+            _queue.add(new ConsumerMessageInstancePair(consumer, entry, batch));
+        }
+        amqpConnection.notifyWork();
+        return size;
+    }
+
     protected abstract void doSend(final ConsumerImpl consumer, MessageInstance entry, boolean batch);
 
     @Override
@@ -20,6 +20,8 @@
  */
 package org.apache.qpid.server.consumer;
 
+import java.util.List;
+
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.protocol.AMQSessionModel;
@@ -60,6 +62,8 @@ public interface ConsumerTarget
 
     long send(final ConsumerImpl consumer, MessageInstance entry, boolean batch);
 
+    long send(final ConsumerImpl consumer, List<? extends MessageInstance> entries, boolean batch);
+
     boolean hasMessagesToSend();
 
     void sendNextMessage();
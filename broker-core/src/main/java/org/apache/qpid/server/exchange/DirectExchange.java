@@ -24,12 +24,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,35 +54,27 @@ public class DirectExchange extends AbstractExchange<DirectExchange>
 
     private static final Logger _logger = LoggerFactory.getLogger(DirectExchange.class);
 
+    /**
+     * Immutable set of the bindings for a single binding key, together with the queues derived from them.  Changes
+     * are made by replacing the set held by the exchange, so routing never observes a set part way through an
+     * update.
+     */
     private static final class BindingSet
     {
-        private CopyOnWriteArraySet<Binding<?>> _bindings = new CopyOnWriteArraySet<>();
-        private List<BaseQueue> _unfilteredQueues = new ArrayList<BaseQueue>();
-        private Map<BaseQueue, FilterManager> _filteredQueues = new HashMap<>();
+        private static final BindingSet EMPTY = new BindingSet(Collections.<Binding<?>>emptySet());
 
-        public synchronized void addBinding(Binding<?> binding)
-        {
-            _bindings.add(binding);
-            recalculateQueues();
-        }
-
-        public synchronized void removeBinding(Binding<?> binding)
-        {
-            _bindings.remove(binding);
-            recalculateQueues();
-        }
+        private final Set<Binding<?>> _bindings;
+        private final List<BaseQueue> _unfilteredQueues;
+        private final Map<BaseQueue, FilterManager> _filteredQueues;
 
-        public synchronized void updateBinding(Binding<?> binding)
+        private BindingSet(Set<Binding<?>> bindings)
         {
-            recalculateQueues();
-        }
+            _bindings = bindings;
 
-        private void recalculateQueues()
-        {
-            List<BaseQueue> queues = new ArrayList<BaseQueue>(_bindings.size());
+            Set<BaseQueue> queues = new LinkedHashSet<>();
             Map<BaseQueue, FilterManager> filteredQueues = new HashMap<>();
 
-            for(Binding<?> b : _bindings)
+            for(Binding<?> b : bindings)
             {
 
                 if(FilterSupport.argumentsContainFilter(b.getArguments()))
@@ -102,24 +94,51 @@ public class DirectExchange extends AbstractExchange<DirectExchange>
                 }
                 else
                 {
-
-                    if(!queues.contains(b.getQueue()))
-                    {
-                        queues.add(b.getQueue());
-                    }
+                    queues.add(b.getQueue());
                 }
             }
-            _unfilteredQueues = queues;
-            _filteredQueues = filteredQueues;
+            _unfilteredQueues = queues.isEmpty()
+                    ? Collections.<BaseQueue>emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(queues));
+            _filteredQueues = filteredQueues.isEmpty()
+                    ? Collections.<BaseQueue, FilterManager>emptyMap()
+                    : Collections.unmodifiableMap(filteredQueues);
+        }
+
+        BindingSet addBinding(Binding<?> binding)
+        {
+            Set<Binding<?>> bindings = new LinkedHashSet<>(_bindings);
+            bindings.add(binding);
+            return new BindingSet(Collections.unmodifiableSet(bindings));
+        }
+
+        BindingSet removeBinding(Binding<?> binding)
+        {
+            if(!_bindings.contains(binding))
+            {
+                return this;
+            }
+            Set<Binding<?>> bindings = new LinkedHashSet<>(_bindings);
+            bindings.remove(binding);
+            return bindings.isEmpty() ? EMPTY : new BindingSet(Collections.unmodifiableSet(bindings));
         }
 
+        BindingSet updateBinding(Binding<?> binding)
+        {
+            return new BindingSet(_bindings);
+        }
+
+        boolean isEmpty()
+        {
+            return _bindings.isEmpty();
+        }
 
         public List<BaseQueue> getUnfilteredQueues()
         {
             return _unfilteredQueues;
         }
 
-        public CopyOnWriteArraySet<Binding<?>> getBindings()
+        public Set<Binding<?>> getBindings()
         {
             return _bindings;
         }
@@ -197,8 +216,12 @@ public class DirectExchange extends AbstractExchange<DirectExchange>
         assert queue != null;
         assert bindingKey != null;
 
-        BindingSet bindings = _bindingsByKey.get(bindingKey);
-        bindings.updateBinding(binding);
+        BindingSet bindings;
+        do
+        {
+            bindings = _bindingsByKey.get(bindingKey);
+        }
+        while(bindings != null && !_bindingsByKey.replace(bindingKey, bindings, bindings.updateBinding(binding)));
     }
 
     protected void onBind(final Binding<?> binding)
@@ -209,30 +232,53 @@ public class DirectExchange extends AbstractExchange<DirectExchange>
         assert queue != null;
         assert bindingKey != null;
 
-        BindingSet bindings = _bindingsByKey.get(bindingKey);
-
-        if(bindings == null)
+        while(true)
         {
-            bindings = new BindingSet();
-            BindingSet newBindings;
-            if((newBindings = _bindingsByKey.putIfAbsent(bindingKey, bindings)) != null)
+            BindingSet bindings = _bindingsByKey.get(bindingKey);
+            if(bindings == null)
             {
-                bindings = newBindings;
+                if(_bindingsByKey.putIfAbsent(bindingKey, BindingSet.EMPTY.addBinding(binding)) == null)
+                {
+                    break;
+                }
+            }
+            else if(_bindingsByKey.replace(bindingKey, bindings, bindings.addBinding(binding)))
+            {
+                break;
             }
         }
 
-        bindings.addBinding(binding);
-
     }
 
     protected void onUnbind(final Binding<?> binding)
     {
         assert binding != null;
 
-        BindingSet bindings = _bindingsByKey.get(binding.getBindingKey());
-        if(bindings != null)
+        final String bindingKey = binding.getBindingKey();
+        while(true)
         {
-            bindings.removeBinding(binding);
+            BindingSet bindings = _bindingsByKey.get(bindingKey);
+            if(bindings == null)
+            {
+                break;
+            }
+
+            BindingSet updated = bindings.removeBinding(binding);
+            if(updated == bindings)
+            {
+                break;
+            }
+            else if(updated.isEmpty())
+            {
+                if(_bindingsByKey.remove(bindingKey, bindings))
+                {
+                    break;
+                }
+            }
+            else if(_bindingsByKey.replace(bindingKey, bindings, updated))
+            {
+                break;
+            }
         }
 
     }
@@ -23,8 +23,8 @@ package org.apache.qpid.server.exchange;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -49,21 +49,7 @@ public class FanoutExchange extends AbstractExchange<FanoutExchange>
 {
     private static final Logger _logger = LoggerFactory.getLogger(FanoutExchange.class);
 
-    private static final Integer ONE = Integer.valueOf(1);
-
-    /**
-     * Maps from queue name to queue instances
-     */
-    private final Map<Queue<?>,Integer> _queues = new HashMap<>();
-    private final CopyOnWriteArrayList<Queue<?>> _unfilteredQueues = new CopyOnWriteArrayList<>();
-    private final CopyOnWriteArrayList<Queue<?>> _filteredQueues = new CopyOnWriteArrayList<>();
-
-    private final AtomicReference<Map<Queue<?>,Map<Binding<?>, FilterManager>>>  _filteredBindings =
-            new AtomicReference<>();
-    {
-        Map<Queue<?>,Map<Binding<?>, FilterManager>> emptyMap = Collections.emptyMap();
-        _filteredBindings.set(emptyMap);
-    }
+    private final AtomicReference<FanoutBindings> _fanoutBindings = new AtomicReference<>(FanoutBindings.EMPTY);
 
     @ManagedObjectFactoryConstructor
     public FanoutExchange(final Map<String, Object> attributes, final VirtualHost<?> vhost)
@@ -72,9 +58,9 @@ public class FanoutExchange extends AbstractExchange<FanoutExchange>
     }
 
     @Override
-    public ArrayList<BaseQueue> doRoute(ServerMessage payload,
-                                        final String routingKey,
-                                        final InstanceProperties instanceProperties)
+    public List<? extends BaseQueue> doRoute(ServerMessage payload,
+                                             final String routingKey,
+                                             final InstanceProperties instanceProperties)
     {
 
         for(Binding<?> b : getBindings())
@@ -82,31 +68,35 @@ public class FanoutExchange extends AbstractExchange<FanoutExchange>
             b.incrementMatches();
         }
 
-        final ArrayList<BaseQueue> result = new ArrayList<BaseQueue>(_unfilteredQueues);
+        final FanoutBindings bindings = _fanoutBindings.get();
+        final List<BaseQueue> unfilteredQueues = bindings.getUnfilteredQueues();
+        final List<Queue<?>> filteredQueues = bindings.getFilteredQueues();
+
+        if(filteredQueues.isEmpty())
+        {
+            _logger.debug("Publishing message to queue {}", unfilteredQueues);
+            return unfilteredQueues;
+        }
 
+        final ArrayList<BaseQueue> result = new ArrayList<BaseQueue>(unfilteredQueues);
+        Filterable filterable = null;
 
-        final Map<Queue<?>, Map<Binding<?>, FilterManager>> filteredBindings = _filteredBindings.get();
-        if(!_filteredQueues.isEmpty())
+        for(Queue<?> q : filteredQueues)
         {
-            for(Queue<?> q : _filteredQueues)
+            for(FilterManager filter : bindings.getFilteredBindings(q).values())
             {
-                final Map<Binding<?>, FilterManager> bindingMessageFilterMap = filteredBindings.get(q);
-                if(!(bindingMessageFilterMap == null || result.contains(q)))
+                if(filterable == null)
+                {
+                    filterable = Filterable.Factory.newInstance(payload, instanceProperties);
+                }
+                if(filter.allAllow(filterable))
                 {
-                    for(FilterManager filter : bindingMessageFilterMap.values())
-                    {
-                        if(filter.allAllow(Filterable.Factory.newInstance(payload, instanceProperties)))
-                        {
-                            result.add(q);
-                            break;
-                        }
-                    }
+                    result.add(q);
+                    break;
                 }
             }
-
         }
 
-
         _logger.debug("Publishing message to queue {}", result);
 
         return result;
@@ -114,39 +104,52 @@ public class FanoutExchange extends AbstractExchange<FanoutExchange>
     }
 
     @Override
-    protected synchronized void onBindingUpdated(final Binding<?> binding, final Map<String, Object> oldArguments)
+    protected void onBindingUpdated(final Binding<?> binding, final Map<String, Object> oldArguments)
     {
-        Queue<?> queue = binding.getQueue();
-
-        if (binding.getArguments() == null || binding.getArguments().isEmpty() || !FilterSupport.argumentsContainFilter(
-                binding.getArguments()))
+        final boolean wasFiltered = oldArguments != null && !oldArguments.isEmpty() && FilterSupport.argumentsContainFilter(oldArguments);
+        final FilterManager messageFilter;
+        if(hasFilter(binding))
         {
-            if(oldArguments != null && !oldArguments.isEmpty() && FilterSupport.argumentsContainFilter(oldArguments))
+            try
             {
-                _unfilteredQueues.add(queue);
-                if(_queues.containsKey(queue))
-                {
-                    _queues.put(queue,_queues.get(queue)+1);
-                }
-                else
-                {
-                    _queues.put(queue, ONE);
-                }
-
-                // No longer any reason to check filters for this queue
-                _filteredQueues.remove(queue);
+                messageFilter = FilterSupport.createMessageFilter(binding.getArguments(), binding.getQueue());
             }
-            // else - nothing has changed, remains unfiltered
+            catch (AMQInvalidArgumentException e)
+            {
+                _logger.warn("Cannot bind queue " + binding.getQueue() + " to exchange this " + this + " because selector cannot be parsed.", e);
+                return;
+            }
+        }
+        else if(!wasFiltered)
+        {
+            // nothing has changed, remains unfiltered
+            return;
         }
         else
         {
-            HashMap<Queue<?>,Map<Binding<?>, FilterManager>> filteredBindings =
-                    new HashMap<>(_filteredBindings.get());
+            messageFilter = null;
+        }
 
-            Map<Binding<?>,FilterManager> bindingsForQueue;
+        FanoutBindings bindings;
+        FanoutBindings updated;
+        do
+        {
+            bindings = _fanoutBindings.get();
+            updated = wasFiltered ? bindings.withoutFilteredBinding(binding) : bindings.withoutUnfilteredBinding(binding.getQueue());
+            updated = messageFilter == null ? updated.withUnfilteredBinding(binding.getQueue()) : updated.withFilteredBinding(binding, messageFilter);
+        }
+        while(!_fanoutBindings.compareAndSet(bindings, updated));
+    }
 
-            final FilterManager messageFilter;
+    @Override
+    protected void onBind(final Binding<?> binding)
+    {
+        Queue<?> queue = binding.getQueue();
+        assert queue != null;
 
+        final FilterManager messageFilter;
+        if(hasFilter(binding))
+        {
             try
             {
                 messageFilter = FilterSupport.createMessageFilter(binding.getArguments(), binding.getQueue());
@@ -156,143 +159,201 @@ public class FanoutExchange extends AbstractExchange<FanoutExchange>
                 _logger.warn("Cannot bind queue " + queue + " to exchange this " + this + " because selector cannot be parsed.", e);
                 return;
             }
+        }
+        else
+        {
+            messageFilter = null;
+        }
 
-
-            if (oldArguments != null && !oldArguments.isEmpty() && FilterSupport.argumentsContainFilter(oldArguments))
-            {
-                bindingsForQueue = new HashMap<>(filteredBindings.remove(binding.getQueue()));
-            }
-            else // previously unfiltered
-            {
-                bindingsForQueue = new HashMap<>();
-
-                Integer oldValue = _queues.remove(queue);
-                if (ONE.equals(oldValue))
-                {
-                    // should start checking filters for this queue
-                    _filteredQueues.add(queue);
-                    _unfilteredQueues.remove(queue);
-                }
-                else
-                {
-                    _queues.put(queue, oldValue - 1);
-                }
-
-            }
-            bindingsForQueue.put(binding, messageFilter);
-            filteredBindings.put(binding.getQueue(),bindingsForQueue);
-
-            _filteredBindings.set(filteredBindings);
-
+        FanoutBindings bindings;
+        FanoutBindings updated;
+        do
+        {
+            bindings = _fanoutBindings.get();
+            updated = messageFilter == null ? bindings.withUnfilteredBinding(queue) : bindings.withFilteredBinding(binding, messageFilter);
         }
+        while(!_fanoutBindings.compareAndSet(bindings, updated));
 
+        if (_logger.isDebugEnabled())
+        {
+            _logger.debug("Binding queue " + queue
+                          + " with routing key " + binding.getBindingKey() + " to exchange " + this);
+        }
     }
 
     @Override
-    protected synchronized void onBind(final Binding<?> binding)
+    protected void onUnbind(final Binding<?> binding)
     {
-        Queue<?> queue = binding.getQueue();
-        assert queue != null;
-        if(binding.getArguments() == null || binding.getArguments().isEmpty() || !FilterSupport.argumentsContainFilter(binding.getArguments()))
+        final boolean filtered = hasFilter(binding);
+        FanoutBindings bindings;
+        FanoutBindings updated;
+        do
         {
+            bindings = _fanoutBindings.get();
+            updated = filtered ? bindings.withoutFilteredBinding(binding) : bindings.withoutUnfilteredBinding(binding.getQueue());
+        }
+        while(!_fanoutBindings.compareAndSet(bindings, updated));
+    }
 
-            Integer oldVal;
-            if(_queues.containsKey(queue))
-            {
-                _queues.put(queue,_queues.get(queue)+1);
-            }
-            else
-            {
-                _queues.put(queue, ONE);
-                _unfilteredQueues.add(queue);
-                // No longer any reason to check filters for this queue
-                _filteredQueues.remove(queue);
-            }
+    private static boolean hasFilter(final Binding<?> binding)
+    {
+        return binding.getArguments() != null
+               && !binding.getArguments().isEmpty()
+               && FilterSupport.argumentsContainFilter(binding.getArguments());
+    }
 
-        }
-        else
+    /**
+     * Immutable snapshot of the exchange's bindings.  Each change creates a new snapshot which is then swapped in,
+     * so routing reads a consistent view without locking and can hand out the list of unfiltered queues as is.
+     */
+    private static final class FanoutBindings
+    {
+        private static final FanoutBindings EMPTY =
+                new FanoutBindings(Collections.<Queue<?>, Integer>emptyMap(),
+                                   Collections.<BaseQueue>emptyList(),
+                                   Collections.<Queue<?>, Map<Binding<?>, FilterManager>>emptyMap(),
+                                   Collections.<Queue<?>>emptyList());
+
+        /** number of unfiltered bindings per queue */
+        private final Map<Queue<?>, Integer> _unfilteredBindingCounts;
+        private final List<BaseQueue> _unfilteredQueues;
+        private final Map<Queue<?>, Map<Binding<?>, FilterManager>> _filteredBindings;
+        /** queues which have filtered bindings only, and so need their filters checked */
+        private final List<Queue<?>> _filteredQueues;
+
+        private FanoutBindings(final Map<Queue<?>, Integer> unfilteredBindingCounts,
+                               final List<BaseQueue> unfilteredQueues,
+                               final Map<Queue<?>, Map<Binding<?>, FilterManager>> filteredBindings,
+                               final List<Queue<?>> filteredQueues)
         {
-            try
-            {
+            _unfilteredBindingCounts = unfilteredBindingCounts;
+            _unfilteredQueues = unfilteredQueues;
+            _filteredBindings = filteredBindings;
+            _filteredQueues = filteredQueues;
+        }
 
-                HashMap<Queue<?>,Map<Binding<?>, FilterManager>> filteredBindings =
-                        new HashMap<>(_filteredBindings.get());
+        List<BaseQueue> getUnfilteredQueues()
+        {
+            return _unfilteredQueues;
+        }
 
-                Map<Binding<?>, FilterManager> bindingsForQueue = filteredBindings.remove(binding.getQueue());
-                final FilterManager messageFilter =
-                        FilterSupport.createMessageFilter(binding.getArguments(), binding.getQueue());
+        List<Queue<?>> getFilteredQueues()
+        {
+            return _filteredQueues;
+        }
 
-                if(bindingsForQueue != null)
-                {
-                    bindingsForQueue = new HashMap<>(bindingsForQueue);
-                    bindingsForQueue.put(binding, messageFilter);
-                }
-                else
-                {
-                    bindingsForQueue = Collections.<Binding<?>, FilterManager>singletonMap(binding, messageFilter);
-                    if(!_unfilteredQueues.contains(queue))
-                    {
-                        _filteredQueues.add(queue);
-                    }
-                }
+        Map<Binding<?>, FilterManager> getFilteredBindings(final Queue<?> queue)
+        {
+            final Map<Binding<?>, FilterManager> bindings = _filteredBindings.get(queue);
+            return bindings == null ? Collections.<Binding<?>, FilterManager>emptyMap() : bindings;
+        }
 
-                filteredBindings.put(binding.getQueue(), bindingsForQueue);
+        FanoutBindings withUnfilteredBinding(final Queue<?> queue)
+        {
+            final Map<Queue<?>, Integer> counts = new HashMap<>(_unfilteredBindingCounts);
+            final Integer count = counts.get(queue);
+            if(count != null)
+            {
+                counts.put(queue, count + 1);
+                return new FanoutBindings(Collections.unmodifiableMap(counts), _unfilteredQueues, _filteredBindings, _filteredQueues);
+            }
 
-                _filteredBindings.set(filteredBindings);
+            counts.put(queue, 1);
+            final List<BaseQueue> unfilteredQueues = new ArrayList<BaseQueue>(_unfilteredQueues);
+            unfilteredQueues.add(queue);
+            // no longer any reason to check filters for this queue
+            final List<Queue<?>> filteredQueues = new ArrayList<>(_filteredQueues);
+            filteredQueues.remove(queue);
+            return new FanoutBindings(Collections.unmodifiableMap(counts),
+                                      Collections.unmodifiableList(unfilteredQueues),
+                                      _filteredBindings,
+                                      Collections.unmodifiableList(filteredQueues));
+        }
 
+        FanoutBindings withoutUnfilteredBinding(final Queue<?> queue)
+        {
+            final Integer count = _unfilteredBindingCounts.get(queue);
+            if(count == null)
+            {
+                return this;
             }
-            catch (AMQInvalidArgumentException e)
+
+            final Map<Queue<?>, Integer> counts = new HashMap<>(_unfilteredBindingCounts);
+            if(count > 1)
             {
-                _logger.warn("Cannot bind queue " + queue + " to exchange this " + this + " because selector cannot be parsed.", e);
-                return;
+                counts.put(queue, count - 1);
+                return new FanoutBindings(Collections.unmodifiableMap(counts), _unfilteredQueues, _filteredBindings, _filteredQueues);
             }
-        }
-        if (_logger.isDebugEnabled())
-        {
-            _logger.debug("Binding queue " + queue
-                          + " with routing key " + binding.getBindingKey() + " to exchange " + this);
-        }
-    }
 
-    @Override
-    protected synchronized void onUnbind(final Binding<?> binding)
-    {
-        Queue<?> queue = binding.getQueue();
-        if(binding.getArguments() == null || binding.getArguments().isEmpty() || !FilterSupport.argumentsContainFilter(binding.getArguments()))
-        {
-            Integer oldValue = _queues.remove(queue);
-            if(ONE.equals(oldValue))
+            counts.remove(queue);
+            final List<BaseQueue> unfilteredQueues = new ArrayList<BaseQueue>(_unfilteredQueues);
+            unfilteredQueues.remove(queue);
+            List<Queue<?>> filteredQueues = _filteredQueues;
+            if(_filteredBindings.containsKey(queue))
             {
                 // should start checking filters for this queue
-                if(_filteredBindings.get().containsKey(queue))
-                {
-                    _filteredQueues.add(queue);
-                }
-                _unfilteredQueues.remove(queue);
+                filteredQueues = new ArrayList<>(_filteredQueues);
+                filteredQueues.add(queue);
+                filteredQueues = Collections.unmodifiableList(filteredQueues);
             }
-            else
+            return new FanoutBindings(Collections.unmodifiableMap(counts),
+                                      Collections.unmodifiableList(unfilteredQueues),
+                                      _filteredBindings,
+                                      filteredQueues);
+        }
+
+        FanoutBindings withFilteredBinding(final Binding<?> binding, final FilterManager filter)
+        {
+            final Queue<?> queue = binding.getQueue();
+            final Map<Queue<?>, Map<Binding<?>, FilterManager>> filteredBindings = new HashMap<>(_filteredBindings);
+            final Map<Binding<?>, FilterManager> bindingsForQueue = new HashMap<>(getFilteredBindings(queue));
+            bindingsForQueue.put(binding, filter);
+            filteredBindings.put(queue, Collections.unmodifiableMap(bindingsForQueue));
+
+            List<Queue<?>> filteredQueues = _filteredQueues;
+            if(!_unfilteredBindingCounts.containsKey(queue) && !_filteredQueues.contains(queue))
             {
-                _queues.put(queue,oldValue-1);
+                filteredQueues = new ArrayList<>(_filteredQueues);
+                filteredQueues.add(queue);
+                filteredQueues = Collections.unmodifiableList(filteredQueues);
             }
+            return new FanoutBindings(_unfilteredBindingCounts,
+                                      _unfilteredQueues,
+                                      Collections.unmodifiableMap(filteredBindings),
+                                      filteredQueues);
         }
-        else // we are removing a binding with filters
+
+        FanoutBindings withoutFilteredBinding(final Binding<?> binding)
         {
-            HashMap<Queue<?>,Map<Binding<?>, FilterManager>> filteredBindings =
-                    new HashMap<>(_filteredBindings.get());
+            final Queue<?> queue = binding.getQueue();
+            final Map<Binding<?>, FilterManager> currentBindingsForQueue = _filteredBindings.get(queue);
+            if(currentBindingsForQueue == null || !currentBindingsForQueue.containsKey(binding))
+            {
+                return this;
+            }
 
-            Map<Binding<?>,FilterManager> bindingsForQueue = filteredBindings.remove(binding.getQueue());
-            if(bindingsForQueue.size()>1)
+            final Map<Queue<?>, Map<Binding<?>, FilterManager>> filteredBindings = new HashMap<>(_filteredBindings);
+            List<Queue<?>> filteredQueues = _filteredQueues;
+            if(currentBindingsForQueue.size() > 1)
             {
-                bindingsForQueue = new HashMap<>(bindingsForQueue);
+                final Map<Binding<?>, FilterManager> bindingsForQueue = new HashMap<>(currentBindingsForQueue);
                 bindingsForQueue.remove(binding);
-                filteredBindings.put(binding.getQueue(),bindingsForQueue);
+                filteredBindings.put(queue, Collections.unmodifiableMap(bindingsForQueue));
             }
             else
             {
-                _filteredQueues.remove(queue);
+                filteredBindings.remove(queue);
+                if(_filteredQueues.contains(queue))
+                {
+                    filteredQueues = new ArrayList<>(_filteredQueues);
+                    filteredQueues.remove(queue);
+                    filteredQueues = Collections.unmodifiableList(filteredQueues);
+                }
             }
-            _filteredBindings.set(filteredBindings);
-
+            return new FanoutBindings(_unfilteredBindingCounts,
+                                      _unfilteredQueues,
+                                      Collections.unmodifiableMap(filteredBindings),
+                                      filteredQueues);
         }
     }
 }
@@ -117,6 +117,21 @@ class HeadersBinding
         return _binding;
     }
 
+    boolean isMatchAny()
+    {
+        return matchAny;
+    }
+
+    Set<String> getRequired()
+    {
+        return Collections.unmodifiableSet(required);
+    }
+
+    Map<String, Object> getMatches()
+    {
+        return Collections.unmodifiableMap(matches);
+    }
+
     /**
      * Checks whether the supplied headers match the requirements of this binding
      * @param headers the headers to check
@@ -21,9 +21,15 @@
 package org.apache.qpid.server.exchange;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -34,6 +40,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.exchange.ExchangeDefaults;
 import org.apache.qpid.server.filter.Filterable;
+import org.apache.qpid.server.message.AMQMessageHeader;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Binding;
@@ -82,6 +89,8 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
     private final CopyOnWriteArrayList<HeadersBinding> _bindingHeaderMatchers =
                             new CopyOnWriteArrayList<HeadersBinding>();
 
+    private volatile BindingIndex _bindingIndex = new BindingIndex(Collections.<HeadersBinding>emptyList());
+
     @ManagedObjectFactoryConstructor
     public HeadersExchange(final Map<String, Object> attributes, final VirtualHost<?> vhost)
     {
@@ -89,32 +98,57 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
     }
 
     @Override
-    public ArrayList<BaseQueue> doRoute(ServerMessage payload,
-                                        final String routingKey,
-                                        final InstanceProperties instanceProperties)
+    public List<? extends BaseQueue> doRoute(ServerMessage payload,
+                                             final String routingKey,
+                                             final InstanceProperties instanceProperties)
     {
         _logger.debug("Exchange {}: routing message with headers {}", getName(), payload.getMessageHeader());
 
-        LinkedHashSet<BaseQueue> queues = new LinkedHashSet<BaseQueue>();
-
-        for (HeadersBinding hb : _bindingHeaderMatchers)
+        final BindingIndex index = _bindingIndex;
+        if (index.isEmpty())
         {
-            if (hb.matches(Filterable.Factory.newInstance(payload,instanceProperties)))
-            {
-                Binding<?> b = hb.getBinding();
+            return Collections.emptyList();
+        }
 
-                b.incrementMatches();
+        final RoutingContext context =
+                new RoutingContext(Filterable.Factory.newInstance(payload, instanceProperties), index);
 
-                if (_logger.isDebugEnabled())
+        for (HeadersBinding hb : index.getUnconditionalBindings())
+        {
+            context.evaluate(hb);
+        }
+
+        final AMQMessageHeader headers = context.getFilterable().getMessageHeader();
+        if (headers != null)
+        {
+            for (Map.Entry<String, IndexedBindings> entry : index.getIndexedBindingsByHeader().entrySet())
+            {
+                final String headerName = entry.getKey();
+                if (headers.containsHeader(headerName))
                 {
-                    _logger.debug("Exchange " + getName() + ": delivering message with headers " +
-                                  payload.getMessageHeader() + " to " + b.getQueue().getName());
+                    final IndexedBindings indexedBindings = entry.getValue();
+                    for (HeadersBinding hb : indexedBindings.getPresenceBindings())
+                    {
+                        context.evaluate(hb);
+                    }
+
+                    final Object headerValue = headers.getHeader(headerName);
+                    if (headerValue != null)
+                    {
+                        final List<HeadersBinding> valueBindings = indexedBindings.getValueBindings(headerValue);
+                        if (valueBindings != null)
+                        {
+                            for (HeadersBinding hb : valueBindings)
+                            {
+                                context.evaluate(hb);
+                            }
+                        }
+                    }
                 }
-                queues.add(b.getQueue());
             }
         }
 
-        return new ArrayList<>(queues);
+        return context.getQueues();
     }
 
     @Override
@@ -146,6 +180,7 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
 
         _bindingHeaderMatchers.add(new HeadersBinding(binding));
         bindings.add(binding);
+        updateBindingIndex();
 
     }
 
@@ -161,6 +196,7 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
                 iter.set(headersBinding);
             }
         }
+        updateBindingIndex();
 
     }
 
@@ -176,7 +212,187 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
 
         boolean removedBinding = _bindingHeaderMatchers.remove(new HeadersBinding(binding));
         _logger.debug("Removing Binding: {}", removedBinding);
+        updateBindingIndex();
+    }
+
+    private final class RoutingContext
+    {
+        private final Filterable _filterable;
+        private final BindingIndex _index;
+        private Set<BaseQueue> _queues;
+        private Set<HeadersBinding> _evaluated;
+
+        private RoutingContext(final Filterable filterable, final BindingIndex index)
+        {
+            _filterable = filterable;
+            _index = index;
+        }
+
+        Filterable getFilterable()
+        {
+            return _filterable;
+        }
+
+        void evaluate(final HeadersBinding hb)
+        {
+            if (_index.isIndexedMoreThanOnce(hb))
+            {
+                if (_evaluated == null)
+                {
+                    _evaluated = new HashSet<>();
+                }
+                if (!_evaluated.add(hb))
+                {
+                    return;
+                }
+            }
+
+            if (hb.matches(_filterable))
+            {
+                Binding<?> b = hb.getBinding();
+
+                b.incrementMatches();
+
+                if (_logger.isDebugEnabled())
+                {
+                    _logger.debug("Exchange " + getName() + ": delivering message with headers " +
+                                  _filterable.getMessageHeader() + " to " + b.getQueue().getName());
+                }
+                if (_queues == null)
+                {
+                    _queues = new LinkedHashSet<>();
+                }
+                _queues.add(b.getQueue());
+            }
+        }
+
+        List<? extends BaseQueue> getQueues()
+        {
+            return _queues == null ? Collections.<BaseQueue>emptyList() : new ArrayList<>(_queues);
+        }
+    }
+
+    private synchronized void updateBindingIndex()
+    {
+        _bindingIndex = new BindingIndex(_bindingHeaderMatchers);
+    }
+
+    /**
+     * Immutable index of the bindings, rebuilt whenever they change, which allows routing to evaluate only those
+     * bindings which could possibly match a given message.
+     * <p>
+     * Each x-match=all binding is indexed on just one of its conditions, as every condition must hold for it to
+     * match: one of its required header values if it has any, otherwise one of its required header names.  Each
+     * x-match=any binding is indexed on every one of its conditions.  Bindings with no conditions at all are
+     * evaluated for every message.
+     */
+    private static final class BindingIndex
+    {
+        private final List<HeadersBinding> _unconditionalBindings = new ArrayList<>();
+        private final Map<String, IndexedBindings> _indexedBindingsByHeader = new HashMap<>();
+        private final Set<HeadersBinding> _indexedMoreThanOnce = new HashSet<>();
+        private final boolean _empty;
+
+        private BindingIndex(final Collection<HeadersBinding> bindings)
+        {
+            _empty = bindings.isEmpty();
+            for (HeadersBinding hb : bindings)
+            {
+                final Set<String> required = hb.getRequired();
+                final Map<String, Object> matches = hb.getMatches();
+                if (required.isEmpty() && matches.isEmpty())
+                {
+                    _unconditionalBindings.add(hb);
+                }
+                else if (hb.isMatchAny())
+                {
+                    for (String headerName : required)
+                    {
+                        getIndexedBindings(headerName).addPresenceBinding(hb);
+                    }
+                    for (Map.Entry<String, Object> match : matches.entrySet())
+                    {
+                        getIndexedBindings(match.getKey()).addValueBinding(match.getValue(), hb);
+                    }
+                    if (required.size() + matches.size() > 1)
+                    {
+                        _indexedMoreThanOnce.add(hb);
+                    }
+                }
+                else if (!matches.isEmpty())
+                {
+                    final Map.Entry<String, Object> match = matches.entrySet().iterator().next();
+                    getIndexedBindings(match.getKey()).addValueBinding(match.getValue(), hb);
+                }
+                else
+                {
+                    getIndexedBindings(required.iterator().next()).addPresenceBinding(hb);
+                }
+            }
+        }
+
+        private IndexedBindings getIndexedBindings(final String headerName)
+        {
+            IndexedBindings indexedBindings = _indexedBindingsByHeader.get(headerName);
+            if (indexedBindings == null)
+            {
+                indexedBindings = new IndexedBindings();
+                _indexedBindingsByHeader.put(headerName, indexedBindings);
+            }
+            return indexedBindings;
+        }
+
+        boolean isEmpty()
+        {
+            return _empty;
+        }
 
+        List<HeadersBinding> getUnconditionalBindings()
+        {
+            return _unconditionalBindings;
+        }
+
+        Map<String, IndexedBindings> getIndexedBindingsByHeader()
+        {
+            return _indexedBindingsByHeader;
+        }
+
+        boolean isIndexedMoreThanOnce(final HeadersBinding hb)
+        {
+            return !_indexedMoreThanOnce.isEmpty() && _indexedMoreThanOnce.contains(hb);
+        }
+    }
+
+    private static final class IndexedBindings
+    {
+        private final List<HeadersBinding> _presenceBindings = new ArrayList<>();
+        private final Map<Object, List<HeadersBinding>> _valueBindings = new HashMap<>();
+
+        void addPresenceBinding(final HeadersBinding hb)
+        {
+            _presenceBindings.add(hb);
+        }
+
+        void addValueBinding(final Object value, final HeadersBinding hb)
+        {
+            List<HeadersBinding> bindings = _valueBindings.get(value);
+            if (bindings == null)
+            {
+                bindings = new ArrayList<>();
+                _valueBindings.put(value, bindings);
+            }
+            bindings.add(hb);
+        }
+
+        List<HeadersBinding> getPresenceBindings()
+        {
+            return _presenceBindings;
+        }
+
+        List<HeadersBinding> getValueBindings(final Object value)
+        {
+            return _valueBindings.get(value);
+        }
     }
 
 }
@@ -262,6 +262,11 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
             TopicExchangeResult result = _topicExchangeResults.get(bindingKey);
 
             result.removeBinding(binding);
+            if(result.getBindings().isEmpty())
+            {
+                _topicExchangeResults.remove(bindingKey);
+                _parser.removeBinding(bindingKey);
+            }
 
             if(FilterSupport.argumentsContainFilter(bindingArgs))
             {
@@ -21,402 +21,187 @@
 package org.apache.qpid.server.exchange.topic;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Matches routing keys against topic binding keys using a trie of binding key words.
+ * <p>
+ * Bindings are added and removed in time proportional to the number of words in the binding key, and callers are
+ * expected to serialise these updates.  Routing keys are matched without locking, visiting each trie node at most
+ * once per word position; the results for recently seen routing keys are cached until the next change to the set of
+ * binding keys.
+ */
 public class TopicParser
 {
     private static final String TOPIC_DELIMITER = "\\.";
+    private static final int MAX_CACHED_ROUTING_KEYS = 4096;
 
     private final TopicWordDictionary _dictionary = new TopicWordDictionary();
-    private final AtomicReference<TopicMatcherDFAState> _stateMachine = new AtomicReference<TopicMatcherDFAState>();
+    private final TrieNode _root = new TrieNode();
+    private volatile ResultCache _resultCache = new ResultCache();
 
-    private static class Position
+    private static final class TrieNode
     {
-        private final TopicWord _word;
-        private final boolean _selfTransition;
-        private final int _position;
-        private final boolean _endState;
-        private boolean _followedByAnyLoop;
-
-
-        public Position(final int position, final TopicWord word, final boolean selfTransition, final boolean endState)
-        {
-            _position = position;
-            _word = word;
-            _selfTransition = selfTransition;
-            _endState = endState;
-        }
-
-
-        public TopicWord getWord()
-        {
-            return _word;
-        }
-
-        public boolean isSelfTransition()
-        {
-            return _selfTransition;
-        }
-
-        public int getPosition()
-        {
-            return _position;
-        }
-
-        public boolean isEndState()
-        {
-            return _endState;
-        }
-
-        public boolean isFollowedByAnyLoop()
-        {
-            return _followedByAnyLoop;
-        }
-
-        public void setFollowedByAnyLoop(boolean followedByAnyLoop)
-        {
-            _followedByAnyLoop = followedByAnyLoop;
-        }
+        private final ConcurrentMap<TopicWord, TrieNode> _children = new ConcurrentHashMap<>(4);
+        private volatile TopicMatcherResult _result;
     }
 
-    private static final Position ERROR_POSITION = new Position(Integer.MAX_VALUE,null, true, false);
-
-    private static class SimpleState
+    private static final class ResultCache
     {
-        private Set<Position> _positions;
-        private Map<TopicWord, SimpleState> _nextState;
+        private final ConcurrentMap<String, Collection<TopicMatcherResult>> _results = new ConcurrentHashMap<>();
+        private final AtomicInteger _size = new AtomicInteger();
     }
 
-
-    public void addBinding(String bindingKey, TopicMatcherResult result)
+    public synchronized void addBinding(String bindingKey, TopicMatcherResult result)
     {
-
-        TopicMatcherDFAState startingStateMachine;
-        TopicMatcherDFAState newStateMachine;
-
-        do
+        TrieNode node = _root;
+        for(TopicWord word : createTopicWordList(bindingKey))
         {
-            startingStateMachine = _stateMachine.get();
-            if(startingStateMachine == null)
+            TrieNode child = node._children.get(word);
+            if(child == null)
             {
-                newStateMachine = createStateMachine(bindingKey, result);
+                child = new TrieNode();
+                node._children.put(word, child);
             }
-            else
-            {
-                newStateMachine = startingStateMachine.mergeStateMachines(createStateMachine(bindingKey, result));
-            }
-
+            node = child;
         }
-        while(!_stateMachine.compareAndSet(startingStateMachine,newStateMachine));
-
+        node._result = result;
+        _resultCache = new ResultCache();
     }
 
-    public Collection<TopicMatcherResult> parse(String routingKey)
-    {
-        TopicMatcherDFAState stateMachine = _stateMachine.get();
-        if(stateMachine == null)
-        {
-            return Collections.EMPTY_SET;
-        }
-        else
-        {
-            return stateMachine.parse(_dictionary,routingKey);
-        }
-    }
-
-
-    TopicMatcherDFAState createStateMachine(String bindingKey, TopicMatcherResult result)
+    public synchronized void removeBinding(String bindingKey)
     {
         List<TopicWord> wordList = createTopicWordList(bindingKey);
-        int wildCards = 0;
-        for(TopicWord word : wordList)
+        TrieNode[] path = new TrieNode[wordList.size() + 1];
+        path[0] = _root;
+        for(int i = 0; i < wordList.size(); i++)
         {
-            if(word == TopicWord.WILDCARD_WORD)
+            path[i + 1] = path[i]._children.get(wordList.get(i));
+            if(path[i + 1] == null)
             {
-                wildCards++;
+                return;
             }
         }
-        if(wildCards == 0)
-        {
-            TopicMatcherDFAState[] states = new TopicMatcherDFAState[wordList.size()+1];
-            states[states.length-1] = new TopicMatcherDFAState(Collections.EMPTY_MAP, Collections.singleton(result));
-            for(int i = states.length-2; i >= 0; i--)
-            {
-                states[i] = new TopicMatcherDFAState(Collections.singletonMap(wordList.get(i),states[i+1]),Collections.EMPTY_SET);
 
-            }
-            return states[0];
-        }
-        else if(wildCards == wordList.size())
-        {
-            Map<TopicWord,TopicMatcherDFAState> stateMap = new HashMap<TopicWord,TopicMatcherDFAState>();
-            TopicMatcherDFAState state = new TopicMatcherDFAState(stateMap, Collections.singleton(result));
-            stateMap.put(TopicWord.ANY_WORD, state);
-            return state;
-        }
+        path[wordList.size()]._result = null;
 
-
-        int positionCount = wordList.size() - wildCards;
-
-        Position[] positions = new Position[positionCount+1];
-
-        int lastWord;
-
-        if(wordList.get(wordList.size()-1)== TopicWord.WILDCARD_WORD)
+        // prune the branch back to the deepest node still in use
+        for(int i = wordList.size(); i > 0; i--)
         {
-            lastWord = wordList.size()-1;
-            positions[positionCount] = new Position(positionCount, TopicWord.ANY_WORD, true, true);
-        }
-        else
-        {
-            lastWord = wordList.size();
-            positions[positionCount] = new Position(positionCount, TopicWord.ANY_WORD, false, true);
-        }
-
-
-        int pos = 0;
-        int wordPos = 0;
-
-
-        while(wordPos < lastWord)
-        {
-            TopicWord word = wordList.get(wordPos++);
-
-            if(word == TopicWord.WILDCARD_WORD)
+            TrieNode node = path[i];
+            if(node._result != null || !node._children.isEmpty())
             {
-                int nextWordPos = wordPos++;
-                word = wordList.get(nextWordPos);
-
-                positions[pos] = new Position(pos++,word,true,false);
+                break;
             }
-            else
-            {
-                positions[pos] = new Position(pos++,word,false,false);
-            }
-
+            path[i - 1]._children.remove(wordList.get(i - 1));
         }
+        _resultCache = new ResultCache();
+    }
 
-
-        for(int p = 0; p<positionCount; p++)
+    public Collection<TopicMatcherResult> parse(String routingKey)
+    {
+        ResultCache resultCache = _resultCache;
+        Collection<TopicMatcherResult> results = resultCache._results.get(routingKey);
+        if(results == null)
         {
-            boolean followedByWildcards = true;
-
-            int n = p;
-            while(followedByWildcards && n<(positionCount+1))
+            results = match(routingKey);
+            // the count may briefly overshoot the limit under contention, which is harmless
+            if(resultCache._size.get() < MAX_CACHED_ROUTING_KEYS
+               && resultCache._results.putIfAbsent(routingKey, results) == null)
             {
-
-                if(positions[n].isSelfTransition())
-                {
-                    break;
-                }
-                else if(positions[n].getWord() !=TopicWord.ANY_WORD)
-                {
-                    followedByWildcards = false;
-                }
-                n++;
+                resultCache._size.incrementAndGet();
             }
-
-
-            positions[p].setFollowedByAnyLoop(followedByWildcards && (n!= positionCount+1));
         }
+        return results;
+    }
 
-
-        // from each position you transition to a set of other positions.
-        // we approach this by examining steps of increasing length - so we
-        // look how far we can go from the start position in 1 word, 2 words, etc...
-
-        Map<Set<Position>,SimpleState> stateMap = new HashMap<Set<Position>,SimpleState>();
-
-
-        SimpleState state = new SimpleState();
-        state._positions = Collections.singleton( positions[0] );
-        stateMap.put(state._positions, state);
-
-        calculateNextStates(state, stateMap, positions);
-
-        SimpleState[] simpleStates = stateMap.values().toArray(new SimpleState[stateMap.size()]);
-        HashMap<TopicWord, TopicMatcherDFAState>[] dfaStateMaps = new HashMap[simpleStates.length];
-        Map<SimpleState, TopicMatcherDFAState> simple2DFAMap = new HashMap<SimpleState, TopicMatcherDFAState>();
-
-        for(int i = 0; i < simpleStates.length; i++)
+    private Collection<TopicMatcherResult> match(String routingKey)
+    {
+        String[] tokens = routingKey.split(TOPIC_DELIMITER);
+        TopicWord[] words = new TopicWord[tokens.length];
+        for(int i = 0; i < tokens.length; i++)
         {
-
-            Collection<TopicMatcherResult> results;
-            boolean endState = false;
-
-            for(Position p : simpleStates[i]._positions)
-            {
-                if(p.isEndState())
-                {
-                    endState = true;
-                    break;
-                }
-            }
-
-            if(endState)
-            {
-                results = Collections.singleton(result);
-            }
-            else
-            {
-                results = Collections.EMPTY_SET;
-            }
-
-            dfaStateMaps[i] = new HashMap<TopicWord, TopicMatcherDFAState>();
-            simple2DFAMap.put(simpleStates[i], new TopicMatcherDFAState(dfaStateMaps[i],results));
-
+            words[i] = _dictionary.getWord(tokens[i]);
         }
-        for(int i = 0; i < simpleStates.length; i++)
-        {
-            SimpleState simpleState = simpleStates[i];
 
-            Map<TopicWord, SimpleState> nextSimpleStateMap = simpleState._nextState;
-            for(Map.Entry<TopicWord, SimpleState> stateMapEntry : nextSimpleStateMap.entrySet())
-            {
-                dfaStateMaps[i].put(stateMapEntry.getKey(), simple2DFAMap.get(stateMapEntry.getValue()));
-            }
+        Set<TopicMatcherResult> results = new HashSet<>();
+        match(_root, words, 0, results, new IdentityHashMap<TrieNode, BitSet>());
 
+        switch(results.size())
+        {
+            case 0:
+                return Collections.emptySet();
+            case 1:
+                return Collections.singleton(results.iterator().next());
+            default:
+                return Collections.unmodifiableSet(results);
         }
-
-        return simple2DFAMap.get(state);
-
     }
 
-
-
-    private void calculateNextStates(final SimpleState state,
-                                     final Map<Set<Position>, SimpleState> stateMap,
-                                     final Position[] positions)
+    private void match(TrieNode node,
+                       TopicWord[] words,
+                       int position,
+                       Set<TopicMatcherResult> results,
+                       Map<TrieNode, BitSet> visited)
     {
-        Map<TopicWord, Set<Position>> transitions = new HashMap<TopicWord,Set<Position>>();
-
-        for(Position pos : state._positions)
+        // a '#' can reach the same node at the same position along many paths, the outcome is the same each time
+        BitSet visitedPositions = visited.get(node);
+        if(visitedPositions == null)
         {
-            if(pos.isSelfTransition())
-            {
-                Set<Position> dest = transitions.get(TopicWord.ANY_WORD);
-                if(dest == null)
-                {
-                    dest = new HashSet<Position>();
-                    transitions.put(TopicWord.ANY_WORD,dest);
-                }
-                dest.add(pos);
-            }
-
-            final int nextPos = pos.getPosition() + 1;
-            Position nextPosition = nextPos == positions.length ? ERROR_POSITION : positions[nextPos];
-
-            Set<Position> dest = transitions.get(pos.getWord());
-            if(dest == null)
-            {
-                dest = new HashSet<Position>();
-                transitions.put(pos.getWord(),dest);
-            }
-            dest.add(nextPosition);
-
+            visitedPositions = new BitSet(words.length + 1);
+            visited.put(node, visitedPositions);
         }
-
-        Set<Position> anyWordTransitions = transitions.get(TopicWord.ANY_WORD);
-        if(anyWordTransitions != null)
+        else if(visitedPositions.get(position))
         {
-            for(Set<Position> dest : transitions.values())
-            {
-                dest.addAll(anyWordTransitions);
-            }
+            return;
         }
+        visitedPositions.set(position);
 
-        state._nextState = new HashMap<TopicWord, SimpleState>();
-
-        for(Map.Entry<TopicWord,Set<Position>> dest : transitions.entrySet())
+        TrieNode wildcardNode = node._children.get(TopicWord.WILDCARD_WORD);
+        if(wildcardNode != null)
         {
-
-            if(dest.getValue().size()>1)
+            // '#' consumes zero or more words
+            for(int next = position; next <= words.length; next++)
             {
-                dest.getValue().remove(ERROR_POSITION);
-            }
-            Position loopingTerminal = null;
-            for(Position destPos : dest.getValue())
-            {
-                if(destPos.isSelfTransition() && destPos.isEndState())
-                {
-                    loopingTerminal = destPos;
-                    break;
-                }
-            }
-
-            if(loopingTerminal!=null)
-            {
-                dest.setValue(Collections.singleton(loopingTerminal));
-            }
-            else
-            {
-                Position anyLoop = null;
-                for(Position destPos : dest.getValue())
-                {
-                    if(destPos.isFollowedByAnyLoop())
-                    {
-                        if(anyLoop == null || anyLoop.getPosition() < destPos.getPosition())
-                        {
-                            anyLoop = destPos;
-                        }
-                    }
-                }
-                if(anyLoop != null)
-                {
-                    Collection<Position> removals = new ArrayList<Position>();
-                    for(Position destPos : dest.getValue())
-                    {
-                        if(destPos.getPosition() < anyLoop.getPosition())
-                        {
-                            removals.add(destPos);
-                        }
-                    }
-                    dest.getValue().removeAll(removals);
-                }
+                match(wildcardNode, words, next, results, visited);
             }
+        }
 
-            SimpleState stateForEntry = stateMap.get(dest.getValue());
-            if(stateForEntry == null)
+        if(position == words.length)
+        {
+            TopicMatcherResult result = node._result;
+            if(result != null)
             {
-                stateForEntry = new SimpleState();
-                stateForEntry._positions = dest.getValue();
-                stateMap.put(dest.getValue(),stateForEntry);
-                calculateNextStates(stateForEntry,
-                                    stateMap,
-                                    positions);
+                results.add(result);
             }
-            state._nextState.put(dest.getKey(),stateForEntry);
-
-
-
+            return;
         }
 
-        // remove redundant transitions
-        SimpleState anyWordState = state._nextState.get(TopicWord.ANY_WORD);
-        if(anyWordState != null)
+        TopicWord word = words[position];
+        if(word != TopicWord.ANY_WORD)
         {
-            List<TopicWord> removeList = new ArrayList<TopicWord>();
-            for(Map.Entry<TopicWord,SimpleState> entry : state._nextState.entrySet())
+            TrieNode child = node._children.get(word);
+            if(child != null)
             {
-                if(entry.getValue() == anyWordState && entry.getKey() != TopicWord.ANY_WORD)
-                {
-                    removeList.add(entry.getKey());
-                }
-            }
-            for(TopicWord removeKey : removeList)
-            {
-                state._nextState.remove(removeKey);
+                match(child, words, position + 1, results, visited);
             }
         }
 
-
+        TrieNode anyWordNode = node._children.get(TopicWord.ANY_WORD);
+        if(anyWordNode != null)
+        {
+            match(anyWordNode, words, position + 1, results, visited);
+        }
     }
 
     private List<TopicWord> createTopicWordList(final String bindingKey)
@@ -451,6 +236,4 @@ public class TopicParser
         }
         return wordList;
     }
-
-
 }
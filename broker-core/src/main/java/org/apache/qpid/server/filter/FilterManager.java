@@ -24,6 +24,9 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.qpid.filter.FilterableMessage;
+import org.apache.qpid.filter.PropertyValueConstraint;
+
 public class FilterManager
 {
 
@@ -67,6 +70,23 @@ public class FilterManager
         return _filters.values().iterator();
     }
 
+    public PropertyValueConstraint<FilterableMessage> getPropertyValueConstraint()
+    {
+        for (MessageFilter filter : _filters.values())
+        {
+            if (filter instanceof JMSSelectorFilter)
+            {
+                PropertyValueConstraint<FilterableMessage> constraint =
+                        ((JMSSelectorFilter) filter).getPropertyValueConstraint();
+                if (constraint != null)
+                {
+                    return constraint;
+                }
+            }
+        }
+        return null;
+    }
+
     public boolean hasFilters()
     {
         return !_filters.isEmpty();
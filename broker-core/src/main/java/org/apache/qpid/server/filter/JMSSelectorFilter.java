@@ -25,8 +25,10 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.common.AMQPFilterTypes;
 import org.apache.qpid.filter.BooleanExpression;
+import org.apache.qpid.filter.CompiledSelector;
 import org.apache.qpid.filter.FilterableMessage;
 import org.apache.qpid.filter.JMSMessagePropertyExpression;
+import org.apache.qpid.filter.PropertyValueConstraint;
 import org.apache.qpid.filter.SelectorParsingException;
 import org.apache.qpid.filter.selector.ParseException;
 import org.apache.qpid.filter.selector.SelectorParser;
@@ -39,8 +41,13 @@ public class JMSSelectorFilter implements MessageFilter
 {
     private final static Logger _logger = LoggerFactory.getLogger(JMSSelectorFilter.class);
 
+    public static final String QPID_SELECTOR_COMPILE = "qpid.selector.compile";
+    private static final boolean COMPILE_SELECTORS =
+            Boolean.parseBoolean(System.getProperty(QPID_SELECTOR_COMPILE, "true"));
+
     private String _selector;
     private BooleanExpression _matcher;
+    private PropertyValueConstraint<FilterableMessage> _propertyValueConstraint;
 
     public JMSSelectorFilter(String selector) throws ParseException, TokenMgrError, SelectorParsingException
     {
@@ -48,6 +55,11 @@ public class JMSSelectorFilter implements MessageFilter
         SelectorParser<FilterableMessage> selectorParser = new SelectorParser<>();
         selectorParser.setPropertyExpressionFactory(JMSMessagePropertyExpression.FACTORY);
         _matcher = selectorParser.parse(selector);
+        _propertyValueConstraint = PropertyValueConstraint.fromExpression(_matcher);
+        if (COMPILE_SELECTORS)
+        {
+            _matcher = CompiledSelector.compile(_matcher);
+        }
     }
 
     @Override
@@ -78,6 +90,15 @@ public class JMSSelectorFilter implements MessageFilter
         return _selector;
     }
 
+    /**
+     * @return a condition on a single property that every matching message satisfies, or null if the selector
+     * does not imply one
+     */
+    public PropertyValueConstraint<FilterableMessage> getPropertyValueConstraint()
+    {
+        return _propertyValueConstraint;
+    }
+
     @Override
     public boolean equals(final Object o)
     {
@@ -43,11 +43,17 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
     private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, Collection> _resourcesUpdater =
             AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class, Collection.class,"_resources");
 
+    private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, ConvertedMessage> _convertedMessagesUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class, ConvertedMessage.class, "_convertedMessages");
+
+    private static final ConvertedMessage DISCARDED = new ConvertedMessage(null, null, 0L, null, null);
+
 
     private volatile int _referenceCount = 0;
     private final StoredMessage<T> _handle;
     private final Object _connectionReference;
     private volatile Collection<UUID> _resources;
+    private volatile ConvertedMessage _convertedMessages;
 
 
     public AbstractServerMessageImpl(StoredMessage<T> handle, Object connectionReference)
@@ -108,6 +114,7 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
                     {
                         _handle.remove();
                     }
+                    discardConvertedMessages(true);
                 }
             }
             else
@@ -185,6 +192,57 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
         }
     }
 
+    ServerMessage getConvertedMessage(final Class<?> outputClass)
+    {
+        for (ConvertedMessage converted = _convertedMessages; converted != null; converted = converted._next)
+        {
+            if (converted._outputClass == outputClass)
+            {
+                return converted._message;
+            }
+        }
+        return null;
+    }
+
+    boolean addConvertedMessage(final Class<?> outputClass,
+                                final ServerMessage message,
+                                final long size,
+                                final MessageConversionCache cache)
+    {
+        ConvertedMessage current;
+        do
+        {
+            current = _convertedMessages;
+            if (current == DISCARDED || getConvertedMessage(outputClass) != null)
+            {
+                return false;
+            }
+        }
+        while (!_convertedMessagesUpdater.compareAndSet(this,
+                                                        current,
+                                                        new ConvertedMessage(outputClass, message, size, cache, current)));
+        return true;
+    }
+
+    void discardConvertedMessages(final boolean permanently)
+    {
+        ConvertedMessage converted;
+        do
+        {
+            converted = _convertedMessages;
+            if (converted == DISCARDED || (converted == null && !permanently))
+            {
+                return;
+            }
+        }
+        while (!_convertedMessagesUpdater.compareAndSet(this, converted, permanently ? DISCARDED : null));
+
+        for (; converted != null; converted = converted._next)
+        {
+            converted._cache.release(converted._size);
+        }
+    }
+
     final public Object getConnectionReference()
     {
         return _connectionReference;
@@ -193,6 +251,28 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
         return "Message[" + debugIdentity() + "]";
     }
 
+    private static final class ConvertedMessage
+    {
+        private final Class<?> _outputClass;
+        private final ServerMessage _message;
+        private final long _size;
+        private final MessageConversionCache _cache;
+        private final ConvertedMessage _next;
+
+        private ConvertedMessage(final Class<?> outputClass,
+                                 final ServerMessage message,
+                                 final long size,
+                                 final MessageConversionCache cache,
+                                 final ConvertedMessage next)
+        {
+            _outputClass = outputClass;
+            _message = message;
+            _size = size;
+            _cache = cache;
+            _next = next;
+        }
+    }
+
     private static class Reference<X extends AbstractServerMessageImpl<X,T>, T extends StorableMessageMetaData>
             implements MessageReference<X>
     {
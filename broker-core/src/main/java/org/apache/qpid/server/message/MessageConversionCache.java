@@ -0,0 +1,133 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.message;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.plugin.MessageConverter;
+import org.apache.qpid.server.protocol.MessageConverterRegistry;
+
+/**
+ * Remembers the result of converting a message to another protocol's message class, so that a message delivered to
+ * many consumers of the same protocol is converted only once.
+ * <p>
+ * Converted messages are held by the source message and are discarded when it is deleted, or when it is found to
+ * have been flowed to disk.  The total size of the converted messages held for a virtual host is bounded; once the
+ * bound is reached further conversions are not cached until space is released.
+ */
+public final class MessageConversionCache
+{
+    private final long _maximumSize;
+    private final AtomicLong _size = new AtomicLong();
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+
+    public MessageConversionCache(final long maximumSize)
+    {
+        _maximumSize = maximumSize;
+    }
+
+    public <M extends ServerMessage, N extends ServerMessage> N convert(final M message,
+                                                                         final Class<N> outputClass,
+                                                                         final VirtualHost<?> vhost)
+    {
+        if (_maximumSize <= 0 || !(message instanceof AbstractServerMessageImpl))
+        {
+            return doConvert(message, outputClass, vhost);
+        }
+
+        final AbstractServerMessageImpl<?, ?> sourceMessage = (AbstractServerMessageImpl<?, ?>) message;
+        final boolean inMemory = sourceMessage.getStoredMessage().isInMemory();
+        if (inMemory)
+        {
+            ServerMessage cached = sourceMessage.getConvertedMessage(outputClass);
+            if (cached != null)
+            {
+                _hits.incrementAndGet();
+                return outputClass.cast(cached);
+            }
+        }
+        else
+        {
+            // don't keep a converted copy in memory for a message that has been flowed to disk
+            sourceMessage.discardConvertedMessages(false);
+        }
+
+        _misses.incrementAndGet();
+        final N converted = doConvert(message, outputClass, vhost);
+
+        if (inMemory)
+        {
+            final long size = converted.getSize();
+            if (reserve(size)
+                && !sourceMessage.addConvertedMessage(outputClass, converted, size, this))
+            {
+                release(size);
+            }
+        }
+        return converted;
+    }
+
+    private <M extends ServerMessage, N extends ServerMessage> N doConvert(final M message,
+                                                                            final Class<N> outputClass,
+                                                                            final VirtualHost<?> vhost)
+    {
+        MessageConverter<M, N> converter =
+                MessageConverterRegistry.getConverter((Class<M>) message.getClass(), outputClass);
+        return converter.convert(message, vhost);
+    }
+
+    private boolean reserve(final long size)
+    {
+        long current;
+        do
+        {
+            current = _size.get();
+            if (current + size > _maximumSize)
+            {
+                return false;
+            }
+        }
+        while (!_size.compareAndSet(current, current + size));
+        return true;
+    }
+
+    void release(final long size)
+    {
+        _size.addAndGet(-size);
+    }
+
+    public long getSize()
+    {
+        return _size.get();
+    }
+
+    public long getHits()
+    {
+        return _hits.get();
+    }
+
+    public long getMisses()
+    {
+        return _misses.get();
+    }
+}
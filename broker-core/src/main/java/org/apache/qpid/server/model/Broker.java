@@ -218,6 +218,24 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
                       description = "Total capacity of direct memory allocated for the Broker process")
     long getDirectMemoryTotalCapacity();
 
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE,
+                      units = StatisticUnit.COUNT,
+                      label = "Direct Buffer Pool Hits",
+                      description = "Number of direct buffer allocations satisfied from the buffer pool")
+    long getDirectBufferPoolHits();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE,
+                      units = StatisticUnit.COUNT,
+                      label = "Direct Buffer Pool Misses",
+                      description = "Number of direct buffer allocations that could not be satisfied from the buffer pool")
+    long getDirectBufferPoolMisses();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+                      units = StatisticUnit.COUNT,
+                      label = "Direct Buffer Pool Buffers In Use",
+                      description = "Number of pooled direct buffers currently in use")
+    long getDirectBufferPoolBuffersInUse();
+
     @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
                       units = StatisticUnit.COUNT,
                       label = "Number Of Object Pending Finalization",
@@ -23,17 +23,38 @@ package org.apache.qpid.server.model;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
 
 abstract class ConfiguredObjectMethodAttributeOrStatistic<C extends ConfiguredObject, T>
         implements ConfiguredObjectAttributeOrStatistic<C,T>
 {
+    private static final String ACCESSORS_CLASS_NAME_SUFFIX = "Accessors";
+    private static final ManagedAttributeAccessors NO_ACCESSORS = new ManagedAttributeAccessors()
+    {
+        @Override
+        public int getIndex(final String getterName)
+        {
+            return -1;
+        }
+
+        @Override
+        public Object getValue(final int index, final Object configuredObject)
+        {
+            throw new IllegalArgumentException("Unknown getter index: " + index);
+        }
+    };
+    private static final ConcurrentMap<Class<?>, ManagedAttributeAccessors> GENERATED_ACCESSORS =
+            new ConcurrentHashMap<>();
 
     private final String _name;
     private final Class<T> _type;
     private final AttributeValueConverter<T> _converter;
     private final Method _getter;
+    private final ManagedAttributeAccessors _accessors;
+    private final int _accessorIndex;
 
     ConfiguredObjectMethodAttributeOrStatistic(final Method getter)
     {
@@ -43,6 +64,39 @@ abstract class ConfiguredObjectMethodAttributeOrStatistic<C extends ConfiguredOb
         _name = AttributeValueConverter.getNameFromMethod(getter, getType());
         _converter = AttributeValueConverter.getConverter(getType(), getter.getGenericReturnType());
 
+        final ManagedAttributeAccessors accessors = getGeneratedAccessors(getter.getDeclaringClass());
+        _accessorIndex = accessors.getIndex(getter.getName());
+        _accessors = _accessorIndex == -1 ? null : accessors;
+    }
+
+    private static ManagedAttributeAccessors getGeneratedAccessors(final Class<?> declaringClass)
+    {
+        ManagedAttributeAccessors accessors = GENERATED_ACCESSORS.get(declaringClass);
+        if (accessors == null)
+        {
+            accessors = loadGeneratedAccessors(declaringClass);
+            GENERATED_ACCESSORS.putIfAbsent(declaringClass, accessors);
+        }
+        return accessors;
+    }
+
+    private static ManagedAttributeAccessors loadGeneratedAccessors(final Class<?> declaringClass)
+    {
+        try
+        {
+            final Class<?> accessorsClass = Class.forName(declaringClass.getName() + ACCESSORS_CLASS_NAME_SUFFIX,
+                                                          true,
+                                                          declaringClass.getClassLoader());
+            if (ManagedAttributeAccessors.class.isAssignableFrom(accessorsClass))
+            {
+                return (ManagedAttributeAccessors) accessorsClass.newInstance();
+            }
+        }
+        catch (ClassNotFoundException | InstantiationException | IllegalAccessException e)
+        {
+            // No accessors were generated (e.g. for a nested interface) so the getter is invoked reflectively
+        }
+        return NO_ACCESSORS;
     }
 
     @Override
@@ -66,6 +120,11 @@ abstract class ConfiguredObjectMethodAttributeOrStatistic<C extends ConfiguredOb
     @Override
     public T getValue(C configuredObject)
     {
+        if (_accessors != null)
+        {
+            return (T) _accessors.getValue(_accessorIndex, configuredObject);
+        }
+
         try
         {
             return (T) getGetter().invoke(configuredObject);
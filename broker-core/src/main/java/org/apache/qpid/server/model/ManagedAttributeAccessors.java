@@ -0,0 +1,35 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.model;
+
+/**
+ * Reads the managed attributes and statistics declared by a configured object interface without reflection.
+ * Implementations are generated at build time, next to the interface, by the accessors annotation processor.
+ */
+public interface ManagedAttributeAccessors
+{
+    /**
+     * @return the index with which to read the value of the named getter, or -1 if the getter is not known
+     */
+    int getIndex(String getterName);
+
+    Object getValue(int index, Object configuredObject);
+}
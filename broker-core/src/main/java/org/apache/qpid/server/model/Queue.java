@@ -94,6 +94,24 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
     @ManagedContextDefault(name = MAX_ASYNCHRONOUS_DELIVERIES )
     int DEFAULT_MAX_ASYNCHRONOUS_DELIVERIES = 80;
 
+    String DELIVERY_BATCH_SIZE = "queue.deliveryBatchSize";
+    @ManagedContextDefault(name = DELIVERY_BATCH_SIZE,
+                           description = "Maximum number of messages acquired for a consumer in a single delivery"
+                                         + " attempt and handed to the consumer together.")
+    int DEFAULT_DELIVERY_BATCH_SIZE = 16;
+
+    String SELECTOR_INDEX_ENABLED = "queue.selectorIndexEnabled";
+    @ManagedContextDefault(name = SELECTOR_INDEX_ENABLED,
+                           description = "If true, header equality and IN terms of consumer selectors are indexed so"
+                                         + " that each message's headers are examined once rather than once per"
+                                         + " consumer.")
+    boolean DEFAULT_SELECTOR_INDEX_ENABLED = false;
+
+    String BROWSE_MAXIMUM_PAGE_SIZE = "queue.browseMaximumPageSize";
+    @ManagedContextDefault(name = BROWSE_MAXIMUM_PAGE_SIZE,
+                           description = "Maximum number of messages returned by a single browseMessages operation.")
+    int DEFAULT_BROWSE_MAXIMUM_PAGE_SIZE = 1000;
+
     @ManagedAttribute
     Exchange getAlternateExchange();
 
@@ -295,6 +313,17 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
     @ManagedOperation(nonModifying = true)
     MessageInfo getMessageInfoById(@Param(name = "messageId") long messageId);
 
+    @ManagedOperation(nonModifying = true,
+                      description = "Returns a page of the messages on the queue.  To fetch the following page, pass"
+                                    + " the id of the last message returned as 'after'.")
+    List<MessageInfo> browseMessages(@Param(name = "after", defaultValue = "-1",
+                                            description = "Id of the last message of the previous page (or of a"
+                                                          + " message still on the queue) after which to start, or -1"
+                                                          + " to start from the head of the queue.") long after,
+                                     @Param(name = "limit", defaultValue = "100",
+                                            description = "Maximum number of messages to return.") int limit,
+                                     @Param(name = "includeHeaders", defaultValue = "false") boolean includeHeaders);
+
     boolean isExclusive();
 
     void addBinding(Binding<?> binding);
@@ -25,7 +25,9 @@ public enum StatisticUnit
     COUNT("count"),
     BYTES("byte"),
     MESSAGES("message"),
-    ABSOLUTE_TIME("time");
+    ABSOLUTE_TIME("time"),
+    MILLISECONDS("millisecond"),
+    MICROSECONDS("microsecond");
 
 
     private String _name;
@@ -30,6 +30,7 @@ import java.util.UUID;
 import java.util.concurrent.ScheduledFuture;
 
 import org.apache.qpid.server.logging.EventLoggerProvider;
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageSource;
 import org.apache.qpid.server.model.port.AmqpPort;
@@ -37,10 +38,12 @@ import org.apache.qpid.server.protocol.LinkRegistry;
 import org.apache.qpid.server.queue.QueueEntry;
 import org.apache.qpid.server.security.SecurityManager;
 import org.apache.qpid.server.stats.StatisticsGatherer;
+import org.apache.qpid.server.stats.StatisticsHistogram;
 import org.apache.qpid.server.store.DurableConfigurationStore;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.transport.AMQPConnection;
 import org.apache.qpid.server.txn.DtxRegistry;
+import org.apache.qpid.server.util.TimingWheel;
 import org.apache.qpid.server.virtualhost.HouseKeepingTask;
 import org.apache.qpid.server.virtualhost.NodeAutoCreationPolicy;
 
@@ -118,6 +121,21 @@ public interface VirtualHost<X extends VirtualHost<X>> extends ConfiguredObject<
     @ManagedAttribute( defaultValue = "${virtualhost.storeTransactionOpenTimeoutWarn}")
     long getStoreTransactionOpenTimeoutWarn();
 
+    String MESSAGE_CONVERSION_CACHE_SIZE = "virtualhost.messageConversionCacheSize";
+    @ManagedContextDefault(name = MESSAGE_CONVERSION_CACHE_SIZE,
+                           description = "Maximum total size in bytes of the converted copies of messages retained so"
+                                         + " that a message is converted at most once per target protocol."
+                                         + " Zero disables the cache.")
+    long DEFAULT_MESSAGE_CONVERSION_CACHE_SIZE = 32l * 1024l * 1024l;
+
+    String TIMING_WHEEL_TICK_PERIOD = "virtualhost.timingWheelTickPeriod";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = TIMING_WHEEL_TICK_PERIOD,
+                           description = "Period in milliseconds at which message expiry and the release of held"
+                                         + " messages are processed. Messages may expire or be released up to this"
+                                         + " long after they become due.")
+    long DEFAULT_TIMING_WHEEL_TICK_PERIOD = 50l;
+
     @ManagedContextDefault( name = "virtualhost.housekeepingThreadCount")
     public static final int DEFAULT_HOUSEKEEPING_THREAD_COUNT = 4;
 
@@ -143,6 +161,18 @@ public interface VirtualHost<X extends VirtualHost<X>> extends ConfiguredObject<
     @ManagedAttribute( defaultValue = "${" + VIRTUALHOST_CONNECTION_THREAD_POOL_NUMBER_OF_SELECTORS + "}")
     int getNumberOfSelectors();
 
+    String VIRTUALHOST_CONNECTION_THREAD_POOL_CONNECTION_AFFINITY = "virtualhost.connectionThreadPool.connectionAffinity";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = VIRTUALHOST_CONNECTION_THREAD_POOL_CONNECTION_AFFINITY,
+                            description = "If true, each connection thread owns its own selector and services the"
+                                          + " connections registered with it.")
+    boolean DEFAULT_VIRTUALHOST_CONNECTION_THREAD_POOL_CONNECTION_AFFINITY = false;
+
+    String VIRTUALHOST_CONNECTION_THREAD_POOL_WORK_STEALING_THRESHOLD = "virtualhost.connectionThreadPool.workStealingThreshold";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = VIRTUALHOST_CONNECTION_THREAD_POOL_WORK_STEALING_THRESHOLD)
+    int DEFAULT_VIRTUALHOST_CONNECTION_THREAD_POOL_WORK_STEALING_THRESHOLD = 4;
+
     @ManagedContextDefault( name = "virtualhost.awaitAttainmentTimeout")
     public static final int DEFAULT_AWAIT_ATTAINMENT_TIMEOUT = 5000;
 
@@ -187,6 +217,42 @@ public interface VirtualHost<X extends VirtualHost<X>> extends ConfiguredObject<
     @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Outbound")
     long getMessagesOut();
 
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Conversion Cache Hits")
+    long getMessageConversionCacheHits();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Conversion Cache Misses")
+    long getMessageConversionCacheMisses();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.BYTES, label = "Conversion Cache Size")
+    long getMessageConversionCacheSize();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Recovered")
+    long getRecoveredMessageCount();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Queues Recovering")
+    long getRecoveringQueueCount();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.MESSAGES, label = "Recovery Rate")
+    long getMessageRecoveryRate();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.MILLISECONDS, label = "Delivery Latency (Median)")
+    long getMessageDeliveryLatencyMedian();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.MILLISECONDS, label = "Delivery Latency (99th Percentile)")
+    long getMessageDeliveryLatency99thPercentile();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.MILLISECONDS, label = "Delivery Latency (Maximum)")
+    long getMessageDeliveryLatencyMaximum();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.MICROSECONDS, label = "Store Commit Latency (Median)")
+    long getStoreCommitLatencyMedian();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.MICROSECONDS, label = "Store Commit Latency (99th Percentile)")
+    long getStoreCommitLatency99thPercentile();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.MICROSECONDS, label = "Store Commit Latency (Maximum)")
+    long getStoreCommitLatencyMaximum();
+
     Broker<?> getBroker();
 
     @ManagedOperation(nonModifying = true)
@@ -225,6 +291,16 @@ public interface VirtualHost<X extends VirtualHost<X>> extends ConfiguredObject<
 
     DtxRegistry getDtxRegistry();
 
+    MessageConversionCache getMessageConversionCache();
+
+    /**
+     * @return the distribution of the times, in microseconds, from the arrival of messages to their delivery to
+     * consumers
+     */
+    StatisticsHistogram getMessageDeliveryLatencyStatistics();
+
+    TimingWheel getTimingWheel();
+
     LinkRegistry getLinkRegistry(String remoteContainerId);
 
     ScheduledFuture<?> scheduleTask(long delay, Runnable timeoutTask);
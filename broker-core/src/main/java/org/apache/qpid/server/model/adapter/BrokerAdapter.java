@@ -1085,6 +1085,24 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
         return _bufferPoolMXBean.getTotalCapacity();
     }
 
+    @Override
+    public long getDirectBufferPoolHits()
+    {
+        return QpidByteBuffer.getPooledBufferHitCount();
+    }
+
+    @Override
+    public long getDirectBufferPoolMisses()
+    {
+        return QpidByteBuffer.getPooledBufferMissCount();
+    }
+
+    @Override
+    public long getDirectBufferPoolBuffersInUse()
+    {
+        return QpidByteBuffer.getPooledBuffersInUse();
+    }
+
     @Override
     public int getNumberOfObjectsPendingFinalization()
     {
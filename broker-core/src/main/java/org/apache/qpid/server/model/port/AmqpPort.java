@@ -57,7 +57,13 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
 
     String PORT_AMQP_NUMBER_OF_SELECTORS = "qpid.port.amqp.threadPool.numberOfSelectors";
     String PORT_AMQP_ACCEPT_BACKLOG = "qpid.port.amqp.acceptBacklog";
+    String PORT_AMQP_CONNECTION_AFFINITY = "qpid.port.amqp.threadPool.connectionAffinity";
+    String PORT_AMQP_WORK_STEALING_THRESHOLD = "qpid.port.amqp.threadPool.workStealingThreshold";
     String PORT_AMQP_OUTBOUND_MESSAGE_BUFFER_SIZE = "qpid.port.amqp.outboundMessageBufferSize";
+    String PORT_AMQP_TLS_HANDSHAKE_THREADS = "qpid.port.amqp.tlsHandshake.threads";
+    String PORT_AMQP_TLS_HANDSHAKE_MAXIMUM_PENDING = "qpid.port.amqp.tlsHandshake.maximumPending";
+    String PORT_AMQP_WEBSOCKET_WRITER_THREADS = "qpid.port.amqp.websocket.writerThreads";
+    String PORT_AMQP_WEBSOCKET_WRITE_TIMEOUT = "qpid.port.amqp.websocket.writeTimeout";
 
     @ManagedContextDefault(name = DEFAULT_AMQP_PROTOCOLS)
     String INSTALLED_PROTOCOLS = AmqpPortImpl.getInstalledProtocolsAsString();
@@ -83,6 +89,20 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
     @ManagedContextDefault(name = PORT_AMQP_ACCEPT_BACKLOG)
     int DEFAULT_PORT_AMQP_ACCEPT_BACKLOG = 1024;
 
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_CONNECTION_AFFINITY,
+                           description = "If true, each IO thread owns its own selector and services the connections"
+                                         + " registered with it. The number of selectors is then equal to the"
+                                         + " thread pool size.")
+    boolean DEFAULT_PORT_AMQP_CONNECTION_AFFINITY = false;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_WORK_STEALING_THRESHOLD,
+                           description = "When connection affinity is enabled, the number of pending work items above"
+                                         + " which an IO thread is considered overloaded and idle IO threads may"
+                                         + " take over its work.")
+    int DEFAULT_PORT_AMQP_WORK_STEALING_THRESHOLD = 4;
+
     String OPEN_CONNECTIONS_WARN_PERCENT = "qpid.port.open_connections_warn_percent";
 
     @ManagedContextDefault(name = OPEN_CONNECTIONS_WARN_PERCENT)
@@ -92,6 +112,32 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
     @ManagedContextDefault(name = PORT_AMQP_OUTBOUND_MESSAGE_BUFFER_SIZE)
     long DEFAULT_PORT_AMQP_OUTBOUND_MESSAGE_BUFFER_SIZE = 1024 * 1024;
 
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_TLS_HANDSHAKE_THREADS,
+                           description = "Number of threads performing the computationally expensive parts of TLS"
+                                         + " handshakes, so that they do not hold up the IO threads. If zero, TLS"
+                                         + " handshakes are performed by the IO threads.")
+    int DEFAULT_PORT_AMQP_TLS_HANDSHAKE_THREADS = Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_TLS_HANDSHAKE_MAXIMUM_PENDING,
+                           description = "Maximum number of TLS handshakes waiting for a handshake thread. While this"
+                                         + " many are waiting, new TLS connections are closed during the handshake.")
+    int DEFAULT_PORT_AMQP_TLS_HANDSHAKE_MAXIMUM_PENDING = 1024;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_WEBSOCKET_WRITER_THREADS,
+                           description = "Maximum number of threads writing to the connections of a WebSocket port."
+                                         + " A connection waiting for a free writer is blocked for writing, so no"
+                                         + " further messages are assigned to it until its output has been sent.")
+    int DEFAULT_PORT_AMQP_WEBSOCKET_WRITER_THREADS = 8;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_WEBSOCKET_WRITE_TIMEOUT,
+                           description = "Time in milliseconds a write to a WebSocket connection may take before the"
+                                         + " connection is closed, freeing its writer thread.")
+    long DEFAULT_PORT_AMQP_WEBSOCKET_WRITE_TIMEOUT = 60000L;
+
 
     String PROTOCOL_HANDSHAKE_TIMEOUT = "qpid.port.protocol_handshake_timeout";
 
@@ -142,6 +188,15 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
     @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Connections")
     int getConnectionCount();
 
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Full TLS Handshakes")
+    long getTlsFullHandshakeCount();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Resumed TLS Sessions")
+    long getTlsResumedSessionCount();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Refused TLS Handshakes")
+    long getTlsRefusedHandshakeCount();
+
     @DerivedAttribute(description = "Maximum time allowed for a new connection to send a protocol header."
                                     + " If the connection does not send a protocol header within this time,"
                                     + " the connection will be aborted.")
@@ -155,5 +210,9 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
 
     int decrementConnectionCount();
 
+    void registerTlsHandshake(boolean sessionResumed);
+
+    void registerRefusedTlsHandshake();
+
     int getNetworkBufferSize();
 }
@@ -35,6 +35,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
@@ -128,6 +129,9 @@ public class AmqpPortImpl extends AbstractClientAuthCapablePortWithAuthProvider<
 
     private final AtomicInteger _connectionCount = new AtomicInteger();
     private final AtomicBoolean _connectionCountWarningGiven = new AtomicBoolean();
+    private final AtomicLong _tlsFullHandshakeCount = new AtomicLong();
+    private final AtomicLong _tlsResumedSessionCount = new AtomicLong();
+    private final AtomicLong _tlsRefusedHandshakeCount = new AtomicLong();
 
     private final Broker<?> _broker;
     private final int _connectionWarnCount;
@@ -666,6 +670,43 @@ public class AmqpPortImpl extends AbstractClientAuthCapablePortWithAuthProvider<
         return _connectionCount.get();
     }
 
+    @Override
+    public long getTlsFullHandshakeCount()
+    {
+        return _tlsFullHandshakeCount.get();
+    }
+
+    @Override
+    public long getTlsResumedSessionCount()
+    {
+        return _tlsResumedSessionCount.get();
+    }
+
+    @Override
+    public long getTlsRefusedHandshakeCount()
+    {
+        return _tlsRefusedHandshakeCount.get();
+    }
+
+    @Override
+    public void registerTlsHandshake(final boolean sessionResumed)
+    {
+        if (sessionResumed)
+        {
+            _tlsResumedSessionCount.incrementAndGet();
+        }
+        else
+        {
+            _tlsFullHandshakeCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void registerRefusedTlsHandshake()
+    {
+        _tlsRefusedHandshakeCount.incrementAndGet();
+    }
+
     @Override
     public long getProtocolHandshakeTimeout()
     {
@@ -23,7 +23,10 @@ package org.apache.qpid.server.protocol;
 
 import java.util.HashMap;
 import java.util.Map;
+
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.plugin.QpidServiceLoader;
 
@@ -56,4 +59,19 @@ public class MessageConverterRegistry
         }
         return map == null ? null : map.get(to);
     }
+
+    /**
+     * Converts the message to the given message class, reusing a conversion previously made for another consumer
+     * if the virtual host's conversion cache holds one.
+     */
+    public static <M extends ServerMessage, N extends ServerMessage> N convert(M message, Class<N> to, VirtualHost<?> vhost)
+    {
+        MessageConversionCache cache = vhost.getMessageConversionCache();
+        if(cache != null)
+        {
+            return cache.convert(message, to, vhost);
+        }
+        MessageConverter<M, N> converter = getConverter((Class<M>) message.getClass(), to);
+        return converter.convert(message, vhost);
+    }
 }
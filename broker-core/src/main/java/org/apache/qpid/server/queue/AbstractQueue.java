@@ -47,6 +47,8 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import javax.security.auth.Subject;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -97,6 +99,7 @@ import org.apache.qpid.server.util.Deletable;
 import org.apache.qpid.server.util.MapValueConverter;
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
 import org.apache.qpid.server.util.StateChangeListener;
+import org.apache.qpid.server.util.TimingWheel;
 import org.apache.qpid.server.virtualhost.VirtualHostUnavailableException;
 import org.apache.qpid.transport.TransportException;
 
@@ -123,6 +126,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     };
 
     private static final long INITIAL_TARGET_QUEUE_SIZE = 102400l;
+    private static final int MAX_BROWSE_CURSORS = 64;
 
     private final VirtualHost<?> _virtualHost;
     private final DeletedChildListener _deletedChildListener = new DeletedChildListener();
@@ -204,6 +208,16 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
 
     private int _maxAsyncDeliveries;
+    private int _deliveryBatchSize;
+    private QueueSelectorIndex _selectorIndex;
+    private int _browseMaximumPageSize;
+
+    /**
+     * The last entry of recently returned browse pages, keyed by message id, so that the following page can be
+     * continued from the entry rather than by walking the queue from the head.
+     */
+    private final Cache<Long, QueueEntry> _browseCursors =
+            CacheBuilder.newBuilder().maximumSize(MAX_BROWSE_CURSORS).weakValues().build();
 
     private final AtomicLong _stateChangeCount = new AtomicLong(Long.MIN_VALUE);
 
@@ -226,6 +240,9 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     private final AtomicBoolean _overfull = new AtomicBoolean(false);
     private final FlowToDiskChecker _flowToDiskChecker = new FlowToDiskChecker();
+    /* the last entry visited by housekeeping whilst the queue was above its target size, and that target size */
+    private QueueEntry _flowToDiskPosition;
+    private long _flowToDiskPositionTargetSize;
     private final long _estimatedAverageMessageHeaderSize = getContextValue(Long.class, QUEUE_ESTIMATED_MESSAGE_MEMORY_OVERHEAD);
     private final CopyOnWriteArrayList<Binding<?>> _bindings = new CopyOnWriteArrayList<>();
     private Map<String, Object> _arguments;
@@ -274,6 +291,8 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     private interface HoldMethod
     {
         boolean isHeld(MessageReference<?> message, long evalutaionTime);
+
+        long getReleaseTime(MessageReference<?> message);
     }
 
     protected AbstractQueue(Map<String, Object> attributes, VirtualHost<?> virtualHost)
@@ -465,6 +484,12 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
 
         _maxAsyncDeliveries = getContextValue(Integer.class, Queue.MAX_ASYNCHRONOUS_DELIVERIES);
+        _deliveryBatchSize = Math.max(getContextValue(Integer.class, Queue.DELIVERY_BATCH_SIZE), 1);
+        _browseMaximumPageSize = Math.max(getContextValue(Integer.class, Queue.BROWSE_MAXIMUM_PAGE_SIZE), 1);
+        if(getContextValue(Boolean.class, Queue.SELECTOR_INDEX_ENABLED))
+        {
+            _selectorIndex = new QueueSelectorIndex();
+        }
 
         if(_defaultFilters != null)
         {
@@ -517,6 +542,12 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                                 {
                                     return messageReference.getMessage().getMessageHeader().getNotValidBefore() >= evaluationTime;
                                 }
+
+                                @Override
+                                public long getReleaseTime(final MessageReference<?> messageReference)
+                                {
+                                    return messageReference.getMessage().getMessageHeader().getNotValidBefore() + 1L;
+                                }
                             });
         }
 
@@ -897,19 +928,14 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
 
         consumer.setStateListener(this);
-        QueueContext queueContext;
-        if(filters == null || !filters.startAtTail())
-        {
-            queueContext = new QueueContext(getEntries().getHead());
-        }
-        else
-        {
-            queueContext = new QueueContext(getEntries().getTail());
-        }
-        consumer.setQueueContext(queueContext);
+        consumer.setQueueContext(createQueueContext(filters != null && filters.startAtTail()));
 
         if (!isDeleted())
         {
+            if (_selectorIndex != null && consumer.getPropertyValueConstraint() != null)
+            {
+                _selectorIndex.addConsumer(consumer.getPropertyValueConstraint());
+            }
             _consumerList.add(consumer);
 
             if (isDeleted())
@@ -950,6 +976,10 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
         if (removed)
         {
+            if (_selectorIndex != null && consumer.getPropertyValueConstraint() != null)
+            {
+                _selectorIndex.removeConsumer(consumer.getPropertyValueConstraint());
+            }
             consumer.closeAsync();
             // No longer can the queue have an exclusive consumer
             setExclusiveSubscriber(null);
@@ -1169,6 +1199,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         final QueueConsumer<?> exclusiveSub = _exclusiveSubscriber;
         final QueueEntry entry = getEntries().add(message, enqueueRecord);
         updateExpiration(entry);
+        scheduleTimeout(entry);
 
         try
         {
@@ -1433,6 +1464,22 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     }
 
 
+    private void deliverMessages(final QueueConsumer<?> sub,
+                                 final List<QueueEntry> entries,
+                                 boolean batch)
+    {
+        if(entries.size() == 1)
+        {
+            _deliveredMessages.incrementAndGet();
+            sub.send(entries.get(0), batch);
+        }
+        else
+        {
+            _deliveredMessages.addAndGet(entries.size());
+            sub.send(entries, batch);
+        }
+    }
+
     private void setLastSeenEntry(final QueueConsumer<?> sub, final QueueEntry entry)
     {
         QueueContext subContext = sub.getQueueContext();
@@ -1448,7 +1495,12 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
     }
 
-    private void updateSubRequeueEntry(final QueueConsumer<?> sub, final QueueEntry entry)
+    QueueContext createQueueContext(final boolean startAtTail)
+    {
+        return new QueueContext(startAtTail ? getEntries().getTail() : getEntries().getHead());
+    }
+
+    void updateSubRequeueEntry(final QueueConsumer<?> sub, final QueueEntry entry)
     {
 
         QueueContext subContext = sub.getQueueContext();
@@ -1488,6 +1540,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public void dequeue(QueueEntry entry)
     {
+        entry.cancelScheduledTimeout();
         decrementQueueCount();
         decrementQueueSize(entry);
         if (entry.acquiredByConsumer())
@@ -2196,7 +2249,9 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     /**
      * Attempt delivery for the given consumer.
      *
-     * Looks up the next node for the consumer and attempts to deliver it.
+     * Looks up the next node for the consumer and attempts to deliver it.  Up to the configured delivery batch size
+     * of further available nodes are then acquired in the same pass, and all the acquired nodes are handed to the
+     * consumer together.
      *
      *
      * @param sub the consumer
@@ -2220,16 +2275,18 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                                                            "virtualhost state " + _virtualHost.getState());
             }
 
-            if (node != null && node.isAvailable())
+            List<QueueEntry> entriesToDeliver = null;
+            List<MessageReference> messageReferences = null;
+            try
             {
-                if (sub.hasInterest(node) && mightAssign(sub, node))
+                int remaining = _deliveryBatchSize;
+                while (node != null && node.isAvailable())
                 {
-                    if (!sub.wouldSuspend(node))
+                    if (sub.hasInterest(node) && mightAssign(sub, node))
                     {
-                        MessageReference messageReference = null;
-                        try
+                        if (!sub.wouldSuspend(node))
                         {
-
+                            MessageReference messageReference = null;
                             if ((sub.acquires() && !assign(sub, node))
                                 || (!sub.acquires() && (messageReference = node.newMessageReference()) == null))
                             {
@@ -2239,33 +2296,72 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                             }
                             else
                             {
-                                deliverMessage(sub, node, batch, true);
+                                if (messageReference != null)
+                                {
+                                    if (messageReferences == null)
+                                    {
+                                        messageReferences = new ArrayList<>(remaining);
+                                    }
+                                    messageReferences.add(messageReference);
+                                }
+                                if (entriesToDeliver == null)
+                                {
+                                    entriesToDeliver = new ArrayList<>(remaining);
+                                }
+                                setLastSeenEntry(sub, node);
+                                entriesToDeliver.add(node);
                             }
                         }
-                        finally
+                        else // Not enough Credit for message and wouldSuspend
                         {
-                            if (messageReference != null)
-                            {
-                                messageReference.release();
-                            }
+                            //QPID-1187 - Treat the consumer as suspended for this message
+                            // and wait for the message to be removed to continue delivery.
+                            subActive = false;
+                            sub.awaitCredit(node);
+                            break;
                         }
                     }
-                    else // Not enough Credit for message and wouldSuspend
-                    {
-                        //QPID-1187 - Treat the consumer as suspended for this message
-                        // and wait for the message to be removed to continue delivery.
-                        subActive = false;
-                        sub.awaitCredit(node);
 
+                    if (--remaining <= 0)
+                    {
+                        break;
+                    }
+                    QueueEntry next = getNextAvailableEntry(sub);
+                    if (next == null)
+                    {
+                        break;
                     }
+                    node = next;
                 }
 
+                if (entriesToDeliver != null)
+                {
+                    deliverMessages(sub, entriesToDeliver, batch);
+                }
+            }
+            finally
+            {
+                if (messageReferences != null)
+                {
+                    for (MessageReference messageReference : messageReferences)
+                    {
+                        messageReference.release();
+                    }
+                }
             }
-            atTail = (node == null) || (getEntries().next(node) == null);
+            atTail = isAtTail(sub, node);
         }
         return atTail || !subActive;
     }
 
+    /**
+     * Returns true if there are no entries beyond <code>node</code>, the last entry looked at for the consumer.
+     */
+    boolean isAtTail(final QueueConsumer<?> sub, final QueueEntry node)
+    {
+        return (node == null) || (getEntries().next(node) == null);
+    }
+
     protected void advanceAllConsumers()
     {
         QueueConsumerList.ConsumerNodeIterator consumerNodeIterator = _consumerList.iterator();
@@ -2284,7 +2380,12 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
     }
 
-    private QueueEntry getNextAvailableEntry(final QueueConsumer sub)
+    QueueSelectorIndex getSelectorIndex()
+    {
+        return _selectorIndex;
+    }
+
+    QueueEntry getNextAvailableEntry(final QueueConsumer<?> sub)
     {
         QueueContext context = sub.getQueueContext();
         if(context != null)
@@ -2295,19 +2396,8 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             QueueEntry node = (releasedNode != null && lastSeen.compareTo(releasedNode)>=0) ? releasedNode : getEntries()
                     .next(lastSeen);
 
-            boolean expired = false;
-            while (node != null && (!node.isAvailable() || (expired = node.expired()) || !sub.hasInterest(node) ||
-                                    !mightAssign(sub,node)))
+            while (node != null && isSkippedBy(sub, node))
             {
-                if (expired)
-                {
-                    expired = false;
-                    if (node.acquire())
-                    {
-                        dequeueEntry(node);
-                    }
-                }
-
                 if(QueueContext._lastSeenUpdater.compareAndSet(context, lastSeen, node))
                 {
                     QueueContext._releasedUpdater.compareAndSet(context, releasedNode, null);
@@ -2326,6 +2416,27 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
     }
 
+    /**
+     * Returns true if the consumer should move past the entry rather than be offered it. An expired entry is
+     * dequeued on the way.
+     */
+    boolean isSkippedBy(final QueueConsumer<?> sub, final QueueEntry node)
+    {
+        if (!node.isAvailable())
+        {
+            return true;
+        }
+        if (node.expired())
+        {
+            if (node.acquire())
+            {
+                dequeueEntry(node);
+            }
+            return true;
+        }
+        return !sub.hasInterest(node) || !mightAssign(sub, node);
+    }
+
     public boolean isEntryAheadOfConsumer(QueueEntry entry, QueueConsumer<?> sub)
     {
         QueueContext context = sub.getQueueContext();
@@ -2483,10 +2594,9 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     public void checkMessageStatus()
     {
-        QueueEntryIterator queueListIterator = getEntries().iterator();
-
         final long estimatedQueueSize = _atomicQueueSize.get() + _atomicQueueCount.get() * _estimatedAverageMessageHeaderSize;
-        _flowToDiskChecker.reportFlowToDiskStatusIfNecessary(estimatedQueueSize, _targetQueueSize.get());
+        final long targetQueueSize = _targetQueueSize.get();
+        _flowToDiskChecker.reportFlowToDiskStatusIfNecessary(estimatedQueueSize, targetQueueSize);
 
         final Set<NotificationCheck> perMessageChecks = new HashSet<>();
         final Set<NotificationCheck> queueLevelChecks = new HashSet<>();
@@ -2506,54 +2616,80 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         final long currentTime = System.currentTimeMillis();
         final long thresholdTime = currentTime - getAlertRepeatGap();
 
-        long cumulativeQueueSize = 0;
-        while (queueListIterator.advance())
+        // Messages are flowed to disk as they arrive, and expired or released from hold by the virtual host's
+        // timing wheel when due, so the entries only need to be revisited if the queue is still above its target
+        // size (e.g. because the target has since been reduced), if there are checks which need to look at each
+        // message, or if there is no timing wheel.  Whilst the queue stays above a target size that has not been
+        // reduced, the entries up to the last one visited have already been flowed to disk as necessary, and those
+        // arriving since flowed as they were enqueued, so only the entries after it are revisited.
+        final boolean timeoutsScheduled = _virtualHost.getTimingWheel() != null;
+        final boolean flowToDiskRequired = estimatedQueueSize > targetQueueSize;
+        final boolean holdCheckRequired = !_holdMethods.isEmpty() && !timeoutsScheduled;
+        final boolean fullScanRequired = holdCheckRequired || !perMessageChecks.isEmpty() || !timeoutsScheduled;
+        if (!flowToDiskRequired)
         {
-            final QueueEntry node = queueListIterator.getNode();
-            // Only process nodes that are not currently deleted and not dequeued
-            if (!node.isDeleted())
+            _flowToDiskPosition = null;
+        }
+        else if (!fullScanRequired && _flowToDiskPosition != null && targetQueueSize >= _flowToDiskPositionTargetSize)
+        {
+            _flowToDiskPosition = flowEntriesToDisk(_flowToDiskPosition, estimatedQueueSize, targetQueueSize);
+        }
+        else
+        {
+            _flowToDiskPosition = null;
+        }
+
+        if (_flowToDiskPosition == null && (flowToDiskRequired || fullScanRequired))
+        {
+            QueueEntryIterator queueListIterator = getEntries().iterator();
+            long cumulativeQueueSize = 0;
+            QueueEntry lastNode = null;
+            while (queueListIterator.advance())
             {
-                // If the node has expired then acquire it
-                if (node.expired())
+                final QueueEntry node = queueListIterator.getNode();
+                lastNode = node;
+                // Only process nodes that are not currently deleted and not dequeued
+                if (!node.isDeleted())
                 {
-                    boolean acquiredForDequeueing = node.acquireOrSteal(new Runnable()
+                    if (node.expired())
+                    {
+                        expireEntry(node);
+                    }
+                    else
                     {
-                        @Override
-                        public void run()
+                        if (holdCheckRequired)
                         {
-                            dequeueEntry(node);
+                            node.checkHeld(currentTime);
                         }
-                    });
-
-                    if(acquiredForDequeueing)
-                    {
-                        _logger.debug("Dequeuing expired node {}", node);
-                        // Then dequeue it.
-                        dequeueEntry(node);
-                    }
-                }
-                else
-                {
-                    node.checkHeld(currentTime);
 
-                    // There is a chance that the node could be deleted by
-                    // the time the check actually occurs. So verify we
-                    // can actually get the message to perform the check.
-                    ServerMessage msg = node.getMessage();
+                        // There is a chance that the node could be deleted by
+                        // the time the check actually occurs. So verify we
+                        // can actually get the message to perform the check.
+                        ServerMessage msg = node.getMessage();
 
-                    if (msg != null)
-                    {
-                        cumulativeQueueSize += msg.getSize() + _estimatedAverageMessageHeaderSize;
-                        _flowToDiskChecker.flowToDiskIfNecessary(msg.getStoredMessage(), cumulativeQueueSize,
-                                                                 _targetQueueSize.get());
-
-                        for(NotificationCheck check : perMessageChecks)
+                        if (msg != null)
                         {
-                            checkForNotification(msg, listener, currentTime, thresholdTime, check);
+                            if (flowToDiskRequired)
+                            {
+                                cumulativeQueueSize += msg.getSize() + _estimatedAverageMessageHeaderSize;
+                                _flowToDiskChecker.flowToDiskIfNecessary(msg.getStoredMessage(), cumulativeQueueSize,
+                                                                         targetQueueSize);
+                            }
+
+                            for(NotificationCheck check : perMessageChecks)
+                            {
+                                checkForNotification(msg, listener, currentTime, thresholdTime, check);
+                            }
                         }
                     }
                 }
             }
+
+            if (flowToDiskRequired)
+            {
+                _flowToDiskPosition = lastNode;
+                _flowToDiskPositionTargetSize = targetQueueSize;
+            }
         }
 
         for(NotificationCheck check : queueLevelChecks)
@@ -2563,6 +2699,144 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     }
 
+    /**
+     * Flows the messages of the entries after the given one to disk, the queue being above its target size.
+     *
+     * @return the last entry visited
+     */
+    private QueueEntry flowEntriesToDisk(final QueueEntry position,
+                                         final long estimatedQueueSize,
+                                         final long targetQueueSize)
+    {
+        final QueueEntryList entries = getEntries();
+        QueueEntry node = position;
+        QueueEntry next;
+        while ((next = entries.next(node)) != null)
+        {
+            node = next;
+            if (!node.isDeleted())
+            {
+                ServerMessage msg = node.getMessage();
+                if (msg != null)
+                {
+                    _flowToDiskChecker.flowToDiskIfNecessary(msg.getStoredMessage(), estimatedQueueSize,
+                                                             targetQueueSize);
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Schedules the expiry of the entry, or its release if it is held, whichever is due first, on the virtual host's
+     * timing wheel.  Whilst a release is scheduled the entry stays held without the hold methods being re-evaluated.
+     */
+    private void scheduleTimeout(final QueueEntry entry)
+    {
+        final TimingWheel timingWheel = _virtualHost.getTimingWheel();
+        if (timingWheel == null || entry.isDeleted())
+        {
+            return;
+        }
+
+        // expired() is only true once the current time has passed the expiration
+        final long expiration = entry.getExpiration();
+        long dueTime = expiration == 0L ? 0L : expiration + 1L;
+        boolean releasesHold = false;
+        final long currentTime = System.currentTimeMillis();
+        if (!_holdMethods.isEmpty() && entry.checkHeld(currentTime))
+        {
+            final long releaseTime = getHoldReleaseTime(entry);
+            if (releaseTime > currentTime && (dueTime == 0L || releaseTime < dueTime))
+            {
+                dueTime = releaseTime;
+                releasesHold = true;
+            }
+        }
+
+        if (dueTime != 0L)
+        {
+            final TimingWheel.Timeout timeout = new TimingWheel.Timeout(dueTime, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    onTimeout(entry);
+                }
+
+                @Override
+                public String toString()
+                {
+                    return "Timeout[" + entry + "]";
+                }
+            });
+            entry.setScheduledTimeout(timeout, releasesHold);
+            timingWheel.schedule(timeout);
+        }
+    }
+
+    private void onTimeout(final QueueEntry entry)
+    {
+        entry.cancelScheduledTimeout();
+        if (!entry.isDeleted())
+        {
+            if (entry.expired())
+            {
+                expireEntry(entry);
+            }
+            else
+            {
+                // releases the entry if it was held, then schedules its expiry (or a later release)
+                entry.checkHeld(System.currentTimeMillis());
+                scheduleTimeout(entry);
+            }
+        }
+    }
+
+    private long getHoldReleaseTime(final QueueEntry entry)
+    {
+        try
+        {
+            MessageReference ref = entry.getMessage().newReference();
+            try
+            {
+                long releaseTime = 0L;
+                for (HoldMethod method : _holdMethods)
+                {
+                    releaseTime = Math.max(releaseTime, method.getReleaseTime(ref));
+                }
+                return releaseTime;
+            }
+            finally
+            {
+                ref.release();
+            }
+        }
+        catch (MessageDeletedException e)
+        {
+            return 0L;
+        }
+    }
+
+    private void expireEntry(final QueueEntry node)
+    {
+        boolean acquiredForDequeueing = node.acquireOrSteal(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                dequeueEntry(node);
+            }
+        });
+
+        if(acquiredForDequeueing)
+        {
+            _logger.debug("Dequeuing expired node {}", node);
+            // Then dequeue it.
+            dequeueEntry(node);
+        }
+    }
+
     @Override
     public long getPotentialMemoryFootprint()
     {
@@ -3488,6 +3762,72 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         return messageFinder.getMessageInfo();
     }
 
+    @Override
+    public List<MessageInfo> browseMessages(final long after, final int limit, final boolean includeHeaders)
+    {
+        final int pageSize = Math.min(Math.max(limit, 1), _browseMaximumPageSize);
+        final QueueEntryList entries = getEntries();
+        final List<MessageInfo> page = new ArrayList<>(pageSize);
+
+        QueueEntry node = after < 0L ? entries.getHead() : findBrowseCursor(after);
+        QueueEntry last = null;
+        long lastMessageId = -1L;
+        while (page.size() < pageSize && (node = entries.next(node)) != null)
+        {
+            MessageReference reference = node.newMessageReference();
+            if (reference != null)
+            {
+                try
+                {
+                    if (!node.isDeleted())
+                    {
+                        page.add(new MessageInfoImpl(node, includeHeaders));
+                        last = node;
+                        lastMessageId = reference.getMessage().getMessageNumber();
+                    }
+                }
+                finally
+                {
+                    reference.release();
+                }
+            }
+        }
+
+        if (last != null)
+        {
+            _browseCursors.put(lastMessageId, last);
+        }
+        return page;
+    }
+
+    /**
+     * Returns the entry after which a page following the given message should start.  If the page boundary is not
+     * remembered (or its entry has since been removed and collected) the queue is walked to the message.  Entries are
+     * not in message id order on every kind of queue (e.g. priority or sorted queues), so if the message has left the
+     * queue there is no way of telling where the page should resume.
+     */
+    private QueueEntry findBrowseCursor(final long after)
+    {
+        final QueueEntry cursor = _browseCursors.getIfPresent(after);
+        if (cursor != null)
+        {
+            return cursor;
+        }
+
+        final QueueEntryList entries = getEntries();
+        QueueEntry node = entries.getHead();
+        while ((node = entries.next(node)) != null)
+        {
+            final ServerMessage message = node.getMessage();
+            if (message != null && message.getMessageNumber() == after)
+            {
+                return node;
+            }
+        }
+        throw new IllegalArgumentException("Message " + after + " is no longer on queue '" + getName()
+                                           + "', browsing must be restarted from the head of the queue");
+    }
+
     private void authorizeMethod(String methodName)
     {
         getSecurityManager().authoriseMethod(Operation.UPDATE,
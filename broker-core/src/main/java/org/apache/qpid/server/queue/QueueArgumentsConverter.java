@@ -44,6 +44,8 @@ public class QueueArgumentsConverter
 
     public static final String X_QPID_PRIORITIES = "x-qpid-priorities";
 
+    public static final String X_QPID_SHARDS = "x-qpid-shards";
+
     public static final String X_QPID_DESCRIPTION = "x-qpid-description";
 
     public static final String QPID_LAST_VALUE_QUEUE_KEY = "qpid.last_value_queue_key";
@@ -92,6 +94,7 @@ public class QueueArgumentsConverter
         ATTRIBUTE_MAPPINGS.put(QPID_QUEUE_SORT_KEY, SortedQueue.SORT_KEY);
         ATTRIBUTE_MAPPINGS.put(QPID_LAST_VALUE_QUEUE_KEY, LastValueQueue.LVQ_KEY);
         ATTRIBUTE_MAPPINGS.put(X_QPID_PRIORITIES, PriorityQueue.PRIORITIES);
+        ATTRIBUTE_MAPPINGS.put(X_QPID_SHARDS, ShardedQueue.SHARDS);
 
         ATTRIBUTE_MAPPINGS.put(X_QPID_DESCRIPTION, Queue.DESCRIPTION);
         ATTRIBUTE_MAPPINGS.put(Queue.ALTERNATE_EXCHANGE, Queue.ALTERNATE_EXCHANGE);
@@ -20,6 +20,8 @@
  */
 package org.apache.qpid.server.queue;
 
+import java.util.List;
+
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.model.Consumer;
 import org.apache.qpid.server.model.Queue;
@@ -39,6 +41,8 @@ public interface QueueConsumer<X extends QueueConsumer<X>> extends Consumer<X>
 
     void send(QueueEntry entry, boolean batch);
 
+    void send(List<QueueEntry> entries, boolean batch);
+
     void acquisitionRemoved(QueueEntry node);
 
     void queueDeleted();
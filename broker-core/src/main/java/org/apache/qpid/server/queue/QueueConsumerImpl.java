@@ -27,6 +27,7 @@ import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -36,6 +37,8 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.qpid.filter.FilterableMessage;
+import org.apache.qpid.filter.PropertyValueConstraint;
 import org.apache.qpid.filter.SelectorParsingException;
 import org.apache.qpid.server.consumer.ConsumerTarget;
 import org.apache.qpid.server.filter.FilterManager;
@@ -79,6 +82,7 @@ class QueueConsumerImpl
     private final AtomicLong _deliveredCount = new AtomicLong(0);
     private final AtomicLong _deliveredBytes = new AtomicLong(0);
     private final FilterManager _filters;
+    private final PropertyValueConstraint<FilterableMessage> _propertyValueConstraint;
     private final Class<? extends ServerMessage> _messageClass;
     private final Object _sessionReference;
     private final AbstractQueue _queue;
@@ -128,6 +132,7 @@ class QueueConsumerImpl
         _sessionReference = target.getSessionModel().getConnectionReference();
         _consumerNumber = CONSUMER_NUMBER_GENERATOR.getAndIncrement();
         _filters = filters;
+        _propertyValueConstraint = filters == null ? null : filters.getPropertyValueConstraint();
         _acquires = optionSet.contains(Option.ACQUIRES);
         _seesRequeues = optionSet.contains(Option.SEES_REQUEUES);
         _isTransient = optionSet.contains(Option.TRANSIENT);
@@ -393,6 +398,11 @@ class QueueConsumerImpl
         _stateListener = listener;
     }
 
+    PropertyValueConstraint<FilterableMessage> getPropertyValueConstraint()
+    {
+        return _propertyValueConstraint;
+    }
+
     public final QueueContext getQueueContext()
     {
         return _queueContext;
@@ -457,6 +467,13 @@ class QueueConsumerImpl
                     Filterable msg = entry.asFilterable();
                     try
                     {
+                        final QueueSelectorIndex selectorIndex = _queue.getSelectorIndex();
+                        if (_propertyValueConstraint != null
+                            && selectorIndex != null
+                            && !selectorIndex.mightMatch(entry, msg, _propertyValueConstraint))
+                        {
+                            return false;
+                        }
                         return _filters.allAllow(msg);
                     }
                     catch (SelectorParsingException e)
@@ -555,10 +572,35 @@ class QueueConsumerImpl
     public final void send(final QueueEntry entry, final boolean batch)
     {
         _deliveredCount.incrementAndGet();
+        registerDeliveryLatency(entry, System.currentTimeMillis());
         long size = _target.send(this, entry, batch);
         _deliveredBytes.addAndGet(size);
     }
 
+    public final void send(final List<QueueEntry> entries, final boolean batch)
+    {
+        _deliveredCount.addAndGet(entries.size());
+        final long now = System.currentTimeMillis();
+        for (QueueEntry entry : entries)
+        {
+            registerDeliveryLatency(entry, now);
+        }
+        long size = _target.send(this, entries, batch);
+        _deliveredBytes.addAndGet(size);
+    }
+
+    /**
+     * Registers the time since the message arrived, in milliseconds: the arrival time is only known to the
+     * precision of the wall clock.
+     */
+    private void registerDeliveryLatency(final QueueEntry entry, final long now)
+    {
+        final long arrivalTime = entry.getMessage().getArrivalTime();
+        _queue.getVirtualHost()
+              .getMessageDeliveryLatencyStatistics()
+              .registerValue(now - arrivalTime);
+    }
+
     @Override
     public void acquisitionRemoved(final QueueEntry node)
     {
@@ -23,6 +23,7 @@ package org.apache.qpid.server.queue;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.MessageReference;
 import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.util.TimingWheel;
 
 public interface QueueEntry extends MessageInstance, Comparable<QueueEntry>
 {
@@ -43,7 +44,17 @@ public interface QueueEntry extends MessageInstance, Comparable<QueueEntry>
 
     void setExpiration(long calculatedExpiration);
 
+    long getExpiration();
+
     MessageReference newMessageReference();
 
     boolean checkHeld(final long evaluationTime);
+
+    /**
+     * Records the timeout scheduled for this entry's expiry or release.  If the timeout releases the entry from hold,
+     * the entry remains held until the timeout is cancelled.
+     */
+    void setScheduledTimeout(TimingWheel.Timeout timeout, boolean releasesHold);
+
+    void cancelScheduledTimeout();
 }
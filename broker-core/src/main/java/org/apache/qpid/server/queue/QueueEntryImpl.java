@@ -46,6 +46,7 @@ import org.apache.qpid.server.txn.ServerTransaction;
 import org.apache.qpid.server.util.Action;
 import org.apache.qpid.server.util.StateChangeListener;
 import org.apache.qpid.server.util.StateChangeListenerEntry;
+import org.apache.qpid.server.util.TimingWheel;
 
 public abstract class QueueEntryImpl implements QueueEntry
 {
@@ -105,6 +106,8 @@ public abstract class QueueEntryImpl implements QueueEntry
     private static int IMMEDIATE_FLAG = 8;
     private int _flags;
     private long _expiration;
+    private volatile TimingWheel.Timeout _scheduledTimeout;
+    private volatile boolean _holdReleaseScheduled;
 
     /** Number of times this message has been delivered */
     private volatile int _deliveryCount = -1;
@@ -113,6 +116,8 @@ public abstract class QueueEntryImpl implements QueueEntry
 
     private final MessageEnqueueRecord _enqueueRecord;
 
+    private volatile QueueSelectorIndex.PropertyValues _indexedPropertyValues;
+
 
     public QueueEntryImpl(QueueEntryList queueEntryList)
     {
@@ -162,6 +167,12 @@ public abstract class QueueEntryImpl implements QueueEntry
         _expiration = expiration;
     }
 
+    @Override
+    public long getExpiration()
+    {
+        return _expiration;
+    }
+
     public InstanceProperties getInstanceProperties()
     {
         return new EntryInstanceProperties();
@@ -446,6 +457,11 @@ public abstract class QueueEntryImpl implements QueueEntry
     @Override
     public boolean checkHeld(final long evaluationTime)
     {
+        if(_holdReleaseScheduled)
+        {
+            return _state == HELD_STATE;
+        }
+
         EntryState state;
         while((state = _state).getState() == State.AVAILABLE)
         {
@@ -475,6 +491,25 @@ public abstract class QueueEntryImpl implements QueueEntry
         return false;
     }
 
+    @Override
+    public void setScheduledTimeout(final TimingWheel.Timeout timeout, final boolean releasesHold)
+    {
+        _scheduledTimeout = timeout;
+        _holdReleaseScheduled = releasesHold;
+    }
+
+    @Override
+    public void cancelScheduledTimeout()
+    {
+        final TimingWheel.Timeout timeout = _scheduledTimeout;
+        if(timeout != null)
+        {
+            _scheduledTimeout = null;
+            _holdReleaseScheduled = false;
+            timeout.cancel();
+        }
+    }
+
     @Override
     public QueueConsumer getDeliveredConsumer()
     {
@@ -719,6 +754,16 @@ public abstract class QueueEntryImpl implements QueueEntry
         return Filterable.Factory.newInstance(getMessage(), getInstanceProperties());
     }
 
+    QueueSelectorIndex.PropertyValues getIndexedPropertyValues()
+    {
+        return _indexedPropertyValues;
+    }
+
+    void setIndexedPropertyValues(final QueueSelectorIndex.PropertyValues indexedPropertyValues)
+    {
+        _indexedPropertyValues = indexedPropertyValues;
+    }
+
     public String toString()
     {
         return "QueueEntryImpl{" +
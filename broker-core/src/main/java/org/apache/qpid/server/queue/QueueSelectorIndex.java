@@ -0,0 +1,142 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.filter.FilterableMessage;
+import org.apache.qpid.filter.PropertyExpression;
+import org.apache.qpid.filter.PropertyValueConstraint;
+import org.apache.qpid.server.filter.Filterable;
+
+/**
+ * Indexes the properties that the selectors of a queue's consumers constrain to fixed values.
+ * <p>
+ * The indexed properties of an entry are evaluated once, the first time any indexed consumer considers the entry, and
+ * cached on the entry.  Each consumer then discards entries that cannot match its selector with a hash lookup rather
+ * than by evaluating the selector.  The cached values are recalculated if the set of indexed properties has changed
+ * since they were taken.
+ */
+final class QueueSelectorIndex
+{
+    private final Map<PropertyExpression<FilterableMessage>, Integer> _propertyReferences = new HashMap<>();
+    private volatile IndexedProperties _indexedProperties = new IndexedProperties(
+            Collections.<PropertyExpression<FilterableMessage>, Integer>emptyMap());
+
+    synchronized void addConsumer(final PropertyValueConstraint<FilterableMessage> constraint)
+    {
+        Integer references = _propertyReferences.get(constraint.getProperty());
+        if (references == null)
+        {
+            _propertyReferences.put(constraint.getProperty(), 1);
+            updateIndexedProperties();
+        }
+        else
+        {
+            _propertyReferences.put(constraint.getProperty(), references + 1);
+        }
+    }
+
+    synchronized void removeConsumer(final PropertyValueConstraint<FilterableMessage> constraint)
+    {
+        Integer references = _propertyReferences.get(constraint.getProperty());
+        if (references != null)
+        {
+            if (references == 1)
+            {
+                _propertyReferences.remove(constraint.getProperty());
+                updateIndexedProperties();
+            }
+            else
+            {
+                _propertyReferences.put(constraint.getProperty(), references - 1);
+            }
+        }
+    }
+
+    private void updateIndexedProperties()
+    {
+        Map<PropertyExpression<FilterableMessage>, Integer> slots = new HashMap<>();
+        for (PropertyExpression<FilterableMessage> property : _propertyReferences.keySet())
+        {
+            slots.put(property, slots.size());
+        }
+        _indexedProperties = new IndexedProperties(slots);
+    }
+
+    /**
+     * @return false if the entry's message cannot satisfy the given consumer constraint
+     */
+    boolean mightMatch(final QueueEntry entry,
+                       final Filterable message,
+                       final PropertyValueConstraint<FilterableMessage> constraint)
+    {
+        final IndexedProperties indexedProperties = _indexedProperties;
+        final Integer slot = indexedProperties._slots.get(constraint.getProperty());
+        if (slot == null)
+        {
+            return true;
+        }
+
+        PropertyValues values = null;
+        if (entry instanceof QueueEntryImpl)
+        {
+            values = ((QueueEntryImpl) entry).getIndexedPropertyValues();
+        }
+        if (values == null || values._indexedProperties != indexedProperties)
+        {
+            values = new PropertyValues(indexedProperties, message);
+            if (entry instanceof QueueEntryImpl)
+            {
+                ((QueueEntryImpl) entry).setIndexedPropertyValues(values);
+            }
+        }
+        return constraint.mightMatch(values._values[slot]);
+    }
+
+    private static final class IndexedProperties
+    {
+        private final Map<PropertyExpression<FilterableMessage>, Integer> _slots;
+
+        private IndexedProperties(final Map<PropertyExpression<FilterableMessage>, Integer> slots)
+        {
+            _slots = slots;
+        }
+    }
+
+    static final class PropertyValues
+    {
+        private final IndexedProperties _indexedProperties;
+        private final Object[] _values;
+
+        private PropertyValues(final IndexedProperties indexedProperties, final Filterable message)
+        {
+            _indexedProperties = indexedProperties;
+            _values = new Object[indexedProperties._slots.size()];
+            for (Map.Entry<PropertyExpression<FilterableMessage>, Integer> slot : indexedProperties._slots.entrySet())
+            {
+                _values[slot.getValue()] = slot.getKey().evaluate(message);
+            }
+        }
+    }
+}
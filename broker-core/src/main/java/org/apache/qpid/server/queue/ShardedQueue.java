@@ -0,0 +1,44 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import org.apache.qpid.server.model.ManagedAttribute;
+import org.apache.qpid.server.model.ManagedContextDefault;
+import org.apache.qpid.server.model.ManagedObject;
+import org.apache.qpid.server.model.Queue;
+
+/**
+ * A queue whose entries are held in a number of independent lists (shards) so that concurrent publishers do not
+ * contend on a single list tail.  Each consumer keeps its own position in every shard and takes messages from the
+ * shards in turn.  Messages are delivered in FIFO order within a shard, but there is no ordering guarantee between
+ * messages enqueued to different shards.
+ */
+@ManagedObject( category = false, type="sharded" )
+public interface ShardedQueue<X extends ShardedQueue<X>> extends Queue<X>
+{
+    String SHARDS = "shards";
+
+    @ManagedContextDefault( name = "queue.shards")
+    int DEFAULT_SHARDS = 8;
+
+    @ManagedAttribute( defaultValue = "${queue.shards}")
+    int getShards();
+}
@@ -0,0 +1,131 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.qpid.server.queue;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The position of a consumer on a sharded queue.  The consumer has its own last seen and released entry in each
+ * shard, so an entry appended to any shard is always ahead of the consumer and enqueuing never has to move
+ * consumers back.  The inherited last seen entry is the entry most recently delivered to the consumer, which is
+ * folded into the position in its shard the next time the consumer looks for an entry.
+ */
+final class ShardedQueueContext extends QueueContext
+{
+    private final AtomicReferenceArray<QueueEntry> _lastSeenEntries;
+    private final AtomicReferenceArray<QueueEntry> _releasedEntries;
+    private volatile QueueEntry _recordedEntry;
+    private volatile int _shard;
+
+    ShardedQueueContext(final QueueEntry lastSeen, final QueueEntry[] shardLastSeen)
+    {
+        super(lastSeen);
+        _lastSeenEntries = new AtomicReferenceArray<>(shardLastSeen);
+        _releasedEntries = new AtomicReferenceArray<>(shardLastSeen.length);
+        _recordedEntry = lastSeen;
+    }
+
+    int getShards()
+    {
+        return _lastSeenEntries.length();
+    }
+
+    /**
+     * Returns the shard to look in first: the one after the shard of the entry last delivered, so that consumers
+     * take entries from each shard in turn.
+     */
+    int getStartShard()
+    {
+        final QueueEntry lastSeen = getLastSeenEntry();
+        if (lastSeen != _recordedEntry)
+        {
+            _recordedEntry = lastSeen;
+            final int shard = ShardedQueueList.getShard(lastSeen);
+            advanceLastSeenEntry(shard, lastSeen);
+            _shard = (shard + 1) % getShards();
+        }
+        return _shard;
+    }
+
+    void setShard(final int shard)
+    {
+        _shard = shard;
+    }
+
+    QueueEntry getLastSeenEntry(final int shard)
+    {
+        return _lastSeenEntries.get(shard);
+    }
+
+    boolean compareAndSetLastSeenEntry(final int shard, final QueueEntry expected, final QueueEntry entry)
+    {
+        return _lastSeenEntries.compareAndSet(shard, expected, entry);
+    }
+
+    QueueEntry getReleasedEntry(final int shard)
+    {
+        return _releasedEntries.get(shard);
+    }
+
+    boolean compareAndSetReleasedEntry(final int shard, final QueueEntry expected, final QueueEntry entry)
+    {
+        return _releasedEntries.compareAndSet(shard, expected, entry);
+    }
+
+    /**
+     * Moves the consumer back to a released entry if it has already passed it.
+     */
+    void release(final QueueEntry entry)
+    {
+        final int shard = ShardedQueueList.getShard(entry);
+        QueueEntry released;
+        while ((released = _releasedEntries.get(shard)) == null || released.compareTo(entry) > 0)
+        {
+            if (_releasedEntries.compareAndSet(shard, released, entry))
+            {
+                break;
+            }
+        }
+    }
+
+    private void advanceLastSeenEntry(final int shard, final QueueEntry entry)
+    {
+        QueueEntry lastSeen;
+        while ((lastSeen = _lastSeenEntries.get(shard)).compareTo(entry) < 0)
+        {
+            if (_lastSeenEntries.compareAndSet(shard, lastSeen, entry))
+            {
+                _releasedEntries.compareAndSet(shard, entry, null);
+                break;
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ShardedQueueContext{" +
+               "_lastSeenEntries=" + _lastSeenEntries +
+               ", _releasedEntries=" + _releasedEntries +
+               '}';
+    }
+}
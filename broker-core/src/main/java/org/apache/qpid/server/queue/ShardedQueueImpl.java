@@ -0,0 +1,172 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.Map;
+
+import org.apache.qpid.server.model.ManagedAttributeField;
+import org.apache.qpid.server.model.ManagedObjectFactoryConstructor;
+import org.apache.qpid.server.model.VirtualHost;
+
+public class ShardedQueueImpl extends AbstractQueue<ShardedQueueImpl> implements ShardedQueue<ShardedQueueImpl>
+{
+    private ShardedQueueList.ShardedQueueMasterList _entries;
+
+    @ManagedAttributeField
+    private int _shards;
+
+    @ManagedObjectFactoryConstructor
+    public ShardedQueueImpl(Map<String, Object> attributes, VirtualHost<?> virtualHost)
+    {
+        super(attributes, virtualHost);
+    }
+
+    @Override
+    protected void onOpen()
+    {
+        super.onOpen();
+        _entries = ShardedQueueList.newInstance(this);
+    }
+
+    @Override
+    public int getShards()
+    {
+        return _shards;
+    }
+
+    @Override
+    ShardedQueueList getEntries()
+    {
+        return _entries;
+    }
+
+    @Override
+    QueueContext createQueueContext(final boolean startAtTail)
+    {
+        final QueueEntry[] shardLastSeen = new QueueEntry[_entries.getShards()];
+        for(int i = 0; i < shardLastSeen.length; i++)
+        {
+            shardLastSeen[i] = startAtTail ? _entries.getShardTail(i) : _entries.getShardHead(i);
+        }
+        return new ShardedQueueContext(startAtTail ? _entries.getTail() : _entries.getHead(), shardLastSeen);
+    }
+
+    /**
+     * Looks in each shard in turn, from the consumer's own position in that shard, starting with the shard after
+     * the one the consumer was last delivered from.
+     */
+    @Override
+    QueueEntry getNextAvailableEntry(final QueueConsumer<?> sub)
+    {
+        QueueContext queueContext = sub.getQueueContext();
+        if(queueContext instanceof ShardedQueueContext)
+        {
+            ShardedQueueContext context = (ShardedQueueContext) queueContext;
+            int shards = context.getShards();
+            int startShard = context.getStartShard();
+            for(int i = 0; i < shards; i++)
+            {
+                int shard = (startShard + i) % shards;
+                QueueEntry node = getNextAvailableEntry(sub, context, shard);
+                if(node != null)
+                {
+                    context.setShard(shard);
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
+    private QueueEntry getNextAvailableEntry(final QueueConsumer<?> sub,
+                                             final ShardedQueueContext context,
+                                             final int shard)
+    {
+        QueueEntry lastSeen = context.getLastSeenEntry(shard);
+        QueueEntry releasedNode = context.getReleasedEntry(shard);
+
+        QueueEntry node = (releasedNode != null && lastSeen.compareTo(releasedNode) >= 0)
+                ? releasedNode
+                : lastSeen.getNextValidEntry();
+
+        while(node != null && isSkippedBy(sub, node))
+        {
+            if(context.compareAndSetLastSeenEntry(shard, lastSeen, node))
+            {
+                context.compareAndSetReleasedEntry(shard, releasedNode, null);
+            }
+
+            lastSeen = context.getLastSeenEntry(shard);
+            releasedNode = context.getReleasedEntry(shard);
+            node = (releasedNode != null && lastSeen.compareTo(releasedNode) >= 0)
+                    ? releasedNode
+                    : lastSeen.getNextValidEntry();
+        }
+        return node;
+    }
+
+    @Override
+    boolean isAtTail(final QueueConsumer<?> sub, final QueueEntry node)
+    {
+        if(node == null)
+        {
+            return true;
+        }
+        QueueContext queueContext = sub.getQueueContext();
+        if(queueContext instanceof ShardedQueueContext)
+        {
+            ShardedQueueContext context = (ShardedQueueContext) queueContext;
+            int nodeShard = ShardedQueueList.getShard(node);
+            for(int shard = 0; shard < context.getShards(); shard++)
+            {
+                QueueEntry position = shard == nodeShard ? node : context.getLastSeenEntry(shard);
+                if(position.getNextValidEntry() != null || context.getReleasedEntry(shard) != null)
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    void updateSubRequeueEntry(final QueueConsumer<?> sub, final QueueEntry entry)
+    {
+        QueueContext queueContext = sub.getQueueContext();
+        if(queueContext instanceof ShardedQueueContext)
+        {
+            ((ShardedQueueContext) queueContext).release(entry);
+        }
+    }
+
+    @Override
+    public boolean isEntryAheadOfConsumer(final QueueEntry entry, final QueueConsumer<?> sub)
+    {
+        QueueContext queueContext = sub.getQueueContext();
+        if(queueContext instanceof ShardedQueueContext)
+        {
+            QueueEntry releasedNode =
+                    ((ShardedQueueContext) queueContext).getReleasedEntry(ShardedQueueList.getShard(entry));
+            return releasedNode != null && releasedNode.compareTo(entry) < 0;
+        }
+        return false;
+    }
+}
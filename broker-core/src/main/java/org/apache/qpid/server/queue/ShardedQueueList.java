@@ -0,0 +1,279 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.store.MessageEnqueueRecord;
+
+abstract public class ShardedQueueList extends OrderedQueueEntryList
+{
+
+    public static ShardedQueueMasterList newInstance(ShardedQueueImpl queue)
+    {
+        return new ShardedQueueMasterList(queue, Math.max(queue.getShards(), 1));
+    }
+
+    public ShardedQueueList(final ShardedQueueImpl queue,
+                            final HeadCreator headCreator)
+    {
+        super(queue, headCreator);
+    }
+
+    static int getShard(QueueEntry entry)
+    {
+        return ((ShardedQueueEntrySubList) ((ShardedQueueEntry) entry).getQueueEntryList()).getShard();
+    }
+
+    /**
+     * Presents the shards as a single list: shard 0 followed by shard 1 and so on. Each shard has its own head
+     * and tail, so publishers running on different threads append to different shards without contending.
+     */
+    static class ShardedQueueMasterList extends ShardedQueueList
+    {
+        private static final HeadCreator DUMMY_HEAD_CREATOR =
+                new HeadCreator()
+                {
+                    @Override
+                    public ShardedQueueEntry createHead(final QueueEntryList list)
+                    {
+                        return null;
+                    }
+                };
+        private final ShardedQueueImpl _queue;
+        private final ShardedQueueEntrySubList[] _shardLists;
+
+        public ShardedQueueMasterList(ShardedQueueImpl queue, int shards)
+        {
+            super(queue, DUMMY_HEAD_CREATOR);
+            _queue = queue;
+            _shardLists = new ShardedQueueEntrySubList[shards];
+            for(int i = 0; i < shards; i++)
+            {
+                _shardLists[i] = new ShardedQueueEntrySubList(queue, i);
+            }
+        }
+
+        public int getShards()
+        {
+            return _shardLists.length;
+        }
+
+        QueueEntry getShardHead(int shard)
+        {
+            return _shardLists[shard].getHead();
+        }
+
+        QueueEntry getShardTail(int shard)
+        {
+            return _shardLists[shard].getTail();
+        }
+
+        @Override
+        public ShardedQueueImpl getQueue()
+        {
+            return _queue;
+        }
+
+        /**
+         * Publishers are assigned to shards by thread, so messages published on the same thread keep their order.
+         */
+        @Override
+        public ShardedQueueEntry add(ServerMessage message, final MessageEnqueueRecord enqueueRecord)
+        {
+            int index = (int) (Thread.currentThread().getId() % _shardLists.length);
+            return (ShardedQueueEntry) _shardLists[index].add(message, enqueueRecord);
+        }
+
+        @Override
+        protected ShardedQueueEntry createQueueEntry(final ServerMessage<?> message,
+                                                     final MessageEnqueueRecord enqueueRecord)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ShardedQueueEntry next(QueueEntry node)
+        {
+            ShardedQueueEntry next = (ShardedQueueEntry) node.getNextValidEntry();
+
+            if(next == null)
+            {
+                int index = getShard(node);
+
+                while(next == null && index < _shardLists.length - 1)
+                {
+                    index++;
+                    next = (ShardedQueueEntry) _shardLists[index].getHead().getNextValidEntry();
+                }
+            }
+            return next;
+        }
+
+        private final class ShardedQueueEntryListIterator implements QueueEntryIterator
+        {
+            private final QueueEntryIterator[] _iterators = new QueueEntryIterator[ _shardLists.length ];
+            private ShardedQueueEntry _lastNode;
+
+            ShardedQueueEntryListIterator()
+            {
+                for(int i = 0; i < _shardLists.length; i++)
+                {
+                    _iterators[i] = _shardLists[i].iterator();
+                }
+                _lastNode = (ShardedQueueEntry) _iterators[0].getNode();
+            }
+
+            @Override
+            public boolean atTail()
+            {
+                for(int i = 0; i < _iterators.length; i++)
+                {
+                    if(!_iterators[i].atTail())
+                    {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public ShardedQueueEntry getNode()
+            {
+                return _lastNode;
+            }
+
+            @Override
+            public boolean advance()
+            {
+                for(int i = 0; i < _iterators.length; i++)
+                {
+                    if(_iterators[i].advance())
+                    {
+                        _lastNode = (ShardedQueueEntry) _iterators[i].getNode();
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+
+        @Override
+        public ShardedQueueEntryListIterator iterator()
+        {
+            return new ShardedQueueEntryListIterator();
+        }
+
+        @Override
+        public ShardedQueueEntry getHead()
+        {
+            return (ShardedQueueEntry) _shardLists[0].getHead();
+        }
+
+        @Override
+        public ShardedQueueEntry getTail()
+        {
+            return (ShardedQueueEntry) _shardLists[_shardLists.length - 1].getTail();
+        }
+
+        @Override
+        public void entryDeleted(final QueueEntry queueEntry)
+        {
+
+        }
+
+        @Override
+        public QueueEntry getOldestEntry()
+        {
+            QueueEntry oldest = null;
+            for(ShardedQueueEntrySubList subList : _shardLists)
+            {
+                QueueEntry subListOldest = subList.getOldestEntry();
+                if(oldest == null || (subListOldest != null && subListOldest.getMessage().getMessageNumber() < oldest.getMessage().getMessageNumber()))
+                {
+                    oldest = subListOldest;
+                }
+            }
+            return oldest;
+        }
+    }
+
+    static class ShardedQueueEntrySubList extends ShardedQueueList
+    {
+        private static final HeadCreator HEAD_CREATOR = new HeadCreator()
+        {
+            @Override
+            public ShardedQueueEntry createHead(final QueueEntryList list)
+            {
+                return new ShardedQueueEntry((ShardedQueueList) list);
+            }
+        };
+        private final int _shard;
+
+        public ShardedQueueEntrySubList(ShardedQueueImpl queue, int shard)
+        {
+            super(queue, HEAD_CREATOR);
+            _shard = shard;
+        }
+
+        @Override
+        protected ShardedQueueEntry createQueueEntry(ServerMessage<?> message,
+                                                     final MessageEnqueueRecord enqueueRecord)
+        {
+            return new ShardedQueueEntry(this, message, enqueueRecord);
+        }
+
+        public int getShard()
+        {
+            return _shard;
+        }
+    }
+
+    static class ShardedQueueEntry extends OrderedQueueEntry
+    {
+        private ShardedQueueEntry(final ShardedQueueList queueEntryList)
+        {
+            super(queueEntryList);
+        }
+
+        public ShardedQueueEntry(ShardedQueueEntrySubList queueEntryList,
+                                 ServerMessage<?> message,
+                                 final MessageEnqueueRecord messageEnqueueRecord)
+        {
+            super(queueEntryList, message, messageEnqueueRecord);
+        }
+
+        @Override
+        public int compareTo(final QueueEntry o)
+        {
+            int otherShard = getShard(o);
+            int thisShard = getShard(this);
+
+            if(thisShard != otherShard)
+            {
+                return thisShard < otherShard ? -1 : 1;
+            }
+            else
+            {
+                return super.compareTo(o);
+            }
+        }
+    }
+}
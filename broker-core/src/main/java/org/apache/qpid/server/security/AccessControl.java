@@ -38,6 +38,13 @@ public interface AccessControl
      */
     Result authorise(Operation operation, ObjectType objectType, ObjectProperties properties);
 
+    /**
+     * Returns true if, for as long as this instance is in use, the result of authorising the given operation on the
+     * given object type is determined by the subject and the object properties alone, so that the caller may
+     * remember it rather than asking again.
+     */
+    boolean isResultCacheable(Operation operation, ObjectType objectType);
+
     /**
      * Called to open any resources required by the implementation.
      */
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.qpid.server.security;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.security.auth.Subject;
+
+/**
+ * Remembers the publish authorisation decisions made for a single session, keyed by exchange and routing key.
+ * <p>
+ * The decisions are only valid for the {@link AccessControl} instance, subject and virtual host they were made
+ * against; a change of any of these discards them.  Instances are not thread safe and are expected to be confined
+ * to the thread processing the session's incoming transfers.
+ */
+public class PublishAuthorisationCache
+{
+    static final int MAX_CACHED_ROUTING_KEYS = 1024;
+
+    private final Map<String, Map<String, Boolean>> _decisions = new HashMap<>();
+    private final Map<String, Map<String, Boolean>> _immediateDecisions = new HashMap<>();
+    private AccessControl _accessControl;
+    private Subject _subject;
+    private String _virtualHostName;
+    private int _size;
+
+    Boolean getDecision(final AccessControl accessControl,
+                        final Subject subject,
+                        final String virtualHostName,
+                        final boolean immediate,
+                        final String exchangeName,
+                        final String routingKey)
+    {
+        if (accessControl != _accessControl
+            || subject != _subject
+            || (virtualHostName == null ? _virtualHostName != null : !virtualHostName.equals(_virtualHostName)))
+        {
+            clear();
+            _accessControl = accessControl;
+            _subject = subject;
+            _virtualHostName = virtualHostName;
+            return null;
+        }
+
+        Map<String, Boolean> exchangeDecisions = (immediate ? _immediateDecisions : _decisions).get(exchangeName);
+        return exchangeDecisions == null ? null : exchangeDecisions.get(routingKey);
+    }
+
+    void putDecision(final boolean immediate,
+                     final String exchangeName,
+                     final String routingKey,
+                     final boolean allowed)
+    {
+        if (_size >= MAX_CACHED_ROUTING_KEYS)
+        {
+            clearDecisions();
+        }
+
+        Map<String, Map<String, Boolean>> decisions = immediate ? _immediateDecisions : _decisions;
+        Map<String, Boolean> exchangeDecisions = decisions.get(exchangeName);
+        if (exchangeDecisions == null)
+        {
+            exchangeDecisions = new HashMap<>();
+            decisions.put(exchangeName, exchangeDecisions);
+        }
+        if (exchangeDecisions.put(routingKey, allowed) == null)
+        {
+            _size++;
+        }
+    }
+
+    public void clear()
+    {
+        clearDecisions();
+        _accessControl = null;
+        _subject = null;
+        _virtualHostName = null;
+    }
+
+    int size()
+    {
+        return _size;
+    }
+
+    private void clearDecisions()
+    {
+        _decisions.clear();
+        _immediateDecisions.clear();
+        _size = 0;
+    }
+}
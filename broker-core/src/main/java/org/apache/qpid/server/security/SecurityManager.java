@@ -666,6 +666,23 @@ public class SecurityManager
                                  Subject currentSubject,
                                  final String messageUserId,
                                  final AMQPConnection<?> connection)
+    {
+        authorisePublish(immediate, routingKey, exchangeName, virtualHostName, currentSubject, messageUserId, connection, null);
+    }
+
+    /**
+     * Authorises a publish on behalf of a session, consulting and updating the session's memo of earlier
+     * decisions when one is supplied.  The memo is only used while the active access control reports publish
+     * decisions as cacheable, and is discarded whenever the access control in use changes.
+     */
+    public void authorisePublish(final boolean immediate,
+                                 String routingKey,
+                                 String exchangeName,
+                                 String virtualHostName,
+                                 Subject currentSubject,
+                                 final String messageUserId,
+                                 final AMQPConnection<?> connection,
+                                 final PublishAuthorisationCache publishAuthorisationCache)
     {
         if(!connection.isAuthorizedMessagePrincipal(messageUserId))
         {
@@ -674,6 +691,34 @@ public class SecurityManager
                                              + "' is not valid on a connection authenticated as  "
                                              + connection.getAuthorizedPrincipal().getName());
         }
+
+        AccessControl accessControl = null;
+        if (publishAuthorisationCache != null && !isSystemSubject(currentSubject) && !_managementMode)
+        {
+            accessControl = getActiveAccessControl();
+            if (accessControl != null && accessControl.isResultCacheable(PUBLISH, EXCHANGE))
+            {
+                Boolean allowed = publishAuthorisationCache.getDecision(accessControl,
+                                                                        currentSubject,
+                                                                        virtualHostName,
+                                                                        immediate,
+                                                                        exchangeName,
+                                                                        routingKey);
+                if (allowed != null)
+                {
+                    if (!allowed)
+                    {
+                        throw new AccessControlException("Permission denied, publish to: exchange-name '" + exchangeName + "'");
+                    }
+                    return;
+                }
+            }
+            else
+            {
+                accessControl = null;
+            }
+        }
+
         PublishAccessCheckCacheEntry key = new PublishAccessCheckCacheEntry(immediate, routingKey, exchangeName, virtualHostName);
         PublishAccessCheck check = _publishAccessCheckCache.get(key);
         if (check == null)
@@ -681,12 +726,31 @@ public class SecurityManager
             check = new PublishAccessCheck(new ObjectProperties(virtualHostName, exchangeName, routingKey, immediate));
             _publishAccessCheckCache.putIfAbsent(key, check);
         }
-        if(!checkAllPlugins(check, currentSubject))
+        boolean allowed = checkAllPlugins(check, currentSubject);
+        if (accessControl != null)
+        {
+            publishAuthorisationCache.putDecision(immediate, exchangeName, routingKey, allowed);
+        }
+        if(!allowed)
         {
             throw new AccessControlException("Permission denied, publish to: exchange-name '" + exchangeName + "'");
         }
     }
 
+    private AccessControl getActiveAccessControl()
+    {
+        Collection<AccessControlProvider> accessControlProviders = _aclProvidersParent.getChildren(AccessControlProvider.class);
+        if(accessControlProviders != null && !accessControlProviders.isEmpty())
+        {
+            AccessControlProvider<?> accessControlProvider = accessControlProviders.iterator().next();
+            if (accessControlProvider != null && accessControlProvider.getState() == State.ACTIVE)
+            {
+                return accessControlProvider.getAccessControl();
+            }
+        }
+        return null;
+    }
+
 
     public void authorisePurge(final Queue queue)
     {
@@ -26,7 +26,12 @@ import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class collects statistics and counts the total, rate per second and
- * peak rate per second values for the events that are registered with it. 
+ * peak rate per second values for the events that are registered with it.
+ * <p>
+ * Events are added to striped counters rather than under a lock, so that the
+ * connection, virtual host and broker counters can be updated by many IO
+ * threads at once. The thread registering the first event of a new sample
+ * period closes the previous one, turning its count into the current rate.
  */
 public class StatisticsCounter
 {
@@ -37,13 +42,13 @@ public class StatisticsCounter
     private static final String COUNTER = "counter";
     private static final AtomicLong _counterIds = new AtomicLong(0L);
     
-    private long _peak = 0L;
-    private long _total = 0L;
-    private long _temp = 0L;
-    private long _last = 0L;
-    private long _rate = 0L;
+    private final StripedCounter _total = new StripedCounter();
+    private final StripedCounter _sample = new StripedCounter();
+    private final AtomicLong _last = new AtomicLong();
+    private final AtomicLong _peak = new AtomicLong();
+    private volatile long _rate = 0L;
 
-    private long _start;
+    private volatile long _start;
     
     private final long _period;
     private final String _name;
@@ -64,7 +69,7 @@ public class StatisticsCounter
         _name = name + "-" + + _counterIds.incrementAndGet();
 
         _start = System.currentTimeMillis();
-        _last = _start / _period;
+        _last.set(_start / _period);
     }
     
 
@@ -76,21 +81,27 @@ public class StatisticsCounter
     public void registerEvent(long value, long timestamp)
     {
         long thisSample = (timestamp / _period);
-        synchronized (this)
+        long last = _last.get();
+        if (thisSample > last && _last.compareAndSet(last, thisSample))
         {
-            if (thisSample > _last)
-            {
-                _last = thisSample;
-                _rate = _temp;
-                _temp = 0L;
-                if (_rate > _peak)
-                {
-                    _peak = _rate;
-                }
-            }
-            
-            _total += value;
-            _temp += value;
+            closeSample();
+        }
+
+        if (value != 0L)
+        {
+            _total.add(value);
+            _sample.add(value);
+        }
+    }
+
+    private void closeSample()
+    {
+        long rate = _sample.sumThenReset();
+        _rate = rate;
+        long peak = _peak.get();
+        while (rate > peak && !_peak.compareAndSet(peak, rate))
+        {
+            peak = _peak.get();
         }
     }
     
@@ -109,17 +120,18 @@ public class StatisticsCounter
     public void reset()
     {
         _log.info("Resetting statistics for counter: " + _name);
-        _peak = 0L;
+        _peak.set(0L);
         _rate = 0L;
-        _total = 0L;
+        _total.sumThenReset();
+        _sample.sumThenReset();
         _start = System.currentTimeMillis();
-        _last = _start / _period;
+        _last.set(_start / _period);
     }
 
     public double getPeak()
     {
         update();
-        return (double) _peak / ((double) _period / 1000.0d);
+        return (double) _peak.get() / ((double) _period / 1000.0d);
     }
 
     public double getRate()
@@ -130,9 +142,8 @@ public class StatisticsCounter
 
     public long getTotal()
     {
-        return _total;
+        return _total.sum();
     }
-
     public long getStart()
     {
         return _start;
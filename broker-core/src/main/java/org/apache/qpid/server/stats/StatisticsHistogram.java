@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.server.stats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class records the distribution of the values (typically latencies) registered with it, so that percentiles
+ * can be reported, without locking.
+ * <p>
+ * Values are counted in buckets whose width grows with the magnitude of the value: each power of two range is
+ * split into {@value #SUB_BUCKETS} equal buckets, so any value is reported to within about 3% of its true value
+ * however large it is.  Values are recorded from the creation of the histogram, or its last reset.
+ * <p>
+ * As with {@link StripedCounter}, values are counted in a single set of buckets until two threads collide
+ * registering values, after which each thread counts in one of a number of stripes, chosen by its identity and
+ * created as it is first used.  The stripes are only merged when the histogram is read.
+ */
+public class StatisticsHistogram
+{
+    private static final Logger _log = LoggerFactory.getLogger(StatisticsHistogram.class);
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final Stripe _base = new Stripe();
+    private final String _name;
+
+    private volatile AtomicReferenceArray<Stripe> _stripes;
+    private volatile long _start;
+
+    public StatisticsHistogram(String name)
+    {
+        _name = name;
+        _start = System.currentTimeMillis();
+    }
+
+    /**
+     * Records a value; negative values (such as those arising from clock adjustments) are recorded as zero.
+     */
+    public void registerValue(long value)
+    {
+        if (value < 0L)
+        {
+            value = 0L;
+        }
+        final int bucket = bucketIndex(value);
+        AtomicReferenceArray<Stripe> stripes = _stripes;
+        if (stripes == null)
+        {
+            if (_base.tryRegister(bucket, value))
+            {
+                return;
+            }
+            stripes = createStripes();
+        }
+        getStripe(stripes).register(bucket, value);
+    }
+
+    public void reset()
+    {
+        _log.info("Resetting statistics for histogram: " + _name);
+        for (Stripe stripe : getStripes())
+        {
+            stripe.reset();
+        }
+        _start = System.currentTimeMillis();
+    }
+
+    public long getCount()
+    {
+        long count = 0L;
+        for (Stripe stripe : getStripes())
+        {
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                count += stripe._counts.get(i);
+            }
+        }
+        return count;
+    }
+
+    public long getMaximum()
+    {
+        long max = 0L;
+        for (Stripe stripe : getStripes())
+        {
+            max = Math.max(max, stripe._max.get());
+        }
+        return max;
+    }
+
+    public double getMean()
+    {
+        long count = 0L;
+        long sum = 0L;
+        for (Stripe stripe : getStripes())
+        {
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                count += stripe._counts.get(i);
+            }
+            sum += stripe._sum.get();
+        }
+        return count == 0L ? 0.0d : (double) sum / (double) count;
+    }
+
+    /**
+     * Returns the value which the given percentage of the recorded values are less than or equal to, to the
+     * precision of the buckets, or zero if no values have been recorded.
+     *
+     * @param percentile the percentage, between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        if (percentile < 0.0d || percentile > 100.0d)
+        {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100 : " + percentile);
+        }
+
+        long[] counts = new long[BUCKETS];
+        long total = 0L;
+        long max = 0L;
+        for (Stripe stripe : getStripes())
+        {
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                final long count = stripe._counts.get(i);
+                counts[i] += count;
+                total += count;
+            }
+            max = Math.max(max, stripe._max.get());
+        }
+        if (total == 0L)
+        {
+            return 0L;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0d * (double) total));
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+            {
+                return Math.min(highestValueInBucket(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the count, mean, median, 95th and 99th percentiles and maximum of the recorded values.
+     */
+    public Map<String, Object> getSummary()
+    {
+        final Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", getCount());
+        summary.put("mean", getMean());
+        summary.put("median", getValueAtPercentile(50.0d));
+        summary.put("95thPercentile", getValueAtPercentile(95.0d));
+        summary.put("99thPercentile", getValueAtPercentile(99.0d));
+        summary.put("maximum", getMaximum());
+        return summary;
+    }
+
+    public long getStart()
+    {
+        return _start;
+    }
+
+    public String getName()
+    {
+        return _name;
+    }
+
+    private List<Stripe> getStripes()
+    {
+        final List<Stripe> stripes = new ArrayList<>();
+        stripes.add(_base);
+        final AtomicReferenceArray<Stripe> striped = _stripes;
+        if (striped != null)
+        {
+            for (int i = 0; i < striped.length(); i++)
+            {
+                final Stripe stripe = striped.get(i);
+                if (stripe != null)
+                {
+                    stripes.add(stripe);
+                }
+            }
+        }
+        return stripes;
+    }
+
+    private synchronized AtomicReferenceArray<Stripe> createStripes()
+    {
+        if (_stripes == null)
+        {
+            _stripes = new AtomicReferenceArray<>(StripedCounter.STRIPES);
+        }
+        return _stripes;
+    }
+
+    private static Stripe getStripe(final AtomicReferenceArray<Stripe> stripes)
+    {
+        final int index = StripedCounter.stripeIndex();
+        Stripe stripe = stripes.get(index);
+        if (stripe == null)
+        {
+            stripes.compareAndSet(index, null, new Stripe());
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long highestValueInBucket(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lowest = ((long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1)))) << shift;
+        return lowest + (1L << shift) - 1L;
+    }
+
+    /**
+     * The bucket counts, sum and maximum of the values registered by the threads sharing a stripe.
+     */
+    private static final class Stripe
+    {
+        private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong _sum = new AtomicLong();
+        private final AtomicLong _max = new AtomicLong();
+
+        /**
+         * Registers the value unless another thread is concurrently registering a value in the stripe.
+         */
+        boolean tryRegister(final int bucket, final long value)
+        {
+            final long sum = _sum.get();
+            if (!_sum.compareAndSet(sum, sum + value))
+            {
+                return false;
+            }
+            _counts.incrementAndGet(bucket);
+            registerMaximum(value);
+            return true;
+        }
+
+        void register(final int bucket, final long value)
+        {
+            _sum.addAndGet(value);
+            _counts.incrementAndGet(bucket);
+            registerMaximum(value);
+        }
+
+        private void registerMaximum(final long value)
+        {
+            long max = _max.get();
+            while (value > max && !_max.compareAndSet(max, value))
+            {
+                max = _max.get();
+            }
+        }
+
+        void reset()
+        {
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                _counts.set(i, 0L);
+            }
+            _sum.set(0L);
+            _max.set(0L);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.server.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A sum which many threads can add to without contending with each other.  Additions go to a single value until
+ * two threads collide on it, after which each thread adds to one of a number of cells, spaced a cache line apart,
+ * chosen by its identity.  The sum is only calculated when read.
+ */
+final class StripedCounter
+{
+    static final int STRIPES = stripesFor(Runtime.getRuntime().availableProcessors());
+    // longs per cache line, so that neighbouring cells are not falsely shared
+    private static final int CELL_SPACING = 8;
+
+    private final AtomicLong _base = new AtomicLong();
+    private volatile AtomicLongArray _cells;
+
+    void add(final long value)
+    {
+        AtomicLongArray cells = _cells;
+        if (cells == null)
+        {
+            final long base = _base.get();
+            if (_base.compareAndSet(base, base + value))
+            {
+                return;
+            }
+            cells = createCells();
+        }
+        cells.addAndGet(stripeIndex() * CELL_SPACING, value);
+    }
+
+    long sum()
+    {
+        long sum = _base.get();
+        final AtomicLongArray cells = _cells;
+        if (cells != null)
+        {
+            for (int i = 0; i < cells.length(); i += CELL_SPACING)
+            {
+                sum += cells.get(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the sum and resets it to zero; additions made concurrently are either included in the sum returned
+     * or remain in the counter.
+     */
+    long sumThenReset()
+    {
+        long sum = _base.getAndSet(0L);
+        final AtomicLongArray cells = _cells;
+        if (cells != null)
+        {
+            for (int i = 0; i < cells.length(); i += CELL_SPACING)
+            {
+                sum += cells.getAndSet(i, 0L);
+            }
+        }
+        return sum;
+    }
+
+    private synchronized AtomicLongArray createCells()
+    {
+        if (_cells == null)
+        {
+            _cells = new AtomicLongArray(STRIPES * CELL_SPACING);
+        }
+        return _cells;
+    }
+
+    /**
+     * Returns the stripe, between zero and {@link #STRIPES}, used by the current thread.
+     */
+    static int stripeIndex()
+    {
+        final long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (STRIPES - 1);
+    }
+
+    private static int stripesFor(final int processors)
+    {
+        return processors <= 1 ? 1 : Integer.highestOneBit(processors - 1) << 1;
+    }
+}
@@ -39,6 +39,7 @@ import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -51,6 +52,7 @@ import org.apache.qpid.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.message.EnqueueableMessage;
 import org.apache.qpid.server.model.ConfiguredObject;
 import org.apache.qpid.server.plugin.MessageMetaDataType;
+import org.apache.qpid.server.stats.StatisticsHistogram;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
 import org.apache.qpid.server.store.handler.MessageHandler;
 import org.apache.qpid.server.store.handler.MessageInstanceHandler;
@@ -76,6 +78,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     private static final int DB_VERSION = 8;
 
     private final AtomicLong _messageId = new AtomicLong(0);
+    private final StatisticsHistogram _commitLatencyStatistics = new StatisticsHistogram("store-commit-latency");
 
     private static final String CREATE_DB_VERSION_TABLE = "CREATE TABLE "+ DB_VERSION_TABLE_NAME + " ( version int not null )";
     private static final String INSERT_INTO_DB_VERSION = "INSERT INTO "+ DB_VERSION_TABLE_NAME + " ( version ) VALUES ( ? )";
@@ -571,6 +574,12 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         return new JDBCTransaction();
     }
 
+    @Override
+    public StatisticsHistogram getCommitLatencyStatistics()
+    {
+        return _commitLatencyStatistics;
+    }
+
     private void enqueueMessage(ConnectionWrapper connWrapper, final TransactionLogResource queue, Long messageId) throws StoreException
     {
         Connection conn = connWrapper.getConnection();
@@ -781,11 +790,17 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
 
     private void commitTran(ConnectionWrapper connWrapper) throws StoreException
+    {
+        commitTran(connWrapper, System.nanoTime());
+    }
+
+    private void commitTran(ConnectionWrapper connWrapper, long startTime) throws StoreException
     {
         try
         {
             Connection conn = connWrapper.getConnection();
             conn.commit();
+            _commitLatencyStatistics.registerValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
 
             getLogger().debug("commit tran completed");
 
@@ -800,6 +815,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     private <X> ListenableFuture<X> commitTranAsync(final ConnectionWrapper connWrapper, final X val) throws StoreException
     {
         final SettableFuture<X> future = SettableFuture.create();
+        final long startTime = System.nanoTime();
         _executor.submit(new Runnable()
                         {
                             @Override
@@ -807,7 +823,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
                             {
                                 try
                                 {
-                                    commitTran(connWrapper);
+                                    commitTran(connWrapper, startTime);
                                     future.set(val);
                                 }
                                 catch (RuntimeException e)
@@ -36,6 +36,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import org.apache.qpid.server.message.EnqueueableMessage;
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.StatisticsHistogram;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
 import org.apache.qpid.server.store.handler.MessageHandler;
 import org.apache.qpid.server.store.handler.MessageInstanceHandler;
@@ -49,6 +50,7 @@ public class MemoryMessageStore implements MessageStore
 
     private final ConcurrentMap<Long, StoredMemoryMessage> _messages = new ConcurrentHashMap<Long, StoredMemoryMessage>();
     private final Object _transactionLock = new Object();
+    private final StatisticsHistogram _commitLatencyStatistics = new StatisticsHistogram("store-commit-latency");
     private final Map<UUID, Set<Long>> _messageInstances = new HashMap<UUID, Set<Long>>();
     private final Map<Xid, DistributedTransactionRecords> _distributedTransactions = new HashMap<Xid, DistributedTransactionRecords>();
 
@@ -318,6 +320,13 @@ public class MemoryMessageStore implements MessageStore
         return new MemoryMessageStoreTransaction();
     }
 
+    @Override
+    public StatisticsHistogram getCommitLatencyStatistics()
+    {
+        // nothing is made durable, so no commit latencies are recorded
+        return _commitLatencyStatistics;
+    }
+
     @Override
     public void closeMessageStore()
     {
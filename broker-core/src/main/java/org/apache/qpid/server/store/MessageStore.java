@@ -24,6 +24,7 @@ package org.apache.qpid.server.store;
 import java.io.File;
 
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.StatisticsHistogram;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
 import org.apache.qpid.server.store.handler.MessageHandler;
 import org.apache.qpid.server.store.handler.MessageInstanceHandler;
@@ -70,6 +71,11 @@ public interface MessageStore
 
     Transaction newTransaction();
 
+    /**
+     * @return the distribution of the times, in microseconds, taken to commit transactions to this store
+     */
+    StatisticsHistogram getCommitLatencyStatistics();
+
     /**
      * Called to close and cleanup any resources used by the message store.
      */
@@ -23,6 +23,7 @@ import java.io.File;
 import java.util.UUID;
 
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.StatisticsHistogram;
 import org.apache.qpid.server.store.handler.ConfiguredObjectRecordHandler;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
 import org.apache.qpid.server.store.handler.MessageHandler;
@@ -31,6 +32,7 @@ import org.apache.qpid.server.store.handler.MessageInstanceHandler;
 public abstract class NullMessageStore implements MessageStore, DurableConfigurationStore, MessageStoreProvider, MessageStore.MessageStoreReader
 {
     private ConfiguredObjectRecord[] _initialRecords;
+    private final StatisticsHistogram _commitLatencyStatistics = new StatisticsHistogram("store-commit-latency");
 
     @Override
     public MessageStore getMessageStore()
@@ -106,6 +108,12 @@ public abstract class NullMessageStore implements MessageStore, DurableConfigura
         return null;
     }
 
+    @Override
+    public StatisticsHistogram getCommitLatencyStatistics()
+    {
+        return _commitLatencyStatistics;
+    }
+
     @Override
     public void addEventListener(EventListener eventListener, Event... events)
     {
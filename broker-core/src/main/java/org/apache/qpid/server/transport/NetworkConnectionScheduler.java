@@ -44,24 +44,25 @@ public class NetworkConnectionScheduler
     private final long _threadKeepAliveTimeout;
     private final String _name;
     private final int _numberOfSelectors;
+    private final boolean _connectionAffinity;
+    private final int _workStealingThreshold;
     private SelectorThread _selectorThread;
 
     public NetworkConnectionScheduler(final String name,
                                       final int numberOfSelectors, int threadPoolSize,
                                       long threadKeepAliveTimeout)
     {
-        this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, new ThreadFactory()
-                                    {
-                                        final AtomicInteger _count = new AtomicInteger();
+        this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, createThreadFactory(name));
+    }
 
-                                        @Override
-                                        public Thread newThread(final Runnable r)
-                                        {
-                                            Thread t = Executors.defaultThreadFactory().newThread(r);
-                                            t.setName("IO-pool-" + name + "-" + _count.incrementAndGet());
-                                            return t;
-                                        }
-                                    });
+    public NetworkConnectionScheduler(final String name,
+                                      final int numberOfSelectors, int threadPoolSize,
+                                      long threadKeepAliveTimeout,
+                                      boolean connectionAffinity,
+                                      int workStealingThreshold)
+    {
+        this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, createThreadFactory(name),
+             connectionAffinity, workStealingThreshold);
     }
 
     @Override
@@ -75,6 +76,7 @@ public class NetworkConnectionScheduler
                ", _threadKeepAliveTimeout=" + _threadKeepAliveTimeout +
                ", _name='" + _name + '\'' +
                ", _numberOfSelectors=" + _numberOfSelectors +
+               ", _connectionAffinity=" + _connectionAffinity +
                ", _selectorThread=" + _selectorThread +
                '}';
     }
@@ -83,12 +85,46 @@ public class NetworkConnectionScheduler
                                       final int numberOfSelectors, int threadPoolSize,
                                       long threadKeepAliveTimeout,
                                       ThreadFactory factory)
+    {
+        this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, factory, false, 0);
+    }
+
+    /**
+     * @param connectionAffinity if true, each IO thread owns a selector and processes the connections registered
+     *                           with it (the number of selectors is then equal to the thread pool size)
+     * @param workStealingThreshold in connection affinity mode, the number of pending work items above which an
+     *                              IO thread is considered overloaded and idle IO threads may steal its work
+     */
+    public NetworkConnectionScheduler(String name,
+                                      final int numberOfSelectors, int threadPoolSize,
+                                      long threadKeepAliveTimeout,
+                                      ThreadFactory factory,
+                                      boolean connectionAffinity,
+                                      int workStealingThreshold)
     {
         _name = name;
         _poolSize = threadPoolSize;
         _threadKeepAliveTimeout = threadKeepAliveTimeout;
         _factory = factory;
-        _numberOfSelectors = numberOfSelectors;
+        _connectionAffinity = connectionAffinity;
+        _numberOfSelectors = connectionAffinity ? threadPoolSize : numberOfSelectors;
+        _workStealingThreshold = workStealingThreshold;
+    }
+
+    private static ThreadFactory createThreadFactory(final String name)
+    {
+        return new ThreadFactory()
+        {
+            final AtomicInteger _count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r)
+            {
+                Thread t = Executors.defaultThreadFactory().newThread(r);
+                t.setName("IO-pool-" + name + "-" + _count.incrementAndGet());
+                return t;
+            }
+        };
     }
 
 
@@ -96,7 +132,7 @@ public class NetworkConnectionScheduler
     {
         try
         {
-            _selectorThread = new SelectorThread(this, _numberOfSelectors);
+            _selectorThread = new SelectorThread(this, _numberOfSelectors, _connectionAffinity, _workStealingThreshold);
             _executor = new ThreadPoolExecutor(_poolSize, _poolSize,
                                                _threadKeepAliveTimeout, TimeUnit.MINUTES,
                                                new LinkedBlockingQueue<Runnable>(), _factory);
@@ -127,7 +163,8 @@ public class NetworkConnectionScheduler
 
                 if (connection.isStateChanged() || connection.isPartialRead())
                 {
-                    if (_running.get() == _poolSize)
+                    // with connection affinity the connection is requeued behind the other work of its IO thread
+                    if (_connectionAffinity || _running.get() == _poolSize)
                     {
                         connection.clearScheduled();
                         schedule(connection);
@@ -215,8 +252,25 @@ public class NetworkConnectionScheduler
         return _poolSize;
     }
 
+    boolean isConnectionAffinity()
+    {
+        return _connectionAffinity;
+    }
+
     public void schedule(final NonBlockingConnection connection)
     {
         _selectorThread.addToWork(connection);
     }
+
+    /**
+     * Runs the task on one of the IO threads, queued behind the connection work already pending.  This lets
+     * connections whose network IO is performed elsewhere (such as WebSocket connections, which are read by the
+     * web server) share the IO threads fairly with the connections selected upon by this scheduler.
+     * <p>
+     * As with connection work, the task is expected to handle connection scoped exceptions itself.
+     */
+    public void execute(final Runnable task)
+    {
+        _selectorThread.addToWork(task);
+    }
 }
@@ -79,15 +79,19 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
     private final AtomicLong _maxReadIdleMillis = new AtomicLong();
     private final List<SchedulingDelayNotificationListener> _schedulingDelayNotificationListeners = new CopyOnWriteArrayList<>();
     private final AtomicBoolean _hasShutdown = new AtomicBoolean();
+    private final TLSHandshakeExecutor _handshakeExecutor;
+    private volatile boolean _delegatedTasksCompleted;
 
     public NonBlockingConnection(SocketChannel socketChannel,
                                  ProtocolEngine protocolEngine,
                                  final Set<TransportEncryption> encryptionSet,
                                  final Runnable onTransportEncryptionAction,
                                  final NetworkConnectionScheduler scheduler,
-                                 final AmqpPort port)
+                                 final AmqpPort port,
+                                 final TLSHandshakeExecutor handshakeExecutor)
     {
         _socketChannel = socketChannel;
+        _handshakeExecutor = handshakeExecutor;
         pushScheduler(scheduler);
 
         _protocolEngine = protocolEngine;
@@ -227,7 +231,7 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
 
     boolean wantsRead()
     {
-        return _fullyWritten;
+        return _fullyWritten && !_delegate.awaitingTasks();
     }
 
     boolean wantsWrite()
@@ -282,7 +286,8 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
                     boolean dataRead = doRead();
                     _protocolEngine.setTransportBlockedForWriting(!doWrite());
 
-                    if (!_fullyWritten || dataRead || (_delegate.needsWork() && _delegate.getNetInputBuffer().position() != 0))
+                    if (!_fullyWritten || dataRead || _delegatedTasksCompleted
+                        || (_delegate.needsWork() && _delegate.getNetInputBuffer().position() != 0))
                     {
                         _protocolEngine.notifyWork();
                     }
@@ -498,8 +503,10 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         {
             int readData = readFromNetwork();
 
-            if (readData > 0)
+            // input buffered while waiting for delegated tasks must be processed even if nothing more has arrived
+            if (readData > 0 || _delegatedTasksCompleted)
             {
+                _delegatedTasksCompleted = false;
                 return _delegate.processData();
             }
             else
@@ -622,7 +629,7 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         {
             case TLS:
                 _onTransportEncryptionAction.run();
-                _delegate = new NonBlockingConnectionTLSDelegate(this, _port);
+                _delegate = new NonBlockingConnectionTLSDelegate(this, _port, _handshakeExecutor);
                 break;
             case NONE:
                 _delegate = new NonBlockingConnectionPlainDelegate(this, _port);
@@ -640,6 +647,16 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         LOGGER.debug("Identified transport encryption as " + transportEncryption);
     }
 
+    /**
+     * Called, from the thread which ran them, once tasks handed off by the delegate are done.
+     */
+    void delegatedTasksComplete()
+    {
+        _delegatedTasksCompleted = true;
+        _protocolEngine.notifyWork();
+        getScheduler().schedule(this);
+    }
+
     public boolean setScheduled()
     {
         final boolean scheduled = _scheduled.compareAndSet(false, true);
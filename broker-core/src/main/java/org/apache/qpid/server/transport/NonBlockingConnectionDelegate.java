@@ -41,6 +41,12 @@ interface NonBlockingConnectionDelegate
 
     boolean needsWork();
 
+    /**
+     * Returns true while work handed off to another thread (such as TLS handshake tasks) is outstanding, during
+     * which the connection must neither read nor be processed.
+     */
+    boolean awaitingTasks();
+
     QpidByteBuffer getNetInputBuffer();
 
     void shutdownInput();
@@ -131,6 +131,12 @@ public class NonBlockingConnectionPlainDelegate implements NonBlockingConnection
         return false;
     }
 
+    @Override
+    public boolean awaitingTasks()
+    {
+        return false;
+    }
+
     @Override
     public QpidByteBuffer getNetInputBuffer()
     {
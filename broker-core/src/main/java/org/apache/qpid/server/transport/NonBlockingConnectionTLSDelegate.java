@@ -21,6 +21,7 @@ package org.apache.qpid.server.transport;
 
 import org.apache.qpid.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.model.port.AmqpPort;
+import org.apache.qpid.server.util.ConnectionScopedRuntimeException;
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
 import org.apache.qpid.transport.network.security.ssl.SSLUtil;
 import org.slf4j.Logger;
@@ -47,6 +48,9 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
 
     private final SSLEngine _sslEngine;
     private final NonBlockingConnection _parent;
+    private final AmqpPort<?> _port;
+    private final TLSHandshakeExecutor _handshakeExecutor;
+    private final long _createTime = System.currentTimeMillis();
     private final int _networkBufferSize;
     private SSLEngineResult _status;
     private final List<QpidByteBuffer> _encryptedOutput = new ArrayList<>();
@@ -56,11 +60,16 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
     private QpidByteBuffer _netInputBuffer;
     private QpidByteBuffer _netOutputBuffer;
     private QpidByteBuffer _applicationBuffer;
+    private volatile boolean _tasksPending;
 
 
-    public NonBlockingConnectionTLSDelegate(NonBlockingConnection parent, AmqpPort port)
+    public NonBlockingConnectionTLSDelegate(NonBlockingConnection parent,
+                                            AmqpPort port,
+                                            TLSHandshakeExecutor handshakeExecutor)
     {
         _parent = parent;
+        _port = port;
+        _handshakeExecutor = handshakeExecutor;
         _sslEngine = createSSLEngine(port);
         _networkBufferSize = port.getNetworkBufferSize();
 
@@ -79,7 +88,7 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
     @Override
     public boolean readyForRead()
     {
-        return _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_WRAP;
+        return !_tasksPending && _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_WRAP;
     }
 
     @Override
@@ -95,6 +104,7 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
             oldNetBufferPos = _netInputBuffer.position();
 
             _status = _netInputBuffer.decryptSSL(_sslEngine, _applicationBuffer);
+            checkHandshakeFinished(_status);
             if (_status.getStatus() == SSLEngineResult.Status.CLOSED)
             {
                 int remaining = _netInputBuffer.remaining();
@@ -115,7 +125,8 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
             restoreApplicationBufferForWrite();
 
         }
-        while((_netInputBuffer.hasRemaining() && (_netInputBuffer.position()>oldNetBufferPos)) || tasksRun);
+        while(!_tasksPending
+              && ((_netInputBuffer.hasRemaining() && (_netInputBuffer.position()>oldNetBufferPos)) || tasksRun));
 
         if(_netInputBuffer.hasRemaining())
         {
@@ -205,7 +216,7 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
         boolean encrypted;
         do
         {
-            if(_sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP)
+            if(!_tasksPending && _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP)
             {
                 if(_netOutputBuffer.remaining() < _sslEngine.getSession().getPacketBufferSize())
                 {
@@ -223,6 +234,7 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
 
                 _status = QpidByteBuffer.encryptSSL(_sslEngine, bufferArray, _netOutputBuffer);
                 encrypted = _status.bytesProduced() > 0;
+                checkHandshakeFinished(_status);
                 runSSLEngineTasks(_status);
                 if(encrypted && _netOutputBuffer.remaining() < _sslEngine.getSession().getPacketBufferSize())
                 {
@@ -238,7 +250,7 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
             }
 
         }
-        while(encrypted && _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP);
+        while(encrypted && !_tasksPending && _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP);
 
         if(_netOutputBuffer.position() != 0)
         {
@@ -253,22 +265,83 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
 
     }
 
+    /**
+     * Returns true if the tasks have been run by this thread.  If there is a handshake executor the tasks are
+     * handed to it instead, and the connection waits until they are done.
+     */
     private boolean runSSLEngineTasks(final SSLEngineResult status)
     {
         if(status.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK)
         {
-            Runnable task;
-            while((task = _sslEngine.getDelegatedTask()) != null)
+            if (_handshakeExecutor == null)
             {
-                task.run();
-            }
+                Runnable task;
+                while((task = _sslEngine.getDelegatedTask()) != null)
+                {
+                    task.run();
+                }
 
-            return true;
+                return true;
+            }
+            else if (!_tasksPending)
+            {
+                offloadSSLEngineTasks();
+            }
         }
 
         return false;
     }
 
+    private void offloadSSLEngineTasks()
+    {
+        final List<Runnable> tasks = new ArrayList<>();
+        Runnable task;
+        while((task = _sslEngine.getDelegatedTask()) != null)
+        {
+            tasks.add(task);
+        }
+
+        if (!tasks.isEmpty())
+        {
+            _tasksPending = true;
+            boolean accepted = _handshakeExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (Runnable delegatedTask : tasks)
+                        {
+                            delegatedTask.run();
+                        }
+                    }
+                    finally
+                    {
+                        _tasksPending = false;
+                        _parent.delegatedTasksComplete();
+                    }
+                }
+            });
+
+            if (!accepted)
+            {
+                _tasksPending = false;
+                _port.registerRefusedTlsHandshake();
+                throw new ConnectionScopedRuntimeException("TLS handshake refused as too many handshakes are waiting to be performed");
+            }
+        }
+    }
+
+    private void checkHandshakeFinished(final SSLEngineResult status)
+    {
+        if (status.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.FINISHED)
+        {
+            // a resumed session keeps the creation time of the session it resumes
+            _port.registerTlsHandshake(_sslEngine.getSession().getCreationTime() < _createTime);
+        }
+    }
+
     @Override
     public Principal getPeerPrincipal()
     {
@@ -286,7 +359,13 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
     @Override
     public boolean needsWork()
     {
-        return _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP;
+        return !_tasksPending && _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP;
+    }
+
+    @Override
+    public boolean awaitingTasks()
+    {
+        return _tasksPending;
     }
 
     private synchronized void checkPeerPrincipal()
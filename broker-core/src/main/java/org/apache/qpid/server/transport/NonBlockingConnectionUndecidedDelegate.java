@@ -96,6 +96,12 @@ public class NonBlockingConnectionUndecidedDelegate implements NonBlockingConnec
         return false;
     }
 
+    @Override
+    public boolean awaitingTasks()
+    {
+        return false;
+    }
+
     private boolean looksLikeSSL(final byte[] headerBytes)
     {
         return looksLikeSSLv3ClientHello(headerBytes) || looksLikeSSLv2ClientHello(headerBytes);
@@ -51,12 +51,14 @@ public class NonBlockingNetworkTransport
     private final ServerSocketChannel _serverSocket;
     private final int _timeout;
     private final NetworkConnectionScheduler _scheduler;
+    private final TLSHandshakeExecutor _handshakeExecutor;
     private final AmqpPort<?> _port;
     private final InetSocketAddress _address;
 
     public NonBlockingNetworkTransport(final MultiVersionProtocolEngineFactory factory,
                                        final EnumSet<TransportEncryption> encryptionSet,
                                        final NetworkConnectionScheduler scheduler,
+                                       final TLSHandshakeExecutor handshakeExecutor,
                                        final AmqpPort<?> port)
     {
         try
@@ -96,6 +98,7 @@ public class NonBlockingNetworkTransport
             _serverSocket.configureBlocking(false);
             _encryptionSet = encryptionSet;
             _scheduler = scheduler;
+            _handshakeExecutor = handshakeExecutor;
             _port = port;
 
         }
@@ -169,7 +172,8 @@ public class NonBlockingNetworkTransport
                                                           }
                                                       },
                                                       _scheduler,
-                                                      _port);
+                                                      _port,
+                                                      _handshakeExecutor);
 
                     engine.setNetworkConnection(connection);
 
@@ -56,6 +56,10 @@ class SelectorThread extends Thread
 
     private final BlockingQueue<Runnable> _workQueue = new LinkedBlockingQueue<>();
     private final  AtomicInteger _nextSelectorTaskIndex = new AtomicInteger();
+    private final AtomicInteger _nextEventLoopIndex = new AtomicInteger();
+    private final AtomicInteger _nextThiefIndex = new AtomicInteger();
+    private final boolean _connectionAffinity;
+    private final int _workStealingThreshold;
 
     public final class SelectionTask implements Runnable
     {
@@ -74,6 +78,9 @@ class SelectorThread extends Thread
         /** Set of connections that are currently being selected upon */
         private final Set<NonBlockingConnection> _unscheduledConnections = new HashSet<>();
 
+        /** Work pending for the IO thread owning this selector (connection affinity mode only) */
+        private final Queue<Runnable> _loopWork = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger _loopWorkSize = new AtomicInteger();
 
 
         private SelectionTask() throws IOException
@@ -84,7 +91,14 @@ class SelectorThread extends Thread
         @Override
         public void run()
         {
-            performSelect();
+            if (_connectionAffinity)
+            {
+                runEventLoop();
+            }
+            else
+            {
+                performSelect();
+            }
         }
 
         public boolean acquireSelecting()
@@ -180,7 +194,7 @@ class SelectorThread extends Thread
                                      localSocketAddress, e);
                     }
 
-                    _workQueue.add(new Runnable()
+                    addWork(new Runnable()
                     {
                         @Override
                         public void run()
@@ -279,51 +293,10 @@ class SelectorThread extends Thread
                             if (!_closed.get())
                             {
                                 Thread.currentThread().setName("Selector-" + _scheduler.getName());
-                                _inSelect.set(true);
-                                try
+                                if (!trySelect(connections))
                                 {
-                                    if (_wakeups.getAndSet(0) > 0)
-                                    {
-                                        _selector.selectNow();
-                                    }
-                                    else
-                                    {
-                                        _selector.select(_nextTimeout);
-                                    }
-                                }
-                                catch (IOException e)
-                                {
-                                    // TODO Inform the model object
-                                    LOGGER.error("Failed to trying to select()", e);
-                                    closeSelector();
                                     return;
                                 }
-                                finally
-                                {
-                                    _inSelect.set(false);
-                                }
-                                for (NonBlockingConnection connection : processSelectionKeys())
-                                {
-                                    if (connection.setScheduled())
-                                    {
-                                        connections.add(new ConnectionProcessor(_scheduler, connection));
-                                    }
-                                }
-                                for (NonBlockingConnection connection : reregisterUnregisteredConnections())
-                                {
-                                    if (connection.setScheduled())
-                                    {
-                                        connections.add(new ConnectionProcessor(_scheduler, connection));
-                                    }
-                                }
-                                for (NonBlockingConnection connection : processUnscheduledConnections())
-                                {
-                                    if (connection.setScheduled())
-                                    {
-                                        connections.add(new ConnectionProcessor(_scheduler, connection));
-                                    }
-                                }
-                                runTasks();
                             }
                         }
                         finally
@@ -355,6 +328,152 @@ class SelectorThread extends Thread
             }
         }
 
+        /**
+         * Selects, closing the selector should the select fail.
+         *
+         * @return false if the select failed
+         */
+        private boolean trySelect(final List<ConnectionProcessor> connections)
+        {
+            try
+            {
+                select(connections);
+                return true;
+            }
+            catch (IOException e)
+            {
+                // TODO Inform the model object
+                LOGGER.error("Failed to trying to select()", e);
+                closeSelector();
+                return false;
+            }
+        }
+
+        private void select(final List<ConnectionProcessor> connections) throws IOException
+        {
+            _inSelect.set(true);
+            try
+            {
+                if (_wakeups.getAndSet(0) > 0)
+                {
+                    _selector.selectNow();
+                }
+                else
+                {
+                    _selector.select(_nextTimeout);
+                }
+            }
+            finally
+            {
+                _inSelect.set(false);
+            }
+            for (NonBlockingConnection connection : processSelectionKeys())
+            {
+                if (connection.setScheduled())
+                {
+                    connections.add(new ConnectionProcessor(_scheduler, connection));
+                }
+            }
+            for (NonBlockingConnection connection : reregisterUnregisteredConnections())
+            {
+                if (connection.setScheduled())
+                {
+                    connections.add(new ConnectionProcessor(_scheduler, connection));
+                }
+            }
+            for (NonBlockingConnection connection : processUnscheduledConnections())
+            {
+                if (connection.setScheduled())
+                {
+                    connections.add(new ConnectionProcessor(_scheduler, connection));
+                }
+            }
+            runTasks();
+        }
+
+        /**
+         * Connection affinity mode: the calling IO thread owns this selector and performs all the work of the
+         * connections registered with it, only helping other IO threads when they have fallen behind.
+         */
+        private void runEventLoop()
+        {
+            _scheduler.incrementRunningCount();
+            final String name = Thread.currentThread().getName();
+            try
+            {
+                while (!_closed.get())
+                {
+                    Thread.currentThread().setName("Selector-" + _scheduler.getName());
+                    List<ConnectionProcessor> connections = new ArrayList<>();
+                    if (!trySelect(connections))
+                    {
+                        return;
+                    }
+
+                    for (ConnectionProcessor connectionProcessor : connections)
+                    {
+                        connectionProcessor.processConnection();
+                    }
+                    boolean idle = runLoopWork() && connections.isEmpty();
+                    if (idle)
+                    {
+                        stealWork(this);
+                    }
+                    Thread.currentThread().setName(name);
+                }
+                closeSelector();
+            }
+            finally
+            {
+                _scheduler.decrementRunningCount();
+            }
+        }
+
+        /**
+         * Runs the work that was pending when called; work added meanwhile is left for the next iteration so that
+         * rescheduled connections cannot starve the selector.
+         *
+         * @return true if there was no pending work
+         */
+        private boolean runLoopWork()
+        {
+            int count = _loopWorkSize.get();
+            Runnable task;
+            while (count-- > 0 && (task = pollLoopWork()) != null)
+            {
+                task.run();
+            }
+            return _loopWorkSize.get() == 0;
+        }
+
+        private Runnable pollLoopWork()
+        {
+            Runnable task = _loopWork.poll();
+            if (task != null)
+            {
+                _loopWorkSize.decrementAndGet();
+            }
+            return task;
+        }
+
+        private void addWork(final Runnable task)
+        {
+            if (_connectionAffinity)
+            {
+                _loopWork.add(task);
+                int pending = _loopWorkSize.incrementAndGet();
+                wakeup();
+                if (pending > _workStealingThreshold)
+                {
+                    wakeupThief(this);
+                }
+            }
+            else
+            {
+                _workQueue.add(task);
+            }
+        }
+
         private void closeSelector()
         {
             try
@@ -384,16 +503,29 @@ class SelectorThread extends Thread
     private SelectionTask[] _selectionTasks;
 
     SelectorThread(final NetworkConnectionScheduler scheduler, final int numberOfSelectors) throws IOException
+    {
+        this(scheduler, numberOfSelectors, false, 0);
+    }
+
+    SelectorThread(final NetworkConnectionScheduler scheduler,
+                   final int numberOfSelectors,
+                   final boolean connectionAffinity,
+                   final int workStealingThreshold) throws IOException
     {
         _scheduler = scheduler;
+        _connectionAffinity = connectionAffinity;
+        _workStealingThreshold = workStealingThreshold;
         _selectionTasks = new SelectionTask[numberOfSelectors];
         for(int i = 0; i < numberOfSelectors; i++)
         {
             _selectionTasks[i] = new SelectionTask();
         }
-        for(SelectionTask task : _selectionTasks)
+        if (!connectionAffinity)
         {
-            _workQueue.add(task);
+            for (SelectionTask task : _selectionTasks)
+            {
+                _workQueue.add(task);
+            }
         }
     }
 
@@ -451,6 +583,16 @@ class SelectorThread extends Thread
     @Override
     public void run()
     {
+        if (_connectionAffinity)
+        {
+            // each pool thread claims one selector and runs its event loop until closed
+            int index = _nextEventLoopIndex.getAndIncrement();
+            if (index < _selectionTasks.length)
+            {
+                _selectionTasks[index].run();
+            }
+            return;
+        }
 
         final String name = Thread.currentThread().getName();
         try
@@ -506,6 +648,61 @@ class SelectorThread extends Thread
         }
     }
 
+    private void stealWork(final SelectionTask thief)
+    {
+        for (SelectionTask victim : _selectionTasks)
+        {
+            if (victim != thief)
+            {
+                Runnable task;
+                while (!_closed.get()
+                       && victim._loopWorkSize.get() > _workStealingThreshold
+                       && (task = victim.pollLoopWork()) != null)
+                {
+                    task.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wakes the IO thread with the least pending work, preferring one with none, so that it can take over the surplus
+     * work of the victim.  No thread is woken if all of them are at or above the work stealing threshold.  The search
+     * starts at a rotating position so that the surplus is spread over the idle threads.
+     */
+    private void wakeupThief(final SelectionTask victim)
+    {
+        final int numberOfSelectors = _selectionTasks.length;
+        if (numberOfSelectors > 1)
+        {
+            final int start = (_nextThiefIndex.getAndIncrement() & Integer.MAX_VALUE) % numberOfSelectors;
+            SelectionTask thief = null;
+            int thiefWorkSize = _workStealingThreshold;
+            for (int i = 0; i < numberOfSelectors; i++)
+            {
+                final SelectionTask candidate = _selectionTasks[(start + i) % numberOfSelectors];
+                if (candidate != victim)
+                {
+                    final int workSize = candidate._loopWorkSize.get();
+                    if (workSize == 0)
+                    {
+                        thief = candidate;
+                        break;
+                    }
+                    else if (workSize < thiefWorkSize)
+                    {
+                        thief = candidate;
+                        thiefWorkSize = workSize;
+                    }
+                }
+            }
+            if (thief != null)
+            {
+                thief.wakeup();
+            }
+        }
+    }
+
     private void unregisterConnection(final NonBlockingConnection connection) throws ClosedChannelException
     {
         SelectionKey register = connection.getSocketChannel().register(connection.getSelectionTask().getSelector(), 0);
@@ -637,14 +834,54 @@ class SelectorThread extends Thread
          {
              throw new IllegalStateException("Adding connection work " + connection + " to closed selector thread " + _scheduler);
          }
+         SelectionTask selectionTask = connection.getSelectionTask();
          if(connection.setScheduled())
          {
-             _workQueue.add(new ConnectionProcessor(_scheduler, connection));
+             ConnectionProcessor connectionProcessor = new ConnectionProcessor(_scheduler, connection);
+             if (_connectionAffinity)
+             {
+                 (selectionTask == null ? getNextSelectionTask() : selectionTask).addWork(connectionProcessor);
+             }
+             else
+             {
+                 _workQueue.add(connectionProcessor);
+             }
          }
-         SelectionTask selectionTask = connection.getSelectionTask();
          if (selectionTask != null)
          {
              selectionTask.wakeup();
          }
      }
+
+    public void addToWork(final Runnable task)
+    {
+        if (_closed.get())
+        {
+            throw new IllegalStateException("Adding work " + task + " to closed selector thread " + _scheduler);
+        }
+        final Runnable work = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                _scheduler.incrementRunningCount();
+                try
+                {
+                    task.run();
+                }
+                finally
+                {
+                    _scheduler.decrementRunningCount();
+                }
+            }
+        };
+        if (_connectionAffinity)
+        {
+            getNextSelectionTask().addWork(work);
+        }
+        else
+        {
+            _workQueue.add(work);
+        }
+    }
 }
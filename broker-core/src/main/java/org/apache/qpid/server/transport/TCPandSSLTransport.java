@@ -37,6 +37,7 @@ class TCPandSSLTransport implements AcceptingTransport
     private Set<Protocol> _supported;
     private Protocol _defaultSupportedProtocolReply;
     private NetworkConnectionScheduler _scheduler;
+    private TLSHandshakeExecutor _handshakeExecutor;
 
     TCPandSSLTransport(final Set<Transport> transports,
                        final AmqpPort<?> port,
@@ -72,11 +73,26 @@ class TCPandSSLTransport implements AcceptingTransport
 
         long threadPoolKeepAliveTimeout = _port.getContextValue(Long.class, AmqpPort.PORT_AMQP_THREAD_POOL_KEEP_ALIVE_TIMEOUT);
 
+        boolean connectionAffinity = _port.getContextValue(Boolean.class, AmqpPort.PORT_AMQP_CONNECTION_AFFINITY);
+        int workStealingThreshold = _port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_WORK_STEALING_THRESHOLD);
+
         _scheduler = new NetworkConnectionScheduler("Port-"+_port.getName(), _port.getNumberOfSelectors(),
-                                                    _port.getThreadPoolSize(), threadPoolKeepAliveTimeout);
+                                                    _port.getThreadPoolSize(), threadPoolKeepAliveTimeout,
+                                                    connectionAffinity, workStealingThreshold);
         _scheduler.start();
+
+        int handshakeThreads = _port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_TLS_HANDSHAKE_THREADS);
+        if(encryptionSet.contains(TransportEncryption.TLS) && handshakeThreads > 0)
+        {
+            int maximumPendingHandshakes = _port.getContextValue(Integer.class,
+                                                                 AmqpPort.PORT_AMQP_TLS_HANDSHAKE_MAXIMUM_PENDING);
+            _handshakeExecutor = new TLSHandshakeExecutor("Port-" + _port.getName(),
+                                                          handshakeThreads,
+                                                          maximumPendingHandshakes);
+        }
+
         _networkTransport = new NonBlockingNetworkTransport(protocolEngineFactory,
-                                                            encryptionSet, _scheduler, _port);
+                                                            encryptionSet, _scheduler, _handshakeExecutor, _port);
         _networkTransport.start();
     }
 
@@ -93,6 +109,10 @@ class TCPandSSLTransport implements AcceptingTransport
         {
             _networkTransport.close();
         }
+        if(_handshakeExecutor != null)
+        {
+            _handshakeExecutor.close();
+        }
         if(_scheduler != null)
         {
             _scheduler.close();
@@ -0,0 +1,105 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the delegated tasks of TLS handshakes (key exchange, certificate validation) away from the IO threads, so
+ * that a surge of new TLS connections cannot starve established connections of IO threads.  Both the number of
+ * threads and the number of handshakes waiting for a thread are bounded; handshakes beyond that are refused.
+ */
+class TLSHandshakeExecutor
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(TLSHandshakeExecutor.class);
+    private static final long THREAD_KEEP_ALIVE_TIMEOUT = 60L;
+
+    private final ThreadPoolExecutor _executor;
+
+    TLSHandshakeExecutor(final String name, final int threads, final int maximumPending)
+    {
+        _executor = new ThreadPoolExecutor(threads, threads,
+                                           THREAD_KEEP_ALIVE_TIMEOUT, TimeUnit.SECONDS,
+                                           new ArrayBlockingQueue<Runnable>(Math.max(maximumPending, 1)),
+                                           createThreadFactory(name));
+        _executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static ThreadFactory createThreadFactory(final String name)
+    {
+        return new ThreadFactory()
+        {
+            final AtomicInteger _count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r)
+            {
+                Thread t = Executors.defaultThreadFactory().newThread(r);
+                t.setName("TLS-handshake-" + name + "-" + _count.incrementAndGet());
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Returns false, without running the task, if too many handshakes are already waiting.
+     */
+    boolean execute(final Runnable task)
+    {
+        try
+        {
+            _executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        task.run();
+                    }
+                    catch (RuntimeException e)
+                    {
+                        LOGGER.debug("Exception running TLS handshake task", e);
+                    }
+                }
+            });
+            return true;
+        }
+        catch (RejectedExecutionException e)
+        {
+            return false;
+        }
+    }
+
+    void close()
+    {
+        _executor.shutdownNow();
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.util;
+
+import java.util.Arrays;
+
+/**
+ * A thread safe map from long keys to non-null values, intended for large tables (such as the messages of a store
+ * being recovered) which are populated concurrently and only cleared as a whole.
+ * <p>
+ * The map is split into independently locked segments, each an open addressed hash table over primitive arrays, so
+ * that neither the keys nor the entries are boxed or allocated.  Individual entries cannot be removed.
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentLongMap<V>
+{
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+    private static final int MINIMUM_SEGMENT_CAPACITY = 16;
+    private static final int MAXIMUM_SEGMENTS = 1 << 16;
+
+    public interface Loader<V>
+    {
+        /**
+         * @return the value to associate with the key, or null to leave the key absent
+         */
+        V load(long key);
+    }
+
+    public interface Visitor<V>
+    {
+        /**
+         * @return true to stop the iteration, false to continue
+         */
+        boolean visit(long key, V value);
+    }
+
+    private final Segment[] _segments;
+    private final int _segmentShift;
+
+    public ConcurrentLongMap()
+    {
+        this(DEFAULT_CONCURRENCY_LEVEL, 0);
+    }
+
+    /**
+     * @param concurrencyLevel the expected number of threads updating the map at the same time
+     * @param initialCapacity the number of entries the map should hold without resizing
+     */
+    public ConcurrentLongMap(final int concurrencyLevel, final int initialCapacity)
+    {
+        if (concurrencyLevel <= 0 || initialCapacity < 0)
+        {
+            throw new IllegalArgumentException("Illegal concurrency level " + concurrencyLevel
+                                               + " or initial capacity " + initialCapacity);
+        }
+        final int segments = Math.min(powerOfTwoAtLeast(concurrencyLevel), MAXIMUM_SEGMENTS);
+        _segmentShift = 32 - Integer.numberOfTrailingZeros(segments);
+        _segments = new Segment[segments];
+        final int segmentCapacity = capacityFor((initialCapacity + segments - 1) / segments);
+        for (int i = 0; i < segments; i++)
+        {
+            _segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    public V get(final long key)
+    {
+        final int hash = hash(key);
+        return (V) segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(final long key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the value previously associated with the key, or null if there was none and the value was added
+     */
+    public V putIfAbsent(final long key, final V value)
+    {
+        if (value == null)
+        {
+            throw new NullPointerException("Null values are not supported");
+        }
+        final int hash = hash(key);
+        return (V) segmentFor(hash).putIfAbsent(key, hash, value);
+    }
+
+    /**
+     * Returns the value associated with the key, asking the loader for it if there is none.  The loader is called
+     * at most once per key (unless it returns null), with the segment holding the key locked, so it must not
+     * access this map.
+     *
+     * @return the value associated with the key, or null if there was none and the loader returned null
+     */
+    public V computeIfAbsent(final long key, final Loader<? extends V> loader)
+    {
+        final int hash = hash(key);
+        return (V) segmentFor(hash).computeIfAbsent(key, hash, loader);
+    }
+
+    /**
+     * Visits the entries of each segment in turn, with that segment locked, so the visitor must not access this
+     * map.  Entries are not visited in any particular order.
+     */
+    public void visit(final Visitor<? super V> visitor)
+    {
+        for (Segment segment : _segments)
+        {
+            if (segment.visit(visitor))
+            {
+                return;
+            }
+        }
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for (Segment segment : _segments)
+        {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    public void clear()
+    {
+        for (Segment segment : _segments)
+        {
+            segment.clear();
+        }
+    }
+
+    private Segment segmentFor(final int hash)
+    {
+        // the high bits select the segment, the low bits the slot within it
+        return _segments.length == 1 ? _segments[0] : _segments[hash >>> _segmentShift];
+    }
+
+    private static int hash(final long key)
+    {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int capacityFor(final int entries)
+    {
+        // keep the load factor at or below 0.75
+        return Math.max(powerOfTwoAtLeast(entries + entries / 3 + 1), MINIMUM_SEGMENT_CAPACITY);
+    }
+
+    private static int powerOfTwoAtLeast(final int value)
+    {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static final class Segment
+    {
+        private long[] _keys;
+        private Object[] _values;
+        private int _mask;
+        private int _size;
+        private int _threshold;
+
+        private Segment(final int capacity)
+        {
+            allocate(capacity);
+        }
+
+        private void allocate(final int capacity)
+        {
+            _keys = new long[capacity];
+            _values = new Object[capacity];
+            _mask = capacity - 1;
+            _threshold = capacity - capacity / 4;
+        }
+
+        synchronized Object get(final long key, final int hash)
+        {
+            final int index = indexOf(key, hash);
+            return _values[index];
+        }
+
+        synchronized Object putIfAbsent(final long key, final int hash, final Object value)
+        {
+            final int index = indexOf(key, hash);
+            final Object existing = _values[index];
+            if (existing == null)
+            {
+                insert(index, key, value);
+            }
+            return existing;
+        }
+
+        synchronized Object computeIfAbsent(final long key, final int hash, final Loader<?> loader)
+        {
+            final int index = indexOf(key, hash);
+            Object value = _values[index];
+            if (value == null)
+            {
+                value = loader.load(key);
+                if (value != null)
+                {
+                    insert(index, key, value);
+                }
+            }
+            return value;
+        }
+
+        synchronized boolean visit(final Visitor visitor)
+        {
+            for (int i = 0; i < _values.length; i++)
+            {
+                final Object value = _values[i];
+                if (value != null && visitor.visit(_keys[i], value))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized int size()
+        {
+            return _size;
+        }
+
+        synchronized void clear()
+        {
+            if (_size != 0)
+            {
+                if (_values.length > MINIMUM_SEGMENT_CAPACITY)
+                {
+                    allocate(MINIMUM_SEGMENT_CAPACITY);
+                }
+                else
+                {
+                    Arrays.fill(_values, null);
+                }
+                _size = 0;
+            }
+        }
+
+        /**
+         * @return the slot holding the key or, if it is absent, the empty slot at which it would be inserted
+         */
+        private int indexOf(final long key, final int hash)
+        {
+            int index = hash & _mask;
+            while (_values[index] != null && _keys[index] != key)
+            {
+                index = (index + 1) & _mask;
+            }
+            return index;
+        }
+
+        private void insert(final int index, final long key, final Object value)
+        {
+            _keys[index] = key;
+            _values[index] = value;
+            if (++_size > _threshold)
+            {
+                resize();
+            }
+        }
+
+        private void resize()
+        {
+            final long[] keys = _keys;
+            final Object[] values = _values;
+            allocate(values.length << 1);
+            for (int i = 0; i < values.length; i++)
+            {
+                if (values[i] != null)
+                {
+                    final long key = keys[i];
+                    final int index = indexOf(key, hash(key));
+                    _keys[index] = key;
+                    _values[index] = values[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A map from long keys to values, specialised for keys which are allocated from an increasing sequence (such as
+ * delivery tags) and which are mostly removed in approximately the order in which they were added.
+ * <p>
+ * Entries are held in a ring buffer indexed directly by key, so adding, looking up and removing an entry neither
+ * boxes the key nor allocates.  Iteration is in ascending key order.  Should the oldest entries remain long after
+ * their successors have been removed, they are moved out to an ordered overflow map rather than letting the ring
+ * grow to span the whole gap.
+ * <p>
+ * This class is not thread safe.
+ */
+@SuppressWarnings("unchecked")
+public class LongSequenceMap<V>
+{
+    private static final int MINIMUM_CAPACITY = 16;
+
+    public interface Visitor<V>
+    {
+        /**
+         * @return true to stop the iteration, false to continue
+         */
+        boolean visit(long key, V value);
+    }
+
+    private Object[] _ring;
+    private int _mask;
+    /** the lowest key that may be held in the ring, valid only if the ring is non-empty */
+    private long _head;
+    /** one more than the highest key held in the ring, valid only if the ring is non-empty */
+    private long _tail;
+    private int _ringSize;
+    private TreeMap<Long, V> _overflow;
+
+    public LongSequenceMap()
+    {
+        this(MINIMUM_CAPACITY);
+    }
+
+    public LongSequenceMap(int initialCapacity)
+    {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < initialCapacity && capacity < (1 << 30))
+        {
+            capacity <<= 1;
+        }
+        _ring = new Object[capacity];
+        _mask = capacity - 1;
+    }
+
+    public V put(long key, V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+
+        if (_ringSize == 0)
+        {
+            if (_overflow != null && !_overflow.isEmpty() && key <= _overflow.lastKey())
+            {
+                return _overflow.put(key, value);
+            }
+            _head = key;
+            _tail = key + 1;
+            _ring[index(key)] = value;
+            _ringSize = 1;
+            return null;
+        }
+        else if (key < _head)
+        {
+            if (_overflow == null)
+            {
+                _overflow = new TreeMap<>();
+            }
+            return _overflow.put(key, value);
+        }
+        else if (key >= _tail)
+        {
+            makeRoomFor(key);
+            if (_ringSize == 0)
+            {
+                _head = key;
+            }
+            _tail = key + 1;
+        }
+
+        final int index = index(key);
+        final V previous = (V) _ring[index];
+        _ring[index] = value;
+        if (previous == null)
+        {
+            _ringSize++;
+        }
+        return previous;
+    }
+
+    public V get(long key)
+    {
+        if (_ringSize != 0 && key >= _head && key < _tail)
+        {
+            return (V) _ring[index(key)];
+        }
+        else if (_overflow != null)
+        {
+            return _overflow.get(key);
+        }
+        return null;
+    }
+
+    public V remove(long key)
+    {
+        if (_ringSize != 0 && key >= _head && key < _tail)
+        {
+            final int index = index(key);
+            final V value = (V) _ring[index];
+            if (value != null)
+            {
+                _ring[index] = null;
+                _ringSize--;
+                if (key == _head)
+                {
+                    advanceHead();
+                }
+            }
+            return value;
+        }
+        else if (_overflow != null)
+        {
+            return _overflow.remove(key);
+        }
+        return null;
+    }
+
+    /**
+     * Removes every entry with a key less than or equal to the given key, adding the removed values to the given
+     * list in ascending key order.
+     */
+    public void removeUpTo(long key, List<? super V> removed)
+    {
+        if (_overflow != null && !_overflow.isEmpty())
+        {
+            Map<Long, V> overflowed = _overflow.headMap(key, true);
+            removed.addAll(overflowed.values());
+            overflowed.clear();
+        }
+
+        while (_ringSize != 0 && _head <= key)
+        {
+            final int index = index(_head);
+            final V value = (V) _ring[index];
+            if (value != null)
+            {
+                removed.add(value);
+                _ring[index] = null;
+                _ringSize--;
+            }
+            _head++;
+        }
+        advanceHead();
+    }
+
+    /**
+     * Visits the entries in ascending key order.  The map must not be modified during the visit.
+     */
+    public void visit(Visitor<? super V> visitor)
+    {
+        if (_overflow != null)
+        {
+            for (Map.Entry<Long, V> entry : _overflow.entrySet())
+            {
+                if (visitor.visit(entry.getKey(), entry.getValue()))
+                {
+                    return;
+                }
+            }
+        }
+        if (_ringSize != 0)
+        {
+            for (long key = _head; key < _tail; key++)
+            {
+                final V value = (V) _ring[index(key)];
+                if (value != null && visitor.visit(key, value))
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    public List<V> values()
+    {
+        final List<V> values = new ArrayList<>(size());
+        visit(new Visitor<V>()
+        {
+            @Override
+            public boolean visit(final long key, final V value)
+            {
+                values.add(value);
+                return false;
+            }
+        });
+        return values;
+    }
+
+    public int size()
+    {
+        return _ringSize + (_overflow == null ? 0 : _overflow.size());
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Removes every entry.  The ring keeps its current capacity.
+     */
+    public void clear()
+    {
+        for (long key = _head; _ringSize != 0 && key < _tail; key++)
+        {
+            final int index = index(key);
+            if (_ring[index] != null)
+            {
+                _ring[index] = null;
+                _ringSize--;
+            }
+        }
+        _head = _tail;
+        _overflow = null;
+    }
+
+    private int index(long key)
+    {
+        return (int) key & _mask;
+    }
+
+    private void advanceHead()
+    {
+        if (_ringSize == 0)
+        {
+            _head = _tail;
+        }
+        else
+        {
+            while (_ring[index(_head)] == null)
+            {
+                _head++;
+            }
+        }
+    }
+
+    private void makeRoomFor(long key)
+    {
+        while (_ringSize != 0 && key - _head >= _ring.length)
+        {
+            if (_ringSize >= _ring.length / 2 && _ring.length < (1 << 30))
+            {
+                resize(_ring.length << 1);
+            }
+            else
+            {
+                // the ring is sparse: rather than grow it, move the oldest entry out
+                if (_overflow == null)
+                {
+                    _overflow = new TreeMap<>();
+                }
+                final int index = index(_head);
+                _overflow.put(_head, (V) _ring[index]);
+                _ring[index] = null;
+                _ringSize--;
+                _head++;
+                advanceHead();
+            }
+        }
+    }
+
+    private void resize(int capacity)
+    {
+        final Object[] ring = new Object[capacity];
+        final int mask = capacity - 1;
+        for (long key = _head; key < _tail; key++)
+        {
+            ring[(int) key & mask] = _ring[index(key)];
+        }
+        _ring = ring;
+        _mask = mask;
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hierarchical timing wheel for large numbers of timeouts which are usually cancelled before they become due.
+ * <p>
+ * Scheduling and cancelling a timeout are constant time and may be done from any thread.  Due timeouts are run by
+ * {@link #advance(long)}, which is expected to be called periodically (roughly once per tick) by a single thread.
+ * Timeouts fire at the first tick at or after their due time, so the tick period bounds how late they may run.
+ * The due timeouts are collected whilst the wheel is locked and their tasks run once it has been released, so a
+ * long running task never holds up another thread reading or advancing the wheel.
+ * Cancelled timeouts are unlinked from their slot the next time the wheel is advanced, so the wheel only ever holds
+ * the timeouts which are still live.
+ * <p>
+ * Each of the {@value #LEVELS} levels has {@value #SLOTS} slots; a slot at level n spans 64<sup>n</sup> ticks.
+ * Timeouts are placed at the lowest level which can hold them and are cascaded down as the wheel turns.
+ */
+public final class TimingWheel
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheel.class);
+
+    private static final int LEVEL_BITS = 6;
+    private static final int SLOTS = 1 << LEVEL_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+    private static final long MAX_DELTA = (1L << (LEVEL_BITS * LEVELS)) - 1L;
+
+    private final long _tickPeriod;
+    private final Timeout[][] _slots = new Timeout[LEVELS][SLOTS];
+    private final ConcurrentLinkedQueue<Timeout> _pending = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> _cancelled = new ConcurrentLinkedQueue<>();
+
+    /* the following are only accessed by the thread advancing the wheel */
+    private long _currentTick;
+    private int _size;
+
+    public TimingWheel(final long tickPeriod, final long currentTime)
+    {
+        if (tickPeriod <= 0L)
+        {
+            throw new IllegalArgumentException("Tick period must be positive: " + tickPeriod);
+        }
+        _tickPeriod = tickPeriod;
+        _currentTick = currentTime / tickPeriod;
+    }
+
+    public long getTickPeriod()
+    {
+        return _tickPeriod;
+    }
+
+    /**
+     * Schedules the task to be run once the given time (in milliseconds since the epoch) has been reached.
+     */
+    public Timeout schedule(final long dueTime, final Runnable task)
+    {
+        final Timeout timeout = new Timeout(dueTime, task);
+        schedule(timeout);
+        return timeout;
+    }
+
+    /**
+     * Schedules a timeout which was created up front, e.g. so that it could be published before it can fire.
+     */
+    public void schedule(final Timeout timeout)
+    {
+        timeout._wheel = this;
+        _pending.add(timeout);
+    }
+
+    /**
+     * Turns the wheel up to the given time, running the tasks of all timeouts which have become due.
+     */
+    public void advance(final long currentTime)
+    {
+        final List<Timeout> due = new ArrayList<>();
+        synchronized (this)
+        {
+            collectDue(currentTime, due);
+        }
+        for (Timeout timeout : due)
+        {
+            run(timeout);
+        }
+    }
+
+    private void collectDue(final long currentTime, final List<Timeout> due)
+    {
+        Timeout timeout;
+        while ((timeout = _pending.poll()) != null)
+        {
+            insert(timeout, due);
+        }
+        while ((timeout = _cancelled.poll()) != null)
+        {
+            unlink(timeout);
+        }
+
+        final long targetTick = currentTime / _tickPeriod;
+        while (_currentTick < targetTick)
+        {
+            if (_size == 0)
+            {
+                _currentTick = targetTick;
+                break;
+            }
+
+            _currentTick++;
+
+            long tick = _currentTick;
+            int level = 0;
+            while ((tick & SLOT_MASK) == 0 && ++level < LEVELS)
+            {
+                tick >>>= LEVEL_BITS;
+                cascade(level, (int) (tick & SLOT_MASK), due);
+            }
+
+            timeout = detach(0, (int) (_currentTick & SLOT_MASK));
+            while (timeout != null)
+            {
+                final Timeout next = timeout._next;
+                timeout._next = null;
+                timeout._prev = null;
+                if (timeout._dueTick <= _currentTick)
+                {
+                    due.add(timeout);
+                }
+                else
+                {
+                    insert(timeout, due);
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of timeouts held in the wheel as of the last advance, i.e. excluding those scheduled or
+     * cancelled since.
+     */
+    public synchronized int size()
+    {
+        return _size;
+    }
+
+    private void insert(final Timeout timeout, final List<Timeout> due)
+    {
+        if (timeout.isCancelled())
+        {
+            return;
+        }
+
+        if (timeout._dueTick == Long.MIN_VALUE)
+        {
+            final long dueTime = timeout._dueTime;
+            timeout._dueTick = dueTime / _tickPeriod + (dueTime % _tickPeriod == 0L ? 0L : 1L);
+        }
+
+        final long delta = timeout._dueTick - _currentTick;
+        if (delta <= 0L)
+        {
+            due.add(timeout);
+            return;
+        }
+
+        final long tick = delta > MAX_DELTA ? _currentTick + MAX_DELTA : timeout._dueTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (LEVEL_BITS * (level + 1))))
+        {
+            level++;
+        }
+        final int slot = (int) ((tick >>> (LEVEL_BITS * level)) & SLOT_MASK);
+
+        final Timeout head = _slots[level][slot];
+        timeout._next = head;
+        timeout._prev = null;
+        if (head != null)
+        {
+            head._prev = timeout;
+        }
+        _slots[level][slot] = timeout;
+        timeout._level = level;
+        timeout._slot = slot;
+        _size++;
+    }
+
+    private void unlink(final Timeout timeout)
+    {
+        if (timeout._level < 0)
+        {
+            // cancelled before it was inserted, or already detached from its slot
+            return;
+        }
+        if (timeout._prev == null)
+        {
+            _slots[timeout._level][timeout._slot] = timeout._next;
+        }
+        else
+        {
+            timeout._prev._next = timeout._next;
+        }
+        if (timeout._next != null)
+        {
+            timeout._next._prev = timeout._prev;
+        }
+        timeout._next = null;
+        timeout._prev = null;
+        timeout._level = -1;
+        _size--;
+    }
+
+    private void cascade(final int level, final int slot, final List<Timeout> due)
+    {
+        Timeout timeout = detach(level, slot);
+        while (timeout != null)
+        {
+            final Timeout next = timeout._next;
+            timeout._next = null;
+            timeout._prev = null;
+            insert(timeout, due);
+            timeout = next;
+        }
+    }
+
+    private Timeout detach(final int level, final int slot)
+    {
+        Timeout head = _slots[level][slot];
+        _slots[level][slot] = null;
+        for (Timeout timeout = head; timeout != null; timeout = timeout._next)
+        {
+            timeout._level = -1;
+            _size--;
+        }
+        return head;
+    }
+
+    private void run(final Timeout timeout)
+    {
+        // claims the task, so that it runs at most once and never after cancel() has returned
+        final Runnable task = Timeout.TASK_UPDATER.getAndSet(timeout, null);
+        if (task != null)
+        {
+            try
+            {
+                task.run();
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.warn("Timeout task {} threw an exception", task, e);
+            }
+        }
+    }
+
+    public static final class Timeout
+    {
+        private static final AtomicReferenceFieldUpdater<Timeout, Runnable> TASK_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(Timeout.class, Runnable.class, "_task");
+
+        private final long _dueTime;
+        private volatile Runnable _task;
+        private volatile TimingWheel _wheel;
+
+        /* the following are only accessed by the thread advancing the wheel */
+        private long _dueTick = Long.MIN_VALUE;
+        private Timeout _next;
+        private Timeout _prev;
+        private int _level = -1;
+        private int _slot;
+
+        public Timeout(final long dueTime, final Runnable task)
+        {
+            _dueTime = dueTime;
+            _task = task;
+        }
+
+        public long getDueTime()
+        {
+            return _dueTime;
+        }
+
+        /**
+         * Prevents the task from running unless it has already started.  The task is released immediately, the
+         * timeout itself is unlinked from the wheel when the wheel is next advanced.
+         */
+        public void cancel()
+        {
+            if (TASK_UPDATER.getAndSet(this, null) != null)
+            {
+                final TimingWheel wheel = _wheel;
+                if (wheel != null)
+                {
+                    wheel._cancelled.add(this);
+                }
+            }
+        }
+
+        public boolean isCancelled()
+        {
+            return _task == null;
+        }
+    }
+}
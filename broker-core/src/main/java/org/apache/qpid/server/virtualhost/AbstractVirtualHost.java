@@ -64,6 +64,7 @@ import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.logging.messages.MessageStoreMessages;
 import org.apache.qpid.server.logging.messages.VirtualHostMessages;
 import org.apache.qpid.server.logging.subjects.MessageStoreLogSubject;
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageNode;
 import org.apache.qpid.server.message.MessageSource;
@@ -79,6 +80,7 @@ import org.apache.qpid.server.protocol.LinkRegistry;
 import org.apache.qpid.server.queue.QueueEntry;
 import org.apache.qpid.server.security.SecurityManager;
 import org.apache.qpid.server.stats.StatisticsCounter;
+import org.apache.qpid.server.stats.StatisticsHistogram;
 import org.apache.qpid.server.store.ConfiguredObjectRecord;
 import org.apache.qpid.server.store.DurableConfigurationStore;
 import org.apache.qpid.server.store.Event;
@@ -99,6 +101,7 @@ import org.apache.qpid.server.util.Action;
 import org.apache.qpid.server.util.ConnectionScopedRuntimeException;
 import org.apache.qpid.server.util.HousekeepingExecutor;
 import org.apache.qpid.server.util.MapValueConverter;
+import org.apache.qpid.server.util.TimingWheel;
 
 public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> extends AbstractConfiguredObject<X>
         implements VirtualHost<X>, EventListener
@@ -129,10 +132,13 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private final Broker<?> _broker;
 
     private final DtxRegistry _dtxRegistry;
+    private volatile MessageConversionCache _messageConversionCache;
+    private volatile TimingWheel _timingWheel;
 
     private final SystemNodeRegistry _systemNodeRegistry = new SystemNodeRegistry();
 
     private final StatisticsCounter _messagesDelivered, _dataDelivered, _messagesReceived, _dataReceived;
+    private final StatisticsHistogram _messageDeliveryLatency;
 
     private final Map<String, LinkRegistry> _linkRegistry = new HashMap<String, LinkRegistry>();
     private AtomicBoolean _blocked = new AtomicBoolean();
@@ -201,7 +207,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private MessageDestination _defaultDestination;
 
     private MessageStore _messageStore;
-    private MessageStoreRecoverer _messageStoreRecoverer;
+    private volatile MessageStoreRecoverer _messageStoreRecoverer;
     private final FileSystemSpaceChecker _fileSystemSpaceChecker;
     private int _fileSystemMaxUsagePercent;
     private Collection<VirtualHostLogger> _virtualHostLoggersToClose;
@@ -224,6 +230,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         _dataDelivered = new StatisticsCounter("bytes-delivered-" + getName());
         _messagesReceived = new StatisticsCounter("messages-received-" + getName());
         _dataReceived = new StatisticsCounter("bytes-received-" + getName());
+        _messageDeliveryLatency = new StatisticsHistogram("message-delivery-latency-" + getName());
         _principal = new VirtualHostPrincipal(this);
 
         _housekeepingJobContext = SecurityManager.getSystemTaskControllerContext("Housekeeping["+getName()+"]", _principal);
@@ -447,6 +454,9 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
 
         _fileSystemMaxUsagePercent = getContextValue(Integer.class, Broker.STORE_FILESYSTEM_MAX_USAGE_PERCENT);
 
+        _messageConversionCache = new MessageConversionCache(getContextValue(Long.class,
+                                                                             MESSAGE_CONVERSION_CACHE_SIZE));
+
 
         QpidServiceLoader serviceLoader = new QpidServiceLoader();
         for(ConnectionValidator validator : serviceLoader.instancesOf(ConnectionValidator.class))
@@ -628,6 +638,32 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         }
     }
 
+    /**
+     * Creates the wheel on which queues schedule message expiry and the release of held messages, and the task which
+     * turns it.  Timeouts scheduled on a previous wheel (before a restart) are abandoned along with it.
+     */
+    private void initialiseTimingWheel()
+    {
+        final TimingWheel timingWheel = new TimingWheel(getContextValue(Long.class, TIMING_WHEEL_TICK_PERIOD),
+                                                        System.currentTimeMillis());
+        startTimingWheel(timingWheel);
+        _timingWheel = timingWheel;
+    }
+
+    protected void startTimingWheel(final TimingWheel timingWheel)
+    {
+        _houseKeepingTaskExecutor.scheduleAtFixedRate(new HouseKeepingTask("TimingWheel[" + getName() + "]",
+                                                                           this,
+                                                                           _housekeepingJobContext)
+        {
+            @Override
+            public void execute()
+            {
+                timingWheel.advance(System.currentTimeMillis());
+            }
+        }, timingWheel.getTickPeriod(), timingWheel.getTickPeriod(), TimeUnit.MILLISECONDS);
+    }
+
     protected void shutdownHouseKeeping()
     {
         if(_houseKeepingTaskExecutor != null)
@@ -1061,6 +1097,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         _dataDelivered.reset();
         _messagesReceived.reset();
         _dataReceived.reset();
+        _messageDeliveryLatency.reset();
 
         for (AMQPConnection<?> connection : _connections)
         {
@@ -1084,6 +1121,24 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         return _dtxRegistry;
     }
 
+    @Override
+    public MessageConversionCache getMessageConversionCache()
+    {
+        return _messageConversionCache;
+    }
+
+    @Override
+    public StatisticsHistogram getMessageDeliveryLatencyStatistics()
+    {
+        return _messageDeliveryLatency;
+    }
+
+    @Override
+    public TimingWheel getTimingWheel()
+    {
+        return _timingWheel;
+    }
+
     private void block(BlockingType blockingType)
     {
         synchronized (_connections)
@@ -1474,6 +1529,93 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         return getMessageReceiptStatistics().getTotal();
     }
 
+    @Override
+    public long getMessageConversionCacheHits()
+    {
+        MessageConversionCache cache = _messageConversionCache;
+        return cache == null ? 0L : cache.getHits();
+    }
+
+    @Override
+    public long getMessageConversionCacheMisses()
+    {
+        MessageConversionCache cache = _messageConversionCache;
+        return cache == null ? 0L : cache.getMisses();
+    }
+
+    @Override
+    public long getMessageConversionCacheSize()
+    {
+        MessageConversionCache cache = _messageConversionCache;
+        return cache == null ? 0L : cache.getSize();
+    }
+
+    @Override
+    public long getRecoveredMessageCount()
+    {
+        MessageStoreRecoverer recoverer = _messageStoreRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveredMessageCount();
+    }
+
+    @Override
+    public long getRecoveringQueueCount()
+    {
+        MessageStoreRecoverer recoverer = _messageStoreRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveringQueueCount();
+    }
+
+    @Override
+    public long getMessageRecoveryRate()
+    {
+        MessageStoreRecoverer recoverer = _messageStoreRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveryRate();
+    }
+
+    @Override
+    public long getMessageDeliveryLatencyMedian()
+    {
+        return _messageDeliveryLatency.getValueAtPercentile(50.0d);
+    }
+
+    @Override
+    public long getMessageDeliveryLatency99thPercentile()
+    {
+        return _messageDeliveryLatency.getValueAtPercentile(99.0d);
+    }
+
+    @Override
+    public long getMessageDeliveryLatencyMaximum()
+    {
+        return _messageDeliveryLatency.getMaximum();
+    }
+
+    @Override
+    public long getStoreCommitLatencyMedian()
+    {
+        StatisticsHistogram commitLatency = getStoreCommitLatencyStatistics();
+        return commitLatency == null ? 0L : commitLatency.getValueAtPercentile(50.0d);
+    }
+
+    @Override
+    public long getStoreCommitLatency99thPercentile()
+    {
+        StatisticsHistogram commitLatency = getStoreCommitLatencyStatistics();
+        return commitLatency == null ? 0L : commitLatency.getValueAtPercentile(99.0d);
+    }
+
+    @Override
+    public long getStoreCommitLatencyMaximum()
+    {
+        StatisticsHistogram commitLatency = getStoreCommitLatencyStatistics();
+        return commitLatency == null ? 0L : commitLatency.getMaximum();
+    }
+
+    private StatisticsHistogram getStoreCommitLatencyStatistics()
+    {
+        MessageStore messageStore = _messageStore;
+        return messageStore == null ? null : messageStore.getCommitLatencyStatistics();
+    }
+
     @Override
     public long getMessagesOut()
     {
@@ -1854,6 +1996,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         _houseKeepingTaskExecutor = new HousekeepingExecutor("virtualhost-" + getName() + "-pool",
                                                              getHousekeepingThreadCount(),
                                                              getPrincipal());
+        initialiseTimingWheel();
 
         long threadPoolKeepAliveTimeout = getContextValue(Long.class, CONNECTION_THREAD_POOL_KEEP_ALIVE_TIMEOUT);
 
@@ -1865,7 +2008,9 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
                                                                      getNumberOfSelectors(),
                                                                      getConnectionThreadPoolSize(),
                                                                      threadPoolKeepAliveTimeout,
-                                                                     connectionThreadFactory);
+                                                                     connectionThreadFactory,
+                                                                     getContextValue(Boolean.class, VIRTUALHOST_CONNECTION_THREAD_POOL_CONNECTION_AFFINITY),
+                                                                     getContextValue(Integer.class, VIRTUALHOST_CONNECTION_THREAD_POOL_WORK_STEALING_THRESHOLD));
         _networkConnectionScheduler.start();
         MessageStore messageStore = getMessageStore();
         messageStore.openMessageStore(this);
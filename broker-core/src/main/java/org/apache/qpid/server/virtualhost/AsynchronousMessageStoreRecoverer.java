@@ -22,14 +22,13 @@ package org.apache.qpid.server.virtualhost;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Function;
 import com.google.common.util.concurrent.Futures;
@@ -60,6 +59,7 @@ import org.apache.qpid.server.txn.DtxBranch;
 import org.apache.qpid.server.txn.DtxRegistry;
 import org.apache.qpid.server.txn.ServerTransaction;
 import org.apache.qpid.server.util.Action;
+import org.apache.qpid.server.util.ConcurrentLongMap;
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
 import org.apache.qpid.transport.Xid;
 import org.apache.qpid.transport.util.Functions;
@@ -67,7 +67,7 @@ import org.apache.qpid.transport.util.Functions;
 public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 {
     private static final Logger _logger = LoggerFactory.getLogger(AsynchronousMessageStoreRecoverer.class);
-    private AsynchronousRecoverer _asynchronousRecoverer;
+    private volatile AsynchronousRecoverer _asynchronousRecoverer;
 
     @Override
     public ListenableFuture<Void> recover(final VirtualHost<?> virtualHost)
@@ -86,6 +86,27 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         }
     }
 
+    @Override
+    public long getRecoveredMessageCount()
+    {
+        final AsynchronousRecoverer recoverer = _asynchronousRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveredMessageCount();
+    }
+
+    @Override
+    public int getRecoveringQueueCount()
+    {
+        final AsynchronousRecoverer recoverer = _asynchronousRecoverer;
+        return recoverer == null ? 0 : recoverer.getRecoveringQueueCount();
+    }
+
+    @Override
+    public long getRecoveryRate()
+    {
+        final AsynchronousRecoverer recoverer = _asynchronousRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveryRate();
+    }
+
     private static class AsynchronousRecoverer
     {
         private static final Logger LOGGER = LoggerFactory.getLogger(AsynchronousRecoverer.class);
@@ -97,8 +118,10 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         private final MessageStoreLogSubject _logSubject;
         private final long _maxMessageId;
         private final Set<Queue<?>> _recoveringQueues = new CopyOnWriteArraySet<>();
-        private final AtomicBoolean _recoveryComplete = new AtomicBoolean();
-        private final Map<Long, MessageReference<? extends ServerMessage<?>>> _recoveredMessages = new HashMap<>();
+        private final ConcurrentLongMap<RecoveredMessage> _recoveredMessages = new ConcurrentLongMap<>();
+        private final AtomicLong _recoveredMessageCount = new AtomicLong();
+        private final long _recoveryStartTime = System.currentTimeMillis();
+        private volatile long _recoveryEndTime;
         private final ListeningExecutorService _queueRecoveryExecutor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
         private final MessageStore.MessageStoreReader _storeReader;
         private AtomicBoolean _continueRecovery = new AtomicBoolean(true);
@@ -121,23 +144,48 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         {
             getStoreReader().visitDistributedTransactions(new DistributedTransactionVisitor());
 
-            List<ListenableFuture<Void>> queueRecoveryFutures = new ArrayList<>();
+            // The messages are streamed from the store in a single pass alongside the queue recoveries, which only
+            // read individual messages from the store when they get ahead of that pass.
+            List<ListenableFuture<Void>> recoveryFutures = new ArrayList<>();
+            ListenableFuture<Void> messageLoadingResult = _queueRecoveryExecutor.submit(new MessageLoadingTask(), null);
+            recoveryFutures.add(messageLoadingResult);
             for(Queue<?> queue : _recoveringQueues)
             {
                 ListenableFuture<Void> result = _queueRecoveryExecutor.submit(new QueueRecoveringTask(queue), null);
-                queueRecoveryFutures.add(result);
+                recoveryFutures.add(result);
             }
-            ListenableFuture<List<Void>> combinedFuture = Futures.allAsList(queueRecoveryFutures);
+            ListenableFuture<List<Void>> combinedFuture = Futures.allAsList(recoveryFutures);
             return Futures.transform(combinedFuture, new Function<List<?>, Void>()
             {
                 @Override
                 public Void apply(List<?> voids)
                 {
+                    completeRecovery();
                     return null;
                 }
             });
         }
 
+        public long getRecoveredMessageCount()
+        {
+            return _recoveredMessageCount.get();
+        }
+
+        public int getRecoveringQueueCount()
+        {
+            return _recoveringQueues.size();
+        }
+
+        /**
+         * @return the mean number of messages recovered per second since recovery started
+         */
+        public long getRecoveryRate()
+        {
+            final long endTime = _recoveryEndTime;
+            final long elapsed = (endTime == 0L ? System.currentTimeMillis() : endTime) - _recoveryStartTime;
+            return getRecoveredMessageCount() * 1000L / Math.max(elapsed, 1L);
+        }
+
         public VirtualHost<?> getVirtualHost()
         {
             return _virtualHost;
@@ -173,72 +221,73 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             queue.completeRecovery();
 
             _recoveringQueues.remove(queue);
-            if (_recoveringQueues.isEmpty() && _recoveryComplete.compareAndSet(false, true))
-            {
-                completeRecovery();
-            }
         }
 
-        private synchronized void completeRecovery()
+        private void completeRecovery()
         {
-            // at this point nothing should be writing to the map of recovered messages
-            for (Map.Entry<Long,MessageReference<? extends ServerMessage<?>>> entry : _recoveredMessages.entrySet())
-            {
-                entry.getValue().release();
-                entry.setValue(null); // free up any memory associated with the reference object
-            }
-            final List<StoredMessage<?>> messagesToDelete = new ArrayList<>();
-            getStoreReader().visitMessages(new MessageHandler()
+            // at this point nothing should be writing to the map of recovered messages, and every message in the
+            // store has been loaded into it unless recovery was cancelled
+            final boolean removeUnusedMessages = _continueRecovery.get();
+            _recoveredMessages.visit(new ConcurrentLongMap.Visitor<RecoveredMessage>()
             {
                 @Override
-                public boolean handle(final StoredMessage<?> storedMessage)
+                public boolean visit(final long messageId, final RecoveredMessage recoveredMessage)
                 {
-
-                    long messageNumber = storedMessage.getMessageNumber();
-                    if (!_recoveredMessages.containsKey(messageNumber))
+                    if (recoveredMessage.isUsed())
                     {
-                        messagesToDelete.add(storedMessage);
+                        recoveredMessage.release();
+                    }
+                    else if (removeUnusedMessages)
+                    {
+                        _logger.info("Message id "
+                                     + messageId
+                                     + " in store, but not in any queue - removing....");
+                        // ours is the only reference, so releasing it removes the message from the store
+                        recoveredMessage.release();
                     }
-                    return _continueRecovery.get() && messageNumber < _maxMessageId - 1;
+                    return false;
                 }
             });
-            for(StoredMessage<?> storedMessage : messagesToDelete)
-            {
-                if (_continueRecovery.get())
-                {
-                    _logger.info("Message id "
-                                 + storedMessage.getMessageNumber()
-                                 + " in store, but not in any queue - removing....");
-                    storedMessage.remove();
-                }
-            }
 
-            messagesToDelete.clear();
             _recoveredMessages.clear();
             _storeReader.close();
+
+            _recoveryEndTime = System.currentTimeMillis();
+            _logger.info("Recovered {} messages in {} ms ({} messages/s)",
+                         getRecoveredMessageCount(), _recoveryEndTime - _recoveryStartTime, getRecoveryRate());
         }
 
-        private synchronized ServerMessage<?> getRecoveredMessage(final long messageId)
+        private ServerMessage<?> getRecoveredMessage(final long messageId)
         {
-            MessageReference<? extends ServerMessage<?>> ref = _recoveredMessages.get(messageId);
-            if (ref == null)
+            RecoveredMessage recoveredMessage =
+                    _recoveredMessages.computeIfAbsent(messageId, new ConcurrentLongMap.Loader<RecoveredMessage>()
             {
-                StoredMessage<?> message = _storeReader.getMessage(messageId);
-                if(message != null)
+                @Override
+                public RecoveredMessage load(final long key)
                 {
-                    StorableMessageMetaData metaData = message.getMetaData();
-
-                    @SuppressWarnings("rawtypes")
-                    MessageMetaDataType type = metaData.getType();
-
-                    @SuppressWarnings("unchecked")
-                    ServerMessage<?> serverMessage = type.createMessage(message);
-
-                    ref = serverMessage.newReference();
-                    _recoveredMessages.put(messageId, ref);
+                    StoredMessage<?> message = _storeReader.getMessage(key);
+                    return message == null ? null : new RecoveredMessage(message);
                 }
+            });
+            if (recoveredMessage == null)
+            {
+                return null;
             }
-            return ref == null ? null : ref.getMessage();
+            recoveredMessage.markUsed();
+            return recoveredMessage.getMessage();
+        }
+
+        private void loadMessage(final StoredMessage<?> storedMessage)
+        {
+            final long messageId = storedMessage.getMessageNumber();
+            _recoveredMessages.computeIfAbsent(messageId, new ConcurrentLongMap.Loader<RecoveredMessage>()
+            {
+                @Override
+                public RecoveredMessage load(final long key)
+                {
+                    return new RecoveredMessage(storedMessage);
+                }
+            });
         }
 
         public void cancel()
@@ -432,6 +481,37 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 
         }
 
+        private class MessageLoadingTask implements Runnable
+        {
+            @Override
+            public void run()
+            {
+                String originalThreadName = Thread.currentThread().getName();
+                Thread.currentThread().setName("Message Loader (vh: " + getVirtualHost().getName() + ")");
+
+                try
+                {
+                    _storeReader.visitMessages(new MessageHandler()
+                    {
+                        @Override
+                        public boolean handle(final StoredMessage<?> storedMessage)
+                        {
+                            long messageNumber = storedMessage.getMessageNumber();
+                            if (messageNumber < _maxMessageId)
+                            {
+                                loadMessage(storedMessage);
+                            }
+                            return _continueRecovery.get() && messageNumber < _maxMessageId - 1;
+                        }
+                    });
+                }
+                finally
+                {
+                    Thread.currentThread().setName(originalThreadName);
+                }
+            }
+        }
+
         private class QueueRecoveringTask implements Runnable
         {
             private final Queue<?> _queue;
@@ -488,6 +568,7 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 
                         _queue.recover(message, record);
                         _recoveredCount++;
+                        _recoveredMessageCount.incrementAndGet();
                     }
                     else
                     {
@@ -516,5 +597,48 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         }
     }
 
+    private static final class RecoveredMessage
+    {
+        private final MessageReference<? extends ServerMessage<?>> _reference;
+        private volatile boolean _used;
+
+        private RecoveredMessage(final StoredMessage<?> storedMessage)
+        {
+            StorableMessageMetaData metaData = storedMessage.getMetaData();
+
+            @SuppressWarnings("rawtypes")
+            MessageMetaDataType type = metaData.getType();
+
+            @SuppressWarnings("unchecked")
+            ServerMessage<?> serverMessage = type.createMessage(storedMessage);
+
+            _reference = serverMessage.newReference();
+        }
+
+        private ServerMessage<?> getMessage()
+        {
+            return _reference.getMessage();
+        }
+
+        /**
+         * Records that the message is referenced by a queue or a distributed transaction, so must not be removed
+         * from the store once recovery completes.
+         */
+        private void markUsed()
+        {
+            _used = true;
+        }
+
+        private boolean isUsed()
+        {
+            return _used;
+        }
+
+        private void release()
+        {
+            _reference.release();
+        }
+    }
+
 
 }
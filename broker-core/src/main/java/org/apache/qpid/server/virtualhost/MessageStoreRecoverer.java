@@ -33,4 +33,19 @@ public interface MessageStoreRecoverer
      * completed, this method call has no effect.
      */
     void cancel();
+
+    /**
+     * @return the number of message instances restored to queues so far
+     */
+    long getRecoveredMessageCount();
+
+    /**
+     * @return the number of queues whose messages are still being recovered
+     */
+    int getRecoveringQueueCount();
+
+    /**
+     * @return the mean number of message instances restored per second since recovery started
+     */
+    long getRecoveryRate();
 }
@@ -147,6 +147,17 @@ public class MockConsumer implements ConsumerTarget
         return size;
     }
 
+    @Override
+    public long send(final ConsumerImpl consumer, final List<? extends MessageInstance> entries, final boolean batch)
+    {
+        long size = 0;
+        for (MessageInstance entry : entries)
+        {
+            size += send(consumer, entry, batch);
+        }
+        return size;
+    }
+
     @Override
     public boolean hasMessagesToSend()
     {
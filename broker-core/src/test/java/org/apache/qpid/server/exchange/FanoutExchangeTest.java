@@ -206,6 +206,31 @@ public class FanoutExchangeTest extends QpidTestCase
 
     }
 
+    public void testRoutingAfterRemovingFilteredAndUnfilteredBindings() throws Exception
+    {
+        Queue<?> queue1 = mockQueue();
+        Queue<?> queue2 = mockQueue();
+
+        _exchange.addBinding("key", queue1, null);
+        _exchange.addBinding("key", queue2, Collections.singletonMap(AMQPFilterTypes.JMS_SELECTOR.toString(), (Object) "select = True"));
+        _exchange.addBinding("key2", queue2, Collections.singletonMap(AMQPFilterTypes.JMS_SELECTOR.toString(), (Object) "select = True"));
+
+        List<? extends BaseQueue> result = _exchange.route(mockMessage(true), "", InstanceProperties.EMPTY);
+        assertEquals("Expected message to be routed to both queues", 2, result.size());
+
+        _exchange.deleteBinding("key", queue2);
+
+        result = _exchange.route(mockMessage(true), "", InstanceProperties.EMPTY);
+        assertEquals("Expected remaining filtered binding to still match", 2, result.size());
+        assertTrue("Expected queue2 to be routed to", result.contains(queue2));
+
+        _exchange.deleteBinding("key2", queue2);
+        _exchange.deleteBinding("key", queue1);
+
+        result = _exchange.route(mockMessage(true), "", InstanceProperties.EMPTY);
+        assertTrue("Expected message not to be routed once all bindings are removed", result.isEmpty());
+    }
+
     private ServerMessage mockMessage(boolean val)
     {
         final AMQMessageHeader header = mock(AMQMessageHeader.class);
@@ -211,6 +211,26 @@ public class HeadersExchangeTest extends QpidTestCase
         routeAndTest(mockMessage(getArgsMapFromStrings("F0002")));
     }
 
+    public void testManyBindingsOnCommonHeader() throws Exception
+    {
+        Queue<?>[] queues = new Queue<?>[20];
+        for (int i = 0; i < queues.length; i++)
+        {
+            queues[i] = createAndBind("Q" + i, "user=" + i, "F0000");
+        }
+
+        routeAndTest(mockMessage(getArgsMapFromStrings("user=7", "F0000")), queues[7]);
+        routeAndTest(mockMessage(getArgsMapFromStrings("user=7")));
+        routeAndTest(mockMessage(getArgsMapFromStrings("user=20", "F0000")));
+
+        Queue<?> q = createAndBind("QAny", "user=7", "F0001", "X-match=any");
+        routeAndTest(mockMessage(getArgsMapFromStrings("user=7", "F0001")), q);
+        routeAndTest(mockMessage(getArgsMapFromStrings("user=7", "F0000", "F0001")), queues[7], q);
+
+        _exchange.deleteBinding("Q7", queues[7]);
+        routeAndTest(mockMessage(getArgsMapFromStrings("user=7", "F0000")), q);
+    }
+
     public void testOnUnbind() throws Exception
     {
         Queue<?> q1 = createAndBind("Q1", "F0000");
@@ -467,6 +467,37 @@ public class TopicExchangeTest extends QpidTestCase
         _exchange.delete();
     }
 
+    public void testUnbindStopsRoutingAndRebindRestoresIt() throws Exception
+    {
+        Queue<?> queue = createQueue("queue1");
+        createBinding(UUID.randomUUID(), "a.#", queue, _exchange, null);
+
+        Assert.assertEquals("Message should route to the bound queue", 1, routeMessage("a.b", 0l));
+
+        _exchange.deleteBinding("a.#", queue);
+        Assert.assertEquals("Message should not route after unbind", 0, routeMessage("a.b", 1l));
+
+        createBinding(UUID.randomUUID(), "a.#", queue, _exchange, null);
+        Assert.assertEquals("Message should route after rebind", 1, routeMessage("a.b", 2l));
+        Assert.assertEquals(2, queue.getQueueDepthMessages());
+    }
+
+    public void testManyWildcardsAgainstLongRoutingKey() throws Exception
+    {
+        Queue<?> queue = createQueue("queue1");
+        createBinding(UUID.randomUUID(), "#.a.#.a.#.a.#.a.#.a.#.a.#.a.#.b", queue, _exchange, null);
+
+        StringBuilder routingKey = new StringBuilder("a");
+        for(int i = 0; i < 63; i++)
+        {
+            routingKey.append(".a");
+        }
+
+        // would take exponential time if every way of splitting the key between the '#'s were tried
+        Assert.assertEquals("Message should not route", 0, routeMessage(routingKey.toString(), 0l));
+        Assert.assertEquals("Message should route", 1, routeMessage(routingKey + ".b", 1l));
+    }
+
     private BindingImpl createBinding(UUID id,
                                       String bindingKey,
                                       Queue<?> queue,
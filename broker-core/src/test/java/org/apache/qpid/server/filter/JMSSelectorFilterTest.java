@@ -18,6 +18,12 @@
  */
 package org.apache.qpid.server.filter;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.apache.qpid.filter.FilterableMessage;
+import org.apache.qpid.filter.PropertyValueConstraint;
 import org.apache.qpid.test.utils.QpidTestCase;
 
 public class JMSSelectorFilterTest extends QpidTestCase
@@ -37,6 +43,28 @@ public class JMSSelectorFilterTest extends QpidTestCase
         assertNotEqual(filter1, differentFilter);
     }
 
+    public void testPropertyValueConstraint() throws Exception
+    {
+        PropertyValueConstraint<FilterableMessage> equality =
+                new JMSSelectorFilter("JMSCorrelationID = 'abc'").getPropertyValueConstraint();
+        assertNotNull("Equality should yield a constraint", equality);
+        assertEquals(Collections.singleton("abc"), equality.getValues());
+        assertTrue(equality.mightMatch("abc"));
+        assertFalse(equality.mightMatch("xyz"));
+        assertFalse(equality.mightMatch(null));
+
+        PropertyValueConstraint<FilterableMessage> in =
+                new JMSSelectorFilter("size > 5 AND colour IN ('red', 'blue')").getPropertyValueConstraint();
+        assertNotNull("IN within AND should yield a constraint", in);
+        assertEquals(new HashSet<>(Arrays.asList("red", "blue")), in.getValues());
+        assertEquals("colour", in.getProperty().toString());
+
+        assertNull(new JMSSelectorFilter("colour = 'red' OR colour = 'blue'").getPropertyValueConstraint());
+        assertNull(new JMSSelectorFilter("NOT colour = 'red'").getPropertyValueConstraint());
+        assertNull(new JMSSelectorFilter("colour NOT IN ('red')").getPropertyValueConstraint());
+        assertNull(new JMSSelectorFilter("size = 5").getPropertyValueConstraint());
+    }
+
     private void assertEqualsAndHashCodeMatch(JMSSelectorFilter filter1, JMSSelectorFilter filter2)
     {
         String message = filter1 + " and " + filter2 + " should be equal";
@@ -143,4 +143,25 @@ public class AbstractServerMessageTest extends QpidTestCase
         }
 
     }
+
+    public void testConvertedMessagesDiscardedWhenMessageDeleted()
+    {
+        TestMessage<StorableMessageMetaData> msg = new TestMessage<StorableMessageMetaData>(mock(StoredMessage.class),this);
+        TestMessage<StorableMessageMetaData> converted = new TestMessage<StorableMessageMetaData>(mock(StoredMessage.class),this);
+        MessageConversionCache cache = new MessageConversionCache(1024l);
+
+        MessageReference<TestMessage<StorableMessageMetaData>> ref = msg.newReference();
+        assertNull(msg.getConvertedMessage(TestMessage.class));
+
+        assertTrue(msg.addConvertedMessage(TestMessage.class, converted, 0l, cache));
+        assertSame(converted, msg.getConvertedMessage(TestMessage.class));
+        assertFalse("Should not cache a second conversion to the same class",
+                    msg.addConvertedMessage(TestMessage.class, converted, 0l, cache));
+
+        ref.release();
+
+        assertNull("Conversion should be discarded with the message", msg.getConvertedMessage(TestMessage.class));
+        assertFalse("Should not cache conversions of a deleted message",
+                    msg.addConvertedMessage(TestMessage.class, converted, 0l, cache));
+    }
 }
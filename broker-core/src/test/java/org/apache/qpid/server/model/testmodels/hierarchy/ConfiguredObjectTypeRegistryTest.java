@@ -37,6 +37,7 @@ import org.apache.qpid.server.model.ConfiguredObjectAttribute;
 import org.apache.qpid.server.model.ConfiguredObjectOperation;
 import org.apache.qpid.server.model.ConfiguredObjectTypeRegistry;
 import org.apache.qpid.server.model.ConfiguredSettableAttribute;
+import org.apache.qpid.server.model.ManagedAttributeAccessors;
 import org.apache.qpid.server.model.ManagedInterface;
 import org.apache.qpid.test.utils.QpidTestCase;
 
@@ -145,4 +146,24 @@ public class ConfiguredObjectTypeRegistryTest extends QpidTestCase
                    Lists.newArrayList("GREY", "BLACK"),
                    attribute.validValues());
     }
+
+    public void testAttributesReadThroughGeneratedAccessors() throws Exception
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(ConfiguredObject.NAME, "testKitCar");
+        attributes.put(ConfiguredObject.TYPE, TestKitCarImpl.TEST_KITCAR_TYPE);
+        attributes.put("bodyColour", TestCar.Colour.RED);
+
+        TestCar object = TestModel.getInstance().getObjectFactory().create(TestCar.class, attributes);
+
+        ManagedAttributeAccessors accessors =
+                (ManagedAttributeAccessors) Class.forName(TestCar.class.getName() + "Accessors").newInstance();
+        int index = accessors.getIndex("getBodyColour");
+        assertTrue("Accessor not generated for bodyColour", index >= 0);
+        assertEquals("Unexpected value from generated accessor", TestCar.Colour.RED, accessors.getValue(index, object));
+        assertEquals("Accessor generated for an operation", -1, accessors.getIndex("openDoor"));
+
+        ConfiguredObjectAttribute attribute = _typeRegistry.getAttributeTypes(TestCar.class).get("bodyColour");
+        assertEquals("Unexpected attribute value", TestCar.Colour.RED, attribute.getValue(object));
+    }
 }
@@ -26,6 +26,7 @@ import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -56,6 +57,7 @@ import org.apache.qpid.server.consumer.MockConsumer;
 import org.apache.qpid.server.exchange.DirectExchange;
 import org.apache.qpid.server.message.AMQMessageHeader;
 import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.MessageInfo;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.MessageReference;
 import org.apache.qpid.server.message.MessageSource;
@@ -63,9 +65,11 @@ import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.model.QueueNotificationListener;
 import org.apache.qpid.server.queue.AbstractQueue.QueueEntryFilter;
+import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.util.Action;
 import org.apache.qpid.server.util.BrokerTestHelper;
+import org.apache.qpid.server.util.TimingWheel;
 import org.apache.qpid.test.utils.QpidTestCase;
 
 abstract class AbstractQueueTestBase extends QpidTestCase
@@ -247,7 +251,8 @@ abstract class AbstractQueueTestBase extends QpidTestCase
 
         ServerMessage messageA = createMessage(new Long(24));
         AMQMessageHeader messageHeader = messageA.getMessageHeader();
-        when(messageHeader.getNotValidBefore()).thenReturn(System.currentTimeMillis()+20000L);
+        final long notValidBefore = System.currentTimeMillis()+20000L;
+        when(messageHeader.getNotValidBefore()).thenReturn(notValidBefore);
         _queue.enqueue(messageA, null, null);
         _consumer = (QueueConsumer<?>) _queue.addConsumer(_consumerTarget, null, messageA.getClass(), "test",
                                                           EnumSet.of(ConsumerImpl.Option.ACQUIRES,
@@ -256,7 +261,7 @@ abstract class AbstractQueueTestBase extends QpidTestCase
 
         assertEquals("Message which was not yet valid was received", 0, _consumerTarget.getMessages().size());
         when(messageHeader.getNotValidBefore()).thenReturn(System.currentTimeMillis()-100L);
-        _queue.checkMessageStatus();
+        advanceTimingWheel(notValidBefore);
         Thread.sleep(QUEUE_RUNNER_WAIT_TIME);
         assertEquals("Message which was valid was not received", 1, _consumerTarget.getMessages().size());
     }
@@ -296,7 +301,8 @@ abstract class AbstractQueueTestBase extends QpidTestCase
 
         ServerMessage messageA = createMessage(new Long(24));
         AMQMessageHeader messageHeader = messageA.getMessageHeader();
-        when(messageHeader.getNotValidBefore()).thenReturn(System.currentTimeMillis()+20000L);
+        final long notValidBefore = System.currentTimeMillis()+20000L;
+        when(messageHeader.getNotValidBefore()).thenReturn(notValidBefore);
         _queue.enqueue(messageA, null, null);
         ServerMessage messageB = createMessage(new Long(25));
         _queue.enqueue(messageB, null, null);
@@ -310,7 +316,7 @@ abstract class AbstractQueueTestBase extends QpidTestCase
         assertEquals("Wrong message received", messageB.getMessageHeader().getMessageId(), _consumerTarget.getMessages().get(0).getMessage().getMessageHeader().getMessageId());
 
         when(messageHeader.getNotValidBefore()).thenReturn(System.currentTimeMillis()-100L);
-        _queue.checkMessageStatus();
+        advanceTimingWheel(notValidBefore);
         Thread.sleep(QUEUE_RUNNER_WAIT_TIME);
         assertEquals("Message which was valid was not received", 2, _consumerTarget.getMessages().size());
         assertEquals("Wrong message received", messageA.getMessageHeader().getMessageId(), _consumerTarget.getMessages().get(1).getMessage().getMessageHeader().getMessageId());
@@ -765,6 +771,48 @@ abstract class AbstractQueueTestBase extends QpidTestCase
         assertEquals("Message ID was wrong", msgID, 10L);
     }
 
+    public void testBrowseMessagesInPages() throws Exception
+    {
+        for (int i = 1 ; i <= 5; i++)
+        {
+            _queue.enqueue(createMessage(new Long(i)), null, null);
+        }
+
+        List<MessageInfo> page = _queue.browseMessages(-1L, 2, false);
+        assertEquals("Unexpected first page size", 2, page.size());
+        assertEquals("Message ID was wrong", 1L, page.get(0).getId());
+        assertEquals("Message ID was wrong", 2L, page.get(1).getId());
+
+        // remove the first message of the next page
+        dequeueMessage(_queue, 2);
+
+        page = _queue.browseMessages(page.get(1).getId(), 2, false);
+        assertEquals("Unexpected second page size", 2, page.size());
+        assertEquals("Message ID was wrong", 4L, page.get(0).getId());
+        assertEquals("Message ID was wrong", 5L, page.get(1).getId());
+
+        page = _queue.browseMessages(page.get(1).getId(), 2, false);
+        assertTrue("Expected no messages after the last page", page.isEmpty());
+
+        // a page boundary which has not been seen before is found by walking the queue
+        page = _queue.browseMessages(1L, 10, false);
+        assertEquals("Unexpected page size", 3, page.size());
+        assertEquals("Message ID was wrong", 2L, page.get(0).getId());
+        assertEquals("Message ID was wrong", 4L, page.get(1).getId());
+        assertEquals("Message ID was wrong", 5L, page.get(2).getId());
+
+        // a message which has left the queue cannot be resumed from unless it ended a page
+        try
+        {
+            _queue.browseMessages(3L, 10, false);
+            fail("Exception not thrown");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // pass
+        }
+    }
+
     /**
      * Tests that dequeued message is not present in the list returned form
      * {@link AbstractQueue#getMessagesOnTheQueue()}
@@ -912,6 +960,62 @@ abstract class AbstractQueueTestBase extends QpidTestCase
         verify(listener, atLeastOnce()).notifyClients(eq(NotificationCheck.MESSAGE_COUNT_ALERT), eq(_queue), contains("Maximum count on queue threshold"));
     }
 
+    public void testHousekeepingOnlyRevisitsEntriesAfterThoseAlreadyFlowedToDisk() throws Exception
+    {
+        final AbstractQueue<?> queue = (AbstractQueue<?>) _queue;
+        StoredMessage<?> first = enqueueMessageInMemory(24L);
+        StoredMessage<?> second = enqueueMessageInMemory(25L);
+
+        queue.setTargetSize(1000L);
+        queue.checkMessageStatus();
+        verify(first, times(1)).flowToDisk();
+        verify(second, times(1)).flowToDisk();
+
+        StoredMessage<?> third = enqueueMessageInMemory(26L);
+        verify(third, times(1)).flowToDisk();
+
+        // the queue remains above the same target, so the entries already visited are not rescanned
+        queue.checkMessageStatus();
+        verify(first, times(1)).flowToDisk();
+        verify(second, times(1)).flowToDisk();
+        verify(third, times(2)).flowToDisk();
+
+        queue.checkMessageStatus();
+        verify(third, times(2)).flowToDisk();
+
+        // a reduced target requires the whole queue to be revisited
+        queue.setTargetSize(500L);
+        queue.checkMessageStatus();
+        verify(first, times(2)).flowToDisk();
+        verify(second, times(2)).flowToDisk();
+        verify(third, times(3)).flowToDisk();
+    }
+
+    public void testExpiredMessagesRemovedByHousekeeping() throws Exception
+    {
+        ServerMessage expiredMessage = createMessage(new Long(24));
+        when(expiredMessage.getExpiration()).thenReturn(System.currentTimeMillis() - 1000L);
+        ServerMessage liveMessage = createMessage(new Long(25));
+        when(liveMessage.getExpiration()).thenReturn(System.currentTimeMillis() + 60000L);
+        ServerMessage eternalMessage = createMessage(new Long(26));
+
+        _queue.enqueue(expiredMessage, null, null);
+        _queue.enqueue(liveMessage, null, null);
+        _queue.enqueue(eternalMessage, null, null);
+
+        assertEquals("Unexpected queue depth before housekeeping", 3, _queue.getQueueDepthMessages());
+
+        advanceTimingWheel(System.currentTimeMillis());
+
+        assertEquals("Expired message was not removed", 2, _queue.getQueueDepthMessages());
+        List<ServerMessage> remaining = new ArrayList<>();
+        for (QueueEntry entry : _queue.getMessagesOnTheQueue())
+        {
+            remaining.add(entry.getMessage());
+        }
+        assertTrue("Unexpired message was removed", remaining.contains(liveMessage));
+        assertTrue("Message without expiration was removed", remaining.contains(eternalMessage));
+    }
 
     public void testMaximumMessageTtl() throws Exception
     {
@@ -990,6 +1094,15 @@ abstract class AbstractQueueTestBase extends QpidTestCase
         assertEquals(10l,queue.getOldestMessageArrivalTime());
     }
 
+    /**
+     * Runs the timeouts due up to the given time; the test virtual host does not turn its timing wheel itself.
+     */
+    private void advanceTimingWheel(final long time)
+    {
+        final TimingWheel timingWheel = _virtualHost.getTimingWheel();
+        timingWheel.advance(time + timingWheel.getTickPeriod());
+    }
+
     private long getExpirationOnQueue(final Queue<?> queue, long arrivalTime, long expiration)
     {
         final List<QueueEntry> entries = new ArrayList<>();
@@ -1192,6 +1305,17 @@ abstract class AbstractQueueTestBase extends QpidTestCase
         return message;
     }
 
+    private StoredMessage<?> enqueueMessageInMemory(final long id)
+    {
+        ServerMessage message = createMessage(id);
+        StoredMessage storedMessage = mock(StoredMessage.class);
+        when(storedMessage.isInMemory()).thenReturn(true);
+        when(message.getStoredMessage()).thenReturn(storedMessage);
+        when(message.getSize()).thenReturn(1000L);
+        _queue.enqueue(message, null, null);
+        return storedMessage;
+    }
+
     private static class EntryListAddingAction implements Action<MessageInstance>
     {
         private final ArrayList<QueueEntry> _queueEntries;
@@ -0,0 +1,248 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.apache.qpid.common.AMQPFilterTypes;
+import org.apache.qpid.server.consumer.ConsumerImpl;
+import org.apache.qpid.server.consumer.MockConsumer;
+import org.apache.qpid.server.filter.FilterManager;
+import org.apache.qpid.server.filter.JMSSelectorFilter;
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.util.BrokerTestHelper;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class QueueSelectorIndexTest extends QpidTestCase
+{
+    private VirtualHost<?> _virtualHost;
+    private AbstractQueue<?> _queue;
+    private long _messageNumber;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        BrokerTestHelper.setUp();
+        _virtualHost = BrokerTestHelper.createVirtualHost(getClass().getName());
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Queue.NAME, getTestName());
+        attributes.put(ConfiguredObject.CONTEXT, Collections.singletonMap(Queue.SELECTOR_INDEX_ENABLED, "true"));
+        _queue = (AbstractQueue<?>) _virtualHost.createChild(Queue.class, attributes);
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            _queue.close();
+            _virtualHost.close();
+        }
+        finally
+        {
+            BrokerTestHelper.tearDown();
+            super.tearDown();
+        }
+    }
+
+    public void testIndexNotCreatedByDefault() throws Exception
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Queue.NAME, getTestName() + "Unindexed");
+        Queue<?> queue = _virtualHost.createChild(Queue.class, attributes);
+        try
+        {
+            assertNull("Selector index should only be created when enabled",
+                       ((AbstractQueue<?>) queue).getSelectorIndex());
+        }
+        finally
+        {
+            queue.close();
+        }
+    }
+
+    public void testMightMatch() throws Exception
+    {
+        QueueConsumerImpl red = addConsumer(new MockConsumer(), "colour = 'red'");
+        QueueConsumerImpl redOrBlue = addConsumer(new MockConsumer(), "colour IN ('red', 'blue') AND size > 2");
+
+        _queue.enqueue(createMessage(Collections.<String, Object>singletonMap("colour", "blue")), null, null);
+        QueueEntry entry = _queue.getMessagesOnTheQueue().get(0);
+
+        QueueSelectorIndex index = _queue.getSelectorIndex();
+        assertFalse("Entry should be excluded by the indexed property",
+                    index.mightMatch(entry, entry.asFilterable(), red.getPropertyValueConstraint()));
+        assertTrue("Entry should remain a candidate for the IN constraint",
+                   index.mightMatch(entry, entry.asFilterable(), redOrBlue.getPropertyValueConstraint()));
+    }
+
+    public void testConsumersOnlyReceiveMatchingMessages() throws Exception
+    {
+        MockConsumer red = new MockConsumer();
+        MockConsumer blue = new MockConsumer();
+        addConsumer(red, "colour = 'red'");
+        addConsumer(blue, "colour = 'blue'");
+
+        ServerMessage redMessage = createMessage(Collections.<String, Object>singletonMap("colour", "red"));
+        ServerMessage blueMessage = createMessage(Collections.<String, Object>singletonMap("colour", "blue"));
+        _queue.enqueue(redMessage, null, null);
+        _queue.enqueue(createMessage(Collections.<String, Object>singletonMap("colour", "green")), null, null);
+        _queue.enqueue(blueMessage, null, null);
+
+        waitForMessages(red, 1);
+        waitForMessages(blue, 1);
+        assertSame("Unexpected message for red consumer", redMessage, red.getMessages().get(0).getMessage());
+        assertSame("Unexpected message for blue consumer", blueMessage, blue.getMessages().get(0).getMessage());
+    }
+
+    public void testRemovedConsumerNoLongerIndexed() throws Exception
+    {
+        QueueConsumerImpl red = addConsumer(new MockConsumer(), "colour = 'red'");
+        red.close();
+
+        _queue.enqueue(createMessage(Collections.<String, Object>singletonMap("colour", "blue")), null, null);
+        QueueEntry entry = _queue.getMessagesOnTheQueue().get(0);
+
+        assertTrue("Property of a removed consumer should no longer be indexed",
+                   _queue.getSelectorIndex().mightMatch(entry, entry.asFilterable(), red.getPropertyValueConstraint()));
+
+        MockConsumer blue = new MockConsumer();
+        addConsumer(blue, "colour = 'blue'");
+        waitForMessages(blue, 1);
+    }
+
+    public void testCachedValuesRecalculatedWhenIndexedPropertiesChange() throws Exception
+    {
+        MockConsumer red = new MockConsumer();
+        addConsumer(red, "colour = 'red'");
+
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("colour", "blue");
+        headers.put("size", "small");
+        _queue.enqueue(createMessage(headers), null, null);
+        QueueEntry entry = _queue.getMessagesOnTheQueue().get(0);
+
+        // the red consumer has considered the entry, caching the values of the properties indexed at the time
+        assertFalse(_queue.getSelectorIndex().mightMatch(entry, entry.asFilterable(),
+                                                          getConsumer(red).getPropertyValueConstraint()));
+
+        MockConsumer small = new MockConsumer();
+        addConsumer(small, "size = 'small'");
+        waitForMessages(small, 1);
+        assertEquals("Red consumer should not have received the message", 0, red.getMessages().size());
+    }
+
+    public void testNonIndexableSelectorFallsBackToFullEvaluation() throws Exception
+    {
+        MockConsumer red = new MockConsumer();
+        MockConsumer redOrSmall = new MockConsumer();
+        addConsumer(red, "colour = 'red'");
+        QueueConsumerImpl unindexed = addConsumer(redOrSmall, "colour = 'red' OR size = 'small'");
+        assertNull("Disjunction should not yield an indexable constraint", unindexed.getPropertyValueConstraint());
+
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("colour", "blue");
+        headers.put("size", "small");
+        ServerMessage blueSmall = createMessage(headers);
+        _queue.enqueue(blueSmall, null, null);
+        _queue.enqueue(createMessage(Collections.<String, Object>singletonMap("colour", "blue")), null, null);
+
+        waitForMessages(redOrSmall, 1);
+        assertSame("Unexpected message for unindexed consumer", blueSmall, redOrSmall.getMessages().get(0).getMessage());
+        assertEquals("Red consumer should not have received any message", 0, red.getMessages().size());
+    }
+
+    private QueueConsumerImpl addConsumer(final MockConsumer target, final String selector) throws Exception
+    {
+        FilterManager filters = new FilterManager();
+        filters.add(AMQPFilterTypes.JMS_SELECTOR.toString(), new JMSSelectorFilter(selector));
+        return _queue.addConsumer(target, filters, createMessage(Collections.<String, Object>emptyMap()).getClass(),
+                                  selector, EnumSet.of(ConsumerImpl.Option.ACQUIRES, ConsumerImpl.Option.SEES_REQUEUES));
+    }
+
+    private QueueConsumerImpl getConsumer(final MockConsumer target)
+    {
+        for (QueueConsumer<?> consumer : _queue.getConsumers())
+        {
+            if (consumer.getTarget() == target)
+            {
+                return (QueueConsumerImpl) consumer;
+            }
+        }
+        fail("Consumer not found");
+        return null;
+    }
+
+    private ServerMessage createMessage(final Map<String, Object> headers)
+    {
+        final long id = _messageNumber++;
+        AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getMessageId()).thenReturn(String.valueOf(id));
+        when(header.getHeaderNames()).thenReturn(headers.keySet());
+        when(header.getHeader(anyString())).thenAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable
+            {
+                return headers.get(invocation.getArguments()[0]);
+            }
+        });
+
+        ServerMessage message = mock(ServerMessage.class);
+        when(message.getMessageNumber()).thenReturn(id);
+        when(message.getMessageHeader()).thenReturn(header);
+
+        MessageReference ref = mock(MessageReference.class);
+        when(ref.getMessage()).thenReturn(message);
+        when(message.newReference()).thenReturn(ref);
+        when(message.newReference(any(TransactionLogResource.class))).thenReturn(ref);
+        return message;
+    }
+
+    private void waitForMessages(final MockConsumer target, final int expected) throws InterruptedException
+    {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (target.getMessages().size() < expected && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals("Unexpected number of delivered messages", expected, target.getMessages().size());
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.qpid.server.consumer.ConsumerImpl;
+import org.apache.qpid.server.message.MessageInstance;
+import org.apache.qpid.server.message.ServerMessage;
+
+public class ShardedQueueTest extends AbstractQueueTestBase
+{
+    private static final int SHARDS = 4;
+    private static final int MESSAGES_PER_PUBLISHER = 25;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        setArguments(Collections.singletonMap(ShardedQueue.SHARDS, (Object) SHARDS));
+        super.setUp();
+    }
+
+    public void testShards()
+    {
+        assertTrue("Unexpected queue type", getQueue() instanceof ShardedQueueImpl);
+        assertEquals("Unexpected number of shards", SHARDS, ((ShardedQueueImpl) getQueue()).getShards());
+    }
+
+    public void testConcurrentPublishersDeliverAllMessagesInPublisherOrder() throws Exception
+    {
+        final AbstractQueue<?> queue = (AbstractQueue<?>) getQueue();
+        queue.addConsumer(getConsumer(), null, null, "test", EnumSet.noneOf(ConsumerImpl.Option.class));
+
+        List<Thread> publishers = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++)
+        {
+            final long firstMessageNumber = i * MESSAGES_PER_PUBLISHER;
+            publishers.add(new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (long j = 0; j < MESSAGES_PER_PUBLISHER; j++)
+                    {
+                        queue.enqueue(createMessage(firstMessageNumber + j), null, null);
+                    }
+                }
+            }));
+        }
+        for (Thread publisher : publishers)
+        {
+            publisher.start();
+        }
+        for (Thread publisher : publishers)
+        {
+            publisher.join(10000);
+        }
+
+        int expected = SHARDS * MESSAGES_PER_PUBLISHER;
+        long timeout = System.currentTimeMillis() + 10000;
+        while (getConsumer().getMessages().size() < expected && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(10);
+        }
+
+        List<MessageInstance> messages = new ArrayList<>(getConsumer().getMessages());
+        assertEquals("Unexpected number of delivered messages", expected, messages.size());
+
+        Map<Long, Long> lastSeenByPublisher = new HashMap<>();
+        for (MessageInstance message : messages)
+        {
+            long messageNumber = message.getMessage().getMessageNumber();
+            long publisher = messageNumber / MESSAGES_PER_PUBLISHER;
+            Long previous = lastSeenByPublisher.put(publisher, messageNumber);
+            assertTrue("Messages of publisher " + publisher + " delivered out of order",
+                       previous == null || previous < messageNumber);
+        }
+    }
+
+    public void testConsumerTakesMessagesFromShardsInTurn() throws Exception
+    {
+        enqueueOnShard(0, 1L);
+        enqueueOnShard(0, 2L);
+        enqueueOnShard(2, 3L);
+        enqueueOnShard(2, 4L);
+
+        getQueue().addConsumer(getConsumer(), null, null, "test", EnumSet.of(ConsumerImpl.Option.ACQUIRES));
+        waitForMessages(4);
+
+        assertEquals("Unexpected delivery order", Arrays.asList(1L, 3L, 2L, 4L), getDeliveredMessageNumbers());
+    }
+
+    public void testMessageEnqueuedToShardBehindConsumerIsDelivered() throws Exception
+    {
+        getQueue().addConsumer(getConsumer(), null, null, "test", EnumSet.of(ConsumerImpl.Option.ACQUIRES));
+
+        enqueueOnShard(SHARDS - 1, 1L);
+        waitForMessages(1);
+
+        enqueueOnShard(0, 2L);
+        waitForMessages(2);
+
+        assertEquals("Unexpected delivered messages", Arrays.asList(1L, 2L), getDeliveredMessageNumbers());
+    }
+
+    public void testMessagesReleasedInDifferentShardsAreRedelivered() throws Exception
+    {
+        getQueue().addConsumer(getConsumer(), null, null, "test",
+                               EnumSet.of(ConsumerImpl.Option.ACQUIRES, ConsumerImpl.Option.SEES_REQUEUES));
+
+        enqueueOnShard(1, 1L);
+        enqueueOnShard(3, 2L);
+        waitForMessages(2);
+
+        List<MessageInstance> delivered = new ArrayList<>(getConsumer().getMessages());
+        delivered.get(1).release();
+        delivered.get(0).release();
+        waitForMessages(4);
+
+        List<Long> redelivered = getDeliveredMessageNumbers().subList(2, 4);
+        assertEquals("Unexpected redelivered messages",
+                     new HashSet<>(Arrays.asList(1L, 2L)), new HashSet<>(redelivered));
+        assertTrue("Redelivery flag should be set", delivered.get(0).isRedelivered());
+        assertTrue("Redelivery flag should be set", delivered.get(1).isRedelivered());
+    }
+
+    /**
+     * Enqueues from a new thread whose id selects the given shard.
+     */
+    private void enqueueOnShard(final int shard, final long messageNumber) throws InterruptedException
+    {
+        final ServerMessage message = createMessage(messageNumber);
+        Thread publisher;
+        do
+        {
+            publisher = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    getQueue().enqueue(message, null, null);
+                }
+            });
+        }
+        while (publisher.getId() % SHARDS != shard);
+        publisher.start();
+        publisher.join(10000);
+    }
+
+    private void waitForMessages(final int expected) throws InterruptedException
+    {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (getConsumer().getMessages().size() < expected && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals("Unexpected number of delivered messages", expected, getConsumer().getMessages().size());
+    }
+
+    private List<Long> getDeliveredMessageNumbers()
+    {
+        List<Long> messageNumbers = new ArrayList<>();
+        for (MessageInstance message : getConsumer().getMessages())
+        {
+            messageNumbers.add(message.getMessage().getMessageNumber());
+        }
+        return messageNumbers;
+    }
+}
@@ -21,11 +21,14 @@
 package org.apache.qpid.server.queue;
 
 import java.security.AccessController;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -239,6 +242,61 @@ public class StandardQueueTest extends AbstractQueueTestBase
         verifyReceivedMessages(expected, consumer.getMessages());
     }
 
+    /**
+     * Tests that entries available to a consumer are acquired and handed to its target as a single batch
+     */
+    public void testProcessQueueDeliversAvailableEntriesAsBatch() throws Exception
+    {
+        int messageNumber = 4;
+
+        Map<String,Object> queueAttributes = new HashMap<>();
+        queueAttributes.put(Queue.NAME, "test");
+        StandardQueueImpl testQueue = new StandardQueueImpl(queueAttributes, getVirtualHost());
+        testQueue.create();
+
+        List<StandardQueueEntry> entries =
+                (List<StandardQueueEntry>) enqueueGivenNumberOfMessages(testQueue, messageNumber);
+
+        final CountDownLatch latch = new CountDownLatch(messageNumber);
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        MockConsumer consumer = new MockConsumer()
+        {
+            @Override
+            public long send(final ConsumerImpl consumer, final List<? extends MessageInstance> entries, boolean batch)
+            {
+                batchSizes.add(entries.size());
+                return super.send(consumer, entries, batch);
+            }
+
+            @Override
+            public long send(final ConsumerImpl consumer, MessageInstance entry, boolean batch)
+            {
+                long size = super.send(consumer, entry, batch);
+                latch.countDown();
+                return size;
+            }
+        };
+
+        testQueue.addConsumer(consumer,
+                              null,
+                              entries.get(0).getMessage().getClass(),
+                              "test",
+                              EnumSet.of(ConsumerImpl.Option.ACQUIRES,
+                                         ConsumerImpl.Option.SEES_REQUEUES));
+
+        testQueue.processQueue(new QueueRunner(testQueue, AccessController.getContext())
+        {
+            public void run()
+            {
+                // do nothing
+            }
+        });
+
+        assertTrue("Messages were not delivered", latch.await(10, TimeUnit.SECONDS));
+        verifyReceivedMessages(new ArrayList<MessageInstance>(entries), consumer.getMessages());
+        assertEquals("Unexpected batches", Collections.singletonList(messageNumber), batchSizes);
+    }
+
     public void testNonDurableImpliesMessageDurabilityNever() throws Exception
     {
         getQueue().close();
@@ -34,6 +34,8 @@ import static org.mockito.Mockito.when;
 import java.security.AccessControlException;
 import java.util.Collections;
 
+import javax.security.auth.Subject;
+
 import org.apache.qpid.server.model.AccessControlProvider;
 import org.apache.qpid.server.model.AuthenticationProvider;
 import org.apache.qpid.server.model.Binding;
@@ -391,6 +393,61 @@ public class SecurityManagerTest extends QpidTestCase
         verify(_accessControl, times(2)).authorise(eq(Operation.PUBLISH), eq(ObjectType.EXCHANGE), eq(properties));
     }
 
+    public void testAuthorisePublishWithSessionCache()
+    {
+        String routingKey = "routingKey";
+        String exchangeName = "exchangeName";
+        ObjectProperties properties = new ObjectProperties(TEST_VIRTUAL_HOST, exchangeName, routingKey, false);
+        Subject subject = new Subject();
+        AMQPConnection<?> connection = mock(AMQPConnection.class);
+        when(connection.isAuthorizedMessagePrincipal(any(String.class))).thenReturn(true);
+        PublishAuthorisationCache cache = new PublishAuthorisationCache();
+
+        configureAccessPlugin(Result.ALLOWED);
+        when(_accessControl.isResultCacheable(Operation.PUBLISH, ObjectType.EXCHANGE)).thenReturn(true);
+
+        _securityManager.authorisePublish(false, routingKey, exchangeName, TEST_VIRTUAL_HOST, subject, null, connection, cache);
+        _securityManager.authorisePublish(false, routingKey, exchangeName, TEST_VIRTUAL_HOST, subject, null, connection, cache);
+        verify(_accessControl).authorise(eq(Operation.PUBLISH), eq(ObjectType.EXCHANGE), eq(properties));
+        assertEquals("Unexpected number of cached decisions", 1, cache.size());
+
+        when(_accessControl.isResultCacheable(Operation.PUBLISH, ObjectType.EXCHANGE)).thenReturn(false);
+        _securityManager.authorisePublish(false, routingKey, exchangeName, TEST_VIRTUAL_HOST, subject, null, connection, cache);
+        verify(_accessControl, times(2)).authorise(eq(Operation.PUBLISH), eq(ObjectType.EXCHANGE), eq(properties));
+    }
+
+    public void testAuthorisePublishSessionCacheDiscardedWhenAccessControlChanges()
+    {
+        String routingKey = "routingKey";
+        String exchangeName = "exchangeName";
+        Subject subject = new Subject();
+        AMQPConnection<?> connection = mock(AMQPConnection.class);
+        when(connection.isAuthorizedMessagePrincipal(any(String.class))).thenReturn(true);
+        PublishAuthorisationCache cache = new PublishAuthorisationCache();
+
+        configureAccessPlugin(Result.ALLOWED);
+        when(_accessControl.isResultCacheable(Operation.PUBLISH, ObjectType.EXCHANGE)).thenReturn(true);
+        _securityManager.authorisePublish(false, routingKey, exchangeName, TEST_VIRTUAL_HOST, subject, null, connection, cache);
+
+        AccessControl reloadedAccessControl = mock(AccessControl.class);
+        when(reloadedAccessControl.authorise(any(Operation.class), any(ObjectType.class), any(ObjectProperties.class))).thenReturn(Result.DENIED);
+        when(reloadedAccessControl.isResultCacheable(Operation.PUBLISH, ObjectType.EXCHANGE)).thenReturn(true);
+        AccessControlProvider<?> aclProvider = mock(AccessControlProvider.class);
+        when(aclProvider.getAccessControl()).thenReturn(reloadedAccessControl);
+        when(aclProvider.getState()).thenReturn(State.ACTIVE);
+        when(_broker.getChildren(AccessControlProvider.class)).thenReturn(Collections.singleton(aclProvider));
+
+        try
+        {
+            _securityManager.authorisePublish(false, routingKey, exchangeName, TEST_VIRTUAL_HOST, subject, null, connection, cache);
+            fail("AccessControlException is expected");
+        }
+        catch(AccessControlException e)
+        {
+            // pass
+        }
+    }
+
     public void testAuthorisePurge()
     {
         Queue queue = mock(Queue.class);
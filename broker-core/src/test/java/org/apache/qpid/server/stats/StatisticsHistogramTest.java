@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.server.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+/**
+ * Unit tests for the {@link StatisticsHistogram} class.
+ */
+public class StatisticsHistogramTest extends QpidTestCase
+{
+    /**
+     * Check that an empty histogram reports zero for everything.
+     */
+    public void testEmpty()
+    {
+        StatisticsHistogram histogram = new StatisticsHistogram("test");
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMaximum());
+        assertEquals(0.0d, histogram.getMean());
+        assertEquals(0L, histogram.getValueAtPercentile(99.0d));
+    }
+
+    /**
+     * Check that small values are recorded exactly, and percentiles are reported correctly.
+     */
+    public void testPercentiles()
+    {
+        StatisticsHistogram histogram = new StatisticsHistogram("test");
+        for (int i = 1; i <= 20; i++)
+        {
+            histogram.registerValue(i);
+        }
+        assertEquals(20L, histogram.getCount());
+        assertEquals(20L, histogram.getMaximum());
+        assertEquals(10.5d, histogram.getMean());
+        assertEquals(1L, histogram.getValueAtPercentile(0.0d));
+        assertEquals(10L, histogram.getValueAtPercentile(50.0d));
+        assertEquals(19L, histogram.getValueAtPercentile(95.0d));
+        assertEquals(20L, histogram.getValueAtPercentile(100.0d));
+    }
+
+    /**
+     * Check that large values are reported to within the precision of the buckets.
+     */
+    public void testPrecision()
+    {
+        for (long value = 1L; value > 0L && value < Long.MAX_VALUE / 3L; value = value * 3L + 1L)
+        {
+            StatisticsHistogram histogram = new StatisticsHistogram("test");
+            histogram.registerValue(value);
+            histogram.registerValue(Long.MAX_VALUE);
+            long reported = histogram.getValueAtPercentile(50.0d);
+            assertTrue("Value " + reported + " reported for " + value, reported >= value);
+            assertTrue("Value " + reported + " reported for " + value, reported - value <= value / 32L);
+        }
+    }
+
+    /**
+     * Check that negative values are recorded as zero, and that reset discards all values.
+     */
+    public void testNegativeValueAndReset()
+    {
+        StatisticsHistogram histogram = new StatisticsHistogram("test");
+        histogram.registerValue(-5L);
+        assertEquals(1L, histogram.getCount());
+        assertEquals(0L, histogram.getValueAtPercentile(100.0d));
+
+        histogram.registerValue(1000L);
+        histogram.reset();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMaximum());
+    }
+
+    /**
+     * Check that no values are lost when registered concurrently.
+     */
+    public void testConcurrentRegistration() throws Exception
+    {
+        final StatisticsHistogram histogram = new StatisticsHistogram("test");
+        final int threads = 4;
+        final int values = 10000;
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+        {
+            Thread worker = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (int j = 0; j < values; j++)
+                    {
+                        histogram.registerValue(j);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers)
+        {
+            worker.join();
+        }
+        assertEquals((long) threads * values, histogram.getCount());
+        assertEquals(values - 1L, histogram.getMaximum());
+        assertEquals((values - 1) / 2.0d, histogram.getMean());
+    }
+}
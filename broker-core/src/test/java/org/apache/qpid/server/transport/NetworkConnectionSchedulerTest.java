@@ -0,0 +1,133 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class NetworkConnectionSchedulerTest extends QpidTestCase
+{
+    private static final int THREADS = 2;
+    private static final int TASKS = 100;
+
+    public void testExecuteRunsTasksOnIOThreads() throws Exception
+    {
+        doTestExecute(false);
+    }
+
+    public void testExecuteRunsTasksOnIOThreadsWithConnectionAffinity() throws Exception
+    {
+        doTestExecute(true);
+    }
+
+    public void testWorkMigratesFromBusyIOThreadWithConnectionAffinity() throws Exception
+    {
+        NetworkConnectionScheduler scheduler =
+                new NetworkConnectionScheduler(getTestName(), 1, THREADS, 1L, true, 1);
+        scheduler.start();
+        final CountDownLatch blockerStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBlocker = new CountDownLatch(1);
+        try
+        {
+            final Thread[] blockedThread = new Thread[1];
+            scheduler.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    blockedThread[0] = Thread.currentThread();
+                    blockerStarted.countDown();
+                    try
+                    {
+                        releaseBlocker.await(10, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            assertTrue("Blocking task not run", blockerStarted.await(10, TimeUnit.SECONDS));
+
+            // tasks are spread over the selectors, so half of them queue behind the blocked IO thread; all but
+            // the work stealing threshold's worth must be taken over by the other thread
+            final CountDownLatch completed = new CountDownLatch(TASKS - 1);
+            final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+            for (int i = 0; i < TASKS; i++)
+            {
+                scheduler.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        threads.add(Thread.currentThread());
+                        completed.countDown();
+                    }
+                });
+            }
+
+            assertTrue("Work not taken over from the busy IO thread", completed.await(10, TimeUnit.SECONDS));
+            assertFalse("Task run by the busy IO thread", threads.contains(blockedThread[0]));
+        }
+        finally
+        {
+            releaseBlocker.countDown();
+            scheduler.close();
+        }
+    }
+
+    private void doTestExecute(final boolean connectionAffinity) throws Exception
+    {
+        NetworkConnectionScheduler scheduler =
+                new NetworkConnectionScheduler(getTestName(), 1, THREADS, 1L, connectionAffinity, 1);
+        scheduler.start();
+        try
+        {
+            final CountDownLatch completed = new CountDownLatch(TASKS);
+            final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+            for (int i = 0; i < TASKS; i++)
+            {
+                scheduler.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        threads.add(Thread.currentThread());
+                        completed.countDown();
+                    }
+                });
+            }
+
+            assertTrue("Tasks not run", completed.await(10, TimeUnit.SECONDS));
+            assertFalse("Task run on the calling thread", threads.contains(Thread.currentThread()));
+            assertTrue("Tasks run on more threads than the IO pool has", threads.size() <= THREADS);
+        }
+        finally
+        {
+            scheduler.close();
+        }
+    }
+}
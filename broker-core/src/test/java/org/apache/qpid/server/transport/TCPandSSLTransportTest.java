@@ -53,6 +53,8 @@ import org.apache.qpid.test.utils.QpidTestCase;
 public class TCPandSSLTransportTest extends QpidTestCase
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(TCPandSSLTransportTest.class);
+    private boolean _connectionAffinity;
+    private int _tlsHandshakeThreads = 1;
 
     public void testNoSSLv3SupportOnSSLOnlyPort() throws Exception
     {
@@ -123,7 +125,33 @@ public class TCPandSSLTransportTest extends QpidTestCase
         }
     }
 
+    public void testTLSSupportOnSharedPortWithConnectionAffinity() throws Exception
+    {
+        _connectionAffinity = true;
+        try
+        {
+            checkSSLExcluded("TLSv1.1", Transport.TCP, Transport.SSL);
+        }
+        catch(SSLHandshakeException e)
+        {
+            LOGGER.error("Should be able to connect using TLSv1.1", e);
+            fail("Should be able to connect using TLSv1.1");
+        }
+    }
 
+    public void testTLSSupportOnSharedPortWithHandshakesOnIOThreads() throws Exception
+    {
+        _tlsHandshakeThreads = 0;
+        try
+        {
+            checkSSLExcluded("TLSv1.1", Transport.TCP, Transport.SSL);
+        }
+        catch(SSLHandshakeException e)
+        {
+            LOGGER.error("Should be able to connect using TLSv1.1", e);
+            fail("Should be able to connect using TLSv1.1");
+        }
+    }
 
     private void checkSSLExcluded(String clientProtocol, final Transport... transports) throws Exception
     {
@@ -150,6 +178,10 @@ public class TCPandSSLTransportTest extends QpidTestCase
         when(port.getContextValue(Long.class, AmqpPort.PORT_AMQP_THREAD_POOL_KEEP_ALIVE_TIMEOUT)).thenReturn(1l);
         when(port.getContextValue(Long.class, AmqpPort.PORT_AMQP_OUTBOUND_MESSAGE_BUFFER_SIZE)).thenReturn(AmqpPort.DEFAULT_PORT_AMQP_OUTBOUND_MESSAGE_BUFFER_SIZE);
         when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_ACCEPT_BACKLOG)).thenReturn(AmqpPort.DEFAULT_PORT_AMQP_ACCEPT_BACKLOG);
+        when(port.getContextValue(Boolean.class, AmqpPort.PORT_AMQP_CONNECTION_AFFINITY)).thenReturn(_connectionAffinity);
+        when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_WORK_STEALING_THRESHOLD)).thenReturn(AmqpPort.DEFAULT_PORT_AMQP_WORK_STEALING_THRESHOLD);
+        when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_TLS_HANDSHAKE_THREADS)).thenReturn(_tlsHandshakeThreads);
+        when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_TLS_HANDSHAKE_MAXIMUM_PENDING)).thenReturn(AmqpPort.DEFAULT_PORT_AMQP_TLS_HANDSHAKE_MAXIMUM_PENDING);
         when(port.getProtocolHandshakeTimeout()).thenReturn(AmqpPort.DEFAULT_PROTOCOL_HANDSHAKE_TIMEOUT);
         ObjectMapper mapper = new ObjectMapper();
         JavaType type = mapper.getTypeFactory().constructCollectionType(List.class, String.class);
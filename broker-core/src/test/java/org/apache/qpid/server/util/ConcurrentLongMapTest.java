@@ -0,0 +1,142 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class ConcurrentLongMapTest extends QpidTestCase
+{
+    private ConcurrentLongMap<String> _map;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _map = new ConcurrentLongMap<>(4, 0);
+    }
+
+    public void testPutIfAbsentAndGet()
+    {
+        assertNull("Unexpected previous value", _map.putIfAbsent(1L, "one"));
+        assertEquals("Value replaced", "one", _map.putIfAbsent(1L, "uno"));
+        assertNull("Unexpected previous value", _map.putIfAbsent(-1L, "minus one"));
+
+        assertEquals("Unexpected value", "one", _map.get(1L));
+        assertEquals("Unexpected value", "minus one", _map.get(-1L));
+        assertNull("Unexpected value for absent key", _map.get(2L));
+        assertTrue("Key not found", _map.containsKey(1L));
+        assertFalse("Absent key found", _map.containsKey(0L));
+        assertEquals("Unexpected size", 2, _map.size());
+    }
+
+    public void testGrowsBeyondInitialCapacity()
+    {
+        final int entries = 100000;
+        for (long key = 0; key < entries; key++)
+        {
+            _map.putIfAbsent(key * 31L, String.valueOf(key));
+        }
+        assertEquals("Unexpected size", entries, _map.size());
+        for (long key = 0; key < entries; key++)
+        {
+            assertEquals("Unexpected value for key " + key * 31L, String.valueOf(key), _map.get(key * 31L));
+        }
+
+        final Set<Long> visited = new HashSet<>();
+        _map.visit(new ConcurrentLongMap.Visitor<String>()
+        {
+            @Override
+            public boolean visit(final long key, final String value)
+            {
+                assertEquals("Unexpected value visited", String.valueOf(key / 31L), value);
+                visited.add(key);
+                return false;
+            }
+        });
+        assertEquals("Unexpected number of entries visited", entries, visited.size());
+
+        _map.clear();
+        assertTrue("Map not cleared", _map.isEmpty());
+        assertNull("Value remains after clear", _map.get(31L));
+    }
+
+    public void testComputeIfAbsentLoadsOnce() throws Exception
+    {
+        final int threads = 4;
+        final int keys = 10000;
+        final AtomicInteger loads = new AtomicInteger();
+        final ConcurrentLongMap.Loader<String> loader = new ConcurrentLongMap.Loader<String>()
+        {
+            @Override
+            public String load(final long key)
+            {
+                loads.incrementAndGet();
+                return key % 10L == 0L ? null : String.valueOf(key);
+            }
+        };
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+        {
+            Thread worker = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (long key = 0; key < keys; key++)
+                    {
+                        _map.computeIfAbsent(key, loader);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers)
+        {
+            worker.join();
+        }
+
+        final int nullKeys = keys / 10;
+        assertEquals("Unexpected size", keys - nullKeys, _map.size());
+        assertEquals("Unexpected number of loads", keys - nullKeys + threads * nullKeys, loads.get());
+        assertEquals("Unexpected value", "7", _map.get(7L));
+        assertFalse("Key without value found", _map.containsKey(10L));
+    }
+}
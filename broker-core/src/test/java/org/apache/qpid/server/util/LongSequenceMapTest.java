@@ -0,0 +1,129 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class LongSequenceMapTest extends QpidTestCase
+{
+    private LongSequenceMap<String> _map = new LongSequenceMap<>();
+
+    public void testPutGetRemove()
+    {
+        assertNull(_map.put(1l, "one"));
+        assertNull(_map.put(2l, "two"));
+        assertEquals("one", _map.put(1l, "uno"));
+
+        assertEquals(2, _map.size());
+        assertEquals("uno", _map.get(1l));
+        assertNull(_map.get(3l));
+
+        assertEquals("uno", _map.remove(1l));
+        assertNull(_map.remove(1l));
+        assertEquals(1, _map.size());
+        assertEquals("two", _map.get(2l));
+    }
+
+    public void testRemoveUpTo()
+    {
+        for (long i = 1; i <= 10; i++)
+        {
+            _map.put(i, String.valueOf(i));
+        }
+        _map.remove(3l);
+
+        List<String> removed = new ArrayList<>();
+        _map.removeUpTo(5l, removed);
+
+        assertEquals(Arrays.asList("1", "2", "4", "5"), removed);
+        assertEquals(5, _map.size());
+        assertNull(_map.get(5l));
+        assertEquals("6", _map.get(6l));
+    }
+
+    public void testOutstandingOldestEntryDoesNotPreventFurtherProgress()
+    {
+        _map.put(0l, "oldest");
+        for (long i = 1; i < 10000; i++)
+        {
+            _map.put(i, String.valueOf(i));
+            if (i > 10)
+            {
+                _map.remove(i - 10);
+            }
+        }
+
+        assertEquals(11, _map.size());
+        assertEquals("oldest", _map.get(0l));
+        assertEquals("9999", _map.get(9999l));
+
+        List<String> values = _map.values();
+        assertEquals("oldest", values.get(0));
+        assertEquals("9999", values.get(values.size() - 1));
+
+        List<String> removed = new ArrayList<>();
+        _map.removeUpTo(9990l, removed);
+        assertEquals(Arrays.asList("oldest", "9990"), removed);
+        assertEquals(9, _map.size());
+    }
+
+    public void testClear()
+    {
+        for (long i = 1; i <= 100; i++)
+        {
+            _map.put(i, String.valueOf(i));
+        }
+        _map.put(-1l, "overflowed");
+
+        _map.clear();
+        assertTrue(_map.isEmpty());
+        assertNull(_map.get(50l));
+        assertNull(_map.get(-1l));
+        assertTrue(_map.values().isEmpty());
+
+        _map.put(101l, "101");
+        _map.put(150l, "150");
+        assertEquals(Arrays.asList("101", "150"), _map.values());
+    }
+
+    public void testVisitInKeyOrder()
+    {
+        _map.put(5l, "five");
+        _map.put(7l, "seven");
+        _map.put(6l, "six");
+
+        final List<Long> keys = new ArrayList<>();
+        _map.visit(new LongSequenceMap.Visitor<String>()
+        {
+            @Override
+            public boolean visit(final long key, final String value)
+            {
+                keys.add(key);
+                return key == 6l;
+            }
+        });
+        assertEquals(Arrays.asList(5l, 6l), keys);
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class TimingWheelTest extends QpidTestCase
+{
+    private static final long TICK = 10L;
+    private static final long START = 1000000L;
+
+    private TimingWheel _wheel;
+    private List<Long> _fired;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _wheel = new TimingWheel(TICK, START);
+        _fired = new ArrayList<>();
+    }
+
+    public void testTimeoutFiresOnceDue()
+    {
+        _wheel.schedule(START + 25L, new Recorder(START + 25L));
+
+        _wheel.advance(START + 20L);
+        assertTrue("Timeout fired early", _fired.isEmpty());
+
+        _wheel.advance(START + 30L);
+        assertEquals("Timeout did not fire", 1, _fired.size());
+
+        _wheel.advance(START + 100L);
+        assertEquals("Timeout fired more than once", 1, _fired.size());
+        assertEquals("Unexpected number of timeouts remaining", 0, _wheel.size());
+    }
+
+    public void testTimeoutAlreadyDueFiresOnNextAdvance()
+    {
+        _wheel.schedule(START - 1000L, new Recorder(START - 1000L));
+
+        _wheel.advance(START);
+        assertEquals("Overdue timeout did not fire", 1, _fired.size());
+    }
+
+    public void testCancelledTimeoutDoesNotFire()
+    {
+        TimingWheel.Timeout timeout = _wheel.schedule(START + 50L, new Recorder(START + 50L));
+        _wheel.advance(START + 10L);
+        assertEquals("Unexpected number of timeouts", 1, _wheel.size());
+
+        timeout.cancel();
+        assertTrue("Timeout not cancelled", timeout.isCancelled());
+
+        _wheel.advance(START + 100L);
+        assertTrue("Cancelled timeout fired", _fired.isEmpty());
+        assertEquals("Cancelled timeout not discarded", 0, _wheel.size());
+    }
+
+    public void testCancelledTimeoutUnlinkedBeforeDue()
+    {
+        final List<TimingWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 1; i <= 100; i++)
+        {
+            timeouts.add(_wheel.schedule(START + i * 60000L, new Recorder(START + i * 60000L)));
+        }
+        _wheel.advance(START);
+        assertEquals("Unexpected number of timeouts", 100, _wheel.size());
+
+        for (TimingWheel.Timeout timeout : timeouts.subList(0, 99))
+        {
+            timeout.cancel();
+        }
+        _wheel.advance(START + TICK);
+        assertEquals("Cancelled timeouts were not unlinked", 1, _wheel.size());
+
+        _wheel.advance(START + 100L * 60000L);
+        assertEquals("Unexpected timeouts fired", Collections.singletonList(START + 100L * 60000L), _fired);
+        assertEquals("Unexpected number of timeouts remaining", 0, _wheel.size());
+    }
+
+    public void testTimeoutCancelledWhilstPendingNotInserted()
+    {
+        TimingWheel.Timeout timeout = _wheel.schedule(START + 50L, new Recorder(START + 50L));
+        timeout.cancel();
+        // cancelling more than once must not unlink anything further
+        timeout.cancel();
+
+        _wheel.advance(START);
+        assertEquals("Cancelled timeout was inserted", 0, _wheel.size());
+        _wheel.advance(START + 100L);
+        assertTrue("Cancelled timeout fired", _fired.isEmpty());
+    }
+
+    public void testTimeoutCancelledByItsTaskRunsOnce()
+    {
+        final AtomicInteger runs = new AtomicInteger();
+        final TimingWheel.Timeout[] holder = new TimingWheel.Timeout[1];
+        holder[0] = _wheel.schedule(START + 10L, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                runs.incrementAndGet();
+                holder[0].cancel();
+            }
+        });
+
+        _wheel.advance(START + 10L);
+        _wheel.advance(START + 20L);
+        assertEquals("Unexpected number of runs", 1, runs.get());
+        assertEquals("Unexpected number of timeouts remaining", 0, _wheel.size());
+    }
+
+    public void testTimeoutsCascadeFromHigherLevels()
+    {
+        // spans several levels of the wheel, up to roughly a day ahead
+        final Random random = new Random(0L);
+        final List<Long> dueTimes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            final long dueTime = START + (long) random.nextInt(24 * 60 * 60 * 1000);
+            dueTimes.add(dueTime);
+            _wheel.schedule(dueTime, new Recorder(dueTime));
+        }
+
+        final long step = 997L;
+        long now = START;
+        while (_fired.size() < dueTimes.size() && now < START + 25L * 60L * 60L * 1000L)
+        {
+            final int firedBefore = _fired.size();
+            now += step;
+            _wheel.advance(now);
+            for (Long fired : _fired.subList(firedBefore, _fired.size()))
+            {
+                assertTrue("Timeout due at " + fired + " fired early at " + now, fired <= now);
+                assertTrue("Timeout due at " + fired + " fired late at " + now, fired > now - step - TICK);
+            }
+        }
+        assertEquals("Not all timeouts fired", dueTimes.size(), _fired.size());
+    }
+
+    public void testTimeoutScheduledFromTaskFiresLater()
+    {
+        _wheel.schedule(START + 10L, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                _wheel.schedule(START + 10L, new Recorder(START + 10L));
+            }
+        });
+
+        _wheel.advance(START + 10L);
+        assertTrue("Rescheduled timeout fired in the same advance", _fired.isEmpty());
+
+        _wheel.advance(START + 20L);
+        assertEquals("Rescheduled timeout did not fire", 1, _fired.size());
+    }
+
+    public void testTimeoutCancelledByTaskDueInSameAdvanceDoesNotFire()
+    {
+        final TimingWheel.Timeout second = new TimingWheel.Timeout(START + 20L, new Recorder(START + 20L));
+        _wheel.schedule(START + 10L, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                second.cancel();
+            }
+        });
+        _wheel.schedule(second);
+
+        _wheel.advance(START + 20L);
+        assertTrue("Timeout cancelled by an earlier task fired", _fired.isEmpty());
+    }
+
+    public void testWheelNotLockedWhilstTasksRun() throws Exception
+    {
+        final AtomicInteger sizeSeenByOtherThread = new AtomicInteger(-1);
+        final List<Boolean> otherThreadFinished = new ArrayList<>();
+        _wheel.schedule(START + 100L, new Recorder(START + 100L));
+        _wheel.schedule(START + 10L, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Thread reader = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        sizeSeenByOtherThread.set(_wheel.size());
+                    }
+                });
+                reader.start();
+                try
+                {
+                    reader.join(5000L);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                otherThreadFinished.add(!reader.isAlive());
+            }
+        });
+
+        _wheel.advance(START + 10L);
+        assertEquals("Task did not run", Collections.singletonList(Boolean.TRUE), otherThreadFinished);
+        assertEquals("Unexpected size seen whilst the task ran", 1, sizeSeenByOtherThread.get());
+    }
+
+    private class Recorder implements Runnable
+    {
+        private final long _dueTime;
+
+        private Recorder(final long dueTime)
+        {
+            _dueTime = dueTime;
+        }
+
+        @Override
+        public void run()
+        {
+            _fired.add(_dueTime);
+        }
+    }
+}
@@ -22,20 +22,32 @@ package org.apache.qpid.server.virtualhost;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 import java.util.concurrent.ExecutionException;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.plugin.MessageMetaDataType;
+import org.apache.qpid.server.store.MessageEnqueueRecord;
 import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.StorableMessageMetaData;
+import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.store.handler.MessageHandler;
 import org.apache.qpid.server.store.handler.MessageInstanceHandler;
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
 import org.apache.qpid.test.utils.QpidTestCase;
@@ -90,4 +102,76 @@ public class AsynchronousMessageStoreRecovererTest extends QpidTestCase
         ListenableFuture<Void> result = recoverer.recover(_virtualHost);
         assertNull(result.get());
     }
+
+    public void testRecoveryReleasesMessagesAndReportsProgress() throws Exception
+    {
+        final Queue<?> queue = mock(Queue.class);
+        when(_virtualHost.getChildren(eq(Queue.class))).thenReturn(Collections.singleton(queue));
+        when(_store.getNextMessageId()).thenReturn(3L);
+
+        final StoredMessage<?> enqueuedMessage = createStoredMessage(1L);
+        final StoredMessage<?> unusedMessage = createStoredMessage(2L);
+        doReturn(enqueuedMessage).when(_storeReader).getMessage(1L);
+
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable
+            {
+                MessageHandler handler = (MessageHandler) invocation.getArguments()[0];
+                handler.handle(enqueuedMessage);
+                handler.handle(unusedMessage);
+                return null;
+            }
+        }).when(_storeReader).visitMessages(any(MessageHandler.class));
+
+        final MessageEnqueueRecord record = mock(MessageEnqueueRecord.class);
+        when(record.getMessageNumber()).thenReturn(1L);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable
+            {
+                MessageInstanceHandler handler = (MessageInstanceHandler) invocation.getArguments()[1];
+                handler.handle(record);
+                return null;
+            }
+        }).when(_storeReader).visitMessageInstances(eq(queue), any(MessageInstanceHandler.class));
+
+        AsynchronousMessageStoreRecoverer recoverer = new AsynchronousMessageStoreRecoverer();
+        ListenableFuture<Void> result = recoverer.recover(_virtualHost);
+        assertNull(result.get());
+
+        verify(queue).recover(getServerMessage(enqueuedMessage), record);
+        verify(getServerMessage(enqueuedMessage).newReference()).release();
+        verify(getServerMessage(unusedMessage).newReference()).release();
+        verify(_storeReader).close();
+
+        assertEquals("Unexpected recovered message count", 1L, recoverer.getRecoveredMessageCount());
+        assertEquals("Unexpected recovering queue count", 0, recoverer.getRecoveringQueueCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private StoredMessage<?> createStoredMessage(final long messageNumber)
+    {
+        final StoredMessage storedMessage = mock(StoredMessage.class);
+        final StorableMessageMetaData metaData = mock(StorableMessageMetaData.class);
+        final MessageMetaDataType type = mock(MessageMetaDataType.class);
+        final ServerMessage serverMessage = mock(ServerMessage.class);
+        final MessageReference reference = mock(MessageReference.class);
+
+        when(storedMessage.getMessageNumber()).thenReturn(messageNumber);
+        when(storedMessage.getMetaData()).thenReturn(metaData);
+        when(metaData.getType()).thenReturn(type);
+        when(type.createMessage(storedMessage)).thenReturn(serverMessage);
+        when(serverMessage.getMessageNumber()).thenReturn(messageNumber);
+        when(serverMessage.newReference()).thenReturn(reference);
+        when(reference.getMessage()).thenReturn(serverMessage);
+        return storedMessage;
+    }
+
+    private ServerMessage<?> getServerMessage(final StoredMessage<?> storedMessage)
+    {
+        return storedMessage.getMetaData().getType().createMessage(storedMessage);
+    }
 }
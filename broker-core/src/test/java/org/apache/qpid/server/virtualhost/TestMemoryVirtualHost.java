@@ -27,6 +27,7 @@ import org.apache.qpid.server.model.ManagedObjectFactoryConstructor;
 import org.apache.qpid.server.model.VirtualHostNode;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.TestMemoryMessageStore;
+import org.apache.qpid.server.util.TimingWheel;
 
 @ManagedObject(category = false, type = TestMemoryVirtualHost.VIRTUAL_HOST_TYPE)
 public class TestMemoryVirtualHost extends AbstractVirtualHost<TestMemoryVirtualHost>
@@ -47,4 +48,13 @@ public class TestMemoryVirtualHost extends AbstractVirtualHost<TestMemoryVirtual
         return new TestMemoryMessageStore();
     }
 
+    /**
+     * The wheel is left for tests to advance explicitly, so that expiry and the release of held messages happen at a
+     * deterministic point.
+     */
+    @Override
+    protected void startTimingWheel(final TimingWheel timingWheel)
+    {
+    }
+
 }
@@ -20,21 +20,25 @@ package org.apache.qpid.server.security.access.config;
 
 import java.net.InetAddress;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.security.auth.Subject;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,8 +69,7 @@ public class RuleSet implements EventLoggerProvider
     private static final Integer _increment = 10;
 
     private final SortedMap<Integer, Rule> _rules = new TreeMap<Integer, Rule>();
-    private final Map<Subject, Map<Operation, Map<ObjectType, List<Rule>>>> _cache =
-                        Collections.synchronizedMap(new WeakHashMap<Subject, Map<Operation, Map<ObjectType, List<Rule>>>>());
+    private volatile CompiledRules _compiledRules;
     private final Map<String, Boolean> _config = new HashMap<String, Boolean>();
     private final EventLoggerProvider _eventLogger;
 
@@ -83,7 +86,7 @@ public class RuleSet implements EventLoggerProvider
     public void clear()
     {
         _rules.clear();
-        _cache.clear();
+        _compiledRules = null;
         _config.clear();
     }
 
@@ -100,50 +103,22 @@ public class RuleSet implements EventLoggerProvider
      */
     public List<Rule> getRules(final Subject subject, final Operation operation, final ObjectType objectType)
     {
-        final Map<ObjectType, List<Rule>> objects = getObjectToRuleCache(subject, operation);
-
-        // Lookup object type rules for the operation
-        if (!objects.containsKey(objectType))
-        {
-            final Set<Principal> principals = subject.getPrincipals();
-            boolean controlled = false;
-            List<Rule> filtered = new LinkedList<Rule>();
-            for (Rule rule : _rules.values())
-            {
-                final Action ruleAction = rule.getAction();
-                if (rule.isEnabled()
-                    && (ruleAction.getOperation() == Operation.ALL || ruleAction.getOperation() == operation)
-                    && (ruleAction.getObjectType() == ObjectType.ALL || ruleAction.getObjectType() == objectType))
-                {
-                    controlled = true;
-
-                    if (isRelevant(principals,rule))
-                    {
-                        filtered.add(rule);
-                    }
-                }
-            }
-
-            // Return null if there are no rules at all for this operation and object type
-            if (filtered.isEmpty() && controlled == false)
-            {
-                filtered = null;
-            }
-
-            // Save the rules we selected
-            objects.put(objectType, filtered);
-
-            _logger.debug("Cached {} RulesList: {}", objectType, filtered);
-        }
-
-        // Return the cached rules
-        List<Rule> rules = objects.get(objectType);
+        List<Rule> rules = getCompiledRules().getRules(subject, operation, objectType);
 
         _logger.debug("Returning RuleList: {}", rules);
 
         return rules;
     }
 
+    /**
+     * Returns true if the result of checking an operation on an object type depends only on the subject, the object
+     * properties and the client address, i.e. no rule relevant to the operation asks for its decision to be logged.
+     */
+    public boolean isResultCacheable(final Operation operation, final ObjectType objectType)
+    {
+        return !getCompiledRules().isLogged(operation, objectType);
+    }
+
     public boolean isValidNumber(Integer number)
     {
         return !_rules.containsKey(number);
@@ -206,18 +181,20 @@ public class RuleSet implements EventLoggerProvider
         }
 
         // save rule
-        _cache.clear();
         _rules.put(rule.getNumber(), rule);
+        _compiledRules = null;
     }
 
     public void enableRule(int ruleNumber)
     {
         _rules.get(Integer.valueOf(ruleNumber)).enable();
+        _compiledRules = null;
     }
 
     public void disableRule(int ruleNumber)
     {
         _rules.get(Integer.valueOf(ruleNumber)).disable();
+        _compiledRules = null;
     }
 
     /** Return true if the name is well-formed (contains legal characters). */
@@ -408,24 +385,116 @@ public class RuleSet implements EventLoggerProvider
         return false;
     }
 
-    private Map<ObjectType, List<Rule>> getObjectToRuleCache(final Subject subject, final Operation operation)
+    private CompiledRules getCompiledRules()
+    {
+        CompiledRules compiledRules = _compiledRules;
+        if (compiledRules == null)
+        {
+            compiledRules = new CompiledRules();
+            _compiledRules = compiledRules;
+        }
+        return compiledRules;
+    }
+
+    /**
+     * Immutable view of the enabled rules, indexed by operation and object type.  The rules relevant to a given
+     * subject are selected once per subject and then shared, without locking, by all threads checking on behalf
+     * of that subject.  Any change to the rule set discards the compiled form as a whole.
+     */
+    private final class CompiledRules
     {
-        // Lookup identity in cache and create empty operation map if required
-        Map<Operation, Map<ObjectType, List<Rule>>> operations = _cache.get(subject);
-        if (operations == null)
+        private final Map<Operation, Map<ObjectType, List<Rule>>> _controlledRules =
+                new EnumMap<Operation, Map<ObjectType, List<Rule>>>(Operation.class);
+        private final Map<Operation, Set<ObjectType>> _loggedActions =
+                new EnumMap<Operation, Set<ObjectType>>(Operation.class);
+        private final Cache<Subject, Map<Operation, Map<ObjectType, List<Rule>>>> _subjectRules =
+                CacheBuilder.newBuilder().weakKeys().build();
+
+        private CompiledRules()
         {
-            operations = Collections.synchronizedMap(new EnumMap<Operation, Map<ObjectType, List<Rule>>>(Operation.class));
-            _cache.put(subject, operations);
+            for (Operation operation : Operation.values())
+            {
+                final Map<ObjectType, List<Rule>> objectTypeRules = new EnumMap<ObjectType, List<Rule>>(ObjectType.class);
+                final Set<ObjectType> loggedObjectTypes = EnumSet.noneOf(ObjectType.class);
+                for (ObjectType objectType : ObjectType.values())
+                {
+                    List<Rule> controlled = new ArrayList<Rule>();
+                    for (Rule rule : _rules.values())
+                    {
+                        final Action ruleAction = rule.getAction();
+                        if (rule.isEnabled()
+                            && (ruleAction.getOperation() == Operation.ALL || ruleAction.getOperation() == operation)
+                            && (ruleAction.getObjectType() == ObjectType.ALL || ruleAction.getObjectType() == objectType))
+                        {
+                            controlled.add(rule);
+                            if (rule.getPermission() == Permission.ALLOW_LOG || rule.getPermission() == Permission.DENY_LOG)
+                            {
+                                loggedObjectTypes.add(objectType);
+                            }
+                        }
+                    }
+                    if (!controlled.isEmpty())
+                    {
+                        objectTypeRules.put(objectType, Collections.unmodifiableList(controlled));
+                    }
+                }
+                _controlledRules.put(operation, objectTypeRules);
+                _loggedActions.put(operation, loggedObjectTypes);
+            }
         }
 
-        // Lookup operation and create empty object type map if required
-        Map<ObjectType, List<Rule>> objects = operations.get(operation);
-        if (objects == null)
+        List<Rule> getRules(final Subject subject, final Operation operation, final ObjectType objectType)
         {
-            objects = Collections.synchronizedMap(new EnumMap<ObjectType, List<Rule>>(ObjectType.class));
-            operations.put(operation, objects);
+            final Map<Operation, Map<ObjectType, List<Rule>>> subjectRules;
+            try
+            {
+                subjectRules = _subjectRules.get(subject, new Callable<Map<Operation, Map<ObjectType, List<Rule>>>>()
+                {
+                    @Override
+                    public Map<Operation, Map<ObjectType, List<Rule>>> call()
+                    {
+                        return selectRules(subject);
+                    }
+                });
+            }
+            catch (ExecutionException e)
+            {
+                throw new RuntimeException(e.getCause());
+            }
+            return subjectRules.get(operation).get(objectType);
+        }
+
+        boolean isLogged(final Operation operation, final ObjectType objectType)
+        {
+            return _loggedActions.get(operation).contains(objectType);
+        }
+
+        private Map<Operation, Map<ObjectType, List<Rule>>> selectRules(final Subject subject)
+        {
+            final Set<Principal> principals = subject.getPrincipals();
+            final Map<Operation, Map<ObjectType, List<Rule>>> subjectRules =
+                    new EnumMap<Operation, Map<ObjectType, List<Rule>>>(Operation.class);
+            for (Map.Entry<Operation, Map<ObjectType, List<Rule>>> operationEntry : _controlledRules.entrySet())
+            {
+                final Map<ObjectType, List<Rule>> objectTypeRules = new EnumMap<ObjectType, List<Rule>>(ObjectType.class);
+                for (Map.Entry<ObjectType, List<Rule>> objectTypeEntry : operationEntry.getValue().entrySet())
+                {
+                    List<Rule> filtered = new ArrayList<Rule>();
+                    for (Rule rule : objectTypeEntry.getValue())
+                    {
+                        if (isRelevant(principals, rule))
+                        {
+                            filtered.add(rule);
+                        }
+                    }
+                    // an empty list denotes an operation that is controlled, but by rules for other identities only
+                    objectTypeRules.put(objectTypeEntry.getKey(), Collections.unmodifiableList(filtered));
+                }
+                subjectRules.put(operationEntry.getKey(), objectTypeRules);
+            }
+
+            return subjectRules;
         }
-        return objects;
     }
 
     public EventLogger getEventLogger()
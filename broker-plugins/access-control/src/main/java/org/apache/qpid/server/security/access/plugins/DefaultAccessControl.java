@@ -154,6 +154,12 @@ public class DefaultAccessControl implements AccessControl
         return _ruleSet.getDefault();
     }
 
+    @Override
+    public boolean isResultCacheable(final Operation operation, final ObjectType objectType)
+    {
+        return _ruleSet.isResultCacheable(operation, objectType);
+    }
+
     /**
      * Check if an operation is authorised by asking the  configuration object about the access
      * control rules granted to the current thread's {@link Subject}. If there is no current
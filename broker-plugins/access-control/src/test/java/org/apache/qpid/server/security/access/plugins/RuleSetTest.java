@@ -465,4 +465,26 @@ public class RuleSetTest extends QpidTestCase
 
         assertEquals(Result.ALLOWED, _ruleSet.check(subjectInAllowedGroupAndOneOther,Operation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
     }
+
+    public void testDisabledRuleNoLongerApplies()
+    {
+        _ruleSet.grant(1, TEST_USER, Permission.ALLOW, Operation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY);
+        assertEquals(Result.ALLOWED, _ruleSet.check(_testSubject, Operation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
+
+        _ruleSet.disableRule(1);
+        assertEquals(Result.DENIED, _ruleSet.check(_testSubject, Operation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
+
+        _ruleSet.enableRule(1);
+        assertEquals(Result.ALLOWED, _ruleSet.check(_testSubject, Operation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
+    }
+
+    public void testResultNotCacheableWhenDecisionIsLogged()
+    {
+        _ruleSet.grant(1, TEST_USER, Permission.ALLOW, Operation.PUBLISH, ObjectType.EXCHANGE, ObjectProperties.EMPTY);
+        assertTrue(_ruleSet.isResultCacheable(Operation.PUBLISH, ObjectType.EXCHANGE));
+
+        _ruleSet.grant(2, "otheruser", Permission.DENY_LOG, Operation.ALL, ObjectType.ALL, ObjectProperties.EMPTY);
+        assertFalse(_ruleSet.isResultCacheable(Operation.PUBLISH, ObjectType.EXCHANGE));
+        assertFalse(_ruleSet.isResultCacheable(Operation.CONSUME, ObjectType.QUEUE));
+    }
 }
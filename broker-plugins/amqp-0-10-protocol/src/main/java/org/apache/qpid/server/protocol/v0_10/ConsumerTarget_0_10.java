@@ -42,7 +42,6 @@ import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Exchange;
 import org.apache.qpid.server.model.Queue;
-import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.protocol.MessageConverterRegistry;
 import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.txn.AutoCommitTransaction;
@@ -224,11 +223,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
         }
         else
         {
-            MessageConverter converter =
-                    MessageConverterRegistry.getConverter(serverMsg.getClass(), MessageTransferMessage.class);
-
-
-            msg = (MessageTransferMessage) converter.convert(serverMsg, _session.getVirtualHost());
+            msg = MessageConverterRegistry.convert(serverMsg, MessageTransferMessage.class, _session.getVirtualHost());
         }
         DeliveryProperties origDeliveryProps = msg.getHeader() == null ? null : msg.getHeader().getDeliveryProperties();
         messageProps = msg.getHeader() == null ? null : msg.getHeader().getMessageProperties();
@@ -280,6 +275,8 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
         if(msgCompressed && !compressionSupported && bodyBuffers != null)
         {
             Collection<QpidByteBuffer> uncompressedBuffers = inflateIfPossible(bodyBuffers);
+            // the message properties may be shared with other deliveries of the same message
+            messageProps = new MessageProperties(messageProps);
             messageProps.setContentEncoding(null);
             for (QpidByteBuffer buf : bodyBuffers)
             {
@@ -76,6 +76,7 @@ import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.protocol.AMQSessionModel;
 import org.apache.qpid.server.protocol.CapacityChecker;
 import org.apache.qpid.server.protocol.ConsumerListener;
+import org.apache.qpid.server.security.PublishAuthorisationCache;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.transport.AMQPConnection;
@@ -127,6 +128,7 @@ public class ServerSession extends Session
 
     private final UUID _id = UUID.randomUUID();
     private final Subject _subject = new Subject();
+    private final PublishAuthorisationCache _publishAuthorisationCache = new PublishAuthorisationCache();
     private final AccessControlContext _accessControllerContext;
     private long _createTime = System.currentTimeMillis();
 
@@ -759,6 +761,11 @@ public class ServerSession extends Session
         return _subject;
     }
 
+    PublishAuthorisationCache getPublishAuthorisationCache()
+    {
+        return _publishAuthorisationCache;
+    }
+
     public void addDeleteTask(Action<? super ServerSession> task)
     {
         _taskList.add(task);
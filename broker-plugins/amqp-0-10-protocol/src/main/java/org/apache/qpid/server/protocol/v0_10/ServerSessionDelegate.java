@@ -425,7 +425,8 @@ public class ServerSessionDelegate extends SessionDelegate
                                               virtualHost.getName(),
                                               serverSession.getAuthorizedSubject(),
                                               getMessageUserId(xfr),
-                                              serverSession.getAMQPConnection());
+                                              serverSession.getAMQPConnection(),
+                                              serverSession.getPublishAuthorisationCache());
                 }
                 catch (AccessControlException e)
                 {
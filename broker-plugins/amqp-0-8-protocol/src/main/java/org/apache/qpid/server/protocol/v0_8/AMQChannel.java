@@ -47,6 +47,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import javax.security.auth.Subject;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -98,6 +99,7 @@ import org.apache.qpid.server.protocol.AMQSessionModel;
 import org.apache.qpid.server.protocol.CapacityChecker;
 import org.apache.qpid.server.protocol.ConsumerListener;
 import org.apache.qpid.server.queue.QueueArgumentsConverter;
+import org.apache.qpid.server.security.PublishAuthorisationCache;
 import org.apache.qpid.server.security.SecurityManager;
 import org.apache.qpid.server.store.MessageHandle;
 import org.apache.qpid.server.store.MessageStore;
@@ -163,7 +165,7 @@ public class AMQChannel
 
     private final LinkedList<AsyncCommand> _unfinishedCommandsQueue = new LinkedList<AsyncCommand>();
 
-    private UnacknowledgedMessageMap _unacknowledgedMessageMap = new UnacknowledgedMessageMapImpl(DEFAULT_PREFETCH);
+    private UnacknowledgedMessageMap _unacknowledgedMessageMap = new UnacknowledgedMessageMapImpl();
 
     private final AtomicBoolean _suspended = new AtomicBoolean(false);
 
@@ -209,6 +211,9 @@ public class AMQChannel
     private long _blockingTimeout;
     private boolean _confirmOnPublish;
     private long _confirmedMessageCounter;
+    private long _pendingConfirmDeliveryTag;
+    private long _lastSentConfirmDeliveryTag;
+    private final PublishAuthorisationCache _publishAuthorisationCache = new PublishAuthorisationCache();
     private volatile long _uncommittedMessageSize;
     private final List<StoredMessage<MessageMetaData>> _uncommittedMessages = new ArrayList<>();
     private long _maxUncommittedInMemorySize;
@@ -345,6 +350,7 @@ public class AMQChannel
     public void receivedComplete()
     {
         sync();
+        flushConfirms();
     }
 
     private void incrementOutstandingTxnsIfNecessary()
@@ -429,7 +435,8 @@ public class AMQChannel
                                                  virtualHost.getName(),
                                                  _subject,
                                                  AMQShortString.toString(contentHeader.getProperties().getUserId()),
-                                                 _connection);
+                                                 _connection,
+                                                 _publishAuthorisationCache);
 
                 if (_confirmOnPublish)
                 {
@@ -510,9 +517,7 @@ public class AMQChannel
                         {
                             if (_confirmOnPublish)
                             {
-                                BasicAckBody responseBody = _connection.getMethodRegistry()
-                                        .createBasicAckBody(_confirmedMessageCounter, false);
-                                _connection.writeFrame(responseBody.generateFrame(_channelId));
+                                confirmPublish(_confirmedMessageCounter, true);
                             }
                             incrementUncommittedMessageSize(storedMessage);
                             incrementOutstandingTxnsIfNecessary();
@@ -544,6 +549,99 @@ public class AMQChannel
 
     }
 
+    /**
+     * Records the publisher confirm for the given delivery tag.  If store commits are still outstanding on this
+     * channel the confirm is queued behind them, so that it is only issued once the message (and every message
+     * published before it) has been committed.  Positive confirms are coalesced and written by
+     * {@link #flushConfirms()} as a single <code>multiple</code> ack at the end of the read cycle, or when
+     * {@link #processPending()} observes that the outstanding commits have completed.
+     */
+    private void confirmPublish(final long deliveryTag, final boolean positive)
+    {
+        final AsyncCommand lastCommand = _unfinishedCommandsQueue.peekLast();
+        if(lastCommand == null)
+        {
+            recordConfirm(deliveryTag, positive);
+        }
+        else
+        {
+            final ListenableFuture<Void> future = lastCommand.getFuture();
+            recordFuture(future, new ConfirmAction(deliveryTag, positive));
+            if(!future.isDone())
+            {
+                future.addListener(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        getAMQPConnection().notifyWork();
+                    }
+                }, MoreExecutors.directExecutor());
+            }
+        }
+    }
+
+    private void recordConfirm(final long deliveryTag, final boolean positive)
+    {
+        if(positive)
+        {
+            _pendingConfirmDeliveryTag = deliveryTag;
+        }
+        else
+        {
+            // acks for earlier messages must reach the client before the nack
+            flushConfirms();
+            _connection.writeFrame(new AMQFrame(_channelId, new BasicNackBody(deliveryTag, false, false)));
+            _lastSentConfirmDeliveryTag = deliveryTag;
+        }
+    }
+
+    private void flushConfirms()
+    {
+        final long deliveryTag = _pendingConfirmDeliveryTag;
+        if(deliveryTag > _lastSentConfirmDeliveryTag)
+        {
+            final boolean multiple = deliveryTag - _lastSentConfirmDeliveryTag > 1;
+            BasicAckBody responseBody = _connection.getMethodRegistry().createBasicAckBody(deliveryTag, multiple);
+            _connection.writeFrame(responseBody.generateFrame(_channelId));
+            _lastSentConfirmDeliveryTag = deliveryTag;
+        }
+    }
+
+    private void completeFinishedAsyncCommands()
+    {
+        AsyncCommand cmd;
+        while((cmd = _unfinishedCommandsQueue.peek()) != null && cmd.getFuture().isDone())
+        {
+            _unfinishedCommandsQueue.poll();
+            cmd.complete();
+        }
+    }
+
+    private class ConfirmAction implements ServerTransaction.Action
+    {
+        private final long _deliveryTag;
+        private final boolean _positive;
+
+        private ConfirmAction(final long deliveryTag, final boolean positive)
+        {
+            _deliveryTag = deliveryTag;
+            _positive = positive;
+        }
+
+        @Override
+        public void postCommit()
+        {
+            recordConfirm(_deliveryTag, _positive);
+        }
+
+        @Override
+        public void onRollback()
+        {
+            recordConfirm(_deliveryTag, false);
+        }
+    }
+
     private void incrementUncommittedMessageSize(final StoredMessage<MessageMetaData> handle)
     {
         if (isTransactional())
@@ -622,7 +720,7 @@ public class AMQChannel
             {
                 if(_confirmOnPublish)
                 {
-                    _connection.writeFrame(new AMQFrame(_channelId, new BasicNackBody(_confirmedMessageCounter, false, false)));
+                    confirmPublish(_confirmedMessageCounter, false);
                 }
                 _transaction.addPostTransactionAction(new WriteReturnAction(AMQConstant.NO_ROUTE,
                                                                             "No Route for message "
@@ -631,6 +729,10 @@ public class AMQChannel
             }
             else
             {
+                if(_confirmOnPublish)
+                {
+                    confirmPublish(_confirmedMessageCounter, true);
+                }
 
                 getVirtualHost().getEventLogger().message(ExchangeMessages.DISCARDMSG(exchangeName, routingKey));
             }
@@ -1860,6 +1962,11 @@ public class AMQChannel
             _action = action;
         }
 
+        ListenableFuture<Void> getFuture()
+        {
+            return _future;
+        }
+
         void complete()
         {
             boolean interrupted = false;
@@ -3734,6 +3841,9 @@ public class AMQChannel
             return false;
         }
 
+        completeFinishedAsyncCommands();
+        flushConfirms();
+
         boolean desiredBlockingState = _blocking.get();
         if (desiredBlockingState != _wireBlockingState)
         {
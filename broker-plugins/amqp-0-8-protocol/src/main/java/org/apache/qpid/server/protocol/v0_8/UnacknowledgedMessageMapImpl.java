@@ -23,26 +23,19 @@ package org.apache.qpid.server.protocol.v0_8;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.qpid.server.message.MessageInstance;
+import org.apache.qpid.server.util.LongSequenceMap;
 
 public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 {
     private final Object _lock = new Object();
 
-    private Map<Long, MessageInstance> _map;
-
-    private final int _prefetchLimit;
-
-    public UnacknowledgedMessageMapImpl(int prefetchLimit)
-    {
-        _prefetchLimit = prefetchLimit;
-        _map = new LinkedHashMap<>(prefetchLimit);
-    }
+    private final LongSequenceMap<MessageInstance> _map = new LongSequenceMap<>();
 
     public void collect(long deliveryTag, boolean multiple, Map<Long, MessageInstance> msgs)
     {
@@ -82,15 +75,19 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
         }
     }
 
-    public void visit(Visitor visitor)
+    public void visit(final Visitor visitor)
     {
         synchronized (_lock)
         {
-            Set<Map.Entry<Long, MessageInstance>> currentEntries = _map.entrySet();
-            for (Map.Entry<Long, MessageInstance> entry : currentEntries)
+            _map.visit(new LongSequenceMap.Visitor<MessageInstance>()
             {
-                visitor.callback(entry.getKey().longValue(), entry.getValue());
-            }
+                @Override
+                public boolean visit(final long deliveryTag, final MessageInstance message)
+                {
+                    visitor.callback(deliveryTag, message);
+                    return false;
+                }
+            });
             visitor.visitComplete();
         }
     }
@@ -108,7 +105,7 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
         synchronized (_lock)
         {
             Collection<MessageInstance> currentEntries = _map.values();
-            _map = new LinkedHashMap<>(_prefetchLimit);
+            _map.clear();
             return currentEntries;
         }
     }
@@ -141,7 +138,17 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            return _map.keySet();
+            final Set<Long> deliveryTags = new LinkedHashSet<>();
+            _map.visit(new LongSequenceMap.Visitor<MessageInstance>()
+            {
+                @Override
+                public boolean visit(final long deliveryTag, final MessageInstance message)
+                {
+                    deliveryTags.add(deliveryTag);
+                    return false;
+                }
+            });
+            return deliveryTags;
         }
     }
 
@@ -149,11 +156,13 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         if(multiple)
         {
-            Map<Long, MessageInstance> ackedMessageMap = new LinkedHashMap<Long, MessageInstance>();
-            collect(deliveryTag, multiple, ackedMessageMap);
-            remove(ackedMessageMap);
-            List<MessageInstance> acknowledged = new ArrayList<>();
-            for (MessageInstance instance : ackedMessageMap.values())
+            List<MessageInstance> ackedMessages = new ArrayList<>();
+            synchronized (_lock)
+            {
+                _map.removeUpTo(getUpperBound(deliveryTag), ackedMessages);
+            }
+            List<MessageInstance> acknowledged = new ArrayList<>(ackedMessages.size());
+            for (MessageInstance instance : ackedMessages)
             {
                 if (instance.lockAcquisition(instance.getAcquiringConsumer()))
                 {
@@ -181,19 +190,32 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
         }
     }
 
-    private void collect(long key, Map<Long, MessageInstance> msgs)
+    private void collect(final long deliveryTag, final Map<Long, MessageInstance> msgs)
     {
+        final long key = getUpperBound(deliveryTag);
         synchronized (_lock)
         {
-            for (Map.Entry<Long, MessageInstance> entry : _map.entrySet())
+            _map.visit(new LongSequenceMap.Visitor<MessageInstance>()
             {
-                msgs.put(entry.getKey(),entry.getValue());
-                if (entry.getKey() == key)
+                @Override
+                public boolean visit(final long deliveryTag, final MessageInstance message)
                 {
-                    break;
+                    if (deliveryTag > key)
+                    {
+                        return true;
+                    }
+                    msgs.put(deliveryTag, message);
+                    return false;
                 }
-            }
+            });
         }
     }
 
+    /**
+     * A multiple acknowledgement with a delivery tag of zero covers all outstanding messages.
+     */
+    private static long getUpperBound(final long deliveryTag)
+    {
+        return deliveryTag == 0L ? Long.MAX_VALUE : deliveryTag;
+    }
 }
@@ -25,6 +25,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -35,7 +36,10 @@ import java.util.Set;
 
 import javax.security.auth.Subject;
 
+import org.apache.qpid.framing.AMQDataBlock;
+import org.apache.qpid.framing.AMQFrame;
 import org.apache.qpid.framing.AMQShortString;
+import org.apache.qpid.framing.BasicAckBody;
 import org.apache.qpid.framing.BasicContentHeaderProperties;
 import org.apache.qpid.framing.MethodRegistry;
 import org.apache.qpid.framing.ProtocolVersion;
@@ -60,6 +64,7 @@ import org.apache.qpid.server.store.StoredMemoryMessage;
 import org.apache.qpid.server.txn.ServerTransaction;
 import org.apache.qpid.server.util.Action;
 import org.apache.qpid.test.utils.QpidTestCase;
+import org.mockito.ArgumentCaptor;
 
 public class AMQChannelTest extends QpidTestCase
 {
@@ -226,4 +231,42 @@ public class AMQChannelTest extends QpidTestCase
                                          any(ServerTransaction.class),
                                          any(Action.class) );
     }
+
+    public void testPublisherConfirmsCoalescedUntilReceiveComplete() throws Exception
+    {
+        when(_virtualHost.getDefaultDestination()).thenReturn(_messageDestination);
+        when(_virtualHost.getMessageStore()).thenReturn(new NullMessageStore()
+        {
+            @Override
+            public <T extends StorableMessageMetaData> MessageHandle<T> addMessage(final T metaData)
+            {
+                MessageHandle messageHandle = new StoredMemoryMessage(1, metaData);
+                return messageHandle;
+            }
+        });
+        when(_messageDestination.send((ServerMessage) any(),
+                                      eq(ROUTING_KEY.toString()),
+                                      any(InstanceProperties.class),
+                                      any(ServerTransaction.class),
+                                      any(Action.class))).thenReturn(1);
+
+        AMQChannel channel = new AMQChannel(_amqConnection, 1, _virtualHost.getMessageStore());
+        channel.receiveConfirmSelect(true);
+
+        for (int i = 0; i < 3; i++)
+        {
+            channel.receiveBasicPublish(AMQShortString.EMPTY_STRING, ROUTING_KEY, false, false);
+            channel.receiveMessageHeader(new BasicContentHeaderProperties(), 0);
+        }
+
+        verify(_amqConnection, never()).writeFrame(any(AMQDataBlock.class));
+
+        channel.receivedComplete();
+
+        ArgumentCaptor<AMQDataBlock> frameCaptor = ArgumentCaptor.forClass(AMQDataBlock.class);
+        verify(_amqConnection).writeFrame(frameCaptor.capture());
+        BasicAckBody ack = (BasicAckBody) ((AMQFrame) frameCaptor.getValue()).getBodyFrame();
+        assertEquals("Unexpected delivery tag", 3l, ack.getDeliveryTag());
+        assertTrue("Ack should cover all published messages", ack.getMultiple());
+    }
 }
@@ -69,7 +69,7 @@ public class ExtractResendAndRequeueTest extends QpidTestCase
     public void setUp() throws QpidException
     {
         _queueDeleted = false;
-        _unacknowledgedMessageMap = new UnacknowledgedMessageMapImpl(100);
+        _unacknowledgedMessageMap = new UnacknowledgedMessageMapImpl();
         _queue = mock(Queue.class);
         when(_queue.getName()).thenReturn(getName());
         when(_queue.isDeleted()).thenReturn(_queueDeleted);
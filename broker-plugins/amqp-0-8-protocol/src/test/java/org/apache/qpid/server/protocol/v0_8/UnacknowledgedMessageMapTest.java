@@ -23,7 +23,10 @@ package org.apache.qpid.server.protocol.v0_8;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.message.MessageInstance;
@@ -35,7 +38,7 @@ public class UnacknowledgedMessageMapTest extends QpidTestCase
 
     public void testDeletedMessagesCantBeAcknowledged()
     {
-        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(100);
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl();
         final int expectedSize = 5;
         MessageInstance[] msgs = populateMap(map,expectedSize);
         assertEquals(expectedSize,map.size());
@@ -47,7 +50,7 @@ public class UnacknowledgedMessageMapTest extends QpidTestCase
             assertTrue("Message " + i + " is missing", acknowledged.contains(msgs[i]));
         }
 
-        map = new UnacknowledgedMessageMapImpl(100);
+        map = new UnacknowledgedMessageMapImpl();
         msgs = populateMap(map,expectedSize);
         // simulate some messages being ttl expired
         when(msgs[2].lockAcquisition(_consumer)).thenReturn(Boolean.FALSE);
@@ -66,6 +69,35 @@ public class UnacknowledgedMessageMapTest extends QpidTestCase
 
     }
 
+    public void testMultipleAcknowledgeOnlyAcknowledgesUpToDeliveryTag()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl();
+        MessageInstance[] msgs = populateMap(map, 5);
+        map.remove(1l);
+
+        Collection<MessageInstance> acknowledged = map.acknowledge(2, true);
+        assertEquals(2, acknowledged.size());
+        assertTrue(acknowledged.contains(msgs[0]));
+        assertTrue(acknowledged.contains(msgs[2]));
+        assertEquals(2, map.size());
+        assertSame(msgs[3], map.get(3l));
+    }
+
+    public void testMultipleAcknowledgeWithZeroDeliveryTagAcknowledgesAllOutstanding()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl();
+        MessageInstance[] msgs = populateMap(map, 5);
+
+        Map<Long, MessageInstance> collected = new HashMap<>();
+        map.collect(0l, true, collected);
+        assertEquals(5, collected.size());
+
+        Collection<MessageInstance> acknowledged = map.acknowledge(0l, true);
+        assertEquals(5, acknowledged.size());
+        assertTrue(acknowledged.containsAll(Arrays.asList(msgs)));
+        assertEquals(0, map.size());
+    }
+
     public MessageInstance[] populateMap(final UnacknowledgedMessageMap map, int size)
     {
         MessageInstance[] msgs = new MessageInstance[size];
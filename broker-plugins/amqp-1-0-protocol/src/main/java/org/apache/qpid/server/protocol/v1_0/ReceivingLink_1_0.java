@@ -42,6 +42,7 @@ import org.apache.qpid.server.protocol.v1_0.type.transport.Transfer;
 import org.apache.qpid.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.message.MessageReference;
 import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.security.PublishAuthorisationCache;
 import org.apache.qpid.server.security.SecurityManager;
 import org.apache.qpid.server.store.MessageHandle;
 import org.apache.qpid.server.store.StoredMessage;
@@ -64,6 +65,7 @@ public class ReceivingLink_1_0 implements ReceivingLinkListener, Link_1_0, Deliv
     private boolean _resumedMessage;
     private Binary _messageDeliveryTag;
     private ReceiverSettleMode _receivingSettlementMode;
+    private final PublishAuthorisationCache _publishAuthorisationCache = new PublishAuthorisationCache();
 
 
     public ReceivingLink_1_0(ReceivingLinkAttachment receivingLinkAttachment, VirtualHost<?> vhost,
@@ -204,7 +206,8 @@ public class ReceivingLink_1_0 implements ReceivingLinkListener, Link_1_0, Deliv
                                                      _vhost.getName(),
                                                      _attachment.getSession().getSubject(),
                                                      message.getMessageHeader().getUserId(),
-                                                     _attachment.getSession().getAMQPConnection());
+                                                     _attachment.getSession().getAMQPConnection(),
+                                                     _publishAuthorisationCache);
 
                     Outcome outcome = _destination.send(message, transaction);
 
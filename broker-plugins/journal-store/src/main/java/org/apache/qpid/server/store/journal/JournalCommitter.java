@@ -0,0 +1,221 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.store.StoreException;
+
+/**
+ * Group commit for the journal. Committing transactions append their records and then queue a job here; a single
+ * thread forces the journal once for every job that has queued up while the previous force was in progress, so
+ * the cost of the fsync is shared by all transactions committing concurrently.
+ */
+final class JournalCommitter
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalCommitter.class);
+
+    private final CommitThread _commitThread;
+
+    JournalCommitter(final String name, final Runnable sync)
+    {
+        _commitThread = new CommitThread("Journal-Commit-Thread-" + name, sync);
+    }
+
+    void start()
+    {
+        _commitThread.start();
+    }
+
+    void stop()
+    {
+        _commitThread.close();
+        if (Thread.currentThread() != _commitThread)
+        {
+            try
+            {
+                _commitThread.join();
+            }
+            catch (InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Journal commit thread has not shutdown", ie);
+            }
+        }
+    }
+
+    void commit()
+    {
+        try
+        {
+            commitAsync(null).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new StoreException("Interrupted whilst awaiting journal sync", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new StoreException("Journal sync failed", e.getCause());
+        }
+    }
+
+    <X> ListenableFuture<X> commitAsync(final X val)
+    {
+        final SettableFuture<X> future = SettableFuture.create();
+        _commitThread.addJob(new CommitJob<X>(future, val));
+        return future;
+    }
+
+    private static final class CommitJob<X>
+    {
+        private final SettableFuture<X> _future;
+        private final X _value;
+
+        private CommitJob(final SettableFuture<X> future, final X value)
+        {
+            _future = future;
+            _value = value;
+        }
+
+        void complete()
+        {
+            _future.set(_value);
+        }
+
+        void abort(final RuntimeException e)
+        {
+            _future.setException(e);
+        }
+    }
+
+    private static final class CommitThread extends Thread
+    {
+        private final AtomicBoolean _stopped = new AtomicBoolean(false);
+        private final Queue<CommitJob<?>> _jobQueue = new ConcurrentLinkedQueue<>();
+        private final List<CommitJob<?>> _inProcessJobs = new ArrayList<>(256);
+        private final Object _lock = new Object();
+        private final Runnable _sync;
+
+        private CommitThread(final String name, final Runnable sync)
+        {
+            super(name);
+            _sync = sync;
+        }
+
+        @Override
+        public void run()
+        {
+            while (!_stopped.get())
+            {
+                synchronized (_lock)
+                {
+                    while (!_stopped.get() && _jobQueue.isEmpty())
+                    {
+                        try
+                        {
+                            // Periodically wake up and check, just in case we
+                            // missed a notification. Don't want to lock the broker hard.
+                            _lock.wait(500);
+                        }
+                        catch (InterruptedException e)
+                        {
+                        }
+                    }
+                }
+                processJobs();
+            }
+            processJobs();
+        }
+
+        private void processJobs()
+        {
+            CommitJob<?> job;
+            while ((job = _jobQueue.poll()) != null)
+            {
+                _inProcessJobs.add(job);
+            }
+            if (_inProcessJobs.isEmpty())
+            {
+                return;
+            }
+
+            try
+            {
+                _sync.run();
+                for (CommitJob<?> completed : _inProcessJobs)
+                {
+                    completed.complete();
+                }
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.error("Failed to sync journal", e);
+                for (CommitJob<?> failed : _inProcessJobs)
+                {
+                    failed.abort(e);
+                }
+            }
+            finally
+            {
+                _inProcessJobs.clear();
+            }
+        }
+
+        void addJob(final CommitJob<?> job)
+        {
+            if (_stopped.get())
+            {
+                job.abort(new StoreException("Journal commit thread is stopped"));
+                return;
+            }
+            _jobQueue.add(job);
+            synchronized (_lock)
+            {
+                _lock.notifyAll();
+            }
+        }
+
+        void close()
+        {
+            synchronized (_lock)
+            {
+                _stopped.set(true);
+                _lock.notifyAll();
+            }
+        }
+    }
+}
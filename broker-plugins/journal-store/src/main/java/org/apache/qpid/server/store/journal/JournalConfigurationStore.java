@@ -0,0 +1,62 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.journal;
+
+import java.io.File;
+
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.store.ConfiguredObjectRecord;
+import org.apache.qpid.server.store.FileBasedSettings;
+import org.apache.qpid.server.store.JsonFileConfigStore;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.MessageStoreProvider;
+
+/**
+ * Keeps the configuration in a JSON file and provides a journal message store kept alongside it in the same
+ * directory.
+ */
+public class JournalConfigurationStore extends JsonFileConfigStore implements MessageStoreProvider
+{
+    public static final String JOURNAL_DIRECTORY_NAME = "journal";
+
+    private volatile JournalMessageStore _messageStore;
+
+    public JournalConfigurationStore(final Class<? extends ConfiguredObject> rootClass)
+    {
+        super(rootClass);
+    }
+
+    @Override
+    public void openConfigurationStore(final ConfiguredObject<?> parent,
+                                       final boolean overwrite,
+                                       final ConfiguredObjectRecord... initialRecords)
+    {
+        super.openConfigurationStore(parent, overwrite, initialRecords);
+        final String storePath = ((FileBasedSettings) parent).getStorePath();
+        _messageStore = new JournalMessageStore(new File(storePath, JOURNAL_DIRECTORY_NAME).getPath());
+    }
+
+    @Override
+    public MessageStore getMessageStore()
+    {
+        return _messageStore;
+    }
+}
@@ -0,0 +1,2044 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.journal;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.message.EnqueueableMessage;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.plugin.MessageMetaDataType;
+import org.apache.qpid.server.stats.StatisticsHistogram;
+import org.apache.qpid.server.store.Event;
+import org.apache.qpid.server.store.EventListener;
+import org.apache.qpid.server.store.EventManager;
+import org.apache.qpid.server.store.FileBasedSettings;
+import org.apache.qpid.server.store.MessageDurability;
+import org.apache.qpid.server.store.MessageEnqueueRecord;
+import org.apache.qpid.server.store.MessageHandle;
+import org.apache.qpid.server.store.MessageMetaDataTypeRegistry;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.SizeMonitoringSettings;
+import org.apache.qpid.server.store.StorableMessageMetaData;
+import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.store.Transaction;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.store.Xid;
+import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
+import org.apache.qpid.server.store.handler.MessageHandler;
+import org.apache.qpid.server.store.handler.MessageInstanceHandler;
+import org.apache.qpid.server.util.DaemonThreadFactory;
+import org.apache.qpid.util.FileUtils;
+
+/**
+ * A message store which appends every change to a journal of memory-mapped segment files.
+ * <p>
+ * A message is written once, as a single record holding its metadata and content, when it is first enqueued by a
+ * transaction or flowed to disk. Enqueues, dequeues and distributed transaction records are written as one record
+ * per transaction, so a transaction is either wholly present in the journal or not at all. Commits are made durable
+ * by a single thread forcing the journal on behalf of all transactions that committed since the last force.
+ * <p>
+ * The live state of the journal is indexed in memory, by record and by the segment holding each record, and rebuilt
+ * on open by replaying the segments in order. Whenever the head moves to a new segment a background task reclaims
+ * every older segment whose live records have fallen below the compaction threshold: its live records are
+ * re-appended at the head of the journal and the segment is deleted. The task only holds the journal lock whilst
+ * appending a relocated record and moving its location, so committing transactions are not held up for the whole
+ * compaction.
+ * A dequeue, delete or xid removal record which cancels a record in an older segment is itself live for as long as
+ * that older segment remains, and is re-appended along with the live records, so a cancelled record can never be
+ * resurrected on replay whichever order segments are reclaimed in.
+ */
+public class JournalMessageStore implements MessageStore
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalMessageStore.class);
+
+    public static final String TYPE = "Journal";
+
+    public static final String SEGMENT_SIZE = "qpid.journal.segment_size";
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /** Percentage of a segment which may still be live for it to be compacted. */
+    public static final String COMPACTION_THRESHOLD = "qpid.journal.compaction_threshold";
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 50;
+
+    static final byte RECORD_MESSAGE = 1;
+    static final byte RECORD_MESSAGE_DELETE = 2;
+    static final byte RECORD_TRANSACTION = 3;
+
+    static final byte OPERATION_ENQUEUE = 1;
+    static final byte OPERATION_DEQUEUE = 2;
+    static final byte OPERATION_RECORD_XID = 3;
+    static final byte OPERATION_REMOVE_XID = 4;
+
+    /** Offset of the metadata from the start of a message record: header, type, message id and metadata length. */
+    private static final int MESSAGE_METADATA_OFFSET = JournalSegment.RECORD_HEADER_SIZE + 1 + 8 + 4;
+    private static final int INSTANCE_OPERATION_SIZE = 1 + 16 + 8;
+    private static final int INSTANCE_SIZE = 16 + 8;
+    private static final int MESSAGE_DELETE_RECORD_SIZE = JournalSegment.RECORD_HEADER_SIZE + 1 + 8;
+    /** The maximum number of operations re-appended in a single transaction record by compaction. */
+    private static final int COMPACTION_BATCH_SIZE = 256;
+
+    private final AtomicBoolean _messageStoreOpen = new AtomicBoolean();
+    private final AtomicLong _messageId = new AtomicLong(1);
+    private final EventManager _eventManager = new EventManager();
+    private final StatisticsHistogram _commitLatencyStatistics = new StatisticsHistogram("store-commit-latency");
+    private final String _providedStorePath;
+
+    private final Object _journalLock = new Object();
+    private final Deque<JournalSegment> _segments = new ArrayDeque<>();
+    private final Map<Long, MessageLocation> _messageLocations = new HashMap<>();
+    private final Map<UUID, Map<Long, JournalSegment>> _messageInstances = new HashMap<>();
+    private final Map<Xid, XidLocation> _distributedTransactions = new HashMap<>();
+    /** Records cancelling a record in an older segment, by the segment holding them and then the older segment. */
+    private final Map<JournalSegment, Map<JournalSegment, Tombstones>> _tombstones = new HashMap<>();
+    private final Map<JournalSegment, LiveRecords> _liveRecords = new HashMap<>();
+    private final AtomicBoolean _compactionScheduled = new AtomicBoolean();
+    private long _nextSegmentNumber;
+    private long _totalStoreSize;
+    private boolean _limitBusted;
+
+    private ConfiguredObject<?> _parent;
+    private File _storeDirectory;
+    private int _segmentSize;
+    private int _compactionThreshold;
+    private long _persistentSizeLowThreshold;
+    private long _persistentSizeHighThreshold;
+    private JournalCommitter _committer;
+    private ExecutorService _compactor;
+
+    public JournalMessageStore()
+    {
+        this(null);
+    }
+
+    /**
+     * @param providedStorePath the directory holding the journal, or null to use the store path of the parent
+     */
+    public JournalMessageStore(final String providedStorePath)
+    {
+        _providedStorePath = providedStorePath;
+    }
+
+    @Override
+    public void openMessageStore(final ConfiguredObject<?> parent)
+    {
+        if (_messageStoreOpen.compareAndSet(false, true))
+        {
+            _parent = parent;
+            _storeDirectory = new File(getStoreLocation());
+            if (!_storeDirectory.isDirectory() && !_storeDirectory.mkdirs())
+            {
+                _messageStoreOpen.set(false);
+                throw new StoreException("Cannot create journal directory " + _storeDirectory);
+            }
+
+            _segmentSize = getContextValue(parent, SEGMENT_SIZE, DEFAULT_SEGMENT_SIZE);
+            _compactionThreshold = getContextValue(parent, COMPACTION_THRESHOLD, DEFAULT_COMPACTION_THRESHOLD);
+
+            if (parent instanceof SizeMonitoringSettings)
+            {
+                final SizeMonitoringSettings sizeMonitorSettings = (SizeMonitoringSettings) parent;
+                _persistentSizeHighThreshold = sizeMonitorSettings.getStoreOverfullSize();
+                _persistentSizeLowThreshold = sizeMonitorSettings.getStoreUnderfullSize();
+
+                if (_persistentSizeLowThreshold > _persistentSizeHighThreshold || _persistentSizeLowThreshold < 0l)
+                {
+                    _persistentSizeLowThreshold = _persistentSizeHighThreshold;
+                }
+            }
+
+            synchronized (_journalLock)
+            {
+                recover();
+            }
+
+            _committer = new JournalCommitter(parent.getName(), new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    syncJournal();
+                }
+            });
+            _committer.start();
+
+            _compactor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Journal-Compactor-"
+                                                                                   + parent.getName()));
+            scheduleCompaction();
+        }
+    }
+
+    private static int getContextValue(final ConfiguredObject<?> parent, final String name, final int defaultValue)
+    {
+        if (parent.getContextKeys(false).contains(name))
+        {
+            return parent.getContextValue(Integer.class, name);
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public void upgradeStoreStructure() throws StoreException
+    {
+    }
+
+    @Override
+    public <T extends StorableMessageMetaData> MessageHandle<T> addMessage(final T metaData)
+    {
+        checkMessageStoreOpen();
+        return new StoredJournalMessage<>(getNextMessageId(), metaData, false);
+    }
+
+    @Override
+    public long getNextMessageId()
+    {
+        return _messageId.getAndIncrement();
+    }
+
+    @Override
+    public String getStoreLocation()
+    {
+        return _providedStorePath != null ? _providedStorePath : ((FileBasedSettings) _parent).getStorePath();
+    }
+
+    @Override
+    public File getStoreLocationAsFile()
+    {
+        return new File(getStoreLocation());
+    }
+
+    @Override
+    public void addEventListener(final EventListener eventListener, final Event... events)
+    {
+        _eventManager.addEventListener(eventListener, events);
+    }
+
+    @Override
+    public boolean isPersistent()
+    {
+        return true;
+    }
+
+    @Override
+    public Transaction newTransaction()
+    {
+        checkMessageStoreOpen();
+        return new JournalTransaction();
+    }
+
+    @Override
+    public StatisticsHistogram getCommitLatencyStatistics()
+    {
+        return _commitLatencyStatistics;
+    }
+
+    private void registerCommitLatency(final long startTime)
+    {
+        _commitLatencyStatistics.registerValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+    }
+
+    @Override
+    public void closeMessageStore()
+    {
+        if (_messageStoreOpen.compareAndSet(true, false))
+        {
+            try
+            {
+                if (_committer != null)
+                {
+                    _committer.stop();
+                }
+            }
+            finally
+            {
+                stopCompactor();
+                synchronized (_journalLock)
+                {
+                    if (!_segments.isEmpty())
+                    {
+                        _segments.getLast().force();
+                    }
+                    _segments.clear();
+                    _messageLocations.clear();
+                    _messageInstances.clear();
+                    _distributedTransactions.clear();
+                    _tombstones.clear();
+                    _liveRecords.clear();
+                }
+            }
+        }
+    }
+
+    private void stopCompactor()
+    {
+        if (_compactor != null)
+        {
+            _compactor.shutdown();
+            try
+            {
+                if (!_compactor.awaitTermination(1, TimeUnit.MINUTES))
+                {
+                    LOGGER.warn("Journal compaction has not stopped");
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            _compactor = null;
+        }
+    }
+
+    @Override
+    public void onDelete(final ConfiguredObject<?> parent)
+    {
+        if (_messageStoreOpen.get())
+        {
+            throw new IllegalStateException("Cannot delete the store as the message store is still open");
+        }
+
+        final String storePath = _providedStorePath != null
+                ? _providedStorePath
+                : ((FileBasedSettings) parent).getStorePath();
+
+        if (storePath != null)
+        {
+            LOGGER.debug("Deleting store {}", storePath);
+
+            File storeDirectory = new File(storePath);
+            if (!FileUtils.delete(storeDirectory, true))
+            {
+                LOGGER.info("Failed to delete the store at location " + storePath);
+            }
+        }
+    }
+
+    @Override
+    public MessageStoreReader newMessageStoreReader()
+    {
+        return new JournalMessageStoreReader();
+    }
+
+    private void checkMessageStoreOpen()
+    {
+        if (!_messageStoreOpen.get())
+        {
+            throw new IllegalStateException("Message store is not open");
+        }
+    }
+
+    /** Forces the head of the journal; segments are forced as the head moves past them. */
+    private void syncJournal()
+    {
+        final JournalSegment head;
+        synchronized (_journalLock)
+        {
+            head = _segments.peekLast();
+        }
+        if (head != null)
+        {
+            head.force();
+        }
+    }
+
+    private void recover()
+    {
+        final File[] files = _storeDirectory.listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(final File dir, final String name)
+            {
+                return name.endsWith(JournalSegment.FILE_EXTENSION);
+            }
+        });
+
+        long maxMessageId = 0;
+        if (files != null)
+        {
+            // segment file names are fixed width hex segment numbers so sort in journal order
+            Arrays.sort(files);
+            for (File file : files)
+            {
+                final JournalSegment segment = JournalSegment.open(file);
+                _segments.add(segment);
+                _totalStoreSize += segment.getCapacity();
+                _nextSegmentNumber = segment.getNumber() + 1;
+                maxMessageId = Math.max(maxMessageId, segment.getFirstMessageId() - 1);
+
+                int position = JournalSegment.HEADER_SIZE;
+                int recordLength;
+                while ((recordLength = segment.validRecordLength(position)) > 0)
+                {
+                    maxMessageId = Math.max(maxMessageId, replayRecord(segment, position, recordLength));
+                    position += recordLength;
+                }
+                segment.setWritePosition(position);
+            }
+        }
+
+        _messageId.set(maxMessageId + 1);
+
+        if (_segments.isEmpty())
+        {
+            startNewSegment(_segmentSize);
+        }
+
+        LOGGER.debug("Recovered {} messages, {} queues with message instances and {} distributed transactions from {}"
+                     + " journal segments",
+                     _messageLocations.size(),
+                     _messageInstances.size(),
+                     _distributedTransactions.size(),
+                     _segments.size());
+    }
+
+    /**
+     * Applies the record to the in-memory index and returns the highest message id it refers to.
+     */
+    private long replayRecord(final JournalSegment segment, final int position, final int recordLength)
+    {
+        final ByteBuffer record = segment.view(position + JournalSegment.RECORD_HEADER_SIZE,
+                                               recordLength - JournalSegment.RECORD_HEADER_SIZE);
+        final byte type = record.get();
+        switch (type)
+        {
+            case RECORD_MESSAGE:
+            {
+                final long messageId = record.getLong();
+                final int metaDataLength = record.getInt();
+                record.position(record.position() + metaDataLength);
+                final int contentLength = record.getInt();
+                registerMessage(messageId,
+                                new MessageLocation(segment, position, recordLength, metaDataLength, contentLength));
+                return messageId;
+            }
+            case RECORD_MESSAGE_DELETE:
+            {
+                final long messageId = record.getLong();
+                unregisterMessage(messageId, segment);
+                return messageId;
+            }
+            case RECORD_TRANSACTION:
+            {
+                long maxMessageId = 0;
+                final int operationCount = record.getInt();
+                for (int i = 0; i < operationCount; i++)
+                {
+                    final JournalOperation operation = readOperation(record);
+                    operation.apply(segment);
+                    maxMessageId = Math.max(maxMessageId, operation.getMaxMessageId());
+                }
+                return maxMessageId;
+            }
+            default:
+                throw new StoreException("Unknown record type " + type + " at position " + position + " of " + segment);
+        }
+    }
+
+    private JournalOperation readOperation(final ByteBuffer record)
+    {
+        final byte type = record.get();
+        switch (type)
+        {
+            case OPERATION_ENQUEUE:
+            case OPERATION_DEQUEUE:
+                return new InstanceOperation(type == OPERATION_ENQUEUE, readUUID(record), record.getLong());
+            case OPERATION_RECORD_XID:
+            {
+                final Xid xid = readXid(record);
+                final RecordImpl[] enqueues = readRecords(record);
+                final RecordImpl[] dequeues = readRecords(record);
+                return new XidOperation(xid, enqueues, dequeues);
+            }
+            case OPERATION_REMOVE_XID:
+                return new XidOperation(readXid(record), null, null);
+            default:
+                throw new StoreException("Unknown journal operation type " + type);
+        }
+    }
+
+    private static UUID readUUID(final ByteBuffer buffer)
+    {
+        final long mostSignificantBits = buffer.getLong();
+        return new UUID(mostSignificantBits, buffer.getLong());
+    }
+
+    private static void writeUUID(final ByteBuffer buffer, final UUID uuid)
+    {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static Xid readXid(final ByteBuffer buffer)
+    {
+        final long format = buffer.getLong();
+        final byte[] globalId = new byte[buffer.getInt()];
+        buffer.get(globalId);
+        final byte[] branchId = new byte[buffer.getInt()];
+        buffer.get(branchId);
+        return new Xid(format, globalId, branchId);
+    }
+
+    private static RecordImpl[] readRecords(final ByteBuffer buffer)
+    {
+        final RecordImpl[] records = new RecordImpl[buffer.getInt()];
+        for (int i = 0; i < records.length; i++)
+        {
+            final UUID queueId = readUUID(buffer);
+            records[i] = new RecordImpl(queueId, buffer.getLong());
+        }
+        return records;
+    }
+
+    private void registerMessage(final long messageId, final MessageLocation location)
+    {
+        final MessageLocation previous = _messageLocations.put(messageId, location);
+        if (previous != null)
+        {
+            previous.getSegment().adjustLiveBytes(-previous.getRecordLength());
+            getLiveRecords(previous.getSegment()).getMessages().remove(messageId);
+        }
+        location.getSegment().adjustLiveBytes(location.getRecordLength());
+        getLiveRecords(location.getSegment()).getMessages().add(messageId);
+    }
+
+    private void unregisterMessage(final long messageId, final JournalSegment segment)
+    {
+        final MessageLocation previous = _messageLocations.remove(messageId);
+        if (previous != null)
+        {
+            previous.getSegment().adjustLiveBytes(-previous.getRecordLength());
+            getLiveRecords(previous.getSegment()).getMessages().remove(messageId);
+            if (previous.getSegment() != segment)
+            {
+                getTombstones(segment, previous.getSegment()).addDeletedMessage(messageId);
+            }
+        }
+    }
+
+    private void addInstance(final UUID queueId, final long messageId, final JournalSegment segment)
+    {
+        Map<Long, JournalSegment> instances = _messageInstances.get(queueId);
+        if (instances == null)
+        {
+            instances = new TreeMap<>();
+            _messageInstances.put(queueId, instances);
+        }
+        final JournalSegment previous = instances.put(messageId, segment);
+        if (previous != null)
+        {
+            previous.adjustLiveBytes(-INSTANCE_SIZE);
+            getLiveRecords(previous).removeInstance(queueId, messageId);
+        }
+        segment.adjustLiveBytes(INSTANCE_SIZE);
+        getLiveRecords(segment).addInstance(queueId, messageId);
+    }
+
+    /**
+     * Removes the message instance and returns the segment holding the record which enqueued it, or null if the
+     * instance was not live.
+     */
+    private JournalSegment removeInstance(final UUID queueId, final long messageId)
+    {
+        final Map<Long, JournalSegment> instances = _messageInstances.get(queueId);
+        JournalSegment previous = null;
+        if (instances != null)
+        {
+            previous = instances.remove(messageId);
+            if (previous != null)
+            {
+                previous.adjustLiveBytes(-INSTANCE_SIZE);
+                getLiveRecords(previous).removeInstance(queueId, messageId);
+            }
+            if (instances.isEmpty())
+            {
+                _messageInstances.remove(queueId);
+            }
+        }
+        return previous;
+    }
+
+    private boolean isInstanceLive(final UUID queueId, final long messageId)
+    {
+        final Map<Long, JournalSegment> instances = _messageInstances.get(queueId);
+        return instances != null && instances.containsKey(messageId);
+    }
+
+    private LiveRecords getLiveRecords(final JournalSegment segment)
+    {
+        LiveRecords liveRecords = _liveRecords.get(segment);
+        if (liveRecords == null)
+        {
+            liveRecords = new LiveRecords();
+            _liveRecords.put(segment, liveRecords);
+        }
+        return liveRecords;
+    }
+
+    /**
+     * Returns the records held by <code>segment</code> which cancel records in the older <code>cancelledSegment</code>.
+     */
+    private Tombstones getTombstones(final JournalSegment segment, final JournalSegment cancelledSegment)
+    {
+        Map<JournalSegment, Tombstones> held = _tombstones.get(segment);
+        if (held == null)
+        {
+            held = new HashMap<>();
+            _tombstones.put(segment, held);
+        }
+        Tombstones tombstones = held.get(cancelledSegment);
+        if (tombstones == null)
+        {
+            tombstones = new Tombstones();
+            held.put(cancelledSegment, tombstones);
+        }
+        return tombstones;
+    }
+
+    private long getTombstoneBytes(final JournalSegment segment)
+    {
+        long size = 0;
+        final Map<JournalSegment, Tombstones> held = _tombstones.get(segment);
+        if (held != null)
+        {
+            for (Tombstones tombstones : held.values())
+            {
+                size += tombstones.getSize();
+            }
+        }
+        return size;
+    }
+
+    private static ByteBuffer newRecord(final byte type, final int bodyLength)
+    {
+        final ByteBuffer record = ByteBuffer.allocate(JournalSegment.RECORD_HEADER_SIZE + 1 + bodyLength);
+        record.putInt(1 + bodyLength);
+        record.putInt(0);
+        record.put(type);
+        return record;
+    }
+
+    private static ByteBuffer sealRecord(final ByteBuffer record)
+    {
+        record.putInt(4, JournalSegment.checksum(record,
+                                                 JournalSegment.RECORD_HEADER_SIZE,
+                                                 record.position() - JournalSegment.RECORD_HEADER_SIZE));
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Appends the record at the head of the journal, moving to a new segment if it does not fit, and returns the
+     * position at which it was written in the (new) head segment.
+     */
+    private int append(final ByteBuffer record)
+    {
+        final int recordLength = record.remaining();
+        while (!_segments.getLast().hasRoom(recordLength))
+        {
+            _segments.getLast().force();
+            startNewSegment(Math.max(_segmentSize, JournalSegment.HEADER_SIZE + recordLength));
+            scheduleCompaction();
+        }
+        return _segments.getLast().append(record);
+    }
+
+    private void startNewSegment(final int size)
+    {
+        final JournalSegment segment =
+                JournalSegment.create(_storeDirectory, _nextSegmentNumber++, size, _messageId.get());
+        _segments.add(segment);
+        storedSizeChange(segment.getCapacity());
+        LOGGER.debug("Started journal segment {}", segment);
+    }
+
+    private void scheduleCompaction()
+    {
+        if (_compactor != null && _compactionScheduled.compareAndSet(false, true))
+        {
+            _compactor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    _compactionScheduled.set(false);
+                    try
+                    {
+                        compact();
+                    }
+                    catch (RuntimeException e)
+                    {
+                        LOGGER.error("Journal compaction failed", e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Reclaims every segment behind the head whose live records have fallen below the compaction threshold. Segments
+     * are visited oldest first, so records cancelling a segment reclaimed in the same pass need not be relocated.
+     */
+    private void compact()
+    {
+        final List<JournalSegment> segments;
+        synchronized (_journalLock)
+        {
+            segments = new ArrayList<>(_segments);
+        }
+        for (JournalSegment segment : segments)
+        {
+            if (!_messageStoreOpen.get())
+            {
+                return;
+            }
+            synchronized (_journalLock)
+            {
+                if (segment == _segments.peekLast())
+                {
+                    return;
+                }
+                if (!_segments.contains(segment) || !isSparse(segment))
+                {
+                    continue;
+                }
+            }
+            compact(segment);
+        }
+    }
+
+    private boolean isSparse(final JournalSegment segment)
+    {
+        final long retainedBytes = segment.getLiveBytes() + getTombstoneBytes(segment);
+        return retainedBytes * 100 <= (long) segment.getCapacity() * _compactionThreshold;
+    }
+
+    private void compact(final JournalSegment segment)
+    {
+        final boolean relocated = relocateMessages(segment) | relocateOperations(segment);
+        synchronized (_journalLock)
+        {
+            if (_tombstones.containsKey(segment))
+            {
+                relocateTombstones(segment);
+                _segments.getLast().force();
+            }
+        }
+        if (relocated)
+        {
+            // earlier heads were forced as the journal moved past them
+            final JournalSegment head;
+            synchronized (_journalLock)
+            {
+                head = _segments.getLast();
+            }
+            head.force();
+        }
+        synchronized (_journalLock)
+        {
+            if (getLiveRecords(segment).isEmpty())
+            {
+                reclaim(segment);
+            }
+            else
+            {
+                LOGGER.warn("Journal segment {} still holds live records after compaction", segment);
+            }
+        }
+    }
+
+    /**
+     * Re-appends the live message records of the segment at the head. The records are copied out of the segment
+     * without holding the journal lock; a message which is deleted meanwhile is simply not re-appended.
+     */
+    private boolean relocateMessages(final JournalSegment segment)
+    {
+        final Map<Long, MessageLocation> locations = new HashMap<>();
+        synchronized (_journalLock)
+        {
+            for (Long messageId : getLiveRecords(segment).getMessages())
+            {
+                locations.put(messageId, _messageLocations.get(messageId));
+            }
+        }
+
+        boolean relocated = false;
+        for (Map.Entry<Long, MessageLocation> entry : locations.entrySet())
+        {
+            final MessageLocation location = entry.getValue();
+            final ByteBuffer record = ByteBuffer.allocate(location.getRecordLength());
+            record.put(segment.view(location.getPosition(), location.getRecordLength()));
+            record.flip();
+            synchronized (_journalLock)
+            {
+                if (_messageLocations.get(entry.getKey()) == location)
+                {
+                    final int position = append(record);
+                    registerMessage(entry.getKey(), location.moveTo(_segments.getLast(), position));
+                    relocated = true;
+                }
+            }
+        }
+        return relocated;
+    }
+
+    /**
+     * Re-appends the live message instances and distributed transactions of the segment at the head, a batch of
+     * operations at a time.
+     */
+    private boolean relocateOperations(final JournalSegment segment)
+    {
+        boolean relocated = false;
+        while (true)
+        {
+            synchronized (_journalLock)
+            {
+                final LiveRecords liveRecords = getLiveRecords(segment);
+                final List<JournalOperation> operations = new ArrayList<>();
+                final Iterator<Map.Entry<UUID, Set<Long>>> queues = liveRecords.getInstances().entrySet().iterator();
+                while (operations.size() < COMPACTION_BATCH_SIZE && queues.hasNext())
+                {
+                    final Map.Entry<UUID, Set<Long>> queueEntry = queues.next();
+                    final Iterator<Long> messageIds = queueEntry.getValue().iterator();
+                    while (operations.size() < COMPACTION_BATCH_SIZE && messageIds.hasNext())
+                    {
+                        operations.add(new InstanceOperation(true, queueEntry.getKey(), messageIds.next()));
+                    }
+                }
+                final Iterator<Xid> xids = liveRecords.getXids().iterator();
+                while (operations.size() < COMPACTION_BATCH_SIZE && xids.hasNext())
+                {
+                    final Xid xid = xids.next();
+                    final XidLocation location = _distributedTransactions.get(xid);
+                    operations.add(new XidOperation(xid, location.getEnqueues(), location.getDequeues()));
+                }
+                if (operations.isEmpty())
+                {
+                    return relocated;
+                }
+                // applying the operations moves the records out of the segment's live records
+                appendTransaction(operations);
+                relocated = true;
+            }
+        }
+    }
+
+    private void reclaim(final JournalSegment segment)
+    {
+        _segments.remove(segment);
+        _tombstones.remove(segment);
+        _liveRecords.remove(segment);
+        final Iterator<Map<JournalSegment, Tombstones>> iterator = _tombstones.values().iterator();
+        while (iterator.hasNext())
+        {
+            final Map<JournalSegment, Tombstones> held = iterator.next();
+            held.remove(segment);
+            if (held.isEmpty())
+            {
+                iterator.remove();
+            }
+        }
+        segment.delete();
+        storedSizeChange(-segment.getCapacity());
+        LOGGER.debug("Reclaimed journal segment {}", segment);
+    }
+
+    /**
+     * Re-appends the records held by the segment which cancel records in older segments still in the journal. A
+     * record whose target has since been recorded again is dropped instead, as re-appending it would cancel the
+     * newer record.
+     */
+    private void relocateTombstones(final JournalSegment segment)
+    {
+        final Map<JournalSegment, Tombstones> held = _tombstones.remove(segment);
+        if (held == null)
+        {
+            return;
+        }
+        for (Map.Entry<JournalSegment, Tombstones> entry : held.entrySet())
+        {
+            final JournalSegment cancelledSegment = entry.getKey();
+            for (Long messageId : entry.getValue().getDeletedMessages())
+            {
+                if (!_messageLocations.containsKey(messageId))
+                {
+                    append(newMessageDeleteRecord(messageId));
+                    getTombstones(_segments.getLast(), cancelledSegment).addDeletedMessage(messageId);
+                }
+            }
+
+            final List<JournalOperation> operations = new ArrayList<>();
+            for (JournalOperation operation : entry.getValue().getOperations())
+            {
+                if (!operation.cancelsLiveRecord())
+                {
+                    operations.add(operation);
+                }
+            }
+            if (!operations.isEmpty())
+            {
+                appendTransaction(operations);
+                final Tombstones tombstones = getTombstones(_segments.getLast(), cancelledSegment);
+                for (JournalOperation operation : operations)
+                {
+                    tombstones.addOperation(operation);
+                }
+            }
+        }
+    }
+
+    private void appendTransaction(final List<JournalOperation> operations)
+    {
+        int bodyLength = 4;
+        for (JournalOperation operation : operations)
+        {
+            bodyLength += operation.getEncodedSize();
+        }
+        final ByteBuffer record = newRecord(RECORD_TRANSACTION, bodyLength);
+        record.putInt(operations.size());
+        for (JournalOperation operation : operations)
+        {
+            operation.encode(record);
+        }
+        sealRecord(record);
+
+        synchronized (_journalLock)
+        {
+            append(record);
+            final JournalSegment head = _segments.getLast();
+            for (JournalOperation operation : operations)
+            {
+                operation.apply(head);
+            }
+        }
+    }
+
+    private void storeMessage(final long messageId,
+                              final StorableMessageMetaData metaData,
+                              final Collection<QpidByteBuffer> content)
+    {
+        final int metaDataLength = 1 + metaData.getStorableSize();
+        int contentLength = 0;
+        for (QpidByteBuffer buf : content)
+        {
+            contentLength += buf.remaining();
+        }
+
+        final byte[] metaDataBytes = new byte[metaDataLength];
+        metaDataBytes[0] = (byte) metaData.getType().ordinal();
+        QpidByteBuffer metaDataBuf = QpidByteBuffer.wrap(metaDataBytes);
+        metaDataBuf.position(1);
+        metaDataBuf = metaDataBuf.slice();
+        metaData.writeToBuffer(metaDataBuf);
+
+        final ByteBuffer record = newRecord(RECORD_MESSAGE, 8 + 4 + metaDataLength + 4 + contentLength);
+        record.putLong(messageId);
+        record.putInt(metaDataLength);
+        record.put(metaDataBytes);
+        record.putInt(contentLength);
+        for (QpidByteBuffer buf : content)
+        {
+            buf.copyTo(record);
+        }
+        sealRecord(record);
+        final int recordLength = record.remaining();
+
+        synchronized (_journalLock)
+        {
+            final int position = append(record);
+            registerMessage(messageId,
+                            new MessageLocation(_segments.getLast(), position, recordLength, metaDataLength, contentLength));
+        }
+        LOGGER.debug("Stored message {} in journal", messageId);
+    }
+
+    private void removeMessage(final long messageId)
+    {
+        final ByteBuffer record = newMessageDeleteRecord(messageId);
+
+        synchronized (_journalLock)
+        {
+            if (_messageLocations.containsKey(messageId))
+            {
+                append(record);
+                unregisterMessage(messageId, _segments.getLast());
+            }
+        }
+    }
+
+    private static ByteBuffer newMessageDeleteRecord(final long messageId)
+    {
+        final ByteBuffer record = newRecord(RECORD_MESSAGE_DELETE, 8);
+        record.putLong(messageId);
+        return sealRecord(record);
+    }
+
+    private StorableMessageMetaData readMetaData(final long messageId)
+    {
+        final byte[] metaDataBytes;
+        synchronized (_journalLock)
+        {
+            final MessageLocation location = _messageLocations.get(messageId);
+            if (location == null)
+            {
+                throw new StoreException("Meta data not found for message with id " + messageId);
+            }
+            metaDataBytes = new byte[location.getMetaDataLength()];
+            location.getSegment()
+                    .view(location.getPosition() + MESSAGE_METADATA_OFFSET, location.getMetaDataLength())
+                    .get(metaDataBytes);
+        }
+
+        QpidByteBuffer buf = QpidByteBuffer.wrap(metaDataBytes);
+        buf.position(1);
+        buf = buf.slice();
+        MessageMetaDataType<?> type = MessageMetaDataTypeRegistry.fromOrdinal(((int) metaDataBytes[0]) & 0xff);
+        StorableMessageMetaData metaData = type.createMetaData(buf);
+        buf.dispose();
+        return metaData;
+    }
+
+    private Collection<QpidByteBuffer> readContent(final long messageId)
+    {
+        final byte[] content;
+        synchronized (_journalLock)
+        {
+            final MessageLocation location = _messageLocations.get(messageId);
+            if (location == null)
+            {
+                return Collections.emptyList();
+            }
+            content = new byte[location.getContentLength()];
+            location.getSegment()
+                    .view(location.getPosition() + MESSAGE_METADATA_OFFSET + location.getMetaDataLength() + 4,
+                          location.getContentLength())
+                    .get(content);
+        }
+        return content.length == 0
+                ? Collections.<QpidByteBuffer>emptyList()
+                : Collections.singleton(QpidByteBuffer.wrap(content));
+    }
+
+    private void storedSizeChange(final long delta)
+    {
+        _totalStoreSize += delta;
+        if (_persistentSizeHighThreshold > 0)
+        {
+            if (!_limitBusted && _totalStoreSize > _persistentSizeHighThreshold)
+            {
+                _limitBusted = true;
+                _eventManager.notifyEvent(Event.PERSISTENT_MESSAGE_SIZE_OVERFULL);
+            }
+            else if (_limitBusted && _totalStoreSize < _persistentSizeLowThreshold)
+            {
+                _limitBusted = false;
+                _eventManager.notifyEvent(Event.PERSISTENT_MESSAGE_SIZE_UNDERFULL);
+            }
+        }
+    }
+
+    private static final class MessageLocation
+    {
+        private final JournalSegment _segment;
+        private final int _position;
+        private final int _recordLength;
+        private final int _metaDataLength;
+        private final int _contentLength;
+
+        private MessageLocation(final JournalSegment segment,
+                                final int position,
+                                final int recordLength,
+                                final int metaDataLength,
+                                final int contentLength)
+        {
+            _segment = segment;
+            _position = position;
+            _recordLength = recordLength;
+            _metaDataLength = metaDataLength;
+            _contentLength = contentLength;
+        }
+
+        JournalSegment getSegment()
+        {
+            return _segment;
+        }
+
+        int getPosition()
+        {
+            return _position;
+        }
+
+        int getRecordLength()
+        {
+            return _recordLength;
+        }
+
+        int getMetaDataLength()
+        {
+            return _metaDataLength;
+        }
+
+        int getContentLength()
+        {
+            return _contentLength;
+        }
+
+        MessageLocation moveTo(final JournalSegment segment, final int position)
+        {
+            return new MessageLocation(segment, position, _recordLength, _metaDataLength, _contentLength);
+        }
+    }
+
+    private static final class XidLocation
+    {
+        private final JournalSegment _segment;
+        private final int _size;
+        private final RecordImpl[] _enqueues;
+        private final RecordImpl[] _dequeues;
+
+        private XidLocation(final JournalSegment segment,
+                            final int size,
+                            final RecordImpl[] enqueues,
+                            final RecordImpl[] dequeues)
+        {
+            _segment = segment;
+            _size = size;
+            _enqueues = enqueues;
+            _dequeues = dequeues;
+        }
+
+        JournalSegment getSegment()
+        {
+            return _segment;
+        }
+
+        int getSize()
+        {
+            return _size;
+        }
+
+        RecordImpl[] getEnqueues()
+        {
+            return _enqueues;
+        }
+
+        RecordImpl[] getDequeues()
+        {
+            return _dequeues;
+        }
+    }
+
+    /**
+     * The live records held by one segment.
+     */
+    private static final class LiveRecords
+    {
+        private final Set<Long> _messages = new HashSet<>();
+        private final Map<UUID, Set<Long>> _instances = new HashMap<>();
+        private final Set<Xid> _xids = new HashSet<>();
+
+        Set<Long> getMessages()
+        {
+            return _messages;
+        }
+
+        Map<UUID, Set<Long>> getInstances()
+        {
+            return _instances;
+        }
+
+        Set<Xid> getXids()
+        {
+            return _xids;
+        }
+
+        boolean isEmpty()
+        {
+            return _messages.isEmpty() && _instances.isEmpty() && _xids.isEmpty();
+        }
+
+        void addInstance(final UUID queueId, final long messageId)
+        {
+            Set<Long> messageIds = _instances.get(queueId);
+            if (messageIds == null)
+            {
+                messageIds = new HashSet<>();
+                _instances.put(queueId, messageIds);
+            }
+            messageIds.add(messageId);
+        }
+
+        void removeInstance(final UUID queueId, final long messageId)
+        {
+            final Set<Long> messageIds = _instances.get(queueId);
+            if (messageIds != null && messageIds.remove(messageId) && messageIds.isEmpty())
+            {
+                _instances.remove(queueId);
+            }
+        }
+    }
+
+    /**
+     * The delete records and operations held by one segment which cancel records in one older segment.
+     */
+    private static final class Tombstones
+    {
+        private final List<Long> _deletedMessages = new ArrayList<>();
+        private final List<JournalOperation> _operations = new ArrayList<>();
+        private long _size;
+
+        void addDeletedMessage(final long messageId)
+        {
+            _deletedMessages.add(messageId);
+            _size += MESSAGE_DELETE_RECORD_SIZE;
+        }
+
+        void addOperation(final JournalOperation operation)
+        {
+            _operations.add(operation);
+            _size += operation.getEncodedSize();
+        }
+
+        List<Long> getDeletedMessages()
+        {
+            return _deletedMessages;
+        }
+
+        List<JournalOperation> getOperations()
+        {
+            return _operations;
+        }
+
+        long getSize()
+        {
+            return _size;
+        }
+    }
+
+    /**
+     * A change to the message instances or distributed transactions, written as part of a transaction record.
+     * Operations are applied to the index only once the record holding them has been appended.
+     */
+    private abstract class JournalOperation
+    {
+        abstract int getEncodedSize();
+
+        abstract void encode(ByteBuffer buffer);
+
+        abstract void apply(JournalSegment segment);
+
+        abstract long getMaxMessageId();
+
+        /**
+         * Returns true if this operation cancels a record and the record it would cancel is currently live.
+         */
+        abstract boolean cancelsLiveRecord();
+    }
+
+    private final class InstanceOperation extends JournalOperation
+    {
+        private final boolean _enqueue;
+        private final UUID _queueId;
+        private final long _messageId;
+
+        private InstanceOperation(final boolean enqueue, final UUID queueId, final long messageId)
+        {
+            _enqueue = enqueue;
+            _queueId = queueId;
+            _messageId = messageId;
+        }
+
+        @Override
+        int getEncodedSize()
+        {
+            return INSTANCE_OPERATION_SIZE;
+        }
+
+        @Override
+        void encode(final ByteBuffer buffer)
+        {
+            buffer.put(_enqueue ? OPERATION_ENQUEUE : OPERATION_DEQUEUE);
+            writeUUID(buffer, _queueId);
+            buffer.putLong(_messageId);
+        }
+
+        @Override
+        void apply(final JournalSegment segment)
+        {
+            if (_enqueue)
+            {
+                addInstance(_queueId, _messageId, segment);
+            }
+            else
+            {
+                final JournalSegment cancelledSegment = removeInstance(_queueId, _messageId);
+                if (cancelledSegment != null && cancelledSegment != segment)
+                {
+                    getTombstones(segment, cancelledSegment).addOperation(this);
+                }
+            }
+        }
+
+        @Override
+        long getMaxMessageId()
+        {
+            return _messageId;
+        }
+
+        @Override
+        boolean cancelsLiveRecord()
+        {
+            return !_enqueue && isInstanceLive(_queueId, _messageId);
+        }
+    }
+
+    private final class XidOperation extends JournalOperation
+    {
+        private final Xid _xid;
+        private final RecordImpl[] _enqueues;
+        private final RecordImpl[] _dequeues;
+
+        /**
+         * @param enqueues the enqueues of the recorded xid, or null if the xid is being removed
+         */
+        private XidOperation(final Xid xid, final RecordImpl[] enqueues, final RecordImpl[] dequeues)
+        {
+            _xid = xid;
+            _enqueues = enqueues;
+            _dequeues = dequeues;
+        }
+
+        private boolean isRemove()
+        {
+            return _enqueues == null;
+        }
+
+        @Override
+        int getEncodedSize()
+        {
+            int size = 1 + 8 + 4 + _xid.getGlobalId().length + 4 + _xid.getBranchId().length;
+            if (!isRemove())
+            {
+                size += 4 + _enqueues.length * INSTANCE_SIZE + 4 + _dequeues.length * INSTANCE_SIZE;
+            }
+            return size;
+        }
+
+        @Override
+        void encode(final ByteBuffer buffer)
+        {
+            buffer.put(isRemove() ? OPERATION_REMOVE_XID : OPERATION_RECORD_XID);
+            buffer.putLong(_xid.getFormat());
+            buffer.putInt(_xid.getGlobalId().length);
+            buffer.put(_xid.getGlobalId());
+            buffer.putInt(_xid.getBranchId().length);
+            buffer.put(_xid.getBranchId());
+            if (!isRemove())
+            {
+                encodeRecords(buffer, _enqueues);
+                encodeRecords(buffer, _dequeues);
+            }
+        }
+
+        private void encodeRecords(final ByteBuffer buffer, final RecordImpl[] records)
+        {
+            buffer.putInt(records.length);
+            for (RecordImpl record : records)
+            {
+                writeUUID(buffer, record.getId());
+                buffer.putLong(record.getMessageNumber());
+            }
+        }
+
+        @Override
+        void apply(final JournalSegment segment)
+        {
+            final XidLocation previous;
+            if (isRemove())
+            {
+                previous = _distributedTransactions.remove(_xid);
+            }
+            else
+            {
+                final XidLocation location = new XidLocation(segment, getEncodedSize(), _enqueues, _dequeues);
+                previous = _distributedTransactions.put(_xid, location);
+                segment.adjustLiveBytes(location.getSize());
+                getLiveRecords(segment).getXids().add(_xid);
+            }
+            if (previous != null)
+            {
+                previous.getSegment().adjustLiveBytes(-previous.getSize());
+                if (previous.getSegment() != segment || isRemove())
+                {
+                    getLiveRecords(previous.getSegment()).getXids().remove(_xid);
+                }
+                if (isRemove() && previous.getSegment() != segment)
+                {
+                    getTombstones(segment, previous.getSegment()).addOperation(this);
+                }
+            }
+        }
+
+        @Override
+        long getMaxMessageId()
+        {
+            long maxMessageId = 0;
+            if (!isRemove())
+            {
+                for (RecordImpl record : _enqueues)
+                {
+                    maxMessageId = Math.max(maxMessageId, record.getMessageNumber());
+                }
+            }
+            return maxMessageId;
+        }
+
+        @Override
+        boolean cancelsLiveRecord()
+        {
+            return isRemove() && _distributedTransactions.containsKey(_xid);
+        }
+    }
+
+    private class JournalTransaction implements Transaction
+    {
+        private final List<StoredJournalMessage<?>> _messagesToStore = new ArrayList<>();
+        private final List<JournalOperation> _operations = new ArrayList<>();
+
+        @Override
+        public MessageEnqueueRecord enqueueMessage(final TransactionLogResource queue,
+                                                   final EnqueueableMessage message)
+        {
+            checkMessageStoreOpen();
+
+            addMessageToStore(message.getStoredMessage());
+            _operations.add(new InstanceOperation(true, queue.getId(), message.getMessageNumber()));
+            return new JournalEnqueueRecord(queue.getId(), message.getMessageNumber());
+        }
+
+        private void addMessageToStore(final StoredMessage<?> storedMessage)
+        {
+            if (storedMessage instanceof StoredJournalMessage)
+            {
+                _messagesToStore.add((StoredJournalMessage<?>) storedMessage);
+            }
+        }
+
+        @Override
+        public void dequeueMessage(final MessageEnqueueRecord enqueueRecord)
+        {
+            checkMessageStoreOpen();
+
+            _operations.add(new InstanceOperation(false,
+                                                  enqueueRecord.getQueueId(),
+                                                  enqueueRecord.getMessageNumber()));
+        }
+
+        @Override
+        public void commitTran()
+        {
+            final long startTime = System.nanoTime();
+            if (writeTransaction())
+            {
+                _committer.commit();
+                registerCommitLatency(startTime);
+            }
+        }
+
+        @Override
+        public <X> ListenableFuture<X> commitTranAsync(final X val)
+        {
+            final long startTime = System.nanoTime();
+            if (writeTransaction())
+            {
+                final ListenableFuture<X> future = _committer.commitAsync(val);
+                future.addListener(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        registerCommitLatency(startTime);
+                    }
+                }, MoreExecutors.directExecutor());
+                return future;
+            }
+            return Futures.immediateFuture(val);
+        }
+
+        /**
+         * Appends the messages and operations of the transaction to the journal, returning true if anything was
+         * written which needs to be made durable.
+         */
+        private boolean writeTransaction()
+        {
+            checkMessageStoreOpen();
+
+            final boolean hasWork = !_messagesToStore.isEmpty() || !_operations.isEmpty();
+            for (StoredJournalMessage<?> message : _messagesToStore)
+            {
+                message.store();
+            }
+            if (!_operations.isEmpty())
+            {
+                appendTransaction(_operations);
+            }
+            _messagesToStore.clear();
+            _operations.clear();
+            return hasWork;
+        }
+
+        @Override
+        public void abortTran()
+        {
+            checkMessageStoreOpen();
+
+            _messagesToStore.clear();
+            _operations.clear();
+        }
+
+        @Override
+        public void removeXid(final StoredXidRecord record)
+        {
+            checkMessageStoreOpen();
+
+            _operations.add(new XidOperation(new Xid(record.getFormat(), record.getGlobalId(), record.getBranchId()),
+                                             null,
+                                             null));
+        }
+
+        @Override
+        public StoredXidRecord recordXid(final long format,
+                                         final byte[] globalId,
+                                         final byte[] branchId,
+                                         final EnqueueRecord[] enqueues,
+                                         final DequeueRecord[] dequeues)
+        {
+            checkMessageStoreOpen();
+
+            final RecordImpl[] enqueueRecords = new RecordImpl[enqueues == null ? 0 : enqueues.length];
+            for (int i = 0; i < enqueueRecords.length; i++)
+            {
+                addMessageToStore(enqueues[i].getMessage().getStoredMessage());
+                enqueueRecords[i] = new RecordImpl(enqueues[i].getResource().getId(),
+                                                   enqueues[i].getMessage().getMessageNumber());
+            }
+            final RecordImpl[] dequeueRecords = new RecordImpl[dequeues == null ? 0 : dequeues.length];
+            for (int i = 0; i < dequeueRecords.length; i++)
+            {
+                final MessageEnqueueRecord enqueueRecord = dequeues[i].getEnqueueRecord();
+                dequeueRecords[i] = new RecordImpl(enqueueRecord.getQueueId(), enqueueRecord.getMessageNumber());
+            }
+
+            _operations.add(new XidOperation(new Xid(format, globalId, branchId), enqueueRecords, dequeueRecords));
+            return new JournalStoredXidRecord(format, globalId, branchId);
+        }
+    }
+
+    private static class JournalStoredXidRecord implements Transaction.StoredXidRecord
+    {
+        private final long _format;
+        private final byte[] _globalId;
+        private final byte[] _branchId;
+
+        public JournalStoredXidRecord(final long format, final byte[] globalId, final byte[] branchId)
+        {
+            _format = format;
+            _globalId = globalId;
+            _branchId = branchId;
+        }
+
+        @Override
+        public long getFormat()
+        {
+            return _format;
+        }
+
+        @Override
+        public byte[] getGlobalId()
+        {
+            return _globalId;
+        }
+
+        @Override
+        public byte[] getBranchId()
+        {
+            return _branchId;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass())
+            {
+                return false;
+            }
+
+            final JournalStoredXidRecord that = (JournalStoredXidRecord) o;
+
+            return _format == that._format
+                   && Arrays.equals(_globalId, that._globalId)
+                   && Arrays.equals(_branchId, that._branchId);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = (int) (_format ^ (_format >>> 32));
+            result = 31 * result + Arrays.hashCode(_globalId);
+            result = 31 * result + Arrays.hashCode(_branchId);
+            return result;
+        }
+    }
+
+    private static class JournalEnqueueRecord implements MessageEnqueueRecord
+    {
+        private final UUID _queueId;
+        private final long _messageNumber;
+
+        public JournalEnqueueRecord(final UUID queueId, final long messageNumber)
+        {
+            _queueId = queueId;
+            _messageNumber = messageNumber;
+        }
+
+        @Override
+        public UUID getQueueId()
+        {
+            return _queueId;
+        }
+
+        @Override
+        public long getMessageNumber()
+        {
+            return _messageNumber;
+        }
+    }
+
+    private static class RecordImpl implements Transaction.EnqueueRecord, Transaction.DequeueRecord, TransactionLogResource, EnqueueableMessage
+    {
+        private final JournalEnqueueRecord _record;
+
+        public RecordImpl(final UUID queueId, final long messageNumber)
+        {
+            _record = new JournalEnqueueRecord(queueId, messageNumber);
+        }
+
+        @Override
+        public MessageEnqueueRecord getEnqueueRecord()
+        {
+            return _record;
+        }
+
+        @Override
+        public TransactionLogResource getResource()
+        {
+            return this;
+        }
+
+        @Override
+        public EnqueueableMessage getMessage()
+        {
+            return this;
+        }
+
+        @Override
+        public long getMessageNumber()
+        {
+            return _record.getMessageNumber();
+        }
+
+        @Override
+        public boolean isPersistent()
+        {
+            return true;
+        }
+
+        @Override
+        public StoredMessage getStoredMessage()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getName()
+        {
+            return _record.getQueueId().toString();
+        }
+
+        @Override
+        public UUID getId()
+        {
+            return _record.getQueueId();
+        }
+
+        @Override
+        public MessageDurability getMessageDurability()
+        {
+            return MessageDurability.DEFAULT;
+        }
+    }
+
+    private class StoredJournalMessage<T extends StorableMessageMetaData> implements StoredMessage<T>, MessageHandle<T>
+    {
+        private final long _messageId;
+
+        private T _metaData;
+        private Collection<QpidByteBuffer> _data;
+        private boolean _stored;
+        private boolean _removed;
+
+        StoredJournalMessage(final long messageId, final T metaData, final boolean isRecovered)
+        {
+            _messageId = messageId;
+            _metaData = metaData;
+            _stored = isRecovered;
+        }
+
+        @Override
+        public synchronized T getMetaData()
+        {
+            if (_metaData == null && _stored && !_removed)
+            {
+                checkMessageStoreOpen();
+                _metaData = (T) readMetaData(_messageId);
+            }
+            return _metaData;
+        }
+
+        @Override
+        public long getMessageNumber()
+        {
+            return _messageId;
+        }
+
+        @Override
+        public synchronized void addContent(QpidByteBuffer src)
+        {
+            src = src.slice();
+            if (_data == null)
+            {
+                _data = Collections.singleton(src);
+            }
+            else
+            {
+                List<QpidByteBuffer> newCollection = new ArrayList<>(_data.size() + 1);
+                newCollection.addAll(_data);
+                newCollection.add(src);
+                _data = Collections.unmodifiableCollection(newCollection);
+            }
+        }
+
+        @Override
+        public StoredMessage<T> allContentAdded()
+        {
+            return this;
+        }
+
+        /**
+         * returns QBBs containing the content. The caller must not dispose of them because we keep a reference in _data.
+         */
+        private Collection<QpidByteBuffer> getContentAsByteBuffer()
+        {
+            if (_data == null)
+            {
+                if (_stored && !_removed)
+                {
+                    checkMessageStoreOpen();
+                    _data = readContent(_messageId);
+                }
+                else
+                {
+                    return Collections.emptyList();
+                }
+            }
+            return _data;
+        }
+
+        @Override
+        public synchronized Collection<QpidByteBuffer> getContent(int offset, int length)
+        {
+            Collection<QpidByteBuffer> bufs = getContentAsByteBuffer();
+            Collection<QpidByteBuffer> content = new ArrayList<>(bufs.size());
+
+            int pos = 0;
+            for (QpidByteBuffer buf : bufs)
+            {
+                if (length > 0)
+                {
+                    int bufRemaining = buf.remaining();
+                    if (pos + bufRemaining <= offset)
+                    {
+                        pos += bufRemaining;
+                    }
+                    else if (pos >= offset)
+                    {
+                        buf = buf.duplicate();
+                        if (bufRemaining <= length)
+                        {
+                            length -= bufRemaining;
+                        }
+                        else
+                        {
+                            buf.limit(length);
+                            length = 0;
+                        }
+                        content.add(buf);
+                        pos += buf.remaining();
+                    }
+                    else
+                    {
+                        int offsetInBuf = offset - pos;
+                        int limit = length < bufRemaining - offsetInBuf ? length : bufRemaining - offsetInBuf;
+                        final QpidByteBuffer bufView = buf.view(offsetInBuf, limit);
+                        content.add(bufView);
+                        length -= limit;
+                        pos += limit + offsetInBuf;
+                    }
+                }
+            }
+            return content;
+        }
+
+        synchronized void store()
+        {
+            if (!_stored && !_removed)
+            {
+                storeMessage(_messageId,
+                             _metaData,
+                             _data == null ? Collections.<QpidByteBuffer>emptySet() : _data);
+                _stored = true;
+            }
+        }
+
+        @Override
+        public synchronized void remove()
+        {
+            LOGGER.debug("REMOVE called on message: {}", _messageId);
+
+            if (_removed)
+            {
+                return;
+            }
+            _removed = true;
+            if (_stored)
+            {
+                checkMessageStoreOpen();
+                removeMessage(_messageId);
+            }
+            if (_data != null)
+            {
+                for (QpidByteBuffer buf : _data)
+                {
+                    buf.dispose();
+                }
+                _data = null;
+            }
+            if (_metaData != null)
+            {
+                _metaData.dispose();
+                _metaData = null;
+            }
+        }
+
+        @Override
+        public synchronized boolean isInMemory()
+        {
+            return !_removed && (!_stored || _data != null);
+        }
+
+        @Override
+        public synchronized boolean flowToDisk()
+        {
+            if (!_removed)
+            {
+                store();
+                if (_metaData != null)
+                {
+                    _metaData.clearEncodedForm();
+                    _metaData = null;
+                }
+                if (_data != null)
+                {
+                    for (QpidByteBuffer buf : _data)
+                    {
+                        buf.dispose();
+                    }
+                    _data = null;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.getClass() + "[messageId=" + _messageId + "]";
+        }
+    }
+
+    private class JournalMessageStoreReader implements MessageStoreReader
+    {
+        @Override
+        public StoredMessage<?> getMessage(final long messageId)
+        {
+            checkMessageStoreOpen();
+
+            synchronized (_journalLock)
+            {
+                if (!_messageLocations.containsKey(messageId))
+                {
+                    return null;
+                }
+            }
+            return new StoredJournalMessage<>(messageId, readMetaData(messageId), true);
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        @Override
+        public void visitMessages(final MessageHandler handler) throws StoreException
+        {
+            checkMessageStoreOpen();
+
+            final List<Long> messageIds;
+            synchronized (_journalLock)
+            {
+                messageIds = new ArrayList<>(_messageLocations.keySet());
+            }
+            Collections.sort(messageIds);
+            for (Long messageId : messageIds)
+            {
+                final StoredMessage<?> message = getMessage(messageId);
+                if (message != null && !handler.handle(message))
+                {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public void visitMessageInstances(final MessageInstanceHandler handler) throws StoreException
+        {
+            checkMessageStoreOpen();
+
+            final List<JournalEnqueueRecord> records = new ArrayList<>();
+            synchronized (_journalLock)
+            {
+                for (Map.Entry<UUID, Map<Long, JournalSegment>> queueEntry : _messageInstances.entrySet())
+                {
+                    for (Long messageId : queueEntry.getValue().keySet())
+                    {
+                        records.add(new JournalEnqueueRecord(queueEntry.getKey(), messageId));
+                    }
+                }
+            }
+            visitRecords(records, handler);
+        }
+
+        @Override
+        public void visitMessageInstances(final TransactionLogResource queue,
+                                          final MessageInstanceHandler handler) throws StoreException
+        {
+            checkMessageStoreOpen();
+
+            final List<JournalEnqueueRecord> records = new ArrayList<>();
+            synchronized (_journalLock)
+            {
+                final Map<Long, JournalSegment> instances = _messageInstances.get(queue.getId());
+                if (instances != null)
+                {
+                    for (Long messageId : instances.keySet())
+                    {
+                        records.add(new JournalEnqueueRecord(queue.getId(), messageId));
+                    }
+                }
+            }
+            visitRecords(records, handler);
+        }
+
+        private void visitRecords(final List<JournalEnqueueRecord> records, final MessageInstanceHandler handler)
+        {
+            for (JournalEnqueueRecord record : records)
+            {
+                if (!handler.handle(record))
+                {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public void visitDistributedTransactions(final DistributedTransactionHandler handler) throws StoreException
+        {
+            checkMessageStoreOpen();
+
+            final Map<Xid, XidLocation> distributedTransactions;
+            synchronized (_journalLock)
+            {
+                distributedTransactions = new HashMap<>(_distributedTransactions);
+            }
+            for (Map.Entry<Xid, XidLocation> entry : distributedTransactions.entrySet())
+            {
+                final Xid xid = entry.getKey();
+                if (!handler.handle(new JournalStoredXidRecord(xid.getFormat(), xid.getGlobalId(), xid.getBranchId()),
+                                    entry.getValue().getEnqueues(),
+                                    entry.getValue().getDequeues()))
+                {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.store.StoreException;
+
+/**
+ * A single fixed size journal file, mapped into memory in its entirety.
+ * <p>
+ * A segment starts with a header holding a magic number, the format version, the segment number and the next
+ * message id at the time the segment was created. It is followed by a sequence of records, each framed as
+ * <code>[length][crc32][type][body]</code> where the length covers the type and body. Segments are created
+ * zero filled, so a zero length marks the end of the written records.
+ */
+final class JournalSegment
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalSegment.class);
+
+    static final String FILE_EXTENSION = ".jrn";
+
+    static final int MAGIC = 0x514A524E;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final int CHECKSUM_BUFFER_SIZE = 8192;
+
+    private final long _number;
+    private final long _firstMessageId;
+    private final File _file;
+    private final MappedByteBuffer _buffer;
+    private int _writePosition;
+    private long _liveBytes;
+    private boolean _deleted;
+
+    private JournalSegment(final long number,
+                           final long firstMessageId,
+                           final File file,
+                           final MappedByteBuffer buffer,
+                           final int writePosition)
+    {
+        _number = number;
+        _firstMessageId = firstMessageId;
+        _file = file;
+        _buffer = buffer;
+        _writePosition = writePosition;
+    }
+
+    static File getFile(final File directory, final long number)
+    {
+        return new File(directory, String.format("%016x", number) + FILE_EXTENSION);
+    }
+
+    static JournalSegment create(final File directory, final long number, final int size, final long firstMessageId)
+    {
+        final File file = getFile(directory, number);
+        final MappedByteBuffer buffer = map(file, size, true);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, number);
+        buffer.putLong(16, firstMessageId);
+        buffer.force();
+        return new JournalSegment(number, firstMessageId, file, buffer, HEADER_SIZE);
+    }
+
+    static JournalSegment open(final File file)
+    {
+        final MappedByteBuffer buffer = map(file, file.length(), false);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+        {
+            throw new StoreException("File " + file + " is not a journal segment");
+        }
+        if (buffer.getInt(4) != VERSION)
+        {
+            throw new StoreException("Journal segment " + file + " has unsupported version " + buffer.getInt(4));
+        }
+        return new JournalSegment(buffer.getLong(8), buffer.getLong(16), file, buffer, HEADER_SIZE);
+    }
+
+    private static MappedByteBuffer map(final File file, final long size, final boolean create)
+    {
+        if (create && file.exists())
+        {
+            throw new StoreException("Journal segment " + file + " already exists");
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"))
+        {
+            if (create)
+            {
+                randomAccessFile.setLength(size);
+            }
+            final FileChannel channel = randomAccessFile.getChannel();
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        catch (IOException e)
+        {
+            throw new StoreException("Cannot map journal segment " + file, e);
+        }
+    }
+
+    long getNumber()
+    {
+        return _number;
+    }
+
+    long getFirstMessageId()
+    {
+        return _firstMessageId;
+    }
+
+    int getCapacity()
+    {
+        return _buffer.capacity();
+    }
+
+    int getWritePosition()
+    {
+        return _writePosition;
+    }
+
+    long getLiveBytes()
+    {
+        return _liveBytes;
+    }
+
+    void adjustLiveBytes(final long delta)
+    {
+        _liveBytes += delta;
+    }
+
+    boolean hasRoom(final int recordLength)
+    {
+        return (long) _writePosition + recordLength <= _buffer.capacity();
+    }
+
+    /**
+     * Appends an already framed record and returns the position at which it was written.
+     */
+    int append(final ByteBuffer record)
+    {
+        final int position = _writePosition;
+        final ByteBuffer dest = _buffer.duplicate();
+        dest.position(position);
+        dest.put(record);
+        _writePosition = dest.position();
+        return position;
+    }
+
+    /**
+     * Returns the length of the valid record at the given position, or -1 if there is no valid record there: either
+     * the end of the written records has been reached or the record was torn by a crash mid-write.
+     */
+    int validRecordLength(final int position)
+    {
+        if (position + RECORD_HEADER_SIZE > _buffer.capacity())
+        {
+            return -1;
+        }
+        final int length = _buffer.getInt(position);
+        if (length <= 0 || (long) position + RECORD_HEADER_SIZE + length > _buffer.capacity())
+        {
+            return -1;
+        }
+        final int crc = _buffer.getInt(position + 4);
+        if (checksum(_buffer, position + RECORD_HEADER_SIZE, length) != crc)
+        {
+            return -1;
+        }
+        return RECORD_HEADER_SIZE + length;
+    }
+
+    void setWritePosition(final int writePosition)
+    {
+        _writePosition = writePosition;
+    }
+
+    /**
+     * Returns a read-only view of <code>length</code> bytes starting at <code>position</code>.
+     */
+    ByteBuffer view(final int position, final int length)
+    {
+        final ByteBuffer view = _buffer.asReadOnlyBuffer();
+        view.position(position);
+        view.limit(position + length);
+        return view.slice();
+    }
+
+    /**
+     * Forces the segment to disk. The journal may be forced whilst the segment is being reclaimed, so forcing a
+     * deleted segment does nothing rather than touching its released mapping.
+     */
+    synchronized void force()
+    {
+        if (!_deleted)
+        {
+            _buffer.force();
+        }
+    }
+
+    /**
+     * Releases the mapping and deletes the file. The mapping is released explicitly as otherwise it, and the disk
+     * space of the deleted file, is only released once the buffer happens to be garbage collected.
+     */
+    synchronized void delete()
+    {
+        _deleted = true;
+        unmap(_buffer);
+        if (!_file.delete() && _file.exists())
+        {
+            throw new StoreException("Cannot delete journal segment " + _file);
+        }
+    }
+
+    private static void unmap(final MappedByteBuffer buffer)
+    {
+        try
+        {
+            try
+            {
+                // Java 9 onwards
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            }
+            catch (NoSuchMethodException e)
+            {
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null)
+                {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            LOGGER.debug("Cannot unmap journal segment, it will be unmapped once garbage collected", e);
+        }
+    }
+
+    static int checksum(final ByteBuffer buffer, final int position, final int length)
+    {
+        final CRC32 crc = new CRC32();
+        if (buffer.hasArray())
+        {
+            crc.update(buffer.array(), buffer.arrayOffset() + position, length);
+        }
+        else
+        {
+            final ByteBuffer source = buffer.duplicate();
+            source.position(position);
+            source.limit(position + length);
+            final byte[] chunk = new byte[Math.min(length, CHECKSUM_BUFFER_SIZE)];
+            while (source.hasRemaining())
+            {
+                final int chunkLength = Math.min(chunk.length, source.remaining());
+                source.get(chunk, 0, chunkLength);
+                crc.update(chunk, 0, chunkLength);
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "JournalSegment[" + _file.getName() + "]";
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.journal;
+
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.message.EnqueueableMessage;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.store.MessageDurability;
+import org.apache.qpid.server.store.MessageEnqueueRecord;
+import org.apache.qpid.server.store.MessageHandle;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.MessageStoreTestCase;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.store.TestMessageMetaData;
+import org.apache.qpid.server.store.Transaction;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.store.handler.MessageInstanceHandler;
+import org.apache.qpid.server.virtualhost.journal.JournalVirtualHost;
+import org.apache.qpid.util.FileUtils;
+
+public class JournalMessageStoreTest extends MessageStoreTestCase
+{
+    private static final int SEGMENT_SIZE = 4096;
+
+    private String _storeLocation;
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            deleteStoreIfExists();
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testOnDelete() throws Exception
+    {
+        File location = new File(_storeLocation);
+        assertTrue("Store does not exist at " + _storeLocation, location.exists());
+
+        getStore().closeMessageStore();
+        assertTrue("Store does not exist at " + _storeLocation, location.exists());
+
+        JournalVirtualHost mockVH = mock(JournalVirtualHost.class);
+        when(mockVH.getStorePath()).thenReturn(_storeLocation);
+
+        getStore().onDelete(mockVH);
+        assertFalse("Store exists at " + _storeLocation, location.exists());
+    }
+
+    public void testContentRecoveredAfterReopen() throws Exception
+    {
+        byte[] content = createContent(3 * SEGMENT_SIZE / 2, 1);
+        StoredMessage<TestMessageMetaData> message = addMessage(content);
+        TransactionLogResource queue = createQueue();
+        enqueue(queue, message);
+
+        reopenStore();
+
+        StoredMessage<?> recovered = getStore().newMessageStoreReader().getMessage(message.getMessageNumber());
+        assertNotNull("Message was not recovered", recovered);
+        assertTrue("Unexpected content", Arrays.equals(content, getContent(recovered, content.length)));
+    }
+
+    public void testConsumedSegmentsAreReclaimed() throws Exception
+    {
+        TransactionLogResource queue = createQueue();
+
+        byte[] survivorContent = createContent(512, 7);
+        StoredMessage<TestMessageMetaData> survivor = addMessage(survivorContent);
+        enqueue(queue, survivor);
+
+        for (int i = 0; i < 50; i++)
+        {
+            StoredMessage<TestMessageMetaData> message = addMessage(createContent(512, i));
+            MessageEnqueueRecord record = enqueue(queue, message);
+
+            Transaction txn = getStore().newTransaction();
+            txn.dequeueMessage(record);
+            txn.commitTran();
+            message.remove();
+        }
+
+        waitForSegments(2);
+
+        reopenStore();
+
+        MessageStore.MessageStoreReader reader = getStore().newMessageStoreReader();
+        StoredMessage<?> recovered = reader.getMessage(survivor.getMessageNumber());
+        assertNotNull("Message relocated by compaction was not recovered", recovered);
+        assertTrue("Unexpected content", Arrays.equals(survivorContent, getContent(recovered, survivorContent.length)));
+
+        final Set<Long> enqueuedIds = new HashSet<>();
+        reader.visitMessageInstances(queue, new MessageInstanceHandler()
+        {
+            @Override
+            public boolean handle(final MessageEnqueueRecord record)
+            {
+                enqueuedIds.add(record.getMessageNumber());
+                return true;
+            }
+        });
+        assertEquals("Unexpected enqueued messages", Collections.singleton(survivor.getMessageNumber()), enqueuedIds);
+    }
+
+    public void testSparseSegmentsBehindLiveOldestSegmentAreReclaimed() throws Exception
+    {
+        TransactionLogResource queue = createQueue();
+
+        // fill the oldest segment with messages which mostly stay live, so it is never compacted
+        final List<StoredMessage<TestMessageMetaData>> survivors = new ArrayList<>();
+        final List<MessageEnqueueRecord> survivorRecords = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+        {
+            StoredMessage<TestMessageMetaData> survivor = addMessage(createContent(512, i));
+            survivors.add(survivor);
+            survivorRecords.add(enqueue(queue, survivor));
+        }
+
+        for (int i = 0; i < 50; i++)
+        {
+            StoredMessage<TestMessageMetaData> message = addMessage(createContent(512, i));
+            MessageEnqueueRecord record = enqueue(queue, message);
+
+            Transaction txn = getStore().newTransaction();
+            txn.dequeueMessage(record);
+            txn.commitTran();
+            message.remove();
+
+            if (i == 10)
+            {
+                // the dequeue and delete cancel records in the oldest segment and must outlive their own segment
+                txn = getStore().newTransaction();
+                txn.dequeueMessage(survivorRecords.get(0));
+                txn.commitTran();
+                survivors.get(0).remove();
+            }
+        }
+
+        waitForSegments(3);
+
+        reopenStore();
+
+        MessageStore.MessageStoreReader reader = getStore().newMessageStoreReader();
+        assertNull("Consumed message was resurrected", reader.getMessage(survivors.get(0).getMessageNumber()));
+
+        final Set<Long> expectedIds = new HashSet<>();
+        for (StoredMessage<TestMessageMetaData> survivor : survivors.subList(1, survivors.size()))
+        {
+            expectedIds.add(survivor.getMessageNumber());
+            assertNotNull("Message was not recovered", reader.getMessage(survivor.getMessageNumber()));
+        }
+        final Set<Long> enqueuedIds = new HashSet<>();
+        reader.visitMessageInstances(queue, new MessageInstanceHandler()
+        {
+            @Override
+            public boolean handle(final MessageEnqueueRecord record)
+            {
+                enqueuedIds.add(record.getMessageNumber());
+                return true;
+            }
+        });
+        assertEquals("Unexpected enqueued messages", expectedIds, enqueuedIds);
+    }
+
+    public void testTornTailRecordIsDiscardedOnRecovery() throws Exception
+    {
+        TransactionLogResource queue = createQueue();
+        StoredMessage<TestMessageMetaData> intact = addMessage(createContent(100, 1));
+        enqueue(queue, intact);
+        StoredMessage<TestMessageMetaData> torn = addMessage(createContent(100, 2));
+        enqueue(queue, torn);
+        getStore().closeMessageStore();
+
+        // zero the second half of the last record, as if the broker had stopped part way through writing it
+        tearLastRecord();
+
+        reopenStore();
+        assertEquals("Unexpected enqueued messages after recovery",
+                     Collections.singleton(intact.getMessageNumber()), getEnqueuedIds(queue));
+
+        // the journal must resume from the end of the last intact record
+        StoredMessage<TestMessageMetaData> later = addMessage(createContent(100, 3));
+        enqueue(queue, later);
+        reopenStore();
+
+        final Set<Long> expectedIds = new HashSet<>(Arrays.asList(intact.getMessageNumber(), later.getMessageNumber()));
+        assertEquals("Unexpected enqueued messages after second recovery", expectedIds, getEnqueuedIds(queue));
+    }
+
+    private Set<Long> getEnqueuedIds(final TransactionLogResource queue)
+    {
+        final Set<Long> enqueuedIds = new HashSet<>();
+        getStore().newMessageStoreReader().visitMessageInstances(queue, new MessageInstanceHandler()
+        {
+            @Override
+            public boolean handle(final MessageEnqueueRecord record)
+            {
+                enqueuedIds.add(record.getMessageNumber());
+                return true;
+            }
+        });
+        return enqueuedIds;
+    }
+
+    private void tearLastRecord() throws Exception
+    {
+        File head = null;
+        for (File segment : getSegments())
+        {
+            if (head == null || segment.getName().compareTo(head.getName()) > 0)
+            {
+                head = segment;
+            }
+        }
+        assertNotNull("No journal segment found", head);
+
+        try (RandomAccessFile file = new RandomAccessFile(head, "rw"))
+        {
+            int position = JournalSegment.HEADER_SIZE;
+            int lastRecord = -1;
+            int lastLength = 0;
+            while (position + JournalSegment.RECORD_HEADER_SIZE <= file.length())
+            {
+                file.seek(position);
+                int length = file.readInt();
+                if (length <= 0)
+                {
+                    break;
+                }
+                lastRecord = position;
+                lastLength = length;
+                position += JournalSegment.RECORD_HEADER_SIZE + length;
+            }
+            assertTrue("No record found in " + head, lastRecord >= 0);
+
+            file.seek(lastRecord + JournalSegment.RECORD_HEADER_SIZE + lastLength / 2);
+            file.write(new byte[lastLength - lastLength / 2]);
+        }
+    }
+
+    private StoredMessage<TestMessageMetaData> addMessage(final byte[] content)
+    {
+        MessageHandle<TestMessageMetaData> handle =
+                getStore().addMessage(new TestMessageMetaData(getStore().getNextMessageId(), content.length));
+        handle.addContent(QpidByteBuffer.wrap(content));
+        return handle.allContentAdded();
+    }
+
+    private MessageEnqueueRecord enqueue(final TransactionLogResource queue, final StoredMessage<?> message)
+    {
+        EnqueueableMessage enqueueableMessage = mock(EnqueueableMessage.class);
+        when(enqueueableMessage.isPersistent()).thenReturn(true);
+        when(enqueueableMessage.getMessageNumber()).thenReturn(message.getMessageNumber());
+        when(enqueueableMessage.getStoredMessage()).thenReturn(message);
+
+        Transaction txn = getStore().newTransaction();
+        MessageEnqueueRecord record = txn.enqueueMessage(queue, enqueueableMessage);
+        txn.commitTran();
+        return record;
+    }
+
+    private TransactionLogResource createQueue()
+    {
+        TransactionLogResource queue = mock(TransactionLogResource.class);
+        when(queue.getId()).thenReturn(UUID.randomUUID());
+        when(queue.getName()).thenReturn("testQueue");
+        when(queue.getMessageDurability()).thenReturn(MessageDurability.DEFAULT);
+        return queue;
+    }
+
+    private byte[] createContent(final int size, final int seed)
+    {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            content[i] = (byte) (i + seed);
+        }
+        return content;
+    }
+
+    private byte[] getContent(final StoredMessage<?> message, final int length)
+    {
+        byte[] content = new byte[length];
+        int offset = 0;
+        Collection<QpidByteBuffer> buffers = message.getContent(0, length);
+        for (QpidByteBuffer buf : buffers)
+        {
+            int remaining = buf.remaining();
+            buf.get(content, offset, remaining);
+            offset += remaining;
+            buf.dispose();
+        }
+        assertEquals("Unexpected content length", length, offset);
+        return content;
+    }
+
+    private File[] getSegments()
+    {
+        File[] segments = new File(_storeLocation).listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(final File dir, final String name)
+            {
+                return name.endsWith(JournalSegment.FILE_EXTENSION);
+            }
+        });
+        return segments == null ? new File[0] : segments;
+    }
+
+    private void waitForSegments(final int maximum) throws InterruptedException
+    {
+        // compaction runs in the background
+        long timeout = System.currentTimeMillis() + 10000;
+        while (getSegments().length > maximum && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(10);
+        }
+        assertTrue("Journal segments were not reclaimed, segments remaining: " + getSegments().length,
+                   getSegments().length <= maximum);
+    }
+
+    @Override
+    protected VirtualHost createVirtualHost()
+    {
+        _storeLocation = TMP_FOLDER + File.separator + getTestName();
+        deleteStoreIfExists();
+
+        final JournalVirtualHost parent = mock(JournalVirtualHost.class);
+        when(parent.getStorePath()).thenReturn(_storeLocation);
+        when(parent.getContextKeys(false)).thenReturn(Collections.singleton(JournalMessageStore.SEGMENT_SIZE));
+        when(parent.getContextValue(Integer.class, JournalMessageStore.SEGMENT_SIZE)).thenReturn(SEGMENT_SIZE);
+        return parent;
+    }
+
+    private void deleteStoreIfExists()
+    {
+        if (_storeLocation != null)
+        {
+            File location = new File(_storeLocation);
+            if (location.exists())
+            {
+                FileUtils.delete(location, true);
+            }
+        }
+    }
+
+    @Override
+    protected MessageStore createMessageStore()
+    {
+        return new JournalMessageStore();
+    }
+
+}
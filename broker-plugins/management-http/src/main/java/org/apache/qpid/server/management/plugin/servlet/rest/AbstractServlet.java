@@ -44,6 +44,7 @@ import org.apache.qpid.server.model.Content;
 import org.apache.qpid.server.model.CustomRestHeaders;
 import org.apache.qpid.server.model.RestContentHeader;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
@@ -268,6 +269,36 @@ public abstract class AbstractServlet extends HttpServlet
     }
 
     protected final void sendJsonResponse(Object object, HttpServletRequest request, HttpServletResponse response, int responseCode, boolean sendCachingHeaders) throws IOException
+    {
+        prepareJsonResponse(object, response, responseCode, sendCachingHeaders);
+        writeObjectToResponse(object, request, response);
+    }
+
+    /**
+     * Sends the elements as a JSON array, streaming each element to the response as it is taken from the iterable
+     * rather than building the whole list or the whole serialised array first, so that the elements may be produced
+     * lazily.  As the response is committed once the first elements are written, a failure part way through
+     * truncates the JSON rather than producing an error status.
+     */
+    protected final void sendJsonArrayResponse(Iterable<?> elements, HttpServletRequest request, HttpServletResponse response, boolean sendCachingHeaders) throws IOException
+    {
+        prepareJsonResponse(elements, response, HttpServletResponse.SC_OK, sendCachingHeaders);
+        ObjectMapper mapper = ConfiguredObjectJacksonModule.newObjectMapper();
+        mapper.configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false);
+        try (OutputStream stream = getOutputStream(request, response);
+             JsonGenerator generator = mapper.getFactory().createGenerator(stream))
+        {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartArray();
+            for (Object element : elements)
+            {
+                mapper.writeValue(generator, element);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void prepareJsonResponse(Object object, HttpServletResponse response, int responseCode, boolean sendCachingHeaders)
     {
         response.setStatus(responseCode);
         response.setContentType("application/json");
@@ -283,7 +314,6 @@ public abstract class AbstractServlet extends HttpServlet
         {
             setResponseHeaders(response, (CustomRestHeaders) object);
         }
-        writeObjectToResponse(object, request, response);
     }
 
     protected final void sendJsonErrorResponse(HttpServletRequest request,
@@ -457,27 +457,33 @@ public class RestServlet extends AbstractServlet
                     }
                 }
 
-                List<Map<String, Object>> output = new ArrayList<>();
-                for (ConfiguredObject configuredObject : allObjects)
-                {
-
-                    output.add(_objectConverter.convertObjectToMap(configuredObject, getConfiguredClass(),
-                                                                   new ConfiguredObjectToMapConverter.ConverterOptions(
-                                                                           depth,
-                                                                           actuals,
-                                                                           extractInitialConfig,
-                                                                           oversizeThreshold,
-                                                                           request.isSecure(),
-                                                                           excludeInheritedContext)));
-                }
-
+                final ConfiguredObjectToMapConverter.ConverterOptions converterOptions =
+                        new ConfiguredObjectToMapConverter.ConverterOptions(depth,
+                                                                            actuals,
+                                                                            extractInitialConfig,
+                                                                            oversizeThreshold,
+                                                                            request.isSecure(),
+                                                                            excludeInheritedContext);
 
                 boolean sendCachingHeaders = attachmentFilename == null;
-                sendJsonResponse(extractInitialConfig && output.size() == 1 ? output.get(0) : output,
-                        request,
-                        response,
-                        HttpServletResponse.SC_OK,
-                        sendCachingHeaders);
+                if (extractInitialConfig && allObjects.size() == 1)
+                {
+                    sendJsonResponse(_objectConverter.convertObjectToMap(allObjects.iterator().next(),
+                                                                         getConfiguredClass(),
+                                                                         converterOptions),
+                                     request,
+                                     response,
+                                     HttpServletResponse.SC_OK,
+                                     sendCachingHeaders);
+                }
+                else
+                {
+                    // objects are converted one at a time as the response is written
+                    sendJsonArrayResponse(convertObjectsToMaps(allObjects, getConfiguredClass(), converterOptions),
+                                          request,
+                                          response,
+                                          sendCachingHeaders);
+                }
             }
         }
     }
@@ -726,20 +732,58 @@ public class RestServlet extends AbstractServlet
             }
             else if (returnsCollectionOfConfiguredObjects(operation))
             {
-                List<Map<String, Object>> output = new ArrayList<>();
-                for (Object configuredObject : (Collection)returnVal)
-                {
-                    output.add(_objectConverter.convertObjectToMap((ConfiguredObject<?>) configuredObject,
-                                                                   getCollectionMemberType((ParameterizedType) operation.getGenericReturnType()),
-                                                                   converterOptions));
-                }
-                returnVal = output;
+                sendJsonArrayResponse(convertObjectsToMaps((Collection<ConfiguredObject<?>>) returnVal,
+                                                           getCollectionMemberType((ParameterizedType) operation.getGenericReturnType()),
+                                                           converterOptions),
+                                      request,
+                                      response,
+                                      true);
+                return;
+            }
+            else if (returnVal instanceof Collection)
+            {
+                sendJsonArrayResponse((Collection<?>) returnVal, request, response, true);
+                return;
             }
             sendJsonResponse(returnVal, request, response);
         }
 
     }
 
+    private Iterable<Map<String, Object>> convertObjectsToMaps(final Collection<? extends ConfiguredObject<?>> objects,
+                                                               final Class<? extends ConfiguredObject> clazz,
+                                                               final ConfiguredObjectToMapConverter.ConverterOptions converterOptions)
+    {
+        return new Iterable<Map<String, Object>>()
+        {
+            @Override
+            public Iterator<Map<String, Object>> iterator()
+            {
+                final Iterator<? extends ConfiguredObject<?>> iterator = objects.iterator();
+                return new Iterator<Map<String, Object>>()
+                {
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map<String, Object> next()
+                    {
+                        return _objectConverter.convertObjectToMap(iterator.next(), clazz, converterOptions);
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
     private boolean returnsCollectionOfConfiguredObjects(ConfiguredObjectOperation operation)
     {
         return Collection.class.isAssignableFrom(operation.getReturnType())
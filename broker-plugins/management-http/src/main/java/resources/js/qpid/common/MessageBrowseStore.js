@@ -0,0 +1,124 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+// summary:
+//  Store paging through the messages of a queue with the browseMessages operation.  Pages are fetched by the id of
+//  the last message of the preceding page, so the store remembers the message id found at each page boundary it
+//  has seen; moving to a page further on walks forward from the nearest remembered boundary.
+define(["dojo/_base/declare", "dojo/store/util/QueryResults"],
+    function (declare, QueryResults)
+    {
+        return declare("qpid.common.MessageBrowseStore", null, {
+            idProperty: "id",
+            maximumPageSize: 1000,
+            modelObject: null,
+            management: null,
+
+            constructor: function (options)
+            {
+                this.management = options.management;
+                this.modelObject = options.modelObject;
+                declare.safeMixin(this, options);
+                this.reset();
+            },
+
+            getIdentity: function (object)
+            {
+                return object[this.idProperty];
+            },
+
+            // summary:
+            //  Forgets the remembered page boundaries, so that the following query walks from the head of the queue.
+            reset: function ()
+            {
+                this.boundaries = {0: -1};
+            },
+
+            query: function (query, options)
+            {
+                options = options || {};
+                var start = options.start >= 0 ? options.start : 0;
+                var count = options.count >= 0 && options.count != Infinity ? options.count : this.maximumPageSize;
+
+                var from = 0;
+                for (var position in this.boundaries)
+                {
+                    position = +position;
+                    if (position <= start && position > from)
+                    {
+                        from = position;
+                    }
+                }
+
+                var results = this._browse(from, this.boundaries[from], start, count);
+                results.total = this.management.load(this.modelObject, {
+                        excludeInheritedContext: true,
+                        depth: 0
+                    })
+                    .then(function (data)
+                    {
+                        return data[0].statistics.queueDepthMessages;
+                    });
+                return QueryResults(results);
+            },
+
+            _browse: function (position, after, start, count)
+            {
+                var that = this;
+                var limit = position < start ? Math.min(start - position, this.maximumPageSize) : count;
+                return this.management.load({
+                        name: "browseMessages",
+                        parent: this.modelObject,
+                        type: this.modelObject.type
+                    }, {
+                        after: after,
+                        limit: limit
+                    })
+                    .then(function (messages)
+                    {
+                        if (messages.length)
+                        {
+                            after = messages[messages.length - 1].id;
+                            that.boundaries[position + messages.length] = after;
+                        }
+                        if (position < start)
+                        {
+                            // still walking towards the requested page
+                            return messages.length == limit ? that._browse(position + messages.length,
+                                after,
+                                start,
+                                count) : [];
+                        }
+                        return messages;
+                    }, function (error)
+                    {
+                        if (after != -1 && error.response && error.response.status == 422)
+                        {
+                            // the boundary message has left the queue
+                            that.reset();
+                            return that._browse(0, -1, start, count);
+                        }
+                        that.management.errorHandler(error);
+                        throw error;
+                    });
+            }
+        });
+    });
@@ -34,7 +34,7 @@ define(["dojo/_base/declare",
         "qpid/management/moveCopyMessages",
         "qpid/management/showMessage",
         "qpid/management/editQueue",
-        "qpid/common/JsonRest",
+        "qpid/common/MessageBrowseStore",
         "dojox/grid/EnhancedGrid",
         "dojo/data/ObjectStore",
         "dojox/html/entities",
@@ -58,7 +58,7 @@ define(["dojo/_base/declare",
               moveMessages,
               showMessage,
               editQueue,
-              JsonRest,
+              MessageBrowseStore,
               EnhancedGrid,
               ObjectStore,
               entities,
@@ -109,13 +109,12 @@ define(["dojo/_base/declare",
                     that.queueUpdater = new QueueUpdater(that);
 
                     // double encode to allow slashes in object names.
-                    var myStore = new JsonRest({
+                    that.messageStore = new MessageBrowseStore({
                         management: that.management,
-                        modelObject: that.modelObj,
-                        queryOperation: "getMessageInfo"
+                        modelObject: that.modelObj
                     });
                     var messageGridDiv = query(".messages", contentPane.containerNode)[0];
-                    that.dataStore = new ObjectStore({objectStore: myStore});
+                    that.dataStore = new ObjectStore({objectStore: that.messageStore});
                     var userPreferences = this.management.userPreferences;
                     that.grid = new EnhancedGrid({
                         store: that.dataStore,
@@ -274,14 +273,9 @@ define(["dojo/_base/declare",
         };
         Queue.prototype.reloadGridData = function ()
         {
-            var currentPage = this.grid.pagination.currentPage;
-            var currentPageSize = this.grid.pagination.currentPageSize;
-            var first = (currentPage - 1 ) * currentPageSize;
-            var last = currentPage * currentPageSize;
-            this.grid.setQuery({
-                first: first,
-                last: last
-            });
+            // messages have been removed, so the remembered page boundaries no longer hold
+            this.messageStore.reset();
+            this.grid.setQuery({});
             this.queueUpdater.update();
         };
         Queue.prototype.moveOrCopyMessages = function (obj)
@@ -332,13 +326,15 @@ define(["dojo/_base/declare",
         var queueTypeKeys = {
             priority: "priorities",
             lvq: "lvqKey",
-            sorted: "sortKey"
+            sorted: "sortKey",
+            sharded: "shards"
         };
 
         var queueTypeKeyNames = {
             priority: "Number of priorities",
             lvq: "LVQ key",
-            sorted: "Sort key"
+            sorted: "Sort key",
+            sharded: "Number of shards"
         };
 
         function QueueUpdater(tabObject)
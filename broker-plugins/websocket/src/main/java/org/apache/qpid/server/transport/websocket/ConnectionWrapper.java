@@ -0,0 +1,604 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport.websocket;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.websocket.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.transport.NetworkConnectionScheduler;
+import org.apache.qpid.server.transport.ProtocolEngine;
+import org.apache.qpid.server.transport.SchedulingDelayNotificationListener;
+import org.apache.qpid.server.transport.ServerNetworkConnection;
+import org.apache.qpid.server.util.Action;
+import org.apache.qpid.server.util.ConnectionScopedRuntimeException;
+import org.apache.qpid.transport.ByteBufferSender;
+
+/**
+ * Network connection for AMQP over a WebSocket.
+ * <p>
+ * The protocol engine is driven on the port's IO threads, as for plain TCP connections.  Frames are read by the web
+ * server's threads and queued for the IO threads; frames are written by a separate writer, since the web server's
+ * WebSocket API only offers a blocking send and a slow client must not hold up an IO thread.
+ * <p>
+ * The writers are a bounded pool shared by the port.  Until a writer has sent its output, a connection is reported to
+ * the protocol engine as blocked for writing, so no further messages are assigned to it while it waits for a free
+ * writer.  A write that takes longer than the write timeout closes the connection, see {@link #checkWriteTimeout(long)}.
+ */
+class ConnectionWrapper implements ServerNetworkConnection, ByteBufferSender
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionWrapper.class);
+
+    private final WebSocket.Connection _connection;
+    private final SocketAddress _localAddress;
+    private final SocketAddress _remoteAddress;
+    private final ProtocolEngine _protocolEngine;
+    private final NetworkConnectionScheduler _scheduler;
+    private final Executor _writeExecutor;
+    private final int _networkBufferSize;
+    private final long _outboundMessageBufferLimit;
+    private final long _writeTimeout;
+    private final Action<ConnectionWrapper> _shutdownListener;
+    private final ConcurrentLinkedQueue<QpidByteBuffer> _buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicLong _usedOutboundMessageSpace = new AtomicLong();
+
+    /* frames received by the web server, waiting to be passed to the protocol engine on an IO thread */
+    private final ConcurrentLinkedQueue<QpidByteBuffer> _inbound = new ConcurrentLinkedQueue<>();
+    private final AtomicLong _inboundBacklog = new AtomicLong();
+    private final Object _inboundBacklogLock = new Object();
+
+    private final AtomicBoolean _scheduled = new AtomicBoolean();
+    private final AtomicBoolean _writeScheduled = new AtomicBoolean();
+    private final AtomicBoolean _closed = new AtomicBoolean();
+    private final AtomicBoolean _hasShutdown = new AtomicBoolean();
+    private final List<SchedulingDelayNotificationListener> _schedulingDelayNotificationListeners =
+            new CopyOnWriteArrayList<>();
+    private final String _threadName;
+    private final Runnable _work = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            processWork();
+        }
+    };
+    private final Runnable _writer = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            processWrites();
+        }
+    };
+
+    private Certificate _certificate;
+    private long _maxWriteIdleMillis;
+    private long _maxReadIdleMillis;
+    private volatile long _scheduledTime;
+    /* time at which the writer started the send in progress, or zero */
+    private volatile long _writeStartTime;
+
+    /* only accessed by the writer, reused for each message no larger than a network buffer */
+    private byte[] _writeBuffer;
+
+    ConnectionWrapper(final WebSocket.Connection connection,
+                      final SocketAddress localAddress,
+                      final SocketAddress remoteAddress,
+                      final ProtocolEngine protocolEngine,
+                      final NetworkConnectionScheduler scheduler,
+                      final Executor writeExecutor,
+                      final int networkBufferSize,
+                      final long outboundMessageBufferLimit,
+                      final long writeTimeout,
+                      final Action<ConnectionWrapper> shutdownListener)
+    {
+        _connection = connection;
+        _localAddress = localAddress;
+        _remoteAddress = remoteAddress;
+        _protocolEngine = protocolEngine;
+        _scheduler = scheduler;
+        _writeExecutor = writeExecutor;
+        _networkBufferSize = networkBufferSize;
+        _outboundMessageBufferLimit = outboundMessageBufferLimit;
+        _writeTimeout = writeTimeout;
+        _shutdownListener = shutdownListener;
+        _threadName = "IO-" + remoteAddress;
+    }
+
+    @Override
+    public ByteBufferSender getSender()
+    {
+        return this;
+    }
+
+    @Override
+    public void start()
+    {
+
+    }
+
+    @Override
+    public boolean isDirectBufferPreferred()
+    {
+        return false;
+    }
+
+    @Override
+    public void send(final QpidByteBuffer msg)
+    {
+        if (msg.remaining() > 0)
+        {
+            _buffers.add(msg.duplicate());
+        }
+        msg.position(msg.limit());
+    }
+
+    @Override
+    public void flush()
+    {
+
+    }
+
+    @Override
+    public void close()
+    {
+        _connection.close();
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress()
+    {
+        return _remoteAddress;
+    }
+
+    @Override
+    public SocketAddress getLocalAddress()
+    {
+        return _localAddress;
+    }
+
+    @Override
+    public void setMaxWriteIdleMillis(final long millis)
+    {
+        _maxWriteIdleMillis = millis;
+    }
+
+    @Override
+    public void setMaxReadIdleMillis(final long millis)
+    {
+        _maxReadIdleMillis = millis;
+    }
+
+    @Override
+    public Principal getPeerPrincipal()
+    {
+        return _certificate instanceof X509Certificate ? ((X509Certificate)_certificate).getSubjectDN() : null;
+    }
+
+    @Override
+    public Certificate getPeerCertificate()
+    {
+        return _certificate;
+    }
+
+    @Override
+    public long getMaxReadIdleMillis()
+    {
+        return _maxReadIdleMillis;
+    }
+
+    @Override
+    public long getMaxWriteIdleMillis()
+    {
+        return _maxWriteIdleMillis;
+    }
+
+    @Override
+    public void addSchedulingDelayNotificationListeners(final SchedulingDelayNotificationListener listener)
+    {
+        _schedulingDelayNotificationListeners.add(listener);
+    }
+
+    @Override
+    public void removeSchedulingDelayNotificationListeners(final SchedulingDelayNotificationListener listener)
+    {
+        _schedulingDelayNotificationListeners.remove(listener);
+    }
+
+    @Override
+    public void reserveOutboundMessageSpace(final long size)
+    {
+        if (_usedOutboundMessageSpace.addAndGet(size) > _outboundMessageBufferLimit)
+        {
+            _protocolEngine.setMessageAssignmentSuspended(true, false);
+        }
+    }
+
+    @Override
+    public String getTransportInfo()
+    {
+        return _connection.getProtocol();
+    }
+
+    @Override
+    public long getScheduledTime()
+    {
+        return _scheduledTime;
+    }
+
+    void setPeerCertificate(final Certificate certificate)
+    {
+        _certificate = certificate;
+    }
+
+    /**
+     * Called by the web server for each binary frame.  The frame is copied into pooled buffers and handed to an
+     * IO thread; the calling thread is held back while the connection has a network buffer's worth of frames
+     * outstanding, so that a fast client is throttled by TCP flow control rather than by broker memory.
+     */
+    void received(final byte[] data, final int offset, final int length)
+    {
+        if (_closed.get())
+        {
+            return;
+        }
+
+        int position = offset;
+        for (QpidByteBuffer buffer : QpidByteBuffer.allocateDirectCollection(length))
+        {
+            final int chunkSize = buffer.remaining();
+            buffer.put(data, position, chunkSize);
+            buffer.flip();
+            _inbound.add(buffer);
+            position += chunkSize;
+        }
+
+        if (_hasShutdown.get())
+        {
+            // the connection shut down whilst the frame was being queued, after the queue was last drained
+            disposeInbound();
+            return;
+        }
+
+        final long backlog = _inboundBacklog.addAndGet(length);
+        schedule();
+
+        if (backlog > _networkBufferSize)
+        {
+            awaitInboundBacklog();
+        }
+    }
+
+    void remoteClosed()
+    {
+        _closed.set(true);
+        releaseInboundBacklogWaiters();
+        schedule();
+    }
+
+    void schedule()
+    {
+        if (_scheduled.compareAndSet(false, true))
+        {
+            _scheduledTime = System.currentTimeMillis();
+            _scheduler.execute(_work);
+        }
+    }
+
+    /**
+     * Closes the connection if the writer has been blocked sending to it for longer than the write timeout.  The
+     * connection is shut down on an IO thread as if the client had closed it, and closing the underlying connection
+     * fails the blocked send, freeing the writer.
+     *
+     * @return true if the connection was closed
+     */
+    boolean checkWriteTimeout(final long now)
+    {
+        final long writeStartTime = _writeStartTime;
+        if (writeStartTime != 0L && now - writeStartTime > _writeTimeout && !_closed.get())
+        {
+            LOGGER.warn("Closing connection '{}' as a write has not completed within {} ms",
+                        _remoteAddress, _writeTimeout);
+            remoteClosed();
+            close();
+            return true;
+        }
+        return false;
+    }
+
+    private void awaitInboundBacklog()
+    {
+        synchronized (_inboundBacklogLock)
+        {
+            while (_inboundBacklog.get() > _networkBufferSize && !_closed.get())
+            {
+                try
+                {
+                    _inboundBacklogLock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void releaseInboundBacklogWaiters()
+    {
+        synchronized (_inboundBacklogLock)
+        {
+            _inboundBacklogLock.notifyAll();
+        }
+    }
+
+    private void processWork()
+    {
+        final Thread currentThread = Thread.currentThread();
+        final String originalThreadName = currentThread.getName();
+        currentThread.setName(_threadName);
+        try
+        {
+            notifySchedulingDelay();
+            if (_closed.get())
+            {
+                shutdown();
+            }
+            else
+            {
+                doWork();
+            }
+        }
+        catch (ConnectionScopedRuntimeException e)
+        {
+            LOGGER.info("Exception processing work for connection '{}' : {}", _remoteAddress, e.getMessage());
+            close();
+        }
+        finally
+        {
+            currentThread.setName(originalThreadName);
+            _scheduledTime = 0;
+            _scheduled.set(false);
+            if (hasWork())
+            {
+                schedule();
+            }
+        }
+    }
+
+    private boolean hasWork()
+    {
+        return _closed.get() ? !_hasShutdown.get() : !_inbound.isEmpty() || _protocolEngine.hasWork();
+    }
+
+    private void notifySchedulingDelay()
+    {
+        if (!_schedulingDelayNotificationListeners.isEmpty())
+        {
+            final long schedulingDelay = System.currentTimeMillis() - _scheduledTime;
+            for (SchedulingDelayNotificationListener listener : _schedulingDelayNotificationListeners)
+            {
+                listener.notifySchedulingDelay(schedulingDelay);
+            }
+        }
+    }
+
+    private void doWork()
+    {
+        _protocolEngine.clearWork();
+        try
+        {
+            _protocolEngine.setIOThread(Thread.currentThread());
+            _protocolEngine.setMessageAssignmentSuspended(true, true);
+
+            Iterator<Runnable> iter = _protocolEngine.processPendingIterator();
+            while(iter.hasNext())
+            {
+                iter.next().run();
+            }
+
+            doRead();
+            final boolean fullyWritten = doWrite();
+            _protocolEngine.setTransportBlockedForWriting(!fullyWritten);
+
+            // whilst output is outstanding, assignment stays suspended until the writer reschedules the connection
+            if (fullyWritten)
+            {
+                _protocolEngine.setMessageAssignmentSuspended(false, true);
+            }
+        }
+        finally
+        {
+            _protocolEngine.setIOThread(null);
+        }
+    }
+
+    private void doRead()
+    {
+        // pass on at most a network buffer's worth of data, so that one busy connection cannot hog the IO thread
+        long processed = 0L;
+        QpidByteBuffer buffer;
+        while (processed < _networkBufferSize && (buffer = _inbound.poll()) != null)
+        {
+            processed += buffer.remaining();
+            try
+            {
+                _protocolEngine.received(buffer);
+            }
+            finally
+            {
+                buffer.dispose();
+            }
+        }
+
+        if (processed > 0L)
+        {
+            final long backlog = _inboundBacklog.addAndGet(-processed);
+            if (backlog <= _networkBufferSize && backlog + processed > _networkBufferSize)
+            {
+                releaseInboundBacklogWaiters();
+            }
+        }
+    }
+
+    /**
+     * Hands the pending output to the writer, unless it is already writing for this connection.
+     *
+     * @return true if there is no output outstanding
+     */
+    private boolean doWrite()
+    {
+        if (_buffers.isEmpty())
+        {
+            return !_writeScheduled.get();
+        }
+        if (_writeScheduled.compareAndSet(false, true))
+        {
+            _writeExecutor.execute(_writer);
+        }
+        return false;
+    }
+
+    private void processWrites()
+    {
+        try
+        {
+            writeBuffers();
+        }
+        finally
+        {
+            _writeScheduled.set(false);
+            // lets an IO thread pick up output queued whilst sending, and resume message assignment
+            if (!_hasShutdown.get())
+            {
+                schedule();
+            }
+        }
+    }
+
+    private void writeBuffers()
+    {
+        int size = 0;
+        List<QpidByteBuffer> toBeWritten = new ArrayList<>();
+        QpidByteBuffer buf;
+        while((buf = _buffers.poll())!= null)
+        {
+            size += buf.remaining();
+            toBeWritten.add(buf);
+        }
+
+        if (size == 0)
+        {
+            return;
+        }
+
+        final byte[] data;
+        if (size <= _networkBufferSize)
+        {
+            if (_writeBuffer == null)
+            {
+                _writeBuffer = new byte[_networkBufferSize];
+            }
+            data = _writeBuffer;
+        }
+        else
+        {
+            data = new byte[size];
+        }
+
+        int offset = 0;
+        for(QpidByteBuffer tmp : toBeWritten)
+        {
+            int remaining = tmp.remaining();
+            tmp.get(data, offset, remaining);
+            tmp.dispose();
+            offset += remaining;
+        }
+
+        _writeStartTime = System.currentTimeMillis();
+        try
+        {
+            _connection.sendMessage(data, 0, size);
+            _usedOutboundMessageSpace.set(0);
+        }
+        catch (IOException e)
+        {
+            LOGGER.info("Exception on write: {}", e.getMessage());
+            close();
+        }
+        finally
+        {
+            _writeStartTime = 0L;
+        }
+    }
+
+    /**
+     * Tells the protocol engine that the connection has closed and releases the buffers it holds.  Normally called
+     * on an IO thread once the connection has closed, but also by the port for connections that remain open when it
+     * is closed itself.
+     */
+    void shutdown()
+    {
+        if (_hasShutdown.compareAndSet(false, true))
+        {
+            try
+            {
+                _protocolEngine.closed();
+            }
+            finally
+            {
+                disposeInbound();
+                QpidByteBuffer buffer;
+                while ((buffer = _buffers.poll()) != null)
+                {
+                    buffer.dispose();
+                }
+                _inboundBacklog.set(0L);
+                _shutdownListener.performAction(this);
+            }
+        }
+    }
+
+    private void disposeInbound()
+    {
+        QpidByteBuffer buffer;
+        while ((buffer = _inbound.poll()) != null)
+        {
+            buffer.dispose();
+        }
+    }
+}
@@ -23,16 +23,18 @@ package org.apache.qpid.server.transport.websocket;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
-import java.security.Principal;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -47,13 +49,11 @@ import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.eclipse.jetty.server.nio.SelectChannelConnector;
 import org.eclipse.jetty.server.ssl.SslSelectChannelConnector;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
-import org.eclipse.jetty.util.thread.ThreadPool;
 import org.eclipse.jetty.websocket.WebSocket;
 import org.eclipse.jetty.websocket.WebSocketHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.apache.qpid.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.transport.MultiVersionProtocolEngine;
 import org.apache.qpid.server.model.Broker;
 import org.apache.qpid.server.model.Protocol;
@@ -61,17 +61,19 @@ import org.apache.qpid.server.model.Transport;
 import org.apache.qpid.server.model.port.AmqpPort;
 import org.apache.qpid.server.transport.MultiVersionProtocolEngineFactory;
 import org.apache.qpid.server.transport.AcceptingTransport;
+import org.apache.qpid.server.transport.NetworkConnectionScheduler;
 import org.apache.qpid.server.transport.ProtocolEngine;
-import org.apache.qpid.server.transport.SchedulingDelayNotificationListener;
-import org.apache.qpid.server.transport.ServerNetworkConnection;
 import org.apache.qpid.server.util.Action;
+import org.apache.qpid.server.util.DaemonThreadFactory;
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
-import org.apache.qpid.transport.ByteBufferSender;
 import org.apache.qpid.transport.network.security.ssl.SSLUtil;
 
 class WebSocketProvider implements AcceptingTransport
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketProvider.class);
+    private static final long CONNECTION_SHUTDOWN_TIMEOUT = 5000L;
+    private static final long MAXIMUM_WRITE_TIMEOUT_CHECK_PERIOD = 1000L;
+
     public static final String AMQP_WEBSOCKET_SUBPROTOCOL = "AMQPWSB10";
     public static final String X509_CERTIFICATES = "javax.servlet.request.X509Certificate";
     private final Transport _transport;
@@ -81,7 +83,22 @@ class WebSocketProvider implements AcceptingTransport
     private final Protocol _defaultSupportedProtocolReply;
     private final MultiVersionProtocolEngineFactory _factory;
     private Server _server;
+    private NetworkConnectionScheduler _scheduler;
+    private ThreadPoolExecutor _writeExecutor;
+    private ScheduledExecutorService _writeTimeoutChecker;
     private final long _outboundMessageBufferLimit;
+    private final int _networkBufferSize;
+    private final long _writeTimeout;
+    private final Set<ConnectionWrapper> _connections =
+            Collections.newSetFromMap(new ConcurrentHashMap<ConnectionWrapper, Boolean>());
+    private final Action<ConnectionWrapper> _connectionShutdownListener = new Action<ConnectionWrapper>()
+    {
+        @Override
+        public void performAction(final ConnectionWrapper connection)
+        {
+            _connections.remove(connection);
+        }
+    };
 
     WebSocketProvider(final Transport transport,
                       final SSLContext sslContext,
@@ -97,6 +114,8 @@ class WebSocketProvider implements AcceptingTransport
 
         _outboundMessageBufferLimit = (long) _port.getContextValue(Long.class,
                                                                    AmqpPort.PORT_AMQP_OUTBOUND_MESSAGE_BUFFER_SIZE);
+        _networkBufferSize = _port.getNetworkBufferSize();
+        _writeTimeout = _port.getContextValue(Long.class, AmqpPort.PORT_AMQP_WEBSOCKET_WRITE_TIMEOUT);
         _factory = new MultiVersionProtocolEngineFactory(
                         _port.getParent(Broker.class),
                         _supported,
@@ -109,6 +128,35 @@ class WebSocketProvider implements AcceptingTransport
     @Override
     public void start()
     {
+        long threadPoolKeepAliveTimeout = _port.getContextValue(Long.class, AmqpPort.PORT_AMQP_THREAD_POOL_KEEP_ALIVE_TIMEOUT);
+        boolean connectionAffinity = _port.getContextValue(Boolean.class, AmqpPort.PORT_AMQP_CONNECTION_AFFINITY);
+        int workStealingThreshold = _port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_WORK_STEALING_THRESHOLD);
+
+        _scheduler = new NetworkConnectionScheduler("Port-" + _port.getName(), _port.getNumberOfSelectors(),
+                                                    _port.getThreadPoolSize(), threadPoolKeepAliveTimeout,
+                                                    connectionAffinity, workStealingThreshold);
+        _scheduler.start();
+
+        // a connection whose output is queued for a writer remains blocked for writing until the write completes
+        int writerThreads = _port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_WEBSOCKET_WRITER_THREADS);
+        _writeExecutor = new ThreadPoolExecutor(writerThreads, writerThreads,
+                                                threadPoolKeepAliveTimeout, TimeUnit.MINUTES,
+                                                new LinkedBlockingQueue<Runnable>(),
+                                                createWriterThreadFactory("Port-" + _port.getName()));
+        _writeExecutor.allowCoreThreadTimeOut(true);
+
+        _writeTimeoutChecker = Executors.newSingleThreadScheduledExecutor(
+                new DaemonThreadFactory("WebSocket-write-timeout-Port-" + _port.getName()));
+        long checkPeriod = Math.max(1L, Math.min(_writeTimeout, MAXIMUM_WRITE_TIMEOUT_CHECK_PERIOD));
+        _writeTimeoutChecker.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                checkWriteTimeouts();
+            }
+        }, checkPeriod, checkPeriod, TimeUnit.MILLISECONDS);
+
         _server = new Server();
 
         final AbstractConnector connector;
@@ -198,7 +246,7 @@ class WebSocketProvider implements AcceptingTransport
 
                 SocketAddress remoteAddress = new InetSocketAddress(request.getRemoteHost(), request.getRemotePort());
                 SocketAddress localAddress = new InetSocketAddress(request.getLocalName(), request.getLocalPort());
-                return new AmqpWebSocket(_transport, localAddress, remoteAddress, certificate, connector.getThreadPool());
+                return new AmqpWebSocket(_transport, localAddress, remoteAddress, certificate);
             }
         };
 
@@ -241,7 +289,103 @@ class WebSocketProvider implements AcceptingTransport
     @Override
     public void close()
     {
+        try
+        {
+            if (_server != null)
+            {
+                _server.stop();
+            }
+        }
+        catch (RuntimeException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new ServerScopedRuntimeException(e);
+        }
+        finally
+        {
+            try
+            {
+                shutdownConnections();
+            }
+            finally
+            {
+                if (_writeTimeoutChecker != null)
+                {
+                    _writeTimeoutChecker.shutdown();
+                }
+                if (_scheduler != null)
+                {
+                    _scheduler.close();
+                }
+                if (_writeExecutor != null)
+                {
+                    _writeExecutor.shutdown();
+                }
+            }
+        }
+    }
 
+    private void checkWriteTimeouts()
+    {
+        final long now = System.currentTimeMillis();
+        for (ConnectionWrapper connection : _connections)
+        {
+            connection.checkWriteTimeout(now);
+        }
+    }
+
+    /**
+     * Closes the connections still open, letting the IO threads shut them down and release their buffers before
+     * the scheduler is closed.  Any connection not shut down in time is shut down by the calling thread.
+     */
+    private void shutdownConnections()
+    {
+        for (ConnectionWrapper connection : _connections)
+        {
+            connection.remoteClosed();
+        }
+
+        final long deadline = System.currentTimeMillis() + CONNECTION_SHUTDOWN_TIMEOUT;
+        try
+        {
+            while (!_connections.isEmpty() && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10L);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!_connections.isEmpty())
+        {
+            LOGGER.warn("{} connection(s) on port '{}' not shut down within {} ms",
+                        _connections.size(), _port.getName(), CONNECTION_SHUTDOWN_TIMEOUT);
+            for (ConnectionWrapper connection : _connections)
+            {
+                connection.shutdown();
+            }
+        }
+    }
+
+    private static ThreadFactory createWriterThreadFactory(final String name)
+    {
+        return new ThreadFactory()
+        {
+            final AtomicInteger _count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r)
+            {
+                Thread t = Executors.defaultThreadFactory().newThread(r);
+                t.setName("WebSocket-writer-" + name + "-" + _count.incrementAndGet());
+                return t;
+            }
+        };
     }
 
     @Override
@@ -255,54 +399,23 @@ class WebSocketProvider implements AcceptingTransport
         private final SocketAddress _localAddress;
         private final SocketAddress _remoteAddress;
         private final Certificate _userCertificate;
-        private final ThreadPool _threadPool;
         private volatile MultiVersionProtocolEngine _protocolEngine;
         private volatile ConnectionWrapper _connectionWrapper;
 
         private AmqpWebSocket(final Transport transport,
                               final SocketAddress localAddress,
                               final SocketAddress remoteAddress,
-                              final Certificate userCertificate,
-                              final ThreadPool threadPool)
+                              final Certificate userCertificate)
         {
             _localAddress = localAddress;
             _remoteAddress = remoteAddress;
             _userCertificate = userCertificate;
-            _threadPool = threadPool;
         }
 
         @Override
         public void onMessage(final byte[] data, final int offset, final int length)
         {
-            synchronized (_connectionWrapper)
-            {
-
-                _protocolEngine.clearWork();
-                try
-                {
-                    _protocolEngine.setIOThread(Thread.currentThread());
-                    _protocolEngine.setMessageAssignmentSuspended(true, true);
-                    Iterator<Runnable> iter = _protocolEngine.processPendingIterator();
-                    while(iter.hasNext())
-                    {
-                        iter.next().run();
-                    }
-
-                    QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(length);
-                    buffer.put(data, offset, length);
-                    buffer.flip();
-                    _protocolEngine.received(buffer);
-                    buffer.dispose();
-
-                    _connectionWrapper.doWrite();
-
-                    _protocolEngine.setMessageAssignmentSuspended(false, true);
-                }
-                finally
-                {
-                    _protocolEngine.setIOThread(null);
-                }
-            }
+            _connectionWrapper.received(data, offset, length);
         }
 
         @Override
@@ -313,8 +426,11 @@ class WebSocketProvider implements AcceptingTransport
 
             connection.setMaxBinaryMessageSize(0);
 
-            _connectionWrapper =
-                    new ConnectionWrapper(connection, _localAddress, _remoteAddress, _protocolEngine);
+            _connectionWrapper = new ConnectionWrapper(connection, _localAddress, _remoteAddress, _protocolEngine,
+                                                       _scheduler, _writeExecutor, _networkBufferSize,
+                                                       _outboundMessageBufferLimit, _writeTimeout,
+                                                       _connectionShutdownListener);
+            _connections.add(_connectionWrapper);
             _connectionWrapper.setPeerCertificate(_userCertificate);
             _protocolEngine.setNetworkConnection(_connectionWrapper);
             _protocolEngine.setWorkListener(new Action<ProtocolEngine>()
@@ -322,14 +438,7 @@ class WebSocketProvider implements AcceptingTransport
                 @Override
                 public void performAction(final ProtocolEngine object)
                 {
-                    _threadPool.dispatch(new Runnable()
-                    {
-                        @Override
-                        public void run()
-                        {
-                            _connectionWrapper.doWork();
-                        }
-                    });
+                    _connectionWrapper.schedule();
                 }
             });
 
@@ -339,216 +448,7 @@ class WebSocketProvider implements AcceptingTransport
         @Override
         public void onClose(final int closeCode, final String message)
         {
-            _protocolEngine.closed();
-        }
-    }
-
-    private class ConnectionWrapper implements ServerNetworkConnection, ByteBufferSender
-    {
-        private final WebSocket.Connection _connection;
-        private final SocketAddress _localAddress;
-        private final SocketAddress _remoteAddress;
-        private final ConcurrentLinkedQueue<QpidByteBuffer> _buffers = new ConcurrentLinkedQueue<>();
-        private final MultiVersionProtocolEngine _protocolEngine;
-        private final AtomicLong _usedOutboundMessageSpace = new AtomicLong();
-
-        private Certificate _certificate;
-        private long _maxWriteIdleMillis;
-        private long _maxReadIdleMillis;
-
-        public ConnectionWrapper(final WebSocket.Connection connection,
-                                 final SocketAddress localAddress,
-                                 final SocketAddress remoteAddress, final MultiVersionProtocolEngine protocolEngine)
-        {
-            _connection = connection;
-            _localAddress = localAddress;
-            _remoteAddress = remoteAddress;
-            _protocolEngine = protocolEngine;
-        }
-
-        @Override
-        public ByteBufferSender getSender()
-        {
-            return this;
-        }
-
-        @Override
-        public void start()
-        {
-
-        }
-
-        @Override
-        public boolean isDirectBufferPreferred()
-        {
-            return false;
-        }
-
-        @Override
-        public void send(final QpidByteBuffer msg)
-        {
-            if (msg.remaining() > 0)
-            {
-                _buffers.add(msg.duplicate());
-            }
-            msg.position(msg.limit());
-        }
-
-        @Override
-        public void flush()
-        {
-
-        }
-
-        @Override
-        public void close()
-        {
-            _connection.close();
-        }
-
-        @Override
-        public SocketAddress getRemoteAddress()
-        {
-            return _remoteAddress;
-        }
-
-        @Override
-        public SocketAddress getLocalAddress()
-        {
-            return _localAddress;
-        }
-
-        @Override
-        public void setMaxWriteIdleMillis(final long millis)
-        {
-            _maxWriteIdleMillis = millis;
-        }
-
-        @Override
-        public void setMaxReadIdleMillis(final long millis)
-        {
-            _maxReadIdleMillis = millis;
-        }
-
-        @Override
-        public Principal getPeerPrincipal()
-        {
-            return _certificate instanceof X509Certificate ? ((X509Certificate)_certificate).getSubjectDN() : null;
-        }
-
-        @Override
-        public Certificate getPeerCertificate()
-        {
-            return _certificate;
-        }
-
-        @Override
-        public long getMaxReadIdleMillis()
-        {
-            return _maxReadIdleMillis;
-        }
-
-        @Override
-        public long getMaxWriteIdleMillis()
-        {
-            return _maxWriteIdleMillis;
-        }
-
-        @Override
-        public void addSchedulingDelayNotificationListeners(final SchedulingDelayNotificationListener listener)
-        {
-        }
-
-        @Override
-        public void removeSchedulingDelayNotificationListeners(final SchedulingDelayNotificationListener listener)
-        {
-        }
-
-        @Override
-        public void reserveOutboundMessageSpace(final long size)
-        {
-            if (_usedOutboundMessageSpace.addAndGet(size) > _outboundMessageBufferLimit)
-            {
-                _protocolEngine.setMessageAssignmentSuspended(true, false);
-            }
-        }
-
-        @Override
-        public String getTransportInfo()
-        {
-            return _connection.getProtocol();
-        }
-
-        @Override
-        public long getScheduledTime()
-        {
-            return 0;
-        }
-
-        void setPeerCertificate(final Certificate certificate)
-        {
-            _certificate = certificate;
-        }
-
-        public synchronized void doWrite()
-        {
-            int size = 0;
-            List<QpidByteBuffer> toBeWritten = new ArrayList<>(_buffers.size());
-            QpidByteBuffer buf;
-            while((buf = _buffers.poll())!= null)
-            {
-                size += buf.remaining();
-                toBeWritten.add(buf);
-            }
-
-            byte[] data = new byte[size];
-            int offset = 0;
-
-            for(QpidByteBuffer tmp : toBeWritten)
-            {
-                int remaining = tmp.remaining();
-                tmp.get(data, offset, remaining);
-                tmp.dispose();
-                offset += remaining;
-            }
-            if(size > 0)
-            {
-                try
-                {
-                    _connection.sendMessage(data, 0, size);
-                    _usedOutboundMessageSpace.set(0);
-                }
-                catch (IOException e)
-                {
-                    LOGGER.info("Exception on write: {}", e.getMessage());
-                    close();
-                }
-            }
-        }
-
-        public synchronized void doWork()
-        {
-            _protocolEngine.clearWork();
-            try
-            {
-                _protocolEngine.setIOThread(Thread.currentThread());
-                _protocolEngine.setMessageAssignmentSuspended(true, true);
-
-                Iterator<Runnable> iter = _protocolEngine.processPendingIterator();
-                while(iter.hasNext())
-                {
-                    iter.next().run();
-                }
-
-                doWrite();
-
-                _protocolEngine.setMessageAssignmentSuspended(false, true);
-            }
-            finally
-            {
-                _protocolEngine.setIOThread(null);
-            }
-
+            _connectionWrapper.remoteClosed();
         }
     }
 }
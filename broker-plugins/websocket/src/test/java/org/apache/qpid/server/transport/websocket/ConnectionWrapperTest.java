@@ -0,0 +1,233 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport.websocket;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.websocket.WebSocket;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.transport.NetworkConnectionScheduler;
+import org.apache.qpid.server.transport.ProtocolEngine;
+import org.apache.qpid.server.util.Action;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class ConnectionWrapperTest extends QpidTestCase
+{
+    private static final long TIMEOUT = 5000L;
+    private static final String WRITER_THREAD_NAME = "test-writer";
+    private static final long WRITE_TIMEOUT = 1000L;
+
+    private NetworkConnectionScheduler _scheduler;
+    private ExecutorService _writeExecutor;
+    private WebSocket.Connection _connection;
+    private ProtocolEngine _protocolEngine;
+    private ConnectionWrapper _wrapper;
+    private BlockingQueue<ConnectionWrapper> _shutdownConnections;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _scheduler = new NetworkConnectionScheduler(getTestName(), 1, 2, 60000L);
+        _scheduler.start();
+        _writeExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable r)
+            {
+                return new Thread(r, WRITER_THREAD_NAME);
+            }
+        });
+
+        _connection = mock(WebSocket.Connection.class);
+        _protocolEngine = mock(ProtocolEngine.class);
+        when(_protocolEngine.processPendingIterator()).thenReturn(Collections.<Runnable>emptyIterator());
+
+        _shutdownConnections = new ArrayBlockingQueue<>(1);
+
+        _wrapper = new ConnectionWrapper(_connection,
+                                         new InetSocketAddress("localhost", 5672),
+                                         new InetSocketAddress("localhost", 49152),
+                                         _protocolEngine,
+                                         _scheduler,
+                                         _writeExecutor,
+                                         1024,
+                                         1024L,
+                                         WRITE_TIMEOUT,
+                                         new Action<ConnectionWrapper>()
+                                         {
+                                             @Override
+                                             public void performAction(final ConnectionWrapper object)
+                                             {
+                                                 _shutdownConnections.add(object);
+                                             }
+                                         });
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            _writeExecutor.shutdown();
+            _scheduler.close();
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testReceivedFrameProcessedOnIOThread() throws Exception
+    {
+        final BlockingQueue<String> threadNames = new ArrayBlockingQueue<>(1);
+        final BlockingQueue<byte[]> received = new ArrayBlockingQueue<>(1);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation)
+            {
+                QpidByteBuffer buffer = (QpidByteBuffer) invocation.getArguments()[0];
+                byte[] data = new byte[buffer.remaining()];
+                buffer.get(data);
+                received.add(data);
+                threadNames.add(Thread.currentThread().getName());
+                return null;
+            }
+        }).when(_protocolEngine).received(any(QpidByteBuffer.class));
+
+        byte[] frame = {1, 2, 3, 4};
+        _wrapper.received(frame, 0, frame.length);
+
+        assertTrue("Frame not passed to the protocol engine",
+                   Arrays.equals(frame, received.poll(TIMEOUT, TimeUnit.MILLISECONDS)));
+        String threadName = threadNames.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        assertTrue("Frame not processed on an IO thread: " + threadName, threadName.startsWith("IO-"));
+    }
+
+    public void testOutputSentByWriterAndAssignmentResumed() throws Exception
+    {
+        final BlockingQueue<String> threadNames = new ArrayBlockingQueue<>(1);
+        final BlockingQueue<byte[]> sent = new ArrayBlockingQueue<>(1);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation)
+            {
+                Object[] args = invocation.getArguments();
+                int offset = (Integer) args[1];
+                sent.add(Arrays.copyOfRange((byte[]) args[0], offset, offset + (Integer) args[2]));
+                threadNames.add(Thread.currentThread().getName());
+                return null;
+            }
+        }).when(_connection).sendMessage(any(byte[].class), anyInt(), anyInt());
+
+        _wrapper.send(QpidByteBuffer.wrap(new byte[]{1, 2}));
+        _wrapper.send(QpidByteBuffer.wrap(new byte[]{3}));
+        _wrapper.schedule();
+
+        assertTrue("Output not sent as one message",
+                   Arrays.equals(new byte[]{1, 2, 3}, sent.poll(TIMEOUT, TimeUnit.MILLISECONDS)));
+        assertEquals("Output not sent by the writer",
+                     WRITER_THREAD_NAME, threadNames.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        // the IO thread is rescheduled once the write completes and no output is outstanding
+        verify(_protocolEngine, timeout(TIMEOUT)).setTransportBlockedForWriting(true);
+        verify(_protocolEngine, timeout(TIMEOUT)).setTransportBlockedForWriting(false);
+        verify(_protocolEngine, timeout(TIMEOUT)).setMessageAssignmentSuspended(false, true);
+    }
+
+    public void testFrameReceivedAfterCloseIsDiscarded() throws Exception
+    {
+        _wrapper.remoteClosed();
+        verify(_protocolEngine, timeout(TIMEOUT)).closed();
+        assertSame("Shutdown not notified", _wrapper, _shutdownConnections.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        byte[] frame = {1, 2, 3, 4};
+        _wrapper.received(frame, 0, frame.length);
+        _wrapper.schedule();
+
+        Thread.sleep(100L);
+        verify(_protocolEngine, never()).received(any(QpidByteBuffer.class));
+        verify(_connection, never()).sendMessage(any(byte[].class), anyInt(), anyInt());
+        verify(_protocolEngine, never()).setMessageAssignmentSuspended(eq(false), eq(true));
+    }
+
+    public void testStalledWriteClosesConnection() throws Exception
+    {
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws InterruptedException
+            {
+                writeStarted.countDown();
+                closed.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        }).when(_connection).sendMessage(any(byte[].class), anyInt(), anyInt());
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation)
+            {
+                closed.countDown();
+                return null;
+            }
+        }).when(_connection).close();
+
+        _wrapper.send(QpidByteBuffer.wrap(new byte[]{1, 2}));
+        _wrapper.schedule();
+        assertTrue("Write not started", writeStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        assertFalse("Connection closed before the write timed out",
+                    _wrapper.checkWriteTimeout(System.currentTimeMillis()));
+        assertTrue("Connection not closed once the write timed out",
+                   _wrapper.checkWriteTimeout(System.currentTimeMillis() + WRITE_TIMEOUT + 1));
+
+        verify(_connection).close();
+        verify(_protocolEngine, timeout(TIMEOUT)).closed();
+        assertSame("Shutdown not notified", _wrapper, _shutdownConnections.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+}
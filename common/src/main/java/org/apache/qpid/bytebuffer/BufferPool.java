@@ -21,34 +21,386 @@
 package org.apache.qpid.bytebuffer;
 
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Pool of direct buffers divided into power-of-two size classes ranging from {@link #MINIMUM_SIZE_CLASS} up to
+ * the largest pooled buffer size.
+ * <p>
+ * Each thread keeps a small magazine of buffers per size class so that the common allocate/dispose cycle
+ * on an IO thread touches no shared state.  Magazines overflow into, and are refilled from, a global depot
+ * per size class.  The bytes held by the depots, together with the full capacity of every magazine, are
+ * bounded by {@code maxSize * largestBufferSize}, the same ceiling the pool had when it only held buffers of a
+ * single size.  A magazine reserves its capacity against that bound when it is first filled and, should the
+ * bound be exhausted, the thread simply goes straight to the depot.
+ * <p>
+ * The magazines and counters of threads that have terminated are returned to the depots, and folded into the
+ * pool totals, whenever a new thread first uses the pool or the statistics are read.  Buffers that are detached
+ * from the pool count as released, so that they do not inflate the number of buffers in use.
+ */
 class BufferPool
 {
+    static final int MINIMUM_SIZE_CLASS = 256;
+    private static final int MAGAZINE_BYTES = 32 * 1024;
+    private static final int MAXIMUM_MAGAZINE_CAPACITY = 16;
+
     private final int _maxSize;
-    private final ConcurrentLinkedQueue<ByteBuffer> _pooledBuffers = new ConcurrentLinkedQueue<>();
+    private final int _largestBufferSize;
+    private final int[] _sizeClasses;
+    private final Depot[] _depots;
+    private final long _maxPooledBytes;
+    private final AtomicLong _pooledBytes = new AtomicLong();
+
+    private final AtomicLong _retiredHits = new AtomicLong();
+    private final AtomicLong _retiredMisses = new AtomicLong();
+    private final AtomicLong _retiredReleases = new AtomicLong();
+
+    private final Set<ThreadCache> _threadCaches =
+            Collections.newSetFromMap(new ConcurrentHashMap<ThreadCache, Boolean>());
+
+    private final ThreadLocal<ThreadCache> _threadCache = new ThreadLocal<ThreadCache>()
+    {
+        @Override
+        protected ThreadCache initialValue()
+        {
+            reclaimTerminatedThreadCaches();
+            ThreadCache cache = new ThreadCache(Thread.currentThread(), _sizeClasses.length);
+            _threadCaches.add(cache);
+            return cache;
+        }
+    };
 
-    BufferPool(final int maxSize)
+    BufferPool(final int largestBufferSize, final int maxSize)
     {
         _maxSize = maxSize;
+        _largestBufferSize = largestBufferSize;
+        _maxPooledBytes = (long) maxSize * (long) largestBufferSize;
+
+        int numberOfClasses = 1;
+        for (int size = MINIMUM_SIZE_CLASS; size < largestBufferSize; size <<= 1)
+        {
+            numberOfClasses++;
+        }
+        _sizeClasses = new int[numberOfClasses];
+        int size = MINIMUM_SIZE_CLASS;
+        for (int i = 0; i < numberOfClasses - 1; i++)
+        {
+            _sizeClasses[i] = size;
+            size <<= 1;
+        }
+        _sizeClasses[numberOfClasses - 1] = largestBufferSize;
+
+        _depots = new Depot[numberOfClasses];
+        for (int i = 0; i < numberOfClasses; i++)
+        {
+            _depots[i] = new Depot();
+        }
+    }
+
+    /**
+     * Returns the capacity of the buffers used to satisfy an allocation of the given size
+     */
+    int getSizeClassCapacity(final int size)
+    {
+        return _sizeClasses[sizeClassIndex(size)];
     }
 
-    ByteBuffer getBuffer()
+    /**
+     * Returns a pooled buffer large enough for the given size, or null if the pool has none available, in
+     * which case the caller should allocate a buffer of {@link #getSizeClassCapacity(int)} bytes itself.
+     */
+    ByteBuffer getBuffer(final int size)
     {
-        return _pooledBuffers.poll();
+        final int index = sizeClassIndex(size);
+        final ThreadCache cache = _threadCache.get();
+        final Magazine magazine = cache._magazines[index];
+        ByteBuffer buf = magazine == null ? null : magazine.pop();
+        if (buf == null)
+        {
+            buf = _depots[index].poll();
+            if (buf != null)
+            {
+                _pooledBytes.addAndGet(-buf.capacity());
+            }
+        }
+        cache.allocated(buf != null);
+        return buf;
     }
 
     void returnBuffer(ByteBuffer buf)
     {
         buf.clear();
-        if (_pooledBuffers.size() < _maxSize)
+        final ThreadCache cache = _threadCache.get();
+        cache.released();
+
+        final int index = sizeClassIndex(buf.capacity());
+        if (_sizeClasses[index] != buf.capacity())
         {
-            _pooledBuffers.add(buf);
+            return;
         }
+
+        Magazine magazine = cache._magazines[index];
+        if (magazine == null)
+        {
+            magazine = reserveMagazine(index);
+            cache._magazines[index] = magazine;
+        }
+
+        if (magazine == null || !magazine.push(buf))
+        {
+            offerToDepot(index, buf);
+        }
+    }
+
+    /**
+     * Records that a buffer handed out by the pool has been detached from it, and so will never be returned; as
+     * far as the pool is concerned the buffer is no longer in use.
+     */
+    void detachBuffer()
+    {
+        _threadCache.get().released();
     }
 
     public int getMaxSize()
     {
         return _maxSize;
     }
+
+    int getLargestBufferSize()
+    {
+        return _largestBufferSize;
+    }
+
+    long getHitCount()
+    {
+        reclaimTerminatedThreadCaches();
+        long hits = _retiredHits.get();
+        for (ThreadCache cache : _threadCaches)
+        {
+            hits += cache.getHits();
+        }
+        return hits;
+    }
+
+    long getMissCount()
+    {
+        reclaimTerminatedThreadCaches();
+        long misses = _retiredMisses.get();
+        for (ThreadCache cache : _threadCaches)
+        {
+            misses += cache.getMisses();
+        }
+        return misses;
+    }
+
+    long getInUseCount()
+    {
+        reclaimTerminatedThreadCaches();
+        long inUse = _retiredHits.get() + _retiredMisses.get() - _retiredReleases.get();
+        for (ThreadCache cache : _threadCaches)
+        {
+            inUse += cache.getHits() + cache.getMisses() - cache.getReleases();
+        }
+        return inUse;
+    }
+
+    private Magazine reserveMagazine(final int index)
+    {
+        final int capacity = Math.max(1, Math.min(MAXIMUM_MAGAZINE_CAPACITY, MAGAZINE_BYTES / _sizeClasses[index]));
+        final long bytes = (long) capacity * _sizeClasses[index];
+        if (_pooledBytes.addAndGet(bytes) <= _maxPooledBytes)
+        {
+            return new Magazine(capacity);
+        }
+        _pooledBytes.addAndGet(-bytes);
+        return null;
+    }
+
+    private void offerToDepot(final int index, final ByteBuffer buf)
+    {
+        final int capacity = buf.capacity();
+        if (_pooledBytes.addAndGet(capacity) > _maxPooledBytes || !_depots[index].offer(buf, _maxSize))
+        {
+            _pooledBytes.addAndGet(-capacity);
+        }
+    }
+
+    /**
+     * Hands the magazines of terminated threads back to the depots, releasing their reservations, and folds
+     * their counters into the pool totals.
+     */
+    private void reclaimTerminatedThreadCaches()
+    {
+        for (ThreadCache cache : _threadCaches)
+        {
+            // the termination of the owner, observed through isAlive(), makes its last writes visible here
+            if (!cache._owner.isAlive() && _threadCaches.remove(cache))
+            {
+                _retiredHits.addAndGet(cache.getHits());
+                _retiredMisses.addAndGet(cache.getMisses());
+                _retiredReleases.addAndGet(cache.getReleases());
+
+                for (int index = 0; index < cache._magazines.length; index++)
+                {
+                    final Magazine magazine = cache._magazines[index];
+                    if (magazine != null)
+                    {
+                        _pooledBytes.addAndGet(-(long) magazine.getCapacity() * _sizeClasses[index]);
+                        ByteBuffer buf;
+                        while ((buf = magazine.pop()) != null)
+                        {
+                            offerToDepot(index, buf);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int sizeClassIndex(final int size)
+    {
+        final int last = _sizeClasses.length - 1;
+        if (size <= MINIMUM_SIZE_CLASS)
+        {
+            return 0;
+        }
+        else if (size >= _sizeClasses[last])
+        {
+            return last;
+        }
+        else
+        {
+            // smallest power of two class that holds size
+            int index = 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MINIMUM_SIZE_CLASS);
+            return Math.min(index, last);
+        }
+    }
+
+    /**
+     * Bounded lock-free queue of buffers shared between threads.
+     */
+    private static final class Depot
+    {
+        private final ConcurrentLinkedQueue<ByteBuffer> _buffers = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger _size = new AtomicInteger();
+
+        ByteBuffer poll()
+        {
+            ByteBuffer buf = _buffers.poll();
+            if (buf != null)
+            {
+                _size.decrementAndGet();
+            }
+            return buf;
+        }
+
+        boolean offer(final ByteBuffer buf, final int maxSize)
+        {
+            if (_size.incrementAndGet() <= maxSize)
+            {
+                _buffers.add(buf);
+                return true;
+            }
+            _size.decrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Per thread cache of buffers of a single size class; only ever accessed by its owning thread, or once that
+     * thread has terminated.
+     */
+    private static final class Magazine
+    {
+        private final ByteBuffer[] _buffers;
+        private int _count;
+
+        Magazine(final int capacity)
+        {
+            _buffers = new ByteBuffer[capacity];
+        }
+
+        int getCapacity()
+        {
+            return _buffers.length;
+        }
+
+        ByteBuffer pop()
+        {
+            if (_count == 0)
+            {
+                return null;
+            }
+            ByteBuffer buf = _buffers[--_count];
+            _buffers[_count] = null;
+            return buf;
+        }
+
+        boolean push(final ByteBuffer buf)
+        {
+            if (_count == _buffers.length)
+            {
+                return false;
+            }
+            _buffers[_count++] = buf;
+            return true;
+        }
+    }
+
+    /**
+     * The magazines and pool counters of a single thread.  The magazines are created lazily, as the thread first
+     * returns a buffer of each size class.  Buffers may be released, or detached from the pool, by a thread other
+     * than the one that allocated them, so the counters are updated atomically.
+     */
+    private static final class ThreadCache
+    {
+        private final Thread _owner;
+        private final Magazine[] _magazines;
+        private final AtomicLong _hits = new AtomicLong();
+        private final AtomicLong _misses = new AtomicLong();
+        private final AtomicLong _releases = new AtomicLong();
+
+        ThreadCache(final Thread owner, final int numberOfClasses)
+        {
+            _owner = owner;
+            _magazines = new Magazine[numberOfClasses];
+        }
+
+        void allocated(final boolean hit)
+        {
+            if (hit)
+            {
+                _hits.incrementAndGet();
+            }
+            else
+            {
+                _misses.incrementAndGet();
+            }
+        }
+
+        void released()
+        {
+            _releases.incrementAndGet();
+        }
+
+        long getHits()
+        {
+            return _hits.get();
+        }
+
+        long getMisses()
+        {
+            return _misses.get();
+        }
+
+        long getReleases()
+        {
+            return _releases.get();
+        }
+    }
 }
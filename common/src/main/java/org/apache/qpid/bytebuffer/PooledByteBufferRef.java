@@ -63,7 +63,11 @@ class PooledByteBufferRef implements ByteBufferRef
     @Override
     public void removeFromPool()
     {
-        REF_COUNT.set(this, Integer.MIN_VALUE/2);
+        final int refCount = REF_COUNT.getAndSet(this, Integer.MIN_VALUE/2);
+        if (refCount > 0)
+        {
+            QpidByteBuffer.detachFromPool();
+        }
     }
 
 
@@ -54,7 +54,6 @@ public final class QpidByteBuffer
             QpidByteBuffer.class,
             "_disposed");
 
-    private static final ThreadLocal<QpidByteBuffer> _cachedBuffer = new ThreadLocal<>();
     private volatile ByteBuffer _buffer;
     private final ByteBufferRef _ref;
 
@@ -481,41 +480,26 @@ public final class QpidByteBuffer
             throw new IllegalArgumentException("Cannot allocate QpidByteBuffer with size " + size + " which is negative.");
         }
 
-        final ByteBufferRef ref;
         if (_isPoolInitialized && _pooledBufferSize >= size)
         {
-            if (_pooledBufferSize == size)
+            ByteBuffer buf = _bufferPool.getBuffer(size);
+            if (buf == null)
             {
-                ByteBuffer buf = _bufferPool.getBuffer();
-                if (buf == null)
-                {
-                    buf = ByteBuffer.allocateDirect(size);
-                }
-                ref = new PooledByteBufferRef(buf);
+                buf = ByteBuffer.allocateDirect(_bufferPool.getSizeClassCapacity(size));
             }
-            else
+            final ByteBufferRef ref = new PooledByteBufferRef(buf);
+            final ByteBuffer view = ref.getBuffer();
+            if (view.capacity() != size)
             {
-                QpidByteBuffer buf = _cachedBuffer.get();
-                if (buf == null || buf.remaining() < size)
-                {
-                    if (buf != null)
-                    {
-                        buf.dispose();
-                    }
-                    buf = allocateDirect(_pooledBufferSize);
-                }
-                QpidByteBuffer rVal = buf.view(0, size);
-                buf.position(buf.position() + size);
-
-                _cachedBuffer.set(buf);
-                return rVal;
+                view.limit(size);
+                return new QpidByteBuffer(view.slice(), ref);
             }
+            return new QpidByteBuffer(view, ref);
         }
         else
         {
-            ref = new NonPooledByteBufferRef(ByteBuffer.allocateDirect(size));
+            return new QpidByteBuffer(new NonPooledByteBufferRef(ByteBuffer.allocateDirect(size)));
         }
-        return new QpidByteBuffer(ref);
     }
 
     public static Collection<QpidByteBuffer> allocateDirectCollection(int size)
@@ -528,39 +512,13 @@ public final class QpidByteBuffer
         {
             List<QpidByteBuffer> buffers = new ArrayList<>((size / _pooledBufferSize)+2);
             int remaining = size;
-
-            QpidByteBuffer buf = _cachedBuffer.get();
-            if(buf == null)
-            {
-                buf = allocateDirect(_pooledBufferSize);
-            }
-            while(remaining > buf.remaining())
-            {
-                int bufRemaining = buf.remaining();
-                if (buf  == _cachedBuffer.get())
-                {
-                    buffers.add(buf.view(0, bufRemaining));
-                    buf.dispose();
-                }
-                else
-                {
-                    buffers.add(buf);
-                }
-                remaining -= bufRemaining;
-                buf = allocateDirect(_pooledBufferSize);
-            }
-            buffers.add(buf.view(0, remaining));
-            buf.position(buf.position() + remaining);
-
-            if (buf.hasRemaining())
-            {
-                _cachedBuffer.set(buf);
-            }
-            else
+            do
             {
-                _cachedBuffer.set(allocateDirect(_pooledBufferSize));
-                buf.dispose();
+                int chunkSize = Math.min(remaining, _pooledBufferSize);
+                buffers.add(allocateDirect(chunkSize));
+                remaining -= chunkSize;
             }
+            while (remaining > 0);
             return buffers;
         }
     }
@@ -703,6 +661,11 @@ public final class QpidByteBuffer
         _bufferPool.returnBuffer(buffer);
     }
 
+    static void detachFromPool()
+    {
+        _bufferPool.detachBuffer();
+    }
+
     public synchronized static void initialisePool(int bufferSize, int maxPoolSize)
     {
         if (_isPoolInitialized && (bufferSize != _pooledBufferSize || maxPoolSize != _bufferPool.getMaxSize()))
@@ -718,12 +681,39 @@ public final class QpidByteBuffer
         }
 
 
-        _bufferPool = new BufferPool(maxPoolSize);
+        _bufferPool = new BufferPool(bufferSize, maxPoolSize);
         _pooledBufferSize = bufferSize;
         _zeroed = ByteBuffer.allocateDirect(_pooledBufferSize);
         _isPoolInitialized = true;
     }
 
+    /**
+     * @return the number of pooled direct buffer allocations satisfied from the pool
+     */
+    public static long getPooledBufferHitCount()
+    {
+        final BufferPool bufferPool = _bufferPool;
+        return bufferPool == null ? 0L : bufferPool.getHitCount();
+    }
+
+    /**
+     * @return the number of pooled direct buffer allocations that required a new buffer to be allocated
+     */
+    public static long getPooledBufferMissCount()
+    {
+        final BufferPool bufferPool = _bufferPool;
+        return bufferPool == null ? 0L : bufferPool.getMissCount();
+    }
+
+    /**
+     * @return the number of pooled direct buffers currently loaned out and not yet returned to the pool
+     */
+    public static long getPooledBuffersInUse()
+    {
+        final BufferPool bufferPool = _bufferPool;
+        return bufferPool == null ? 0L : bufferPool.getInUseCount();
+    }
+
     private final class BufferInputStream extends InputStream
     {
 
@@ -0,0 +1,512 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.filter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A selector expression flattened into a tree of nodes specialised for the common selector forms.
+ * <p>
+ * Each distinct property referenced by the selector is assigned a slot and is looked up at most once per evaluation,
+ * however many times the selector refers to it.  Equality and IN tests against string literals, and comparisons of
+ * integral property values against integer literals, are evaluated directly without the general type promotion of
+ * {@link ComparisonExpression}.  Any other sub-expression is evaluated by the original expression tree, so a compiled
+ * selector always gives the same result as the expression it was compiled from.
+ */
+public final class CompiledSelector<E> implements BooleanExpression<E>
+{
+    private static final Object UNRESOLVED = new Object();
+
+    private final BooleanExpression<E> _expression;
+    private final Node<E> _root;
+    private final int _propertyCount;
+
+    private CompiledSelector(final BooleanExpression<E> expression, final Node<E> root, final int propertyCount)
+    {
+        _expression = expression;
+        _root = root;
+        _propertyCount = propertyCount;
+    }
+
+    /**
+     * @return a compiled form of the expression, or the expression itself if no part of it could be specialised
+     */
+    public static <E> BooleanExpression<E> compile(final BooleanExpression<E> expression)
+    {
+        Compiler<E> compiler = new Compiler<>();
+        Node<E> root = compiler.compile(expression);
+        if (root instanceof InterpretedNode)
+        {
+            return expression;
+        }
+        return new CompiledSelector<>(expression, root, compiler._slots.size());
+    }
+
+    @Override
+    public Object evaluate(final E message)
+    {
+        return _root.evaluate(message, newPropertyValues());
+    }
+
+    @Override
+    public boolean matches(final E message)
+    {
+        return _root.evaluate(message, newPropertyValues()) == Boolean.TRUE;
+    }
+
+    private Object[] newPropertyValues()
+    {
+        Object[] values = new Object[_propertyCount];
+        Arrays.fill(values, UNRESOLVED);
+        return values;
+    }
+
+    @Override
+    public String toString()
+    {
+        return _expression.toString();
+    }
+
+    private static final class Compiler<E>
+    {
+        private final Map<PropertyExpression<E>, Integer> _slots = new HashMap<>();
+
+        private Node<E> compile(final Expression<E> expression)
+        {
+            if (expression instanceof PropertyExpression)
+            {
+                PropertyExpression<E> property = (PropertyExpression<E>) expression;
+                Integer slot = _slots.get(property);
+                if (slot == null)
+                {
+                    slot = _slots.size();
+                    _slots.put(property, slot);
+                }
+                return new PropertyNode<>(property, slot);
+            }
+            else if (expression instanceof LogicExpression.AndExpression)
+            {
+                LogicExpression<E> and = (LogicExpression<E>) expression;
+                return new AndNode<>(compile(and.getLeft()), compile(and.getRight()));
+            }
+            else if (expression instanceof LogicExpression.OrExpression)
+            {
+                LogicExpression<E> or = (LogicExpression<E>) expression;
+                return new OrNode<>(compile(or.getLeft()), compile(or.getRight()));
+            }
+            else if (expression instanceof UnaryExpression.NotExpression)
+            {
+                return new NotNode<>(compile(((UnaryExpression<E>) expression).getRight()));
+            }
+            else if (expression instanceof UnaryExpression.BooleanCastExpression)
+            {
+                return new BooleanCastNode<>(compile(((UnaryExpression<E>) expression).getRight()));
+            }
+            else if (expression instanceof UnaryExpression.InExpression)
+            {
+                return compileIn((UnaryExpression.InExpression<E>) expression);
+            }
+            else if (expression instanceof ComparisonExpression)
+            {
+                return compileComparison((ComparisonExpression<E>) expression);
+            }
+            return new InterpretedNode<>(expression);
+        }
+
+        private Node<E> compileIn(final UnaryExpression.InExpression<E> in)
+        {
+            Collection<?> inList = in.getInList();
+            if (in.getRight() instanceof PropertyExpression && inList != null)
+            {
+                Set<String> values = new HashSet<>(inList.size());
+                for (Object element : inList)
+                {
+                    if (!(element instanceof String))
+                    {
+                        return new InterpretedNode<>(in);
+                    }
+                    values.add((String) element);
+                }
+                return new StringInNode<>(in, compile(in.getRight()), values, in.isNot(), in.isAllowNonJms());
+            }
+            return new InterpretedNode<>(in);
+        }
+
+        private Node<E> compileComparison(final ComparisonExpression<E> comparison)
+        {
+            Expression<E> left = comparison.getLeft();
+            Expression<E> right = comparison.getRight();
+            Operator operator = Operator.fromSymbol(comparison.getExpressionSymbol());
+            boolean constantOnLeft = false;
+
+            if (operator != null && left instanceof ConstantExpression && right instanceof PropertyExpression)
+            {
+                Expression<E> swap = left;
+                left = right;
+                right = swap;
+                operator = operator.reverse();
+                constantOnLeft = true;
+            }
+
+            if (operator != null && left instanceof PropertyExpression && right instanceof ConstantExpression)
+            {
+                Object constant = ((ConstantExpression<E>) right).getValue();
+                if (operator == Operator.EQ && constant instanceof String)
+                {
+                    return new StringEqualsNode<>(compile(left), (String) constant);
+                }
+                else if (constant instanceof Integer || constant instanceof Long)
+                {
+                    return new IntegralComparisonNode<>(comparison,
+                                                        compile(left),
+                                                        ((Number) constant).longValue(),
+                                                        operator,
+                                                        constantOnLeft);
+                }
+            }
+            return new InterpretedNode<E>(comparison);
+        }
+    }
+
+    private enum Operator
+    {
+        EQ, LT, LE, GT, GE;
+
+        static Operator fromSymbol(final String symbol)
+        {
+            switch (symbol)
+            {
+                case "=":
+                    return EQ;
+                case "<":
+                    return LT;
+                case "<=":
+                    return LE;
+                case ">":
+                    return GT;
+                case ">=":
+                    return GE;
+                default:
+                    return null;
+            }
+        }
+
+        Operator reverse()
+        {
+            switch (this)
+            {
+                case LT:
+                    return GT;
+                case LE:
+                    return GE;
+                case GT:
+                    return LT;
+                case GE:
+                    return LE;
+                default:
+                    return this;
+            }
+        }
+
+        boolean test(final long value, final long constant)
+        {
+            switch (this)
+            {
+                case EQ:
+                    return value == constant;
+                case LT:
+                    return value < constant;
+                case LE:
+                    return value <= constant;
+                case GT:
+                    return value > constant;
+                default:
+                    return value >= constant;
+            }
+        }
+    }
+
+    private static abstract class Node<E>
+    {
+        abstract Object evaluate(E message, Object[] propertyValues);
+    }
+
+    private static final class InterpretedNode<E> extends Node<E>
+    {
+        private final Expression<E> _expression;
+
+        private InterpretedNode(final Expression<E> expression)
+        {
+            _expression = expression;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyValues)
+        {
+            return _expression.evaluate(message);
+        }
+    }
+
+    private static final class PropertyNode<E> extends Node<E>
+    {
+        private final PropertyExpression<E> _property;
+        private final int _slot;
+
+        private PropertyNode(final PropertyExpression<E> property, final int slot)
+        {
+            _property = property;
+            _slot = slot;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyValues)
+        {
+            Object value = propertyValues[_slot];
+            if (value == UNRESOLVED)
+            {
+                value = _property.evaluate(message);
+                propertyValues[_slot] = value;
+            }
+            return value;
+        }
+    }
+
+    private static final class AndNode<E> extends Node<E>
+    {
+        private final Node<E> _left;
+        private final Node<E> _right;
+
+        private AndNode(final Node<E> left, final Node<E> right)
+        {
+            _left = left;
+            _right = right;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyValues)
+        {
+            Boolean lv = (Boolean) _left.evaluate(message, propertyValues);
+            if (lv == null)
+            {
+                return null;
+            }
+            if (!lv)
+            {
+                return Boolean.FALSE;
+            }
+            return _right.evaluate(message, propertyValues);
+        }
+    }
+
+    private static final class OrNode<E> extends Node<E>
+    {
+        private final Node<E> _left;
+        private final Node<E> _right;
+
+        private OrNode(final Node<E> left, final Node<E> right)
+        {
+            _left = left;
+            _right = right;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyValues)
+        {
+            Boolean lv = (Boolean) _left.evaluate(message, propertyValues);
+            if (lv != null && lv)
+            {
+                return Boolean.TRUE;
+            }
+            return _right.evaluate(message, propertyValues);
+        }
+    }
+
+    private static final class NotNode<E> extends Node<E>
+    {
+        private final Node<E> _operand;
+
+        private NotNode(final Node<E> operand)
+        {
+            _operand = operand;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyValues)
+        {
+            Boolean value = (Boolean) _operand.evaluate(message, propertyValues);
+            if (value == null)
+            {
+                return null;
+            }
+            return value ? Boolean.FALSE : Boolean.TRUE;
+        }
+    }
+
+    private static final class BooleanCastNode<E> extends Node<E>
+    {
+        private final Node<E> _operand;
+
+        private BooleanCastNode(final Node<E> operand)
+        {
+            _operand = operand;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyValues)
+        {
+            Object value = _operand.evaluate(message, propertyValues);
+            if (value == null)
+            {
+                return null;
+            }
+            if (value.getClass() != Boolean.class)
+            {
+                return Boolean.FALSE;
+            }
+            return ((Boolean) value) ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+
+    private static final class StringEqualsNode<E> extends Node<E>
+    {
+        private final Node<E> _operand;
+        private final String _constant;
+
+        private StringEqualsNode(final Node<E> operand, final String constant)
+        {
+            _operand = operand;
+            _constant = constant;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyValues)
+        {
+            Object value = _operand.evaluate(message, propertyValues);
+            if (value == null)
+            {
+                return Boolean.FALSE;
+            }
+            if (value.equals(_constant))
+            {
+                return Boolean.TRUE;
+            }
+            if (value instanceof Enum)
+            {
+                try
+                {
+                    return Enum.valueOf((Class<Enum>) value.getClass(), _constant) == value
+                            ? Boolean.TRUE
+                            : Boolean.FALSE;
+                }
+                catch (IllegalArgumentException e)
+                {
+                    return Boolean.FALSE;
+                }
+            }
+            return Boolean.FALSE;
+        }
+    }
+
+    private static final class StringInNode<E> extends Node<E>
+    {
+        private final Expression<E> _expression;
+        private final Node<E> _operand;
+        private final Set<String> _values;
+        private final boolean _not;
+        private final boolean _allowNonJms;
+
+        private StringInNode(final Expression<E> expression,
+                             final Node<E> operand,
+                             final Set<String> values,
+                             final boolean not,
+                             final boolean allowNonJms)
+        {
+            _expression = expression;
+            _operand = operand;
+            _values = values;
+            _not = not;
+            _allowNonJms = allowNonJms;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyValues)
+        {
+            Object value = _operand.evaluate(message, propertyValues);
+            if (value instanceof String)
+            {
+                return _values.contains(value) ^ _not ? Boolean.TRUE : Boolean.FALSE;
+            }
+            else if (value == null || !_allowNonJms)
+            {
+                return null;
+            }
+            return _expression.evaluate(message);
+        }
+    }
+
+    private static final class IntegralComparisonNode<E> extends Node<E>
+    {
+        private final Expression<E> _expression;
+        private final Node<E> _operand;
+        private final long _constant;
+        private final Operator _operator;
+        private final boolean _constantOnLeft;
+
+        private IntegralComparisonNode(final Expression<E> expression,
+                                       final Node<E> operand,
+                                       final long constant,
+                                       final Operator operator,
+                                       final boolean constantOnLeft)
+        {
+            _expression = expression;
+            _operand = operand;
+            _constant = constant;
+            _operator = operator;
+            _constantOnLeft = constantOnLeft;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyValues)
+        {
+            Object value = _operand.evaluate(message, propertyValues);
+            if (value == null)
+            {
+                // equality with a missing property is false, other comparisons are unknown
+                return _operator == Operator.EQ ? Boolean.FALSE : null;
+            }
+            // ComparisonExpression only widens the left operand to the type of the right, so a byte or short
+            // property compared with a literal written first is left to the interpreted expression
+            Class<?> valueClass = value.getClass();
+            if (valueClass == Integer.class
+                || valueClass == Long.class
+                || (!_constantOnLeft && (valueClass == Short.class || valueClass == Byte.class)))
+            {
+                return _operator.test(((Number) value).longValue(), _constant) ? Boolean.TRUE : Boolean.FALSE;
+            }
+            return _expression.evaluate(message);
+        }
+    }
+}
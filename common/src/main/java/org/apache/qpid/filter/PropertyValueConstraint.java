@@ -0,0 +1,127 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.filter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A necessary condition of a selector: the value of a single property must be one of a set of string constants.
+ * <p>
+ * Constraints are extracted from the equality ({@code prop = 'value'}) and IN ({@code prop IN ('a', 'b')}) terms of
+ * a selector, looking through any enclosing top level ANDs.  A message whose property value does not satisfy the
+ * constraint cannot match the selector, so the constraint may be used to discard messages without evaluating the
+ * full expression.
+ */
+public final class PropertyValueConstraint<E>
+{
+    private final PropertyExpression<E> _property;
+    private final Set<String> _values;
+
+    private PropertyValueConstraint(final PropertyExpression<E> property, final Set<String> values)
+    {
+        _property = property;
+        _values = values;
+    }
+
+    /**
+     * @return the constraint implied by the given selector expression, or null if no constraint can be extracted
+     */
+    public static <E> PropertyValueConstraint<E> fromExpression(final BooleanExpression<E> expression)
+    {
+        if (expression instanceof LogicExpression.AndExpression)
+        {
+            LogicExpression<E> and = (LogicExpression<E>) expression;
+            PropertyValueConstraint<E> constraint = fromExpression((BooleanExpression<E>) and.getLeft());
+            return constraint != null ? constraint : fromExpression((BooleanExpression<E>) and.getRight());
+        }
+        else if (expression instanceof ComparisonExpression.EqualExpression)
+        {
+            ComparisonExpression<E> equal = (ComparisonExpression<E>) expression;
+            PropertyValueConstraint<E> constraint = fromEquality(equal.getLeft(), equal.getRight());
+            return constraint != null ? constraint : fromEquality(equal.getRight(), equal.getLeft());
+        }
+        else if (expression instanceof UnaryExpression.InExpression)
+        {
+            UnaryExpression.InExpression<E> in = (UnaryExpression.InExpression<E>) expression;
+            Collection<?> inList = in.getInList();
+            if (in.isNot() || inList == null || !(in.getRight() instanceof PropertyExpression))
+            {
+                return null;
+            }
+            Set<String> values = new HashSet<>(inList.size());
+            for (Object element : inList)
+            {
+                if (!(element instanceof String))
+                {
+                    return null;
+                }
+                values.add((String) element);
+            }
+            return new PropertyValueConstraint<>((PropertyExpression<E>) in.getRight(), values);
+        }
+        return null;
+    }
+
+    private static <E> PropertyValueConstraint<E> fromEquality(final Expression<E> property, final Expression<E> constant)
+    {
+        if (property instanceof PropertyExpression
+            && constant instanceof ConstantExpression
+            && ((ConstantExpression<E>) constant).getValue() instanceof String)
+        {
+            String value = (String) ((ConstantExpression<E>) constant).getValue();
+            return new PropertyValueConstraint<>((PropertyExpression<E>) property, Collections.singleton(value));
+        }
+        return null;
+    }
+
+    public PropertyExpression<E> getProperty()
+    {
+        return _property;
+    }
+
+    public Set<String> getValues()
+    {
+        return _values;
+    }
+
+    /**
+     * @param propertyValue the value of the constrained property for a message
+     * @return false if a message with this property value cannot match the selector
+     */
+    public boolean mightMatch(final Object propertyValue)
+    {
+        if (propertyValue instanceof String)
+        {
+            return _values.contains(propertyValue);
+        }
+        // the selector never matches a missing property; values of other types are left to the full evaluation
+        return propertyValue != null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PropertyValueConstraint[" + _property + " IN " + _values + "]";
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.bytebuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class BufferPoolTest extends QpidTestCase
+{
+    private static final int LARGEST_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOL_SIZE = 4;
+
+    private BufferPool _pool;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _pool = new BufferPool(LARGEST_BUFFER_SIZE, MAX_POOL_SIZE);
+    }
+
+    public void testSizeClassCapacity()
+    {
+        assertEquals(BufferPool.MINIMUM_SIZE_CLASS, _pool.getSizeClassCapacity(0));
+        assertEquals(BufferPool.MINIMUM_SIZE_CLASS, _pool.getSizeClassCapacity(1));
+        assertEquals(BufferPool.MINIMUM_SIZE_CLASS, _pool.getSizeClassCapacity(BufferPool.MINIMUM_SIZE_CLASS));
+        assertEquals(2 * BufferPool.MINIMUM_SIZE_CLASS, _pool.getSizeClassCapacity(BufferPool.MINIMUM_SIZE_CLASS + 1));
+        assertEquals(4096, _pool.getSizeClassCapacity(3000));
+        assertEquals(LARGEST_BUFFER_SIZE, _pool.getSizeClassCapacity(LARGEST_BUFFER_SIZE - 1));
+        assertEquals(LARGEST_BUFFER_SIZE, _pool.getSizeClassCapacity(LARGEST_BUFFER_SIZE));
+    }
+
+    public void testSizeClassCapacityWhenLargestBufferIsNotPowerOfTwo()
+    {
+        BufferPool pool = new BufferPool(3000, MAX_POOL_SIZE);
+        assertEquals(2048, pool.getSizeClassCapacity(2000));
+        assertEquals(3000, pool.getSizeClassCapacity(2049));
+    }
+
+    public void testSizeClassCapacityWhenLargestBufferIsSmallerThanMinimumClass()
+    {
+        BufferPool pool = new BufferPool(10, MAX_POOL_SIZE);
+        assertEquals(10, pool.getSizeClassCapacity(5));
+        assertEquals(10, pool.getSizeClassCapacity(10));
+    }
+
+    public void testReturnedBufferIsReused()
+    {
+        assertNull("Empty pool should not return a buffer", _pool.getBuffer(1000));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(_pool.getSizeClassCapacity(1000));
+        _pool.returnBuffer(buffer);
+
+        assertSame("Returned buffer should be reused for the same size class", buffer, _pool.getBuffer(600));
+        assertNull("Buffer should not be loaned twice", _pool.getBuffer(600));
+    }
+
+    public void testBuffersOfDifferentSizeClassesAreNotMixed()
+    {
+        _pool.returnBuffer(ByteBuffer.allocateDirect(BufferPool.MINIMUM_SIZE_CLASS));
+        assertNull("Small buffer must not satisfy a larger allocation", _pool.getBuffer(LARGEST_BUFFER_SIZE));
+    }
+
+    public void testBufferNotMatchingASizeClassIsNotPooled()
+    {
+        _pool.returnBuffer(ByteBuffer.allocateDirect(BufferPool.MINIMUM_SIZE_CLASS + 1));
+        assertNull(_pool.getBuffer(BufferPool.MINIMUM_SIZE_CLASS + 1));
+    }
+
+    public void testBuffersReturnedByOtherThreadAreAvailableThroughDepot() throws Exception
+    {
+        final List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 32; i++)
+        {
+            buffers.add(ByteBuffer.allocateDirect(LARGEST_BUFFER_SIZE));
+        }
+
+        Thread returner = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (ByteBuffer buffer : buffers)
+                {
+                    _pool.returnBuffer(buffer);
+                }
+            }
+        });
+        returner.start();
+        returner.join();
+
+        int reused = 0;
+        while (_pool.getBuffer(LARGEST_BUFFER_SIZE) != null)
+        {
+            reused++;
+        }
+        assertEquals("Depot should be bounded by the maximum pool size", MAX_POOL_SIZE, reused);
+    }
+
+    public void testMagazineOfTerminatedThreadIsReclaimed() throws Exception
+    {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(LARGEST_BUFFER_SIZE);
+        runOnOtherThread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                _pool.returnBuffer(buffer);
+            }
+        });
+
+        assertSame("Buffer held by a terminated thread should be reclaimed", buffer, _pool.getBuffer(LARGEST_BUFFER_SIZE));
+    }
+
+    public void testMagazinesCountTowardsPoolBound() throws Exception
+    {
+        final BufferPool pool = new BufferPool(LARGEST_BUFFER_SIZE, 1);
+        pool.returnBuffer(ByteBuffer.allocateDirect(LARGEST_BUFFER_SIZE));
+
+        final ByteBuffer[] reused = new ByteBuffer[1];
+        runOnOtherThread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                pool.returnBuffer(ByteBuffer.allocateDirect(LARGEST_BUFFER_SIZE));
+                reused[0] = pool.getBuffer(LARGEST_BUFFER_SIZE);
+            }
+        });
+
+        assertNull("Buffer should not be pooled beyond the bound already reserved by another magazine", reused[0]);
+    }
+
+    public void testStatisticsOfTerminatedThreadAreRetained() throws Exception
+    {
+        runOnOtherThread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                assertNull(_pool.getBuffer(100));
+                _pool.returnBuffer(ByteBuffer.allocateDirect(_pool.getSizeClassCapacity(100)));
+                _pool.getBuffer(100);
+            }
+        });
+
+        assertEquals(1, _pool.getHitCount());
+        assertEquals(1, _pool.getMissCount());
+        assertEquals(1, _pool.getInUseCount());
+    }
+
+    public void testStatistics()
+    {
+        assertNull(_pool.getBuffer(100));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(_pool.getSizeClassCapacity(100));
+        assertEquals(0, _pool.getHitCount());
+        assertEquals(1, _pool.getMissCount());
+        assertEquals(1, _pool.getInUseCount());
+
+        _pool.returnBuffer(buffer);
+        assertEquals(0, _pool.getInUseCount());
+
+        assertSame(buffer, _pool.getBuffer(100));
+        assertEquals(1, _pool.getHitCount());
+        assertEquals(1, _pool.getMissCount());
+        assertEquals(1, _pool.getInUseCount());
+    }
+
+    public void testDetachedBufferIsNoLongerInUse()
+    {
+        assertNull(_pool.getBuffer(100));
+        assertEquals(1, _pool.getInUseCount());
+
+        _pool.detachBuffer();
+        assertEquals(0, _pool.getInUseCount());
+        assertNull("Detached buffer should not have been pooled", _pool.getBuffer(100));
+    }
+
+    public void testBuffersReleasedByOtherThreadAreNoLongerInUse() throws Exception
+    {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(_pool.getSizeClassCapacity(100));
+        assertNull(_pool.getBuffer(100));
+        runOnOtherThread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                _pool.returnBuffer(buffer);
+            }
+        });
+        assertEquals(0, _pool.getInUseCount());
+    }
+
+    private void runOnOtherThread(final Runnable runnable) throws Exception
+    {
+        final Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    runnable.run();
+                }
+                catch (Throwable t)
+                {
+                    failure[0] = t;
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        if (failure[0] != null)
+        {
+            throw new AssertionError(failure[0]);
+        }
+    }
+}
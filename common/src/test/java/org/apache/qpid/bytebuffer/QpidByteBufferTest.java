@@ -56,6 +56,20 @@ public class QpidByteBufferTest extends QpidTestCase
         assertEquals("Pooled QpidByteBuffer is not zeroed.", (byte) 0x0, buffer.get());
     }
 
+    public void testBufferDetachedFromPoolIsNoLongerInUse() throws Exception
+    {
+        final long inUse = QpidByteBuffer.getPooledBuffersInUse();
+        QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(BUFFER_SIZE);
+        assertEquals("Unexpected number of buffers in use after allocation", inUse + 1, QpidByteBuffer.getPooledBuffersInUse());
+
+        buffer.asByteBuffer();
+        assertEquals("Detached buffer should no longer be in use", inUse, QpidByteBuffer.getPooledBuffersInUse());
+
+        buffer.asByteBuffer();
+        buffer.dispose();
+        assertEquals("Detached buffer should be released only once", inUse, QpidByteBuffer.getPooledBuffersInUse());
+    }
+
     public void testAllocateDirectOfSameSize() throws Exception
     {
         int bufferSize = BUFFER_SIZE;
@@ -0,0 +1,191 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.filter.selector.SelectorParser;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class CompiledSelectorTest extends QpidTestCase
+{
+    private static final String[] SELECTORS = {
+            "JMSCorrelationID = 'abc'",
+            "colour = 'red'",
+            "'red' = colour",
+            "colour <> 'red'",
+            "colour IN ('red', 'blue')",
+            "colour NOT IN ('red', 'blue')",
+            "size > 5",
+            "5 < size",
+            "size = 5",
+            "size BETWEEN 3 AND 7",
+            "NOT (size > 5)",
+            "colour = 'red' OR size < 0",
+            "flag",
+            "size = 3000000000",
+            "colour = 'red' AND (size > 1 OR shape IN ('square', 'circle'))"
+    };
+
+    private static final Object[] COLOURS = {null, "red", "blue", "green", 5};
+    private static final Object[] SIZES = {null, 0, 5, 6, (short) 7, (byte) 5, 5L, 3000000000L, 5.0d, "5", true};
+    private static final Object[] FLAGS = {null, true, false, "true"};
+
+    public void testCompiledSelectorsAgreeWithInterpretedSelectors() throws Exception
+    {
+        for (String selector : SELECTORS)
+        {
+            BooleanExpression<FilterableMessage> expression = parse(selector);
+            BooleanExpression<FilterableMessage> compiled = CompiledSelector.compile(expression);
+            assertTrue("Selector should have been compiled: " + selector, compiled instanceof CompiledSelector);
+
+            for (Object colour : COLOURS)
+            {
+                for (Object size : SIZES)
+                {
+                    for (Object flag : FLAGS)
+                    {
+                        TestMessage message = new TestMessage();
+                        message.setHeader("colour", colour);
+                        message.setHeader("size", size);
+                        message.setHeader("flag", flag);
+                        message.setHeader("shape", colour);
+
+                        String description = selector + " with " + message;
+                        assertEquals(description, expression.evaluate(message), compiled.evaluate(message));
+                        assertEquals(description, expression.matches(message), compiled.matches(message));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testPropertyEvaluatedOncePerMessage() throws Exception
+    {
+        BooleanExpression<FilterableMessage> compiled = CompiledSelector.compile(parse("size BETWEEN 3 AND 7"));
+
+        TestMessage message = new TestMessage();
+        message.setHeader("size", 5);
+
+        assertTrue(compiled.matches(message));
+        assertEquals("Unexpected number of header lookups", 1, message.getHeaderLookups());
+    }
+
+    public void testUnsupportedExpressionNotCompiled() throws Exception
+    {
+        BooleanExpression<FilterableMessage> expression = parse("colour LIKE 'r%'");
+        assertSame(expression, CompiledSelector.compile(expression));
+    }
+
+    private BooleanExpression<FilterableMessage> parse(final String selector) throws Exception
+    {
+        SelectorParser<FilterableMessage> parser = new SelectorParser<>();
+        parser.setPropertyExpressionFactory(JMSMessagePropertyExpression.FACTORY);
+        return parser.parse(selector);
+    }
+
+    private static class TestMessage implements FilterableMessage
+    {
+        private final Map<String, Object> _headers = new HashMap<>();
+        private int _headerLookups;
+
+        void setHeader(final String name, final Object value)
+        {
+            if (value != null)
+            {
+                _headers.put(name, value);
+            }
+        }
+
+        int getHeaderLookups()
+        {
+            return _headerLookups;
+        }
+
+        @Override
+        public boolean isPersistent()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isRedelivered()
+        {
+            return false;
+        }
+
+        @Override
+        public Object getHeader(final String name)
+        {
+            _headerLookups++;
+            return _headers.get(name);
+        }
+
+        @Override
+        public String getReplyTo()
+        {
+            return null;
+        }
+
+        @Override
+        public String getType()
+        {
+            return null;
+        }
+
+        @Override
+        public byte getPriority()
+        {
+            return 4;
+        }
+
+        @Override
+        public String getMessageId()
+        {
+            return null;
+        }
+
+        @Override
+        public long getTimestamp()
+        {
+            return 0;
+        }
+
+        @Override
+        public String getCorrelationId()
+        {
+            return "abc";
+        }
+
+        @Override
+        public long getExpiration()
+        {
+            return 0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return _headers.toString();
+        }
+    }
+}